@@ -0,0 +1,62 @@
+package yapper.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import yapper.io.FileHandler;
+import yapper.io.InputFileHandler;
+import yapper.io.MappedTextTaskStorage;
+import yapper.io.TextTaskStorage;
+import yapper.tasks.TaskHandler;
+
+/**
+ * Benchmarks loading a text save file on start-up, the way each loading flag does it:
+ * line by line, in parallel chunks (--parallel), and memory-mapped without parsing (--journal --lazy).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int lineTotal;
+    @Param({"text", "parallel", "lazy"})
+    public String loading;
+
+
+    @Setup(Level.Trial)
+    public void writeSaveFile() throws IOException {
+        SyntheticTasks.clearSaveFolder();
+        SyntheticTasks.writeTextSaveFile(lineTotal);
+        boolean isLazy = loading.equals("lazy");
+        FileHandler.setTaskStorage(isLazy ? new MappedTextTaskStorage() : new TextTaskStorage());
+        FileHandler.setJournalMode(isLazy);
+        FileHandler.setParallelLoading(loading.equals("parallel"));
+        SyntheticTasks.silenceOutput();
+    }
+    @TearDown(Level.Trial)
+    public void restoreOutput() {
+        SyntheticTasks.restoreOutput();
+    }
+
+    @Benchmark
+    public TaskHandler loadTasksFromFile() {
+        return InputFileHandler.loadTasksFromFile();
+    }
+}
@@ -0,0 +1,46 @@
+package yapper.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import yapper.exceptions.YapperException;
+import yapper.instructions.Instruction;
+import yapper.io.InputStringHandler;
+
+/**
+ * Benchmarks parsing one line of user input into an instruction, for each kind of instruction.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+    @Param({
+        "list",
+        "todo read report 12",
+        "deadline submit report /by 2024-01-15 1200",
+        "event project meeting /from 2024-01-15 1200 /to 2024-01-15 1400",
+        "mark 12",
+        "delete 12",
+        "find report"
+    })
+    public String userInput;
+
+
+    @Benchmark
+    public Instruction parseUserInput() throws YapperException {
+        return InputStringHandler.parseUserInput(userInput);
+    }
+}
@@ -0,0 +1,74 @@
+package yapper.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import yapper.io.OutputStringHandler;
+import yapper.tasks.TaskHandler;
+
+/**
+ * Benchmarks building the replies to list (one page) and find, with the printing itself discarded.
+ *
+ * <p>
+ * The first find builds the search index, which happens during warm-up,
+ * so it is the search that is measured, not building the index.
+ * </p>
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class PrintTasksBenchmark {
+    @Param({"1000", "100000"})
+    public int taskTotal;
+
+    private TaskHandler taskHandler;
+
+
+    @Setup(Level.Trial)
+    public void generateTasks() {
+        taskHandler = SyntheticTasks.generateTaskHandler(taskTotal);
+        SyntheticTasks.silenceOutput();
+    }
+    @TearDown(Level.Trial)
+    public void restoreOutput() {
+        SyntheticTasks.restoreOutput();
+    }
+
+    @Benchmark
+    public void printSelectedTasks(FindQuery findQuery) {
+        OutputStringHandler.printSelectedTasks(taskHandler, findQuery.query);
+    }
+    @Benchmark
+    public void printTaskPage() {
+        OutputStringHandler.printTaskPage(taskHandler, 1, 20);
+    }
+
+    /**
+     * The query to find, kept apart so that only the find benchmark runs once per query.
+     */
+    @State(Scope.Thread)
+    public static class FindQuery {
+        /**
+         * A common word, a word with its number, which matches few tasks, and a word that matches none.
+         */
+        @Param({"report", "report 99", "zebra"})
+        public String query;
+    }
+}
@@ -0,0 +1,82 @@
+package yapper.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import yapper.exceptions.YapperException;
+import yapper.io.BinaryTaskStorage;
+import yapper.io.FileHandler;
+import yapper.io.InputFileHandler;
+import yapper.io.OutputFileHandler;
+import yapper.io.TextTaskStorage;
+import yapper.tasks.Task;
+import yapper.tasks.TaskHandler;
+
+/**
+ * Benchmarks saving the task list, in full and after marking a task, for each save format:
+ * the text save file, the text save file with a journal (--journal), and the binary save file (--binary).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class StoreBenchmark {
+    @Param({"1000", "100000"})
+    public int taskTotal;
+    @Param({"text", "journal", "binary"})
+    public String format;
+
+    private TaskHandler taskHandler;
+    private int nextOrdinal = 0;
+
+
+    @Setup(Level.Trial)
+    public void loadTasks() throws IOException, YapperException {
+        SyntheticTasks.clearSaveFolder();
+        SyntheticTasks.silenceOutput();
+        FileHandler.setTaskStorage(format.equals("binary") ? new BinaryTaskStorage() : new TextTaskStorage());
+        FileHandler.setJournalMode(format.equals("journal"));
+        FileHandler.setParallelLoading(false);
+        taskHandler = InputFileHandler.loadTasksFromFile();
+        for (Task task : SyntheticTasks.generateTasks(taskTotal)) {
+            taskHandler.addTask(task);
+        }
+        OutputFileHandler.storeAllTasks(taskHandler);
+    }
+    @TearDown(Level.Trial)
+    public void restoreOutput() {
+        SyntheticTasks.restoreOutput();
+    }
+
+    @Benchmark
+    public void storeAllTasks() throws YapperException {
+        OutputFileHandler.storeAllTasks(taskHandler);
+    }
+    /**
+     * Marks or unmarks the next task, spreading the changes over the whole list.
+     */
+    @Benchmark
+    public void amendTaskStatus() throws YapperException {
+        int taskOrdinal = nextOrdinal;
+        nextOrdinal = (nextOrdinal + 7919) % taskTotal;
+        Task task = taskHandler.getTaskAtOrdinal(taskOrdinal);
+        taskHandler.updateTaskStatus(task, !task.isDone());
+        OutputFileHandler.amendTaskStatus(task, taskOrdinal);
+    }
+}
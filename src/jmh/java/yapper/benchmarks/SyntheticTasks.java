@@ -0,0 +1,153 @@
+package yapper.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import yapper.io.SnapshotFileHandler;
+import yapper.io.StringStorage;
+import yapper.tasks.Deadline;
+import yapper.tasks.Event;
+import yapper.tasks.SlottedTaskHandler;
+import yapper.tasks.Task;
+import yapper.tasks.TaskHandler;
+import yapper.tasks.Todo;
+
+/**
+ * Synthetic Task Lists for the Yapper benchmarks.
+ *
+ * <p>
+ * Generates the same mix of tasks for the same seed, so that results from different releases can be compared:
+ * mostly Todos, then Deadlines, then Events, with about a third of them done,
+ * and descriptions drawn from a small vocabulary, so that find has matches to report.
+ * </p>
+ *
+ * <p>
+ * The benchmarks run with the "yapper.saveFolder" system property pointing into the build folder,
+ * see build.gradle, so the save files written here never replace the real one.
+ * </p>
+ *
+ */
+public class SyntheticTasks {
+    public static final long SEED = 42;
+    /**
+     * Words that descriptions are made of, and so the words worth finding.
+     */
+    public static final String[] VOCABULARY = {
+        "read", "write", "report", "groceries", "call", "meeting", "review", "book", "gym", "email",
+        "project", "laundry", "lecture", "tutorial", "exam", "dentist", "rent", "invoice", "plan", "trip"
+    };
+    private static final String[] DATES = {
+        "2024-01-15 1200", "2024-03-05", "2025-12-31 2359", "next monday"
+    };
+    private static final PrintStream DISCARDING_STREAM = new PrintStream(OutputStream.nullOutputStream());
+
+    private static PrintStream userOutput;
+
+
+    /**
+     * Generates tasks with IDs from 1, as if loaded from a save file.
+     *
+     * @param taskTotal the number of tasks
+     * @return the tasks, in order
+     */
+    public static List<Task> generateTasks(int taskTotal) {
+        Random random = new Random(SEED);
+        List<Task> tasks = new ArrayList<>(taskTotal);
+        for (int index = 0; index < taskTotal; index++) {
+            String taskDesc = VOCABULARY[random.nextInt(VOCABULARY.length)] + " "
+                    + VOCABULARY[random.nextInt(VOCABULARY.length)] + " " + index;
+            boolean isDone = random.nextInt(3) == 0;
+            int taskKind = random.nextInt(20);
+            Task task;
+            if (taskKind < 12) {
+                task = new Todo(taskDesc, isDone);
+            } else if (taskKind < 17) {
+                task = new Deadline(taskDesc, isDone, DATES[random.nextInt(DATES.length)]);
+            } else {
+                task = new Event(taskDesc, isDone, DATES[0], DATES[random.nextInt(DATES.length)]);
+            }
+            task.setTaskId(index + 1);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+    /**
+     * Generates a task list held in memory only.
+     *
+     * @param taskTotal the number of tasks
+     * @return a task handler holding the tasks
+     */
+    public static TaskHandler generateTaskHandler(int taskTotal) {
+        TaskHandler taskHandler = new SlottedTaskHandler();
+        for (Task task : generateTasks(taskTotal)) {
+            taskHandler.addTask(task);
+        }
+        return taskHandler;
+    }
+    /**
+     * Writes a text save file of generated tasks, the way Yapper would, footer and all.
+     *
+     * @param taskTotal the number of tasks, i.e. lines
+     * @throws IOException if the save file cannot be written
+     */
+    public static void writeTextSaveFile(int taskTotal) throws IOException {
+        List<String> taskLines = new ArrayList<>(taskTotal);
+        for (Task task : generateTasks(taskTotal)) {
+            taskLines.add(task.taskToSaveString());
+        }
+        checkSaveFolderIsMoved();
+        Files.createDirectories(Paths.get(StringStorage.SAVE_FOLDER_PATH));
+        SnapshotFileHandler.writeSnapshot(Paths.get(StringStorage.SAVE_FILE_PATH), taskLines, taskTotal + 1);
+    }
+    /**
+     * Deletes the save folder and everything in it, e.g. the journal of an earlier trial.
+     *
+     * @throws IOException if a file cannot be deleted
+     */
+    public static void clearSaveFolder() throws IOException {
+        checkSaveFolderIsMoved();
+        Path saveFolder = Paths.get(StringStorage.SAVE_FOLDER_PATH);
+        if (!Files.exists(saveFolder)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(saveFolder)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+    private static void checkSaveFolderIsMoved() {
+        if (System.getProperty("yapper.saveFolder") == null) {
+            throw new IllegalStateException("Set the yapper.saveFolder system property before running the benchmarks,"
+                    + " so the real save file is left alone");
+        }
+    }
+
+    /**
+     * Discards what Yapper prints, so that printing to the terminal is not measured.
+     * Responses are still built in full, since {@code OutputSink} only looks up its output when flushing.
+     */
+    public static void silenceOutput() {
+        if (userOutput == null) {
+            userOutput = System.out;
+        }
+        System.setOut(DISCARDING_STREAM);
+    }
+    /**
+     * Prints what Yapper prints again.
+     */
+    public static void restoreOutput() {
+        if (userOutput != null) {
+            System.setOut(userOutput);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package yapper.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import yapper.tasks.Deadline;
+import yapper.tasks.Event;
+
+/**
+ * Benchmarks constructing Deadlines and Events, which parse their dates as they are constructed,
+ * for each shape of date: a date and time, a date only, and free text that is kept as it is.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskConstructionBenchmark {
+    @Param({"2024-01-15 1200", "2024-01-15", "next monday"})
+    public String dateString;
+
+
+    @Benchmark
+    public Deadline constructDeadline() {
+        return new Deadline("submit report", false, dateString);
+    }
+    @Benchmark
+    public Event constructEvent() {
+        return new Event("project meeting", false, dateString, dateString);
+    }
+}
@@ -3,13 +3,24 @@ package yapper;
 import java.util.Scanner;
 
 import yapper.exceptions.YapperException;
+import yapper.instructions.BatchHandler;
 import yapper.instructions.Instruction;
 import yapper.instructions.InstructionHandler;
+import yapper.io.BinaryTaskStorage;
 import yapper.io.FileHandler;
 import yapper.io.InputFileHandler;
 import yapper.io.InputStringHandler;
+import yapper.io.JournalFileHandler;
+import yapper.io.MappedTextTaskStorage;
 import yapper.io.OutputFileHandler;
+import yapper.io.SaveFileConverter;
+import yapper.io.SaveFileWatcher;
 import yapper.io.StringStorage;
+import yapper.io.TaskStorage;
+import yapper.io.TextTaskStorage;
+import yapper.io.WriteBehindPersister;
+import yapper.metrics.MetricsRegistry;
+import yapper.server.YapperServer;
 import yapper.tasks.TaskHandler;
 
 /**
@@ -23,19 +34,166 @@ import yapper.tasks.TaskHandler;
  *
  */
 public class Yapper {
+    /**
+     * The script file given with --batch, run instead of reading instructions from the user.
+     */
+    private static String batchScriptPath = null;
+    /**
+     * The port given with --serve, to share the task list with clients on instead of reading from the user.
+     */
+    private static Integer servePort = null;
+    /**
+     * The durability level given with --durability, which turns on the write-behind queue,
+     * and the size of its commits given with --commit-window and --commit-size.
+     */
+    private static WriteBehindPersister.Durability durability = null;
+    private static long commitWindowMillis = StringStorage.DEFAULT_COMMIT_WINDOW_MILLIS;
+    private static int commitSize = StringStorage.DEFAULT_COMMIT_SIZE;
+    /**
+     * The file given with --stats-file, to dump the metrics to every --stats-interval seconds.
+     */
+    private static String statsFilePath = null;
+    private static long statsIntervalSeconds = StringStorage.DEFAULT_STATS_INTERVAL_SECONDS;
 
     /**
-     * If save folder and/or save file is missing, this creates them
-     * and store all tasks in the task list into the save file.
+     * Applies the command line flags that change how Yapper stores its tasks.
      *
-     * @param taskHandler the {@code TaskHandler} instance that manages the tasks to be stored.
+     * <p>
+     * Currently supports:
+     * <li> --journal: append mutations to a journal instead of rewriting the text save file. <li/>
+     * --binary: use the binary save file instead of the text save file. <li/>
+     * --lazy: memory-map the text save file and only parse tasks when they are used, implies --journal. <li/>
+     * --parallel: parse the text save file in parallel chunks. <li/>
+     * --compact: keep tasks in primitive columns instead of as objects, for very long task lists. <li/>
+     * --convert-to-binary: convert the text save file to a binary one, then use it. <li/>
+     * --convert-to-text: convert the binary save file to a text one, then use it. <li/>
+     * --batch [file]: run the instructions in the file, save once, then exit. <li/>
+     * --serve [port]: share the task list with clients connecting to the port, instead of reading from the user. <li/>
+     * --durability [none|batched|per-op]: save changes in the background, with replies following the level. <li/>
+     * --commit-window [ms]: how long the background saver waits for more changes to save together. <li/>
+     * --commit-size [changes]: the most changes the background saver saves together. <li/>
+     * --stats-file [file]: dump the metrics shown by the stats instruction to the file every so often. <li/>
+     * --stats-interval [seconds]: how often the metrics are dumped. <li/>
+     * --archive-after [days]: archive done tasks whose dates ended more than that many days ago, on loading a list.
+     * <p/>
+     *
+     * @param args the command line arguments
      */
-    private static void validateSaveFolderAndFile(TaskHandler taskHandler) {
-        try {
-            if (!FileHandler.saveFolderExists() || !FileHandler.saveFileExists()) {
-                FileHandler.initSaveFileAndFolder(false);
-                OutputFileHandler.storeAllTasks(taskHandler);
+    private static void applyCommandLineFlags(String[] args) {
+        for (int index = 0; index < args.length; index++) {
+            String arg = args[index];
+            switch (arg) {
+            case StringStorage.FLAG_JOURNAL_MODE:
+                FileHandler.setJournalMode(true);
+                break;
+            case StringStorage.FLAG_BINARY_FORMAT:
+                FileHandler.setTaskStorage(new BinaryTaskStorage());
+                break;
+            case StringStorage.FLAG_LAZY_LOADING:
+                FileHandler.setTaskStorage(new MappedTextTaskStorage());
+                FileHandler.setJournalMode(true);
+                break;
+            case StringStorage.FLAG_PARALLEL_LOADING:
+                FileHandler.setParallelLoading(true);
+                break;
+            case StringStorage.FLAG_COMPACT_TASKS:
+                FileHandler.setCompactTasks(true);
+                break;
+            case StringStorage.FLAG_CONVERT_TO_BINARY:
+                convertSaveFile(new TextTaskStorage(), new BinaryTaskStorage());
+                break;
+            case StringStorage.FLAG_CONVERT_TO_TEXT:
+                convertSaveFile(new BinaryTaskStorage(), new TextTaskStorage());
+                break;
+            case StringStorage.FLAG_BATCH:
+                if (index + 1 < args.length) {
+                    batchScriptPath = args[++index];
+                } else {
+                    System.out.println(StringStorage.FLAG_BATCH + " needs a script file, ignoring it");
+                }
+                break;
+            case StringStorage.FLAG_SERVE:
+                if (index + 1 < args.length && args[index + 1].matches("\\d{1,5}")) {
+                    servePort = Integer.parseInt(args[++index]);
+                } else {
+                    System.out.println(StringStorage.FLAG_SERVE + " needs a port number, ignoring it");
+                }
+                break;
+            case StringStorage.FLAG_DURABILITY:
+                durability = index + 1 < args.length ? parseDurability(args[index + 1]) : null;
+                if (durability != null) {
+                    index++;
+                } else {
+                    System.out.println(StringStorage.FLAG_DURABILITY + " needs one of "
+                            + StringStorage.DURABILITY_NONE + ", " + StringStorage.DURABILITY_BATCHED + ", "
+                            + StringStorage.DURABILITY_PER_OP + ", ignoring it");
+                }
+                break;
+            case StringStorage.FLAG_COMMIT_WINDOW:
+                if (index + 1 < args.length && args[index + 1].matches("\\d{1,6}")) {
+                    commitWindowMillis = Long.parseLong(args[++index]);
+                } else {
+                    System.out.println(StringStorage.FLAG_COMMIT_WINDOW
+                            + " needs a number of milliseconds, ignoring it");
+                }
+                break;
+            case StringStorage.FLAG_COMMIT_SIZE:
+                if (index + 1 < args.length && args[index + 1].matches("[1-9]\\d{0,5}")) {
+                    commitSize = Integer.parseInt(args[++index]);
+                } else {
+                    System.out.println(StringStorage.FLAG_COMMIT_SIZE + " needs a number of changes, ignoring it");
+                }
+                break;
+            case StringStorage.FLAG_STATS_FILE:
+                if (index + 1 < args.length) {
+                    statsFilePath = args[++index];
+                } else {
+                    System.out.println(StringStorage.FLAG_STATS_FILE + " needs a file, ignoring it");
+                }
+                break;
+            case StringStorage.FLAG_STATS_INTERVAL:
+                if (index + 1 < args.length && args[index + 1].matches("[1-9]\\d{0,5}")) {
+                    statsIntervalSeconds = Long.parseLong(args[++index]);
+                } else {
+                    System.out.println(StringStorage.FLAG_STATS_INTERVAL + " needs a number of seconds, ignoring it");
+                }
+                break;
+            case StringStorage.FLAG_ARCHIVE_AFTER:
+                if (index + 1 < args.length && args[index + 1].matches("[1-9]\\d{0,4}")) {
+                    FileHandler.setArchiveAfterDays(Integer.parseInt(args[++index]));
+                } else {
+                    System.out.println(StringStorage.FLAG_ARCHIVE_AFTER + " needs a number of days, ignoring it");
+                }
+                break;
+            default:
+                System.out.println("Ignoring unknown command line flag: " + arg);
             }
+        }
+    }
+    private static WriteBehindPersister.Durability parseDurability(String level) {
+        switch (level) {
+        case StringStorage.DURABILITY_NONE:
+            return WriteBehindPersister.Durability.NONE;
+        case StringStorage.DURABILITY_BATCHED:
+            return WriteBehindPersister.Durability.BATCHED;
+        case StringStorage.DURABILITY_PER_OP:
+            return WriteBehindPersister.Durability.PER_OP;
+        default:
+            return null;
+        }
+    }
+    /**
+     * Converts the save file from one format to another, then uses the new format.
+     *
+     * @param source the save format to convert from
+     * @param target the save format to convert to
+     */
+    private static void convertSaveFile(TaskStorage source, TaskStorage target) {
+        try {
+            int taskTotal = SaveFileConverter.convert(source, target);
+            System.out.println("Converted " + taskTotal + " task(s) from "
+                    + source.getSaveFilePath() + " to " + target.getSaveFilePath());
+            FileHandler.setTaskStorage(target);
         } catch (YapperException e) {
             System.out.println(e.getMessage());
         }
@@ -49,9 +207,12 @@ public class Yapper {
      * with the chatbot until they decide to exit.
      * <p/>
      *
-     * @param taskHandler the TaskHandler instance that manages tasks
+     * <p>
+     * The task list in use is taken from {@code FileHandler} before each instruction,
+     * since the use instruction switches to another list.
+     * </p>
      */
-    private static void runMainLoop(TaskHandler taskHandler) {
+    private static void runMainLoop() {
         Scanner scanner = new Scanner(System.in);
         while (true) {
             System.out.println(StringStorage.LINE_DIVIDER_INPUT);
@@ -67,7 +228,8 @@ public class Yapper {
             }
 
             try {
-                validateSaveFolderAndFile(taskHandler);
+                TaskHandler taskHandler = FileHandler.getTaskHandler();
+                SaveFileWatcher.restoreIfDeleted(taskHandler);
                 Instruction instruction = InputStringHandler.parseUserInput(userInputString);
                 InstructionHandler.handleInstruction(taskHandler, instruction);
             } catch (YapperException e) {
@@ -77,6 +239,32 @@ public class Yapper {
         scanner.close();
     }
 
+    /**
+     * Runs the script file given with --batch, instead of the main chatbot loop.
+     *
+     * @param taskHandler the TaskHandler instance that manages tasks
+     */
+    private static void runBatchScript(TaskHandler taskHandler) {
+        try {
+            BatchHandler.runBatch(taskHandler, batchScriptPath);
+        } catch (YapperException e) {
+            System.out.println("YapperException has occurred " + e.getMessage());
+        }
+    }
+
+    /**
+     * Shares the task list with clients on the port given with --serve, instead of the main chatbot loop.
+     *
+     * @param taskHandler the TaskHandler instance that manages tasks
+     */
+    private static void runServer(TaskHandler taskHandler) {
+        try {
+            YapperServer.serve(taskHandler, servePort);
+        } catch (YapperException e) {
+            System.out.println("YapperException has occurred " + e.getMessage());
+        }
+    }
+
     /**
      * The main method that serves as the entry point of the Yapper program.
      *
@@ -85,11 +273,20 @@ public class Yapper {
      * and displays messages when the program starts and ends.
      * <p/>
      *
-     * @param args command line arguments (not used)
+     * @param args command line flags, see {@code applyCommandLineFlags}
      */
     public static void main(String[] args) {
+        applyCommandLineFlags(args);
+        if (durability != null) {
+            WriteBehindPersister.start(durability, commitWindowMillis, commitSize);
+        }
+        if (statsFilePath != null) {
+            MetricsRegistry.startPeriodicDump(statsFilePath, statsIntervalSeconds);
+        }
+
         System.out.println(StringStorage.LINE_DIVIDER_OUTPUT);
         TaskHandler taskHandler = InputFileHandler.loadTasksFromFile();
+        SaveFileWatcher.startWatching();
         if (taskHandler.isEmpty()) {
             System.out.println(StringStorage.START_UP_MESSAGE_IF_SAVE_FILE_NOT_FOUND);
             System.out.println(StringStorage.LINE_DIVIDER);
@@ -98,7 +295,18 @@ public class Yapper {
             System.out.println(StringStorage.START_UP_MESSAGE_IF_SAVE_FILE_FOUND);
         }
 
-        runMainLoop(taskHandler);
+        if (batchScriptPath != null) {
+            runBatchScript(taskHandler);
+        } else if (servePort != null) {
+            runServer(taskHandler);
+        } else {
+            runMainLoop();
+        }
+        WriteBehindPersister.awaitAll();
+        if (FileHandler.isJournalMode()) {
+            JournalFileHandler.awaitCompaction();
+        }
+        OutputFileHandler.storeWordTrie();
 
         System.out.println(StringStorage.SHUT_DOWN_MESSAGE);
         System.out.println(StringStorage.LINE_DIVIDER);
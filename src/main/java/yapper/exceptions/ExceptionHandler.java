@@ -17,17 +17,17 @@ import yapper.io.StringStorage;
 public class ExceptionHandler {
 
     /**
-     * Checks if the string is empty when reading from user.
+     * Checks if the input, or its arguments, are empty when reading from user.
      *
-     * @param userInputString the input string to validate
+     * @param inputLength the length of the input or arguments to validate, without whitespace around them
      * @param isAboutArgs flag indicating if the check is for arguments
      * @throws YapperException if the input string is empty
      */
-    public static void checkIfUserInputEmpty(String userInputString, boolean isAboutArgs) throws YapperException {
+    public static void checkIfUserInputEmpty(int inputLength, boolean isAboutArgs) throws YapperException {
         // Boolean is to differentiate between exceptions
-        if (userInputString.isEmpty() && !isAboutArgs) {
+        if (inputLength == 0 && !isAboutArgs) {
             throw new YapperException(StringStorage.EMPTY_INPUT_MESSAGE);
-        } else if (userInputString.isEmpty()) {
+        } else if (inputLength == 0) {
             throw new YapperException(StringStorage.MISSING_ARGUMENTS_MESSAGE);
         }
     }
@@ -40,26 +40,35 @@ public class ExceptionHandler {
     public static void checkIfStartWithInstructionPrefix(String userInputString) throws YapperException {
         if (!userInputString.startsWith(StringStorage.PREFIX_HELP_INSTRUCTION)
                 && !userInputString.startsWith(StringStorage.PREFIX_FIND_INSTRUCTION)
+                && !userInputString.startsWith(StringStorage.PREFIX_DUE_INSTRUCTION)
+                && !userInputString.startsWith(StringStorage.PREFIX_BETWEEN_INSTRUCTION)
+                && !userInputString.startsWith(StringStorage.PREFIX_SOURCE_INSTRUCTION)
                 && !userInputString.startsWith(StringStorage.PREFIX_LIST_INSTRUCTION)
                 && !userInputString.startsWith(StringStorage.PREFIX_TODO_INSTRUCTION)
                 && !userInputString.startsWith(StringStorage.PREFIX_DEADLINE_INSTRUCTION)
                 && !userInputString.startsWith(StringStorage.PREFIX_EVENT_INSTRUCTION)
                 && !userInputString.startsWith(StringStorage.PREFIX_DELETE_INSTRUCTION)
                 && !userInputString.startsWith(StringStorage.PREFIX_MARK_INSTRUCTION)
-                && !userInputString.startsWith(StringStorage.PREFIX_UNMARK_INSTRUCTION)) {
+                && !userInputString.startsWith(StringStorage.PREFIX_UNMARK_INSTRUCTION)
+                && !userInputString.startsWith(StringStorage.PREFIX_STATS_INSTRUCTION)
+                && !userInputString.startsWith(StringStorage.PREFIX_USE_INSTRUCTION)
+                && !userInputString.startsWith(StringStorage.PREFIX_COMPLETE_INSTRUCTION)
+                && !userInputString.startsWith(StringStorage.PREFIX_UNDO_INSTRUCTION)
+                && !userInputString.startsWith(StringStorage.PREFIX_REDO_INSTRUCTION)
+                && !userInputString.startsWith(StringStorage.PREFIX_ARCHIVE_INSTRUCTION)) {
             throw new YapperException(StringStorage.MISSING_PREFIX_MESSAGE);
         }
     }
     /**
      * Checks if the bye, list or help user input string has arguments
      *
-     * @param userInputString the input string to validate
+     * @param argumentLength the length of the arguments after the prefix, without whitespace around them
      * @param instructionTypeAsString the instruction type prefix
      * @throws YapperException if the list or help input string has arguments
      */
-    public static void checkIfTooManyArguments(String userInputString, String instructionTypeAsString)
+    public static void checkIfTooManyArguments(int argumentLength, String instructionTypeAsString)
             throws YapperException {
-        if (!userInputString.trim().equals(instructionTypeAsString)) {
+        if (argumentLength != 0) {
             throw new YapperException(instructionTypeAsString + " does not need other parameters");
         }
     }
@@ -76,6 +85,64 @@ public class ExceptionHandler {
                     StringStorage.MISSING_QUERY_STRING_MESSAGE);
         }
     }
+    /**
+     * Checks if the script file path for the Source instruction is missing.
+     *
+     * @param scriptPath the path of the script file
+     * @throws YapperException if the path is empty
+     */
+    public static void checkIfSourceArgsMissing(String scriptPath) throws YapperException {
+        if (scriptPath.isEmpty()) {
+            throw new YapperException(
+                    StringStorage.MISSING_SCRIPT_PATH_MESSAGE);
+        }
+    }
+    /**
+     * Checks if the dates for the Due or Between instructions are given as the expected number of words.
+     *
+     * @param dateWordCount the number of words in the query dates, split on whitespace
+     * @param minWordCount the least number of words expected
+     * @param maxWordCount the most number of words expected
+     * @throws YapperException if there are too few or too many words
+     */
+    public static void checkIfQueryDateArgsMissing(int dateWordCount, int minWordCount, int maxWordCount)
+            throws YapperException {
+        if (dateWordCount < minWordCount || dateWordCount > maxWordCount) {
+            throw new YapperException(
+                    StringStorage.MISSING_QUERY_DATE_MESSAGE);
+        }
+    }
+    /**
+     * Checks if the period given to the Between instruction starts after it ends.
+     *
+     * @param from the first epoch minute of the period
+     * @param to the last epoch minute of the period
+     * @throws YapperException if the start is after the end
+     */
+    public static void checkIfQueryPeriodReversed(long from, long to) throws YapperException {
+        if (from > to) {
+            throw new YapperException(
+                    StringStorage.REVERSED_QUERY_PERIOD_MESSAGE);
+        }
+    }
+    /**
+     * Checks if the name given to the Use instruction can name a task list, and its save file.
+     *
+     * @param listName the name of the list
+     * @throws YapperException if the name is too long or has characters other than letters, digits, - and _
+     */
+    public static void checkIfListNameValid(String listName) throws YapperException {
+        if (listName.length() > StringStorage.MAX_LIST_NAME_LENGTH) {
+            throw new YapperException(StringStorage.INVALID_LIST_NAME_MESSAGE);
+        }
+        for (int index = 0; index < listName.length(); index++) {
+            char character = listName.charAt(index);
+            if (!(character >= 'a' && character <= 'z') && !(character >= 'A' && character <= 'Z')
+                    && !(character >= '0' && character <= '9') && character != '-' && character != '_') {
+                throw new YapperException(StringStorage.INVALID_LIST_NAME_MESSAGE);
+            }
+        }
+    }
     /**
      * Checks if the argument for the Todo task is missing.
      *
@@ -171,25 +238,25 @@ public class ExceptionHandler {
     /**
      * Validates if the specified task type is valid when reading from file.
      *
-     * @param taskType the type of the task
+     * @param taskType the symbol of the type of the task
      * @throws YapperException if the task type is invalid
      */
-    public static void checkIfTaskTypeValid(String taskType) throws YapperException {
-        if (!taskType.equals(StringStorage.SYMBOL_TODO)
-                && !taskType.equals(StringStorage.SYMBOL_DEADLINE)
-                && !taskType.equals(StringStorage.SYMBOL_EVENT)) {
+    public static void checkIfTaskTypeValid(char taskType) throws YapperException {
+        if (taskType != StringStorage.SYMBOL_TODO.charAt(0)
+                && taskType != StringStorage.SYMBOL_DEADLINE.charAt(0)
+                && taskType != StringStorage.SYMBOL_EVENT.charAt(0)) {
             throw new YapperException(StringStorage.INVALID_TASK_TYPE_MESSAGE);
         }
     }
     /**
      * Validates if the specified task status is valid when reading from file.
      *
-     * @param taskStatus the status of the task
+     * @param taskStatus the symbol of the status of the task
      * @throws YapperException if the task status is invalid
      */
-    public static void checkIfTaskStatusValid(String taskStatus) throws YapperException {
-        if (!taskStatus.equals(StringStorage.SYMBOL_IS_DONE)
-                && !taskStatus.equals(StringStorage.SYMBOL_NOT_DONE)) {
+    public static void checkIfTaskStatusValid(char taskStatus) throws YapperException {
+        if (taskStatus != StringStorage.SYMBOL_IS_DONE.charAt(0)
+                && taskStatus != StringStorage.SYMBOL_NOT_DONE.charAt(0)) {
             throw new YapperException(StringStorage.INVALID_TASK_STATUS_MESSAGE);
         }
     }
@@ -205,6 +272,20 @@ public class ExceptionHandler {
             throw new YapperException(StringStorage.LIST_EMPTY_MESSAGE);
         }
     }
+    /**
+     * Validates if the specified page of the task list has any tasks on it.
+     *
+     * @param currTaskTotal the total number of tasks currently available
+     * @param pageNumber the page to validate, starting from 1
+     * @param pageSize the number of tasks on each page
+     * @throws YapperException if the page size is not positive, or the page has no tasks
+     */
+    public static void checkIfPageIsOutOfRange(int currTaskTotal, int pageNumber, int pageSize)
+            throws YapperException {
+        if (pageSize <= 0 || pageNumber <= 0 || (long) (pageNumber - 1) * pageSize >= currTaskTotal) {
+            throw new YapperException(StringStorage.INVALID_PAGE_MESSAGE);
+        }
+    }
     /**
      * Validates if the specified task ordinal is within the valid range of tasks.
      *
@@ -217,6 +298,17 @@ public class ExceptionHandler {
             throw new YapperException(StringStorage.LIST_OOB_MESSAGE);
         }
     }
+    /**
+     * Validates that a bulk instruction chose at least one task.
+     *
+     * @param selectedTotal the count of tasks chosen
+     * @throws YapperException if no tasks were chosen
+     */
+    public static void checkIfAnyTasksSelected(int selectedTotal) throws YapperException {
+        if (selectedTotal == 0) {
+            throw new YapperException(StringStorage.NO_TASKS_SELECTED_MESSAGE);
+        }
+    }
     /**
      * Checks if the done status needs to be changed based on the old and new status.
      *
@@ -0,0 +1,158 @@
+package yapper.instructions;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import yapper.exceptions.YapperException;
+import yapper.io.FileHandler;
+import yapper.io.InputStringHandler;
+import yapper.io.OutputFileHandler;
+import yapper.io.OutputSink;
+import yapper.io.StringStorage;
+import yapper.io.WorkspaceHandler;
+import yapper.tasks.TaskHandler;
+
+/**
+ * Runs a script file of instructions in Yapper, e.g. to import many tasks at once.
+ *
+ * <p>
+ * Each line of the script is parsed and handled like a line of user input,
+ * except that nothing is written to the save file until every line has been handled.
+ * The whole task list is then saved once, by replacing the save file in a single atomic move,
+ * so the save file holds either none or all of the script's changes.
+ * </p>
+ *
+ * <p>
+ * Only failed lines are printed while the script runs, followed by a summary of how long it took.
+ * </p>
+ *
+ */
+public class BatchHandler {
+    /**
+     * The most failed lines printed in full, so a bad script does not flood the output.
+     */
+    private static final int MAX_FAILURES_SHOWN = 20;
+    private static final PrintStream DISCARDING_STREAM = new PrintStream(OutputStream.nullOutputStream());
+
+    private static boolean isRunningBatch = false;
+
+
+    /**
+     * Runs every instruction in the script file against the task list, then saves the task list once.
+     *
+     * <p>
+     * If the script switches to another list with the use instruction, the list it leaves is stored then,
+     * and it is the list in use at the end that is stored once the script is done.
+     * </p>
+     *
+     * @param taskHandler The handler that manages the list of tasks.
+     * @param scriptPath  The path of the script file, with one instruction per line.
+     * @throws YapperException If the script cannot be read, is run from another script, or cannot be saved.
+     */
+    public static void runBatch(TaskHandler taskHandler, String scriptPath) throws YapperException {
+        if (isRunningBatch) {
+            throw new YapperException(StringStorage.PREFIX_SOURCE_INSTRUCTION + " "
+                    + StringStorage.NESTED_BATCH_MESSAGE);
+        }
+        List<String> scriptLines;
+        try {
+            scriptLines = Files.readAllLines(Paths.get(scriptPath), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new YapperException(StringStorage.SCRIPT_READING_ERROR_MESSAGE
+                    + " " + scriptPath + ": \n" + e.getMessage());
+        }
+
+        long startTime = System.nanoTime();
+        List<String> failureMessages = new ArrayList<>();
+        String startingListName = WorkspaceHandler.getCurrentListName();
+        int instructionTotal = runInstructions(taskHandler, scriptLines, failureMessages);
+        long runTime = System.nanoTime() - startTime;
+        TaskHandler finalTaskHandler = WorkspaceHandler.getCurrentListName().equals(startingListName)
+                ? taskHandler : FileHandler.getTaskHandler();
+
+        PrintStream userOutput = OutputSink.getOutput();
+        for (int index = 0; index < Math.min(failureMessages.size(), MAX_FAILURES_SHOWN); index++) {
+            userOutput.println(failureMessages.get(index));
+        }
+        if (failureMessages.size() > MAX_FAILURES_SHOWN) {
+            userOutput.println("... and " + (failureMessages.size() - MAX_FAILURES_SHOWN) + " more failed line(s)");
+        }
+
+        long saveStartTime = System.nanoTime();
+        if (!FileHandler.saveFolderExists()) {
+            FileHandler.initSaveFileAndFolder(false);
+        }
+        OutputFileHandler.storeAllTasks(finalTaskHandler);
+        long saveTime = System.nanoTime() - saveStartTime;
+
+        printSummary(userOutput, scriptPath, instructionTotal, failureMessages.size(), runTime, saveTime,
+                finalTaskHandler.getCurrTaskTotal());
+    }
+
+    /**
+     * Parses and handles each non-blank line, with the save file and the usual replies switched off.
+     *
+     * @param taskHandler     The handler that manages the list of tasks.
+     * @param scriptLines     The lines of the script file.
+     * @param failureMessages The list to add the reason each failed line failed to.
+     * @return the number of instructions run, including failed ones
+     */
+    private static int runInstructions(TaskHandler taskHandler, List<String> scriptLines,
+            List<String> failureMessages) {
+        PrintStream userOutput = System.out;
+        isRunningBatch = true;
+        OutputFileHandler.setDeferringWrites(true);
+        System.setOut(DISCARDING_STREAM);
+        PrintStream threadOutput = OutputSink.setThreadOutput(DISCARDING_STREAM);
+        int instructionTotal = 0;
+        TaskHandler currentTaskHandler = taskHandler;
+        try {
+            for (int lineNumber = 1; lineNumber <= scriptLines.size(); lineNumber++) {
+                String scriptLine = scriptLines.get(lineNumber - 1).trim();
+                if (scriptLine.isEmpty()) {
+                    continue;
+                }
+                instructionTotal++;
+                try {
+                    if (scriptLine.startsWith(StringStorage.PREFIX_BYE_INSTRUCTION)) {
+                        throw new YapperException(StringStorage.PREFIX_BYE_INSTRUCTION + " "
+                                + StringStorage.NESTED_BATCH_MESSAGE);
+                    }
+                    Instruction instruction = InputStringHandler.parseUserInput(scriptLine);
+                    InstructionHandler.handleInstruction(currentTaskHandler, instruction);
+                    if (instruction.getInstructionType() == Instruction.InstructionType.USE) {
+                        currentTaskHandler = FileHandler.getTaskHandler();
+                    }
+                } catch (YapperException e) {
+                    failureMessages.add("line " + lineNumber + ": " + e.getMessage());
+                }
+            }
+        } finally {
+            System.setOut(userOutput);
+            OutputSink.setThreadOutput(threadOutput);
+            OutputFileHandler.setDeferringWrites(false);
+            isRunningBatch = false;
+        }
+        return instructionTotal;
+    }
+
+    /**
+     * Prints how many instructions were run and how quickly.
+     */
+    private static void printSummary(PrintStream userOutput, String scriptPath, int instructionTotal, int failureTotal,
+            long runTime, long saveTime, int taskTotal) {
+        double runSeconds = runTime / 1e9;
+        long instructionsPerSecond = runSeconds > 0 ? Math.round(instructionTotal / runSeconds) : instructionTotal;
+        userOutput.println("Ran " + instructionTotal + " instruction(s) from " + scriptPath + ": "
+                + (instructionTotal - failureTotal) + " succeeded, " + failureTotal + " failed.");
+        userOutput.println("Took " + (runTime / 1_000_000) + " ms (" + instructionsPerSecond
+                + " instructions/s), then saved " + taskTotal + " task(s) once in "
+                + (saveTime / 1_000_000) + " ms.");
+    }
+}
@@ -0,0 +1,306 @@
+package yapper.instructions;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import yapper.exceptions.YapperException;
+import yapper.io.OutputFileHandler;
+import yapper.io.StringStorage;
+import yapper.tasks.Task;
+import yapper.tasks.TaskHandler;
+
+/**
+ * Undo and Redo History for Yapper.
+ *
+ * <p>
+ * Every change an instruction makes to a task list is recorded as the tasks it added or deleted,
+ * or the tasks whose status it changed, each with its ordinal.
+ * The change can then be reversed or made again without reloading the save file.
+ * In the default task list, deleting a single task or changing its status takes O(log n) time,
+ * and so does putting back a single deleted task while the slot it was deleted from is still empty,
+ * see {@code TaskHandler.insertTasks}.
+ * A bulk change, or putting back a task whose slot was dropped, takes one pass over the whole list,
+ * as does putting back any task in a compact or lazy task list.
+ * </p>
+ *
+ * <p>
+ * Each change is saved the same way the instruction saved it: one task at a time for a single task,
+ * and once for the whole list for a bulk change.
+ * So saving a single task is one journal record in journal mode, and one record in the binary format,
+ * except that a task put back anywhere but the end is saved by rewriting the whole binary save file.
+ * The text format without a journal rewrites the whole save file for every change undone or redone.
+ * </p>
+ *
+ * <p>
+ * Each task list has its own history, which is dropped along with the list.
+ * Only the last {@code StringStorage.HISTORY_LIMIT} changes are kept, and only as many of them as hold
+ * {@code StringStorage.HISTORY_TASK_LIMIT} tasks between them, so a change to more tasks than that,
+ * e.g. deleting every task of a very large list, cannot be undone.
+ * Making a new change forgets every change that was undone before it.
+ * </p>
+ *
+ * <p>
+ * Each change also records how many tasks the list had before and after it, and the ID of each task it changed,
+ * as a checkpoint. A change is only reversed or made again if the list still has that many tasks,
+ * and each task expected in the list is still at its ordinal,
+ * and the history is forgotten otherwise, e.g. if the list was changed without going through it.
+ * </p>
+ *
+ */
+public class HistoryHandler {
+    private enum ChangeType {
+        ADDED, DELETED, MARKED, UNMARKED,
+    }
+
+    /**
+     * One change made by an instruction, with what is needed to reverse it.
+     */
+    private static class Change {
+        private final ChangeType changeType;
+        /**
+         * The ordinals of the changed tasks, in ascending order, at the time they were added or deleted.
+         */
+        private final int[] taskOrdinals;
+        /**
+         * The tasks that were added or deleted, in the same order, or null if their status was changed.
+         */
+        private final List<Task> tasks;
+        /**
+         * The IDs of the changed tasks, in the same order.
+         */
+        private final long[] taskIds;
+        private final int taskTotalBefore;
+        private final int taskTotalAfter;
+
+        private Change(ChangeType changeType, int[] taskOrdinals, List<Task> tasks, long[] taskIds,
+                int taskTotalBefore, int taskTotalAfter) {
+            this.changeType = changeType;
+            this.taskOrdinals = taskOrdinals;
+            this.tasks = tasks;
+            this.taskIds = taskIds;
+            this.taskTotalBefore = taskTotalBefore;
+            this.taskTotalAfter = taskTotalAfter;
+        }
+    }
+
+    /**
+     * The changes of one task list that can be undone, and those that were undone and can be redone,
+     * most recent first.
+     */
+    private static class History {
+        private final Deque<Change> undoableChanges = new ArrayDeque<>();
+        private final Deque<Change> redoableChanges = new ArrayDeque<>();
+        /**
+         * The number of tasks held by the undoable and redoable changes, counting each task a change holds
+         * or holds the ID of.
+         */
+        private int retainedTaskTotal = 0;
+
+        private void clear() {
+            undoableChanges.clear();
+            redoableChanges.clear();
+            retainedTaskTotal = 0;
+        }
+    }
+
+    private static final Map<TaskHandler, History> HISTORIES = new WeakHashMap<>();
+
+
+    /**
+     * Records that a task was added to the end of the task list.
+     *
+     * @param taskHandler the task list
+     * @param task        the task that was added
+     */
+    public static void recordAddedTask(TaskHandler taskHandler, Task task) {
+        int taskTotal = taskHandler.getCurrTaskTotal();
+        recordChange(taskHandler, new Change(ChangeType.ADDED, new int[] {taskTotal - 1}, List.of(task),
+                new long[] {task.getTaskId()}, taskTotal - 1, taskTotal));
+    }
+    /**
+     * Records that tasks were deleted from the task list.
+     *
+     * @param taskHandler  the task list, after the tasks were deleted
+     * @param taskOrdinals the ordinals the tasks had, in ascending order
+     * @param tasks        the deleted tasks, in the same order
+     */
+    public static void recordDeletedTasks(TaskHandler taskHandler, int[] taskOrdinals, List<Task> tasks) {
+        int taskTotal = taskHandler.getCurrTaskTotal();
+        long[] taskIds = new long[tasks.size()];
+        for (int index = 0; index < taskIds.length; index++) {
+            taskIds[index] = tasks.get(index).getTaskId();
+        }
+        recordChange(taskHandler, new Change(ChangeType.DELETED, taskOrdinals, tasks, taskIds,
+                taskTotal + tasks.size(), taskTotal));
+    }
+    /**
+     * Records that the status of tasks in the task list was changed.
+     *
+     * @param taskHandler  the task list
+     * @param taskOrdinals the ordinals of the tasks whose status changed, in ascending order
+     * @param isDone       the new completion status of the tasks
+     */
+    public static void recordStatusChange(TaskHandler taskHandler, int[] taskOrdinals, boolean isDone) {
+        int taskTotal = taskHandler.getCurrTaskTotal();
+        long[] taskIds = new long[taskOrdinals.length];
+        for (int index = 0; index < taskIds.length; index++) {
+            taskIds[index] = taskHandler.getTaskAtOrdinal(taskOrdinals[index]).getTaskId();
+        }
+        recordChange(taskHandler, new Change(isDone ? ChangeType.MARKED : ChangeType.UNMARKED, taskOrdinals, null,
+                taskIds, taskTotal, taskTotal));
+    }
+
+    /**
+     * Reverses the most recent changes to the task list, most recent first.
+     *
+     * @param taskHandler the task list
+     * @param stepTotal   the number of changes to reverse, if there are that many
+     * @return the number of changes reversed
+     * @throws YapperException if there is nothing to undo, the list no longer matches its history,
+     *                         or a change cannot be saved
+     */
+    public static synchronized int undo(TaskHandler taskHandler, int stepTotal) throws YapperException {
+        History history = getHistory(taskHandler);
+        if (history.undoableChanges.isEmpty()) {
+            throw new YapperException(StringStorage.NOTHING_TO_UNDO_MESSAGE);
+        }
+        int stepCount = 0;
+        while (stepCount < stepTotal && !history.undoableChanges.isEmpty()) {
+            Change change = history.undoableChanges.peek();
+            checkIfListMatches(taskHandler, history, change, change.taskTotalAfter,
+                    change.changeType != ChangeType.DELETED);
+            switch (change.changeType) {
+            case ADDED:
+                removeTasks(taskHandler, change.taskOrdinals);
+                break;
+            case DELETED:
+                insertTasks(taskHandler, change.taskOrdinals, change.tasks);
+                break;
+            default:
+                updateTasksStatus(taskHandler, change.taskOrdinals, change.changeType == ChangeType.UNMARKED);
+                break;
+            }
+            history.redoableChanges.push(history.undoableChanges.pop());
+            stepCount++;
+        }
+        return stepCount;
+    }
+    /**
+     * Makes the most recently undone changes to the task list again, least recent first.
+     *
+     * @param taskHandler the task list
+     * @param stepTotal   the number of changes to make again, if there are that many
+     * @return the number of changes made again
+     * @throws YapperException if there is nothing to redo, the list no longer matches its history,
+     *                         or a change cannot be saved
+     */
+    public static synchronized int redo(TaskHandler taskHandler, int stepTotal) throws YapperException {
+        History history = getHistory(taskHandler);
+        if (history.redoableChanges.isEmpty()) {
+            throw new YapperException(StringStorage.NOTHING_TO_REDO_MESSAGE);
+        }
+        int stepCount = 0;
+        while (stepCount < stepTotal && !history.redoableChanges.isEmpty()) {
+            Change change = history.redoableChanges.peek();
+            checkIfListMatches(taskHandler, history, change, change.taskTotalBefore,
+                    change.changeType != ChangeType.ADDED);
+            switch (change.changeType) {
+            case ADDED:
+                insertTasks(taskHandler, change.taskOrdinals, change.tasks);
+                break;
+            case DELETED:
+                removeTasks(taskHandler, change.taskOrdinals);
+                break;
+            default:
+                updateTasksStatus(taskHandler, change.taskOrdinals, change.changeType == ChangeType.MARKED);
+                break;
+            }
+            history.undoableChanges.push(history.redoableChanges.pop());
+            stepCount++;
+        }
+        return stepCount;
+    }
+
+    /**
+     * Forgets every change to the task list, e.g. after tasks are archived,
+     * since the archive cannot be taken back and the ordinals of the changes no longer match.
+     *
+     * @param taskHandler the task list
+     */
+    public static synchronized void forgetHistory(TaskHandler taskHandler) {
+        HISTORIES.remove(taskHandler);
+    }
+
+
+    private static synchronized void recordChange(TaskHandler taskHandler, Change change) {
+        History history = getHistory(taskHandler);
+        for (Change redoableChange : history.redoableChanges) {
+            history.retainedTaskTotal -= redoableChange.taskIds.length;
+        }
+        history.redoableChanges.clear();
+        history.undoableChanges.push(change);
+        history.retainedTaskTotal += change.taskIds.length;
+        while (history.undoableChanges.size() > StringStorage.HISTORY_LIMIT
+                || history.retainedTaskTotal > StringStorage.HISTORY_TASK_LIMIT) {
+            history.retainedTaskTotal -= history.undoableChanges.removeLast().taskIds.length;
+        }
+    }
+    private static History getHistory(TaskHandler taskHandler) {
+        return HISTORIES.computeIfAbsent(taskHandler, unused -> new History());
+    }
+    /**
+     * Checks that the list has the number of tasks the change expects,
+     * and that each changed task is at its ordinal if it is expected to be in the list,
+     * forgetting the history if not.
+     *
+     * @param isInList whether the changed tasks are in the list, i.e. the change is not putting them back
+     */
+    private static void checkIfListMatches(TaskHandler taskHandler, History history, Change change,
+            int expectedTaskTotal, boolean isInList) throws YapperException {
+        boolean isMatching = taskHandler.getCurrTaskTotal() == expectedTaskTotal;
+        for (int index = 0; isMatching && isInList && index < change.taskOrdinals.length; index++) {
+            isMatching = taskHandler.getTaskAtOrdinal(change.taskOrdinals[index]).getTaskId()
+                    == change.taskIds[index];
+        }
+        if (!isMatching) {
+            history.clear();
+            throw new YapperException(StringStorage.HISTORY_OUT_OF_DATE_MESSAGE);
+        }
+    }
+
+    /**
+     * Deletes the tasks at the ordinals, saving a single task the way the delete instruction does,
+     * and many tasks at once.
+     */
+    private static void removeTasks(TaskHandler taskHandler, int[] taskOrdinals) throws YapperException {
+        if (taskOrdinals.length == 1) {
+            taskHandler.deleteTask(taskOrdinals[0]);
+            OutputFileHandler.unstoreDeletedTask(taskOrdinals[0]);
+        } else {
+            taskHandler.deleteTasks(taskOrdinals);
+            OutputFileHandler.storeChangedTasks(taskHandler);
+        }
+    }
+    private static void insertTasks(TaskHandler taskHandler, int[] taskOrdinals, List<Task> tasks)
+            throws YapperException {
+        taskHandler.insertTasks(taskOrdinals, new ArrayList<>(tasks));
+        OutputFileHandler.storeRestoredTasks(taskHandler, taskOrdinals, tasks);
+    }
+    /**
+     * Sets the status of the tasks at the ordinals, saving a single task the way the mark instruction does,
+     * and many tasks at once.
+     */
+    private static void updateTasksStatus(TaskHandler taskHandler, int[] taskOrdinals, boolean isDone)
+            throws YapperException {
+        taskHandler.updateTasksStatus(taskOrdinals, isDone);
+        if (taskOrdinals.length == 1) {
+            OutputFileHandler.amendTaskStatus(taskHandler.getTaskAtOrdinal(taskOrdinals[0]), taskOrdinals[0]);
+        } else {
+            OutputFileHandler.storeChangedTasks(taskHandler);
+        }
+    }
+}
@@ -3,8 +3,9 @@ package yapper.instructions;
 /**
  * Represents an Instruction in Yapper.
  * <p>
- * Currently consists of 9 instruction types:
- * HELP, FIND, LIST, TODO, DEADLINE, EVENT, DELETE, MARK, UNMARK
+ * Currently consists of 19 instruction types:
+ * HELP, STATS, LISTS, USE, FIND, COMPLETE, DUE, BETWEEN, SOURCE, LIST, TODO, DEADLINE, EVENT, DELETE, MARK, UNMARK,
+ * UNDO, REDO, ARCHIVE
  * <p/>
  *
  */
@@ -16,21 +17,32 @@ public class Instruction {
      * <p>
      * Currently includes:
      * <li> HELP: Prints a help message. <li/>
-     * FIND: Show tasks that contains the query. <li/>
+     * STATS: Prints the metrics recorded so far. <li/>
+     * LISTS: Show all task lists. <li/>
+     * USE: Switch to another task list. <li/>
+     * FIND: Show tasks that contains the query, or that have a word starting with it, or archived ones. <li/>
+     * COMPLETE: Suggest the words of tasks that start with the query. <li/>
+     * DUE: Show tasks that are due on a date. <li/>
+     * BETWEEN: Show tasks that fall within a period. <li/>
+     * SOURCE: Run every instruction in a script file, saving once at the end. <li/>
      * LIST: Show all tasks. <li/>
      * TODO: Add a ToDo task. <li/>
      * DEADLINE: Add a Deadline task. <li/>
      * EVENT: Add an Event task. <li/>
      * DELETE: Remove a task. <li/>
      * MARK: Mark a task as complete. <li/>
-     * UNMARK: Unmark a task as incomplete.
+     * UNMARK: Unmark a task as incomplete. <li/>
+     * UNDO: Reverse the most recent changes to the task list. <li/>
+     * REDO: Make the most recently undone changes again. <li/>
+     * ARCHIVE: Move done tasks out of the task list into its archive.
      * <p/>
      *
      */
     public enum InstructionType {
-        HELP, LIST, FIND,
+        HELP, STATS, LISTS, USE, LIST, FIND, COMPLETE, DUE, BETWEEN, SOURCE,
         TODO, DEADLINE, EVENT,
         DELETE, MARK, UNMARK,
+        UNDO, REDO, ARCHIVE,
     }
 
     /**
@@ -49,6 +61,7 @@ public class Instruction {
      * It is used in these instruction types:
      * For DEADLINE tasks, it contains one date (the deadline).
      * For EVENT tasks, it contains two dates (start and end date).
+     * For DUE and BETWEEN queries, it contains the queried date(s).
      * </p>
      *
      */
@@ -57,21 +70,62 @@ public class Instruction {
      * The description of the task associated with the instruction.
      *
      * <p>
-     * It is used in all instruction types.
+     * It is used in all instruction types, and holds the list name in USE.
      * </p>
      *
      */
     private String instructionDesc;
     /**
-     * The ordinal number of a task in the task list.
+     * The ordinal number of a task in the task list, or the number of changes to undo or redo.
      *
      * <p>
      * It is used in these instruction types:
-     * DELETE, MARK, UNMARK.
+     * DELETE, MARK, UNMARK, UNDO, REDO.
      * </p>
      *
      */
     private Integer taskOrdinal;
+    /**
+     * The page of the task list to show, and the number of tasks on each page.
+     *
+     * <p>
+     * It is used in these instruction types:
+     * LIST, if only one page is wanted.
+     * </p>
+     *
+     */
+    private Integer pageNumber;
+    private Integer pageSize;
+    /**
+     * Whether the query only matches the start of words in task descriptions.
+     *
+     * <p>
+     * It is used in these instruction types:
+     * FIND, if the prefix option is given.
+     * </p>
+     *
+     */
+    private boolean isPrefixMatch;
+    /**
+     * Whether the query is searched for in the archive instead of the task list.
+     *
+     * <p>
+     * It is used in these instruction types:
+     * FIND, if the archive option is given.
+     * </p>
+     *
+     */
+    private boolean isArchiveSearch;
+    /**
+     * The tasks chosen by ordinals, ranges or a filter, instead of a single ordinal.
+     *
+     * <p>
+     * It is used in these instruction types:
+     * DELETE, MARK, UNMARK, if more than one task may be chosen, and ARCHIVE.
+     * </p>
+     *
+     */
+    private TaskSelection taskSelection;
 
 
     /**
@@ -102,6 +156,39 @@ public class Instruction {
         this.instructionType = type;
         this.instructionDesc = taskDesc;
     }
+    /**
+     * Constructs an Instruction with the specified type and query, matching either any part of task descriptions
+     * or only the start of their words.
+     *
+     * <p>
+     * Used for FIND instructions.
+     * </p>
+     *
+     * @param type The type of instruction.
+     * @param query The query to look for.
+     * @param isPrefixMatch Whether the query only matches the start of words.
+     */
+    public Instruction(InstructionType type, String query, boolean isPrefixMatch) {
+        this(type, query, isPrefixMatch, false);
+    }
+    /**
+     * Constructs an Instruction with the specified type and query, searching either the task list or its archive.
+     *
+     * <p>
+     * Used for FIND instructions.
+     * </p>
+     *
+     * @param type The type of instruction.
+     * @param query The query to look for.
+     * @param isPrefixMatch Whether the query only matches the start of words.
+     * @param isArchiveSearch Whether the query is searched for in the archive.
+     */
+    public Instruction(InstructionType type, String query, boolean isPrefixMatch, boolean isArchiveSearch) {
+        this.instructionType = type;
+        this.instructionDesc = query;
+        this.isPrefixMatch = isPrefixMatch;
+        this.isArchiveSearch = isArchiveSearch;
+    }
     /**
      * Constructs an Instruction with the specified type, task description, and end date.
      *
@@ -150,6 +237,37 @@ public class Instruction {
         this.taskOrdinal = taskOrdinal;
     }
 
+    /**
+     * Constructs an Instruction with the specified type and chosen tasks.
+     *
+     * <p>
+     * Used for DELETE, MARK, and UNMARK instructions on many tasks at once, and ARCHIVE instructions.
+     * </p>
+     *
+     * @param type The type of instruction.
+     * @param taskSelection The tasks chosen.
+     */
+    public Instruction(InstructionType type, TaskSelection taskSelection) {
+        this.instructionType = type;
+        this.taskSelection = taskSelection;
+    }
+    /**
+     * Constructs an Instruction with the specified type, page number and page size.
+     *
+     * <p>
+     * Used for LIST instructions that only show one page of the task list.
+     * </p>
+     *
+     * @param type The type of instruction.
+     * @param pageNumber The page to show, starting from 1.
+     * @param pageSize The number of tasks on each page.
+     */
+    public Instruction(InstructionType type, int pageNumber, int pageSize) {
+        this.instructionType = type;
+        this.pageNumber = pageNumber;
+        this.pageSize = pageSize;
+    }
+
 
     /**
      * Returns the type of the instruction.
@@ -183,4 +301,44 @@ public class Instruction {
     public Integer getTaskOrdinal() {
         return taskOrdinal;
     }
+    /**
+     * Returns the page of the task list to show.
+     *
+     * @return The page number, or null if the whole list is to be shown.
+     */
+    public Integer getPageNumber() {
+        return pageNumber;
+    }
+    /**
+     * Returns the number of tasks on each page.
+     *
+     * @return The page size, or null if the whole list is to be shown.
+     */
+    public Integer getPageSize() {
+        return pageSize;
+    }
+    /**
+     * Returns whether the query only matches the start of words in task descriptions.
+     *
+     * @return True if only the start of words is matched, false if any part of the description is.
+     */
+    public boolean isPrefixMatch() {
+        return isPrefixMatch;
+    }
+    /**
+     * Returns whether the query is searched for in the archive instead of the task list.
+     *
+     * @return True if the archive is searched, false if the task list is.
+     */
+    public boolean isArchiveSearch() {
+        return isArchiveSearch;
+    }
+    /**
+     * Returns the tasks chosen by the instruction, if it may choose more than one.
+     *
+     * @return The chosen tasks, or null if a single ordinal is given or not applicable.
+     */
+    public TaskSelection getTaskSelection() {
+        return taskSelection;
+    }
 }
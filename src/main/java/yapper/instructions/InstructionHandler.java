@@ -1,10 +1,16 @@
 package yapper.instructions;
 
+import java.util.List;
+
 import yapper.exceptions.ExceptionHandler;
 import yapper.exceptions.YapperException;
+import yapper.io.ArchiveFileHandler;
+import yapper.io.DateAndTimeHandler;
 import yapper.io.OutputFileHandler;
 import yapper.io.OutputStringHandler;
 import yapper.io.StringStorage;
+import yapper.io.WorkspaceHandler;
+import yapper.metrics.MetricsRegistry;
 import yapper.tasks.Deadline;
 import yapper.tasks.Event;
 import yapper.tasks.Task;
@@ -16,7 +22,7 @@ import yapper.tasks.Todo;
  *
  * <p>
  * A utility class for handling various types of instructions
- * (FIND, LIST, TODO, DEADLINE, EVENT, DELETE, MARK, UNMARK) in the Yapper application.
+ * (FIND, COMPLETE, LIST, TODO, DEADLINE, EVENT, DELETE, MARK, UNMARK, UNDO, REDO, ARCHIVE) in the Yapper application.
  * It processes user input and performs corresponding actions on tasks using a TaskHandler.
  * <p/>
  *
@@ -32,6 +38,70 @@ public class InstructionHandler {
     public static void handleFindInstruction(TaskHandler taskHandler, String query) {
         OutputStringHandler.printSelectedTasks(taskHandler, query);
     }
+    /**
+     * Handles the FIND instruction with the prefix option by printing the tasks
+     * that have a word starting with the prefix.
+     *
+     * @param taskHandler The handler that manages the list of tasks.
+     * @param prefix      The start of a word in task descriptions, in any case.
+     */
+    public static void handleFindPrefixInstruction(TaskHandler taskHandler, String prefix) {
+        OutputStringHandler.printSelectedTasks(taskHandler, taskHandler.findOrdinalsWithWordPrefix(prefix));
+    }
+    /**
+     * Handles the FIND instruction with the archive option by printing the archived tasks that contain the query,
+     * reading the archive one block at a time.
+     *
+     * @param query            The string that is to be found in archived task descriptions.
+     * @throws YapperException If the archive cannot be read.
+     */
+    public static void handleFindArchiveInstruction(String query) throws YapperException {
+        try {
+            OutputStringHandler.printSelectedArchivedTasks(query);
+        } catch (YapperException e) {
+            throw new YapperException(
+                    "YapperException has occurred when trying to search the archive. \n"
+                    + e.getMessage());
+        }
+    }
+    /**
+     * Handles the COMPLETE instruction by printing the words of task descriptions that start with the prefix,
+     * used by the most tasks first.
+     *
+     * @param taskHandler The handler that manages the list of tasks.
+     * @param prefix      The start of a word, in any case.
+     */
+    public static void handleCompleteInstruction(TaskHandler taskHandler, String prefix) {
+        OutputStringHandler.printCompletions(taskHandler.completeWord(prefix, StringStorage.COMPLETION_LIMIT));
+    }
+
+    /**
+     * Handles the DUE instruction by printing the tasks whose dates end on the given day or minute.
+     *
+     * @param taskHandler The handler that manages the list of tasks.
+     * @param date        The date, with an optional time, that the tasks are due.
+     * @throws YapperException If the date cannot be parsed.
+     */
+    public static void handleDueInstruction(TaskHandler taskHandler, String date) throws YapperException {
+        long from = DateAndTimeHandler.parseQueryDate(date, false);
+        long to = DateAndTimeHandler.parseQueryDate(date, true);
+        OutputStringHandler.printDatedTasks(taskHandler.findOrdinalsDueBetween(from, to), taskHandler);
+    }
+    /**
+     * Handles the BETWEEN instruction by printing the tasks whose dates overlap the given period.
+     *
+     * @param taskHandler The handler that manages the list of tasks.
+     * @param startDate   The start of the period, with an optional time.
+     * @param endDate     The end of the period, with an optional time.
+     * @throws YapperException If either date cannot be parsed, or the period starts after it ends.
+     */
+    public static void handleBetweenInstruction(TaskHandler taskHandler, String startDate, String endDate)
+            throws YapperException {
+        long from = DateAndTimeHandler.parseQueryDate(startDate, false);
+        long to = DateAndTimeHandler.parseQueryDate(endDate, true);
+        ExceptionHandler.checkIfQueryPeriodReversed(from, to);
+        OutputStringHandler.printDatedTasks(taskHandler.findOrdinalsOverlapping(from, to), taskHandler);
+    }
 
     /**
      * Handles the LIST instruction by printing all tasks.
@@ -50,6 +120,27 @@ public class InstructionHandler {
         }
     }
 
+    /**
+     * Handles the LIST instruction with page options by printing one page of tasks.
+     *
+     * @param taskHandler      The handler that manages the list of tasks.
+     * @param pageNumber       The page to print, starting from 1.
+     * @param pageSize         The number of tasks on each page.
+     * @throws YapperException If the list is empty or the page has no tasks.
+     */
+    public static void handleListPageInstruction(TaskHandler taskHandler, int pageNumber, int pageSize)
+            throws YapperException {
+        try {
+            ExceptionHandler.checkIfTaskOrdinalIsOutOfRange(taskHandler.getCurrTaskTotal());
+            ExceptionHandler.checkIfPageIsOutOfRange(taskHandler.getCurrTaskTotal(), pageNumber, pageSize);
+            OutputStringHandler.printTaskPage(taskHandler, pageNumber, pageSize);
+        } catch (YapperException e) {
+            throw new YapperException(
+                    "YapperException has occurred when trying to list a page of tasks. \n"
+                    + e.getMessage());
+        }
+    }
+
     /**
      * Handles the TODO, DEADLINE, and EVENT instructions by adding a task.
      *
@@ -60,10 +151,11 @@ public class InstructionHandler {
     public static void handleAddInstruction(TaskHandler taskHandler, Task task) throws YapperException {
         try {
             taskHandler.addTask(task);
-
-            OutputStringHandler.printAddedTask(task, taskHandler.getCurrTaskTotal());
+            HistoryHandler.recordAddedTask(taskHandler, task);
 
             OutputFileHandler.storeAddedTask(task);
+
+            OutputStringHandler.printAddedTask(task, taskHandler.getCurrTaskTotal());
         } catch (YapperException e) {
             throw new YapperException(
                     "YapperException has occurred when trying to add a task. \n"
@@ -84,10 +176,11 @@ public class InstructionHandler {
 
             Task task = taskHandler.getTaskAtOrdinal(taskOrdinal);
             taskHandler.deleteTask(taskOrdinal);
-
-            OutputStringHandler.printDeletedTask(task, taskHandler.getCurrTaskTotal());
+            HistoryHandler.recordDeletedTasks(taskHandler, new int[] {taskOrdinal}, List.of(task));
 
             OutputFileHandler.unstoreDeletedTask(taskOrdinal);
+
+            OutputStringHandler.printDeletedTask(task, taskHandler.getCurrTaskTotal());
         } catch (YapperException e) {
             throw new YapperException(
                     "YapperException has occurred when trying to delete a task. \n"
@@ -111,10 +204,11 @@ public class InstructionHandler {
             ExceptionHandler.checkIfDoneStatusNeedsChanging(task.isDone(), isDone);
 
             taskHandler.updateTaskStatus(task, isDone);
-
-            OutputStringHandler.printTaskStatus(task, isDone);
+            HistoryHandler.recordStatusChange(taskHandler, new int[] {taskOrdinal}, isDone);
 
             OutputFileHandler.amendTaskStatus(task, taskOrdinal);
+
+            OutputStringHandler.printTaskStatus(task, isDone);
         } catch (YapperException e) {
             throw new YapperException(
                     "YapperException has occurred when trying to mark/unmark a task. \n"
@@ -122,22 +216,219 @@ public class InstructionHandler {
         }
     }
 
+    /**
+     * Handles the DELETE instruction on many tasks at once.
+     *
+     * <p>
+     * The tasks are deleted in one pass over the task list, which is then written to the file once,
+     * and only the count of tasks deleted is printed.
+     * </p>
+     *
+     * @param taskHandler      The handler that manages the list of tasks.
+     * @param taskSelection    The tasks to delete.
+     * @throws YapperException If no tasks are chosen, or an error occurs while deleting them.
+     */
+    public static void handleBulkDeleteInstruction(TaskHandler taskHandler, TaskSelection taskSelection)
+            throws YapperException {
+        try {
+            int[] taskOrdinals = taskSelection.getTaskOrdinals(taskHandler);
+            ExceptionHandler.checkIfAnyTasksSelected(taskOrdinals.length);
+
+            List<Task> deletedTasks = taskHandler.deleteTasks(taskOrdinals);
+            HistoryHandler.recordDeletedTasks(taskHandler, taskOrdinals, deletedTasks);
+
+            OutputFileHandler.storeChangedTasks(taskHandler);
+
+            OutputStringHandler.printDeletedTasks(taskOrdinals.length, taskHandler.getCurrTaskTotal());
+        } catch (YapperException e) {
+            throw new YapperException(
+                    "YapperException has occurred when trying to delete tasks. \n"
+                    + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles the MARK and UNMARK instructions on many tasks at once.
+     *
+     * <p>
+     * Tasks that already have the new status are left as they are, and counted.
+     * The task list is written to the file once, and only the counts are printed.
+     * </p>
+     *
+     * @param taskHandler      The handler that manages the list of tasks.
+     * @param taskSelection    The tasks to mark/unmark.
+     * @param isDone           The new completion status of the tasks (true for mark, false for unmark).
+     * @throws YapperException If no tasks are chosen, all of them already have the status,
+     *                         or an error occurs while updating them.
+     */
+    public static void handleBulkMarkingInstruction(TaskHandler taskHandler, TaskSelection taskSelection,
+            boolean isDone) throws YapperException {
+        try {
+            int[] taskOrdinals = taskSelection.getTaskOrdinals(taskHandler);
+            ExceptionHandler.checkIfAnyTasksSelected(taskOrdinals.length);
+
+            int[] changedOrdinals = taskHandler.updateTasksStatus(taskOrdinals, isDone);
+            int changedTotal = changedOrdinals.length;
+            if (changedTotal == 0) {
+                ExceptionHandler.checkIfDoneStatusNeedsChanging(isDone, isDone);
+            }
+            HistoryHandler.recordStatusChange(taskHandler, changedOrdinals, isDone);
+
+            OutputFileHandler.storeChangedTasks(taskHandler);
+
+            OutputStringHandler.printTasksStatus(changedTotal, taskOrdinals.length - changedTotal, isDone);
+        } catch (YapperException e) {
+            throw new YapperException(
+                    "YapperException has occurred when trying to mark/unmark tasks. \n"
+                    + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles the ARCHIVE instruction by moving done tasks out of the task list into its archive.
+     *
+     * <p>
+     * The tasks are appended to the archive in compressed blocks, then deleted from the task list in one pass,
+     * which is written to the file once.
+     * Archiving cannot be undone, so the undo history of the list is forgotten.
+     * </p>
+     *
+     * @param taskHandler      The handler that manages the list of tasks.
+     * @param taskSelection    The done tasks to archive.
+     * @throws YapperException If no tasks are chosen, or an error occurs while archiving them.
+     */
+    public static void handleArchiveInstruction(TaskHandler taskHandler, TaskSelection taskSelection)
+            throws YapperException {
+        try {
+            int[] taskOrdinals = taskSelection.getTaskOrdinals(taskHandler);
+            ExceptionHandler.checkIfAnyTasksSelected(taskOrdinals.length);
+
+            int archivedTotal = ArchiveFileHandler.archiveTasks(taskHandler, taskOrdinals);
+            HistoryHandler.forgetHistory(taskHandler);
+
+            OutputStringHandler.printArchivedTasks(archivedTotal, taskHandler.getCurrTaskTotal());
+        } catch (YapperException e) {
+            throw new YapperException(
+                    "YapperException has occurred when trying to archive tasks. \n"
+                    + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles the UNDO instruction by reversing the most recent changes to the task list.
+     *
+     * @param taskHandler      The handler that manages the list of tasks.
+     * @param stepTotal        The number of changes to reverse.
+     * @throws YapperException If there is nothing to undo, or an error occurs while reversing the changes.
+     */
+    public static void handleUndoInstruction(TaskHandler taskHandler, int stepTotal) throws YapperException {
+        try {
+            int stepCount = HistoryHandler.undo(taskHandler, stepTotal);
+
+            OutputStringHandler.printHistoryChange(stepCount, taskHandler.getCurrTaskTotal(), true);
+        } catch (YapperException e) {
+            throw new YapperException(
+                    "YapperException has occurred when trying to undo changes. \n"
+                    + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles the REDO instruction by making the most recently undone changes to the task list again.
+     *
+     * @param taskHandler      The handler that manages the list of tasks.
+     * @param stepTotal        The number of changes to make again.
+     * @throws YapperException If there is nothing to redo, or an error occurs while making the changes.
+     */
+    public static void handleRedoInstruction(TaskHandler taskHandler, int stepTotal) throws YapperException {
+        try {
+            int stepCount = HistoryHandler.redo(taskHandler, stepTotal);
+
+            OutputStringHandler.printHistoryChange(stepCount, taskHandler.getCurrTaskTotal(), false);
+        } catch (YapperException e) {
+            throw new YapperException(
+                    "YapperException has occurred when trying to redo changes. \n"
+                    + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles the USE instruction by switching to another task list, loading or starting it if needed.
+     *
+     * <p>
+     * If writes are being deferred, e.g. in a batch, the list being left is stored in full first,
+     * since the batch only stores the list in use once it is done.
+     * </p>
+     *
+     * @param taskHandler      The handler that manages the list of tasks in use.
+     * @param listName         The name of the list to switch to.
+     * @throws YapperException If the list being left cannot be stored.
+     */
+    public static void handleUseInstruction(TaskHandler taskHandler, String listName) throws YapperException {
+        if (listName.equals(WorkspaceHandler.getCurrentListName())) {
+            OutputStringHandler.printListInUse(listName, taskHandler.getCurrTaskTotal(), false);
+            return;
+        }
+        if (OutputFileHandler.isDeferringWrites()) {
+            OutputFileHandler.storeAllTasks(taskHandler);
+        }
+        TaskHandler listTaskHandler = WorkspaceHandler.useList(listName);
+        OutputStringHandler.printListInUse(listName, listTaskHandler.getCurrTaskTotal(), true);
+    }
+
     /**
      * Performs the appropriate executions, after being given an instruction parsed from user input.
      *
+     * <p>
+     * Each instruction is counted and timed by its type in the {@code MetricsRegistry}, whether it succeeds or not.
+     * </p>
+     *
+     * <p>
+     * After a USE instruction, the list in use is a different one,
+     * so callers get it from {@code FileHandler.getTaskHandler} before the next instruction.
+     * </p>
+     *
      * @param taskHandler The handler that manages the list of tasks.
      * @param instruction The parsed instruction
      */
     public static void handleInstruction(TaskHandler taskHandler, Instruction instruction) throws YapperException {
+        Instruction.InstructionType instructionType = instruction.getInstructionType();
+        long startTime = System.nanoTime();
+        boolean isFailed = true;
         try {
-            Instruction.InstructionType instructionType = instruction.getInstructionType();
             switch (instructionType) {
             case LIST:
-                handleListInstruction(taskHandler);
+                if (instruction.getPageNumber() != null) {
+                    handleListPageInstruction(taskHandler,
+                            instruction.getPageNumber(), instruction.getPageSize());
+                } else {
+                    handleListInstruction(taskHandler);
+                }
                 break;
             case FIND:
                 String query = instruction.getInstructionDesc();
-                handleFindInstruction(taskHandler, query);
+                if (instruction.isArchiveSearch()) {
+                    handleFindArchiveInstruction(query);
+                } else if (instruction.isPrefixMatch()) {
+                    handleFindPrefixInstruction(taskHandler, query);
+                } else {
+                    handleFindInstruction(taskHandler, query);
+                }
+                break;
+            case COMPLETE:
+                handleCompleteInstruction(taskHandler, instruction.getInstructionDesc());
+                break;
+            case DUE:
+                handleDueInstruction(taskHandler,
+                        instruction.getTaskDates()[0]);
+                break;
+            case BETWEEN:
+                handleBetweenInstruction(taskHandler,
+                        instruction.getTaskDates()[0], instruction.getTaskDates()[1]);
+                break;
+            case SOURCE:
+                BatchHandler.runBatch(taskHandler,
+                        instruction.getInstructionDesc());
                 break;
             case TODO:
                 String todoDesc = instruction.getInstructionDesc();
@@ -158,27 +449,53 @@ public class InstructionHandler {
                         new Event(eventDesc, startDate, endDate));
                 break;
             case DELETE:
+                if (instruction.getTaskSelection() != null) {
+                    handleBulkDeleteInstruction(taskHandler, instruction.getTaskSelection());
+                    break;
+                }
                 handleDeleteInstruction(taskHandler,
                         instruction.getTaskOrdinal() - StringStorage.INDEX_OFFSET);
                 break;
             case MARK:
-                handleMarkingInstruction(taskHandler,
-                        instruction.getTaskOrdinal() - StringStorage.INDEX_OFFSET,
-                        true);
-                break;
             case UNMARK:
+                boolean isDone = instructionType == Instruction.InstructionType.MARK;
+                if (instruction.getTaskSelection() != null) {
+                    handleBulkMarkingInstruction(taskHandler, instruction.getTaskSelection(), isDone);
+                    break;
+                }
                 handleMarkingInstruction(taskHandler,
                         instruction.getTaskOrdinal() - StringStorage.INDEX_OFFSET,
-                        false);
+                        isDone);
+                break;
+            case UNDO:
+                handleUndoInstruction(taskHandler, instruction.getTaskOrdinal());
+                break;
+            case REDO:
+                handleRedoInstruction(taskHandler, instruction.getTaskOrdinal());
+                break;
+            case ARCHIVE:
+                handleArchiveInstruction(taskHandler, instruction.getTaskSelection());
                 break;
             case HELP:
-                System.out.println(StringStorage.HELP_MESSAGE);
+                OutputStringHandler.printHelp();
+                break;
+            case STATS:
+                OutputStringHandler.printStats(MetricsRegistry.describe());
+                break;
+            case LISTS:
+                OutputStringHandler.printLists(WorkspaceHandler.describeLists());
+                break;
+            case USE:
+                handleUseInstruction(taskHandler, instruction.getInstructionDesc());
                 break;
             default:
                 throw new YapperException("Yapper doesn't know how to handle this instruction. ");
             }
+            isFailed = false;
         } catch (YapperException e) {
             throw new YapperException("when executing instruction. \n" + e.getMessage());
+        } finally {
+            MetricsRegistry.recordInstruction(instructionType, System.nanoTime() - startTime, isFailed);
         }
     }
 }
@@ -0,0 +1,179 @@
+package yapper.instructions;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import yapper.exceptions.ExceptionHandler;
+import yapper.exceptions.YapperException;
+import yapper.io.DateAndTimeHandler;
+import yapper.io.StringStorage;
+import yapper.tasks.Task;
+import yapper.tasks.TaskDateIndex;
+import yapper.tasks.TaskHandler;
+
+/**
+ * Represents the tasks chosen by a bulk DELETE, MARK or UNMARK instruction, or an ARCHIVE instruction, in Yapper.
+ *
+ * <p>
+ * The tasks are chosen either by their ordinals, as a list of single ordinals and ranges, e.g. "3,7,10-500",
+ * or by a filter over every task: all of them, the done ones, the ones not done yet,
+ * or the done ones whose dates ended more than some number of days ago.
+ * The ordinals are the ones shown to the user, starting from 1.
+ * </p>
+ *
+ */
+public class TaskSelection {
+
+    /**
+     * Enumeration of the filters a selection can choose tasks by.
+     *
+     * <p>
+     * Currently includes:
+     * <li> ORDINALS: The tasks at the given ordinals. <li/>
+     * ALL: Every task. <li/>
+     * DONE: The tasks marked as done. <li/>
+     * NOT_DONE: The tasks not marked as done. <li/>
+     * DONE_BEFORE: The tasks marked as done, whose last date ended more than some number of days ago.
+     * <p/>
+     *
+     */
+    public enum SelectionFilter {
+        ORDINALS, ALL, DONE, NOT_DONE, DONE_BEFORE,
+    }
+
+    private final SelectionFilter selectionFilter;
+    /**
+     * The first and last ordinal of each range, one after another, as shown to the user.
+     * A single ordinal is a range that starts and ends on it.
+     */
+    private final int[] ordinalRanges;
+    /**
+     * The number of days since a done task's last date must have ended, for DONE_BEFORE.
+     */
+    private final int dayTotal;
+
+
+    /**
+     * Constructs a selection of every task that passes the filter.
+     *
+     * @param selectionFilter the filter, which is not ORDINALS
+     */
+    public TaskSelection(SelectionFilter selectionFilter) {
+        this.selectionFilter = selectionFilter;
+        this.ordinalRanges = new int[0];
+        this.dayTotal = 0;
+    }
+    /**
+     * Constructs a selection of every done task whose last date ended more than the given number of days ago.
+     * Todos have no dates, so they are never chosen.
+     *
+     * @param dayTotal the number of days, counted back from when the tasks are chosen
+     */
+    public TaskSelection(int dayTotal) {
+        this.selectionFilter = SelectionFilter.DONE_BEFORE;
+        this.ordinalRanges = new int[0];
+        this.dayTotal = dayTotal;
+    }
+    /**
+     * Constructs a selection of the tasks in the given ranges of ordinals.
+     *
+     * @param ordinalRanges the first and last ordinal of each range, one after another, as shown to the user
+     */
+    public TaskSelection(int[] ordinalRanges) {
+        this.selectionFilter = SelectionFilter.ORDINALS;
+        this.ordinalRanges = ordinalRanges;
+        this.dayTotal = 0;
+    }
+
+
+    /**
+     * Returns the filter the tasks are chosen by.
+     *
+     * @return the selection filter
+     */
+    public SelectionFilter getSelectionFilter() {
+        return selectionFilter;
+    }
+
+    /**
+     * Returns the ordinals of the chosen tasks in the task list, in ascending order without repeats.
+     *
+     * @param taskHandler the task list
+     * @return the ordinals, starting from 0
+     * @throws YapperException if the list is empty, or an ordinal is not in the list
+     */
+    public int[] getTaskOrdinals(TaskHandler taskHandler) throws YapperException {
+        int taskTotal = taskHandler.getCurrTaskTotal();
+        ExceptionHandler.checkIfTaskOrdinalIsOutOfRange(taskTotal);
+        switch (selectionFilter) {
+        case ALL:
+            int[] allOrdinals = new int[taskTotal];
+            Arrays.setAll(allOrdinals, ordinal -> ordinal);
+            return allOrdinals;
+        case DONE:
+        case NOT_DONE:
+            return getOrdinalsWithStatus(taskHandler.getAllTasks(), selectionFilter == SelectionFilter.DONE);
+        case DONE_BEFORE:
+            long cutoffMinute = DateAndTimeHandler.toEpochMinute(LocalDateTime.now().minusDays(dayTotal));
+            return getOrdinalsDoneBefore(taskHandler.getAllTasks(), cutoffMinute);
+        default:
+            return getOrdinalsInRanges(taskTotal);
+        }
+    }
+
+    private static int[] getOrdinalsWithStatus(List<Task> tasks, boolean isDone) {
+        int[] ordinals = new int[tasks.size()];
+        int ordinalTotal = 0;
+        int ordinal = 0;
+        for (Task task : tasks) {
+            if (task.isDone() == isDone) {
+                ordinals[ordinalTotal++] = ordinal;
+            }
+            ordinal++;
+        }
+        return Arrays.copyOf(ordinals, ordinalTotal);
+    }
+    private static int[] getOrdinalsDoneBefore(List<Task> tasks, long cutoffMinute) {
+        int[] ordinals = new int[tasks.size()];
+        int ordinalTotal = 0;
+        int ordinal = 0;
+        for (Task task : tasks) {
+            if (task.isDone()) {
+                long[] interval = TaskDateIndex.getInterval(task);
+                if (interval != null && interval[1] < cutoffMinute) {
+                    ordinals[ordinalTotal++] = ordinal;
+                }
+            }
+            ordinal++;
+        }
+        return Arrays.copyOf(ordinals, ordinalTotal);
+    }
+    /**
+     * Marks every ordinal in the ranges, so ranges that overlap or come in any order give each ordinal once.
+     */
+    private int[] getOrdinalsInRanges(int taskTotal) throws YapperException {
+        boolean[] isSelected = new boolean[taskTotal];
+        int ordinalTotal = 0;
+        for (int index = 0; index < ordinalRanges.length; index += 2) {
+            int first = ordinalRanges[index] - StringStorage.INDEX_OFFSET;
+            int last = ordinalRanges[index + 1] - StringStorage.INDEX_OFFSET;
+            ExceptionHandler.checkIfTaskOrdinalIsOutOfRange(taskTotal, first);
+            ExceptionHandler.checkIfTaskOrdinalIsOutOfRange(taskTotal, last);
+            for (int ordinal = first; ordinal <= last; ordinal++) {
+                if (!isSelected[ordinal]) {
+                    isSelected[ordinal] = true;
+                    ordinalTotal++;
+                }
+            }
+        }
+        int[] ordinals = new int[ordinalTotal];
+        int nextIndex = 0;
+        for (int ordinal = 0; ordinal < taskTotal && nextIndex < ordinalTotal; ordinal++) {
+            if (isSelected[ordinal]) {
+                ordinals[nextIndex++] = ordinal;
+            }
+        }
+        return ordinals;
+    }
+}
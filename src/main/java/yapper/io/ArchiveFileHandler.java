@@ -0,0 +1,406 @@
+package yapper.io;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import yapper.exceptions.YapperException;
+import yapper.metrics.MetricsRegistry;
+import yapper.metrics.MetricsRegistry.FileOperation;
+import yapper.tasks.Task;
+import yapper.tasks.TaskHandler;
+
+/**
+ * Archive File Handler for Yapper.
+ *
+ * <p>
+ * Done tasks can be moved out of the task list into an archive file next to its save file,
+ * e.g. "savedata.txt.archive", so they no longer cost anything to load, list or save.
+ * Archived tasks are never loaded again, but can still be searched with "find --archive".
+ * </p>
+ *
+ * <p>
+ * The archive is only ever appended to, in blocks of up to {@code ARCHIVE_BLOCK_TASKS} tasks,
+ * and at most {@code MAX_BLOCK_BYTES} bytes before or after compression.
+ * Each block holds the tasks as lines of the text save format, compressed together with {@code Deflater},
+ * after a header with the number of tasks, the lengths before and after compression, and a CRC32 of the lines.
+ * A search reads and inflates one block at a time, so it never holds more than one block in memory.
+ * </p>
+ *
+ * <p>
+ * Version 1 archives hold lines whose dates were stored with the day before the month.
+ * They are still searched, with legacy dates, and are rewritten as version 2 before anything is appended to them.
+ * </p>
+ *
+ * <p>
+ * The tasks are forced to disk in the archive before they are deleted from the task list,
+ * so a crash in between leaves them in both places rather than in neither.
+ * A block cut short by a crash is ignored when searching, and written over by the next archive.
+ * </p>
+ *
+ */
+public class ArchiveFileHandler {
+    private static final int MAGIC_NUMBER = 0x59415243;
+    private static final int FORMAT_VERSION = 2;
+    private static final int FORMAT_VERSION_WITH_LEGACY_DATES = 1;
+    private static final int FILE_HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int BLOCK_HEADER_BYTES = 4 * Integer.BYTES;
+    /**
+     * The most bytes a block can take before or after compression, i.e. 64 KiB for each task it can hold.
+     * A block header claiming more is damaged, and its lengths are not trusted to allocate anything.
+     */
+    private static final int MAX_BLOCK_BYTES = StringStorage.ARCHIVE_BLOCK_TASKS * 64 * 1024;
+    /**
+     * The most bytes of lines put in one block, leaving room for the block to grow when compressed.
+     */
+    private static final int MAX_BLOCK_RAW_BYTES_WRITTEN = MAX_BLOCK_BYTES / 2;
+
+
+    /**
+     * Moves the tasks at the ordinals from the task list to the end of its archive,
+     * then stores the task list once.
+     *
+     * @param taskHandler  the task list
+     * @param taskOrdinals the ordinals of the tasks, in ascending order without repeats
+     * @return the number of tasks archived
+     * @throws YapperException if the tasks cannot be written to the archive, which leaves the task list unchanged,
+     *                         or the task list cannot be stored afterwards
+     */
+    public static int archiveTasks(TaskHandler taskHandler, int[] taskOrdinals) throws YapperException {
+        List<Task> tasks = new ArrayList<>(taskOrdinals.length);
+        for (int taskOrdinal : taskOrdinals) {
+            tasks.add(taskHandler.getTaskAtOrdinal(taskOrdinal));
+        }
+        long startTime = System.nanoTime();
+        try {
+            appendTasks(getArchivePath(), tasks);
+        } catch (IOException e) {
+            throw new YapperException(StringStorage.ARCHIVING_ERROR_MESSAGE + e.getMessage());
+        } finally {
+            MetricsRegistry.recordFileOperation(FileOperation.ARCHIVE, System.nanoTime() - startTime);
+        }
+        taskHandler.deleteTasks(taskOrdinals);
+        OutputFileHandler.storeChangedTasks(taskHandler);
+        return tasks.size();
+    }
+
+    /**
+     * Searches the archive of the task list in use for tasks whose description contains the query,
+     * one block at a time, in the order they were archived.
+     *
+     * @param query         the string to find in task descriptions
+     * @param matchConsumer called with each matching task, as soon as it is found
+     * @param blockEnd      called after each block has been searched, e.g. to print the matches so far
+     * @return the number of matching tasks
+     * @throws YapperException if the archive cannot be read
+     */
+    public static int findTasks(String query, Consumer<Task> matchConsumer, Runnable blockEnd)
+            throws YapperException {
+        Path archivePath = getArchivePath();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(archivePath)))) {
+            boolean isWithLegacyDates = checkFileHeader(input.readInt(), input.readInt());
+            int[] matchTotal = {0};
+            readBlocks(input, lines -> {
+                matchTotal[0] += findTasksInBlock(lines, query, isWithLegacyDates, matchConsumer);
+                blockEnd.run();
+            });
+            return matchTotal[0];
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (EOFException e) {
+            // the archive was created, but a crash came before its header was written
+            return 0;
+        } catch (IOException e) {
+            throw new YapperException(StringStorage.ARCHIVE_READING_ERROR_MESSAGE + e.getMessage());
+        }
+    }
+
+
+    private static Path getArchivePath() {
+        return Paths.get(FileHandler.getTaskStorage().getSaveFilePath() + StringStorage.ARCHIVE_FILE_SUFFIX);
+    }
+    /**
+     * Checks the file header of an archive.
+     *
+     * @return true if the archive is in the version with legacy dates
+     * @throws IOException if the file is not an archive of a supported version
+     */
+    private static boolean checkFileHeader(int magicNumber, int formatVersion) throws IOException {
+        if (magicNumber != MAGIC_NUMBER
+                || (formatVersion != FORMAT_VERSION && formatVersion != FORMAT_VERSION_WITH_LEGACY_DATES)) {
+            throw new IOException("not a Yapper archive, or written by a newer version");
+        }
+        return formatVersion == FORMAT_VERSION_WITH_LEGACY_DATES;
+    }
+
+    /**
+     * Appends the tasks to the archive in blocks, after the last whole block, then forces them to disk.
+     */
+    private static void appendTasks(Path archivePath, List<Task> tasks) throws IOException {
+        upgradeLegacyArchive(archivePath);
+        try (FileChannel channel = FileChannel.open(archivePath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long archiveEnd = findEndOfLastBlock(channel);
+            channel.truncate(archiveEnd);
+            channel.position(archiveEnd);
+            if (archiveEnd == 0) {
+                writeFully(channel, ByteBuffer.allocate(FILE_HEADER_BYTES)
+                        .putInt(MAGIC_NUMBER).putInt(FORMAT_VERSION).flip());
+            }
+            writeBlocks(channel, tasks);
+            channel.force(true);
+        }
+    }
+    /**
+     * Rewrites a version 1 archive as version 2, through a temporary file that is forced to disk
+     * and then moved over it, so that new blocks are never appended after lines with legacy dates.
+     */
+    private static void upgradeLegacyArchive(Path archivePath) throws IOException {
+        List<Task> archivedTasks = new ArrayList<>();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(archivePath)))) {
+            if (!checkFileHeader(input.readInt(), input.readInt())) {
+                return;
+            }
+            readBlocks(input, lines -> TaskRecordDecoder.decodeLines(lines, 0, lines.length(), true,
+                    archivedTasks::add, invalidTaskMessage -> { }));
+        } catch (NoSuchFileException | EOFException e) {
+            return;
+        }
+        Path tempFilePath = Paths.get(archivePath + StringStorage.TEMP_FILE_SUFFIX);
+        try (FileChannel channel = FileChannel.open(tempFilePath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, ByteBuffer.allocate(FILE_HEADER_BYTES)
+                    .putInt(MAGIC_NUMBER).putInt(FORMAT_VERSION).flip());
+            writeBlocks(channel, archivedTasks);
+            channel.force(true);
+        }
+        Files.move(tempFilePath, archivePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    /**
+     * Writes the tasks as blocks of up to {@code ARCHIVE_BLOCK_TASKS} tasks,
+     * starting a block early if its lines would take more than {@code MAX_BLOCK_RAW_BYTES_WRITTEN} bytes.
+     *
+     * @throws IOException if a single task takes more than that, or the blocks cannot be written
+     */
+    private static void writeBlocks(FileChannel channel, List<Task> tasks) throws IOException {
+        Deflater deflater = new Deflater();
+        try {
+            ByteArrayOutputStream lines = new ByteArrayOutputStream();
+            int lineTotal = 0;
+            for (Task task : tasks) {
+                byte[] lineBytes = (task.taskToSaveString() + "\n").getBytes(StandardCharsets.UTF_8);
+                if (lineBytes.length > MAX_BLOCK_RAW_BYTES_WRITTEN) {
+                    throw new IOException("task " + task.getTaskId() + " is too long to archive");
+                }
+                if (lineTotal == StringStorage.ARCHIVE_BLOCK_TASKS
+                        || lines.size() + lineBytes.length > MAX_BLOCK_RAW_BYTES_WRITTEN) {
+                    writeFully(channel, compressBlock(deflater, lines.toByteArray(), lineTotal));
+                    lines.reset();
+                    lineTotal = 0;
+                }
+                lines.writeBytes(lineBytes);
+                lineTotal++;
+            }
+            if (lineTotal > 0) {
+                writeFully(channel, compressBlock(deflater, lines.toByteArray(), lineTotal));
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+    /**
+     * Returns the offset after the last whole block, skipping over each block by its header,
+     * or 0 if the archive is empty or holds only part of its header.
+     */
+    private static long findEndOfLastBlock(FileChannel channel) throws IOException {
+        long archiveSize = channel.size();
+        if (archiveSize < FILE_HEADER_BYTES) {
+            return 0;
+        }
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+        readFully(channel, header.limit(FILE_HEADER_BYTES), 0);
+        checkFileHeader(header.getInt(0), header.getInt(Integer.BYTES));
+
+        long blockStart = FILE_HEADER_BYTES;
+        while (blockStart + BLOCK_HEADER_BYTES <= archiveSize) {
+            readFully(channel, header.clear(), blockStart);
+            int compressedLength = header.getInt(2 * Integer.BYTES);
+            long blockEnd = blockStart + BLOCK_HEADER_BYTES + compressedLength;
+            if (compressedLength < 0 || compressedLength > MAX_BLOCK_BYTES || blockEnd > archiveSize) {
+                break;
+            }
+            blockStart = blockEnd;
+        }
+        return blockStart;
+    }
+    /**
+     * Returns a block holding the lines of the text save format, compressed, after its header.
+     * The dates in the lines are in {@code DateAndTimeHandler.DATE_WITH_TIME_TO_STRING}
+     * or {@code DateAndTimeHandler.DATE_WITHOUT_TIME_TO_STRING}, which are read back as the same dates.
+     *
+     * @param deflater  the deflater to compress with, reset first
+     * @param rawBytes  the lines, in UTF-8
+     * @param lineTotal the number of lines
+     */
+    private static ByteBuffer compressBlock(Deflater deflater, byte[] rawBytes, int lineTotal) {
+        CRC32 crc = new CRC32();
+        crc.update(rawBytes);
+
+        deflater.reset();
+        deflater.setInput(rawBytes);
+        deflater.finish();
+        byte[] compressedBytes = new byte[Math.max(64, rawBytes.length / 2)];
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == compressedBytes.length) {
+                compressedBytes = Arrays.copyOf(compressedBytes, compressedBytes.length * 2);
+            }
+            compressedLength += deflater.deflate(compressedBytes, compressedLength,
+                    compressedBytes.length - compressedLength);
+        }
+        MetricsRegistry.recordBytesWritten(BLOCK_HEADER_BYTES + compressedLength);
+        return ByteBuffer.allocate(BLOCK_HEADER_BYTES + compressedLength)
+                .putInt(lineTotal)
+                .putInt(rawBytes.length)
+                .putInt(compressedLength)
+                .putInt((int) crc.getValue())
+                .put(compressedBytes, 0, compressedLength)
+                .flip();
+    }
+
+    /**
+     * Inflates one block after another, passing the lines of each to the consumer,
+     * until the end of the archive or a block cut short.
+     *
+     * <p>
+     * A damaged block is skipped, so the rest of the archive can still be read,
+     * including one whose header claims more than {@code MAX_BLOCK_BYTES} bytes of lines,
+     * which is skipped without allocating anything for it.
+     * A block whose compressed length is out of range cannot be skipped, so reading stops there.
+     * </p>
+     */
+    private static void readBlocks(DataInputStream input, Consumer<String> blockConsumer) throws IOException {
+        Inflater inflater = new Inflater();
+        byte[] compressedBytes = new byte[0];
+        byte[] rawBytes = new byte[0];
+        try {
+            while (true) {
+                int rawLength;
+                int compressedLength;
+                int expectedCrc;
+                try {
+                    input.readInt();
+                    rawLength = input.readInt();
+                    compressedLength = input.readInt();
+                    expectedCrc = input.readInt();
+                    if (compressedLength < 0 || compressedLength > MAX_BLOCK_BYTES) {
+                        return;
+                    }
+                    if (compressedBytes.length < compressedLength) {
+                        compressedBytes = new byte[compressedLength];
+                    }
+                    input.readFully(compressedBytes, 0, compressedLength);
+                } catch (EOFException e) {
+                    return;
+                }
+                MetricsRegistry.recordBytesRead(BLOCK_HEADER_BYTES + compressedLength);
+                if (rawLength < 0 || rawLength > MAX_BLOCK_BYTES) {
+                    System.out.println(StringStorage.ARCHIVE_DAMAGED_BLOCK_MESSAGE);
+                    continue;
+                }
+                if (rawBytes.length < rawLength) {
+                    rawBytes = new byte[rawLength];
+                }
+                if (!inflateBlock(inflater, compressedBytes, compressedLength, rawBytes, rawLength, expectedCrc)) {
+                    System.out.println(StringStorage.ARCHIVE_DAMAGED_BLOCK_MESSAGE);
+                    continue;
+                }
+                blockConsumer.accept(new String(rawBytes, 0, rawLength, StandardCharsets.UTF_8));
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+    private static boolean inflateBlock(Inflater inflater, byte[] compressedBytes, int compressedLength,
+            byte[] rawBytes, int rawLength, int expectedCrc) {
+        inflater.reset();
+        inflater.setInput(compressedBytes, 0, compressedLength);
+        try {
+            int inflatedLength = 0;
+            while (inflatedLength < rawLength && !inflater.finished()) {
+                int inflated = inflater.inflate(rawBytes, inflatedLength, rawLength - inflatedLength);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    return false;
+                }
+                inflatedLength += inflated;
+            }
+            if (inflatedLength != rawLength) {
+                return false;
+            }
+        } catch (DataFormatException e) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(rawBytes, 0, rawLength);
+        return (int) crc.getValue() == expectedCrc;
+    }
+    /**
+     * Finds the lines of the block the query occurs in, jumping from one occurrence to the next,
+     * and only decodes those lines, keeping the tasks whose description contains the query.
+     */
+    private static int findTasksInBlock(String lines, String query, boolean isWithLegacyDates,
+            Consumer<Task> matchConsumer) {
+        int matchTotal = 0;
+        int occurrence = lines.indexOf(query);
+        while (occurrence >= 0) {
+            int lineStart = lines.lastIndexOf('\n', occurrence - 1) + 1;
+            int lineEnd = lines.indexOf('\n', occurrence);
+            lineEnd = lineEnd < 0 ? lines.length() : lineEnd;
+            try {
+                Task task = TaskRecordDecoder.decodeTask(lines, lineStart, lineEnd, isWithLegacyDates);
+                if (task.getDesc().contains(query)) {
+                    matchConsumer.accept(task);
+                    matchTotal++;
+                }
+            } catch (YapperException e) {
+                // a line that cannot be decoded is left out, as when loading the save file
+            }
+            occurrence = lineEnd < lines.length() ? lines.indexOf(query, lineEnd + 1) : -1;
+        }
+        return matchTotal;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+}
@@ -0,0 +1,521 @@
+package yapper.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+import yapper.metrics.MetricsRegistry;
+import yapper.tasks.Deadline;
+import yapper.tasks.Event;
+import yapper.tasks.Task;
+import yapper.tasks.TaskHandler;
+import yapper.tasks.Todo;
+
+/**
+ * The versioned binary save format for Yapper.
+ *
+ * <p>
+ * The file starts with a magic number, a version and the next task ID, followed by one record per task.
+ * Each record has a fixed-size header, followed by the UTF-8 bytes of its strings: <ul>
+ *   <li> type symbol, deleted flag, done flag, start date shape, end date shape (1 byte each), </li>
+ *   <li> start date and end date, as epoch days or epoch minutes depending on their shape (8 bytes each), </li>
+ *   <li> task ID (8 bytes), </li>
+ *   <li> lengths of the description, raw start date and raw end date (4 bytes each). </li>
+ * </ul>
+ * </p>
+ *
+ * <p>
+ * Version 1 files, written before task IDs were stored, have no task ID in their records,
+ * and version 2 files have no next task ID in their header.
+ * They are still loaded, and replaced by a version 3 file on the next full store.
+ * The next task ID is kept up to date in place whenever a task is deleted,
+ * so that the ID of the deleted task is not given out again after a restart.
+ * </p>
+ *
+ * <p>
+ * The offset of every live record is kept in an index, ordered by task ordinal.
+ * Marking, unmarking and deleting are each a single-byte positional write at that offset,
+ * with deleting also rewriting the next task ID in the file header.
+ * Deleted records are left behind as tombstones until they outnumber the live ones,
+ * after which the file is rewritten without them.
+ * If the write-behind queue is on, these writes are queued with {@code WriteBehindPersister} instead,
+ * so new records are placed at the end of the file as it will be once every queued write is made.
+ * </p>
+ *
+ */
+public class BinaryTaskStorage implements TaskStorage {
+    /**
+     * Identifies the file as a Yapper binary save file, spelling "YAPB".
+     */
+    private static final int MAGIC_NUMBER = 0x59415042;
+    private static final int FORMAT_VERSION = 3;
+    private static final int FORMAT_VERSION_WITHOUT_NEXT_TASK_ID = 2;
+    private static final int FORMAT_VERSION_WITHOUT_TASK_IDS = 1;
+    private static final int FILE_HEADER_BYTES = 16;
+    private static final int FILE_HEADER_BYTES_WITHOUT_NEXT_TASK_ID = 8;
+    /**
+     * Position of the next task ID within the file header.
+     */
+    private static final int NEXT_TASK_ID_POSITION = 8;
+    /**
+     * Positions of the fields within a record header.
+     */
+    private static final int DELETED_FLAG_POSITION = 1;
+    private static final int DONE_FLAG_POSITION = 2;
+    private static final int RECORD_HEADER_BYTES = 41;
+    private static final int RECORD_HEADER_BYTES_WITHOUT_TASK_IDS = 33;
+    /**
+     * The shapes a start or end date can take.
+     */
+    private static final byte SHAPE_NONE = 0;
+    private static final byte SHAPE_DATE = 1;
+    private static final byte SHAPE_DATE_TIME = 2;
+    private static final byte SHAPE_RAW = 3;
+    /**
+     * The minimum number of tombstones before the file is rewritten without them.
+     */
+    private static final int MIN_TOMBSTONES_BEFORE_REWRITE = 64;
+
+    /**
+     * The file offset of each live record, ordered by task ordinal.
+     */
+    private long[] recordOffsets = new long[16];
+    private int recordTotal = 0;
+    private int tombstoneTotal = 0;
+    /**
+     * The size of the save file once every write made or queued so far is made.
+     */
+    private long fileSizeInBytes = 0;
+    /**
+     * Whether the save file was written in the version without task IDs,
+     * in which case it has to be stored in full before any record is appended to it.
+     */
+    private boolean isWithoutTaskIds = false;
+    /**
+     * Whether the save file was written in a version without the next task ID,
+     * in which case it has to be stored in full before any task is deleted from it.
+     */
+    private boolean isWithoutNextTaskId = false;
+    private final String saveFilePath;
+
+
+    /**
+     * Constructs the binary save format for the default task list.
+     */
+    public BinaryTaskStorage() {
+        this(StringStorage.BINARY_SAVE_FILE_PATH);
+    }
+    /**
+     * Constructs the binary save format for the task list with the given save file.
+     *
+     * @param saveFilePath the path of the save file
+     */
+    public BinaryTaskStorage(String saveFilePath) {
+        this.saveFilePath = saveFilePath;
+    }
+
+    @Override
+    public String getSaveFilePath() {
+        return saveFilePath;
+    }
+
+    /**
+     * Loads the tasks from each live record, building the offset index along the way.
+     *
+     * <p>
+     * A truncated record at the end of the file is counted as invalid, and loading stops there.
+     * The IDs of deleted records are kept from being given out again, as is the next task ID in the header.
+     * </p>
+     *
+     * @param taskHandler the handler to add the loaded tasks to
+     * @return the number of invalid records encountered
+     * @throws IOException if the file cannot be read or is not a binary save file
+     */
+    @Override
+    public int loadTasks(TaskHandler taskHandler) throws IOException {
+        recordTotal = 0;
+        tombstoneTotal = 0;
+        isWithoutTaskIds = false;
+        isWithoutNextTaskId = false;
+
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(getSaveFilePath()), StandardOpenOption.READ)) {
+            fileSizeInBytes = channel.size();
+            if (channel.size() == 0) {
+                return 0;
+            }
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(StringStorage.BINARY_FILE_TOO_LARGE_MESSAGE);
+            }
+            buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                // keep reading until the whole file is in the buffer
+            }
+        }
+        buffer.flip();
+
+        if (buffer.remaining() < FILE_HEADER_BYTES_WITHOUT_NEXT_TASK_ID || buffer.getInt() != MAGIC_NUMBER) {
+            throw new IOException(StringStorage.INVALID_BINARY_FILE_MESSAGE);
+        }
+        int version = buffer.getInt();
+        if (version != FORMAT_VERSION && version != FORMAT_VERSION_WITHOUT_NEXT_TASK_ID
+                && version != FORMAT_VERSION_WITHOUT_TASK_IDS) {
+            throw new IOException(StringStorage.INVALID_BINARY_FILE_MESSAGE);
+        }
+        isWithoutTaskIds = version == FORMAT_VERSION_WITHOUT_TASK_IDS;
+        isWithoutNextTaskId = version != FORMAT_VERSION;
+        if (!isWithoutNextTaskId) {
+            if (buffer.remaining() < Long.BYTES) {
+                throw new IOException(StringStorage.INVALID_BINARY_FILE_MESSAGE);
+            }
+            taskHandler.reserveTaskIds(buffer.getLong());
+        }
+        int recordHeaderBytes = isWithoutTaskIds ? RECORD_HEADER_BYTES_WITHOUT_TASK_IDS : RECORD_HEADER_BYTES;
+
+        int invalidTaskCount = 0;
+        while (buffer.hasRemaining()) {
+            int recordOffset = buffer.position();
+            if (buffer.remaining() < recordHeaderBytes || buffer.remaining()
+                    < recordHeaderBytes + getStringBytes(buffer, recordOffset, recordHeaderBytes)) {
+                System.out.println("skipping invalid task: truncated record at byte " + recordOffset);
+                invalidTaskCount++;
+                break;
+            }
+            if (getStringBytes(buffer, recordOffset, recordHeaderBytes) < 0) {
+                // the end of the record is not known, so the records after it cannot be found either
+                System.out.println("skipping invalid task: invalid string lengths at byte " + recordOffset);
+                invalidTaskCount++;
+                break;
+            }
+            boolean isDeleted = buffer.get(recordOffset + DELETED_FLAG_POSITION) != 0;
+            Task task = decodeTask(buffer, !isWithoutTaskIds);
+            if (isDeleted) {
+                tombstoneTotal++;
+                if (task != null) {
+                    taskHandler.reserveTaskIds(task.getTaskId() + 1);
+                }
+            } else if (task == null) {
+                System.out.println("skipping invalid task: unknown task type or invalid strings at byte "
+                        + recordOffset);
+                invalidTaskCount++;
+            } else {
+                taskHandler.addTask(task);
+                addRecordOffset(recordOffset);
+            }
+        }
+        return invalidTaskCount;
+    }
+
+    /**
+     * Stores every task, by writing them to a temporary file that is forced to disk and then moved over the save file,
+     * so the save file is never left half written.
+     *
+     * @param taskHandler the handler whose tasks are stored
+     * @throws IOException if an I/O error occurs while writing or moving the file
+     */
+    @Override
+    public void storeAllTasks(TaskHandler taskHandler) throws IOException {
+        WriteBehindPersister.awaitAll();
+        recordTotal = 0;
+        tombstoneTotal = 0;
+        isWithoutTaskIds = false;
+        isWithoutNextTaskId = false;
+        Path tempFilePath = Paths.get(getSaveFilePath() + StringStorage.TEMP_FILE_SUFFIX);
+        try (FileChannel channel = FileChannel.open(tempFilePath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFileHeader(channel, taskHandler.getNextTaskId());
+            for (Task task : taskHandler.getAllTasks()) {
+                addRecordOffset(channel.position());
+                writeFully(channel, encodeTask(task));
+            }
+            fileSizeInBytes = channel.position();
+            channel.force(false);
+        }
+        Files.move(tempFilePath, Paths.get(getSaveFilePath()),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    @Override
+    public void storeAddedTask(TaskHandler taskHandler, Task task) throws IOException {
+        if (isWithoutTaskIds) {
+            storeAllTasks(taskHandler);
+            return;
+        }
+        ByteBuffer record = encodeTask(task);
+        if (fileSizeInBytes == 0) {
+            ByteBuffer headerAndRecord = ByteBuffer.allocate(FILE_HEADER_BYTES + record.remaining());
+            headerAndRecord.putInt(MAGIC_NUMBER).putInt(FORMAT_VERSION).putLong(taskHandler.getNextTaskId())
+                    .put(record).flip();
+            record = headerAndRecord;
+        }
+        long recordOffset = Math.max(fileSizeInBytes, FILE_HEADER_BYTES);
+        writeAt(fileSizeInBytes, record);
+        fileSizeInBytes += record.limit();
+        addRecordOffset(recordOffset);
+    }
+    @Override
+    public void unstoreDeletedTask(TaskHandler taskHandler, int taskOrdinal) throws IOException {
+        if (isWithoutNextTaskId) {
+            storeAllTasks(taskHandler);
+            return;
+        }
+        writeFlag(recordOffsets[taskOrdinal] + DELETED_FLAG_POSITION, true);
+        writeAt(NEXT_TASK_ID_POSITION, ByteBuffer.allocate(Long.BYTES).putLong(0, taskHandler.getNextTaskId()));
+        System.arraycopy(recordOffsets, taskOrdinal + 1, recordOffsets, taskOrdinal, recordTotal - taskOrdinal - 1);
+        recordTotal--;
+        tombstoneTotal++;
+        if (tombstoneTotal >= MIN_TOMBSTONES_BEFORE_REWRITE && tombstoneTotal > recordTotal) {
+            storeAllTasks(taskHandler);
+        }
+    }
+    @Override
+    public void amendTaskStatus(TaskHandler taskHandler, Task task, int taskOrdinal) throws IOException {
+        writeFlag(recordOffsets[taskOrdinal] + DONE_FLAG_POSITION, task.isDone());
+    }
+
+
+    /**
+     * Overwrites a single flag byte in the save file.
+     *
+     * @param position the file position of the flag
+     * @param isSet    the new value of the flag
+     * @throws IOException if the save file cannot be written
+     */
+    private void writeFlag(long position, boolean isSet) throws IOException {
+        writeAt(position, ByteBuffer.wrap(new byte[] {(byte) (isSet ? 1 : 0)}));
+    }
+    /**
+     * Writes bytes at a position in the save file, or queues them to be written if the write-behind queue is on.
+     *
+     * <p>
+     * The save file is not created if missing, so that a deleted save file is restored rather than left
+     * with one record.
+     * </p>
+     *
+     * @param position the file position of the first byte
+     * @param bytes    the bytes to write
+     * @throws IOException if the save file cannot be written
+     */
+    private void writeAt(long position, ByteBuffer bytes) throws IOException {
+        if (WriteBehindPersister.isStarted()) {
+            byte[] queuedBytes = new byte[bytes.remaining()];
+            bytes.get(queuedBytes);
+            WriteBehindPersister.writeAt(Paths.get(getSaveFilePath()), position, queuedBytes);
+            return;
+        }
+        MetricsRegistry.recordBytesWritten(bytes.remaining());
+        try (FileChannel channel = FileChannel.open(Paths.get(getSaveFilePath()), StandardOpenOption.WRITE)) {
+            while (bytes.hasRemaining()) {
+                position += channel.write(bytes, position);
+            }
+        }
+    }
+    /**
+     * Appends a record offset to the end of the index.
+     *
+     * @param recordOffset the file offset of the record
+     */
+    private void addRecordOffset(long recordOffset) {
+        if (recordTotal == recordOffsets.length) {
+            recordOffsets = Arrays.copyOf(recordOffsets, recordTotal * 2);
+        }
+        recordOffsets[recordTotal++] = recordOffset;
+    }
+    private static void writeFileHeader(FileChannel channel, long nextTaskId) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+        header.putInt(MAGIC_NUMBER).putInt(FORMAT_VERSION).putLong(nextTaskId).flip();
+        writeFully(channel, header);
+    }
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        MetricsRegistry.recordBytesWritten(buffer.remaining());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+
+    /**
+     * Encodes a task into a single record.
+     *
+     * @param task the task to encode
+     * @return a buffer holding the record, ready to be written
+     */
+    static ByteBuffer encodeTask(Task task) {
+        byte type;
+        byte startShape = SHAPE_NONE;
+        byte endShape = SHAPE_NONE;
+        long startValue = 0;
+        long endValue = 0;
+        String startRaw = "";
+        String endRaw = "";
+
+        if (task instanceof Deadline) {
+            Deadline deadline = (Deadline) task;
+            type = (byte) StringStorage.SYMBOL_DEADLINE.charAt(0);
+            endShape = getShape(deadline.getEndDate(), deadline.getEndDateTime());
+            endValue = getEpochValue(deadline.getEndDate(), deadline.getEndDateTime());
+            endRaw = endShape == SHAPE_RAW ? deadline.getEndDateString() : "";
+        } else if (task instanceof Event) {
+            Event event = (Event) task;
+            type = (byte) StringStorage.SYMBOL_EVENT.charAt(0);
+            startShape = getShape(event.getStartDate(), event.getStartDateTime());
+            startValue = getEpochValue(event.getStartDate(), event.getStartDateTime());
+            startRaw = startShape == SHAPE_RAW ? event.getStartDateString() : "";
+            endShape = getShape(event.getEndDate(), event.getEndDateTime());
+            endValue = getEpochValue(event.getEndDate(), event.getEndDateTime());
+            endRaw = endShape == SHAPE_RAW ? event.getEndDateString() : "";
+        } else {
+            type = (byte) StringStorage.SYMBOL_TODO.charAt(0);
+        }
+
+        byte[] descBytes = task.getDesc().getBytes(StandardCharsets.UTF_8);
+        byte[] startBytes = startRaw.getBytes(StandardCharsets.UTF_8);
+        byte[] endBytes = endRaw.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(
+                RECORD_HEADER_BYTES + descBytes.length + startBytes.length + endBytes.length);
+        record.put(type).put((byte) 0).put((byte) (task.isDone() ? 1 : 0))
+                .put(startShape).put(endShape)
+                .putLong(startValue).putLong(endValue).putLong(task.getTaskId())
+                .putInt(descBytes.length).putInt(startBytes.length).putInt(endBytes.length)
+                .put(descBytes).put(startBytes).put(endBytes)
+                .flip();
+        return record;
+    }
+    /**
+     * Decodes the record at the buffer's position into a task, advancing past the record.
+     *
+     * @param buffer        the buffer positioned at the start of a record
+     * @param isWithTaskIds whether the record has a task ID, i.e. was not written by version 1
+     * @return the decoded task, or null if the task type is unknown or a string length is out of bounds
+     */
+    static Task decodeTask(ByteBuffer buffer, boolean isWithTaskIds) {
+        String type = String.valueOf((char) buffer.get());
+        buffer.get(); // deleted flag, checked by the caller
+        boolean isDone = buffer.get() != 0;
+        byte startShape = buffer.get();
+        byte endShape = buffer.get();
+        long startValue = buffer.getLong();
+        long endValue = buffer.getLong();
+        long taskId = isWithTaskIds ? buffer.getLong() : Task.NO_TASK_ID;
+        int descLength = buffer.getInt();
+        int startLength = buffer.getInt();
+        int endLength = buffer.getInt();
+        String desc = getString(buffer, descLength);
+        String startRaw = getString(buffer, startLength);
+        String endRaw = getString(buffer, endLength);
+        if (desc == null || startRaw == null || endRaw == null) {
+            return null;
+        }
+
+        Task task;
+        switch (type) {
+        case StringStorage.SYMBOL_TODO:
+            task = new Todo(desc, isDone);
+            break;
+        case StringStorage.SYMBOL_DEADLINE:
+            task = Deadline.withParsedDate(desc, isDone, toUnparsedString(endShape, endRaw),
+                    toDate(endShape, endValue), toDateTime(endShape, endValue));
+            break;
+        case StringStorage.SYMBOL_EVENT:
+            task = Event.withParsedDates(desc, isDone,
+                    toUnparsedString(startShape, startRaw),
+                    toDate(startShape, startValue), toDateTime(startShape, startValue),
+                    toUnparsedString(endShape, endRaw),
+                    toDate(endShape, endValue), toDateTime(endShape, endValue));
+            break;
+        default:
+            return null;
+        }
+        task.setTaskId(taskId);
+        return task;
+    }
+    /**
+     * Returns the total length of the strings in the record at the given offset, without moving the buffer.
+     *
+     * @param buffer            the buffer holding the record
+     * @param recordOffset      the position of the record
+     * @param recordHeaderBytes the size of the record header in the version being read
+     * @return the number of string bytes after the record header, or -1 if any of the lengths is negative
+     */
+    private static long getStringBytes(ByteBuffer buffer, int recordOffset, int recordHeaderBytes) {
+        int lengthsPosition = recordOffset + recordHeaderBytes - 12;
+        int descLength = buffer.getInt(lengthsPosition);
+        int startLength = buffer.getInt(lengthsPosition + 4);
+        int endLength = buffer.getInt(lengthsPosition + 8);
+        if (descLength < 0 || startLength < 0 || endLength < 0) {
+            return -1;
+        }
+        return (long) descLength + startLength + endLength;
+    }
+    /**
+     * Reads a string of the given length at the buffer's position, advancing past it.
+     *
+     * @return the string, or null without moving the buffer if the length is negative or past the buffer's end
+     */
+    private static String getString(ByteBuffer buffer, int length) {
+        if (length < 0 || length > buffer.remaining()) {
+            return null;
+        }
+        String string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+
+
+    private static byte getShape(LocalDate date, LocalDateTime dateTime) {
+        if (dateTime != null) {
+            return SHAPE_DATE_TIME;
+        } else if (date != null) {
+            return SHAPE_DATE;
+        }
+        return SHAPE_RAW;
+    }
+    private static long getEpochValue(LocalDate date, LocalDateTime dateTime) {
+        if (dateTime != null) {
+            return dateTime.toEpochSecond(ZoneOffset.UTC) / 60;
+        } else if (date != null) {
+            return date.toEpochDay();
+        }
+        return 0;
+    }
+    /**
+     * Decodes a date without a time, so the task is built from it directly rather than from a string.
+     *
+     * @param shape the shape of the date
+     * @param value the epoch days or epoch minutes, depending on the shape
+     * @return the date, or null if the date has another shape
+     */
+    private static LocalDate toDate(byte shape, long value) {
+        return shape == SHAPE_DATE ? LocalDate.ofEpochDay(value) : null;
+    }
+    /**
+     * Decodes a date with a time.
+     *
+     * @param shape the shape of the date
+     * @param value the epoch days or epoch minutes, depending on the shape
+     * @return the date and time, or null if the date has another shape
+     */
+    private static LocalDateTime toDateTime(byte shape, long value) {
+        return shape == SHAPE_DATE_TIME ? LocalDateTime.ofEpochSecond(value * 60, 0, ZoneOffset.UTC) : null;
+    }
+    /**
+     * Returns the unparsed date string of a date that was never a date, or an empty string otherwise.
+     *
+     * @param shape the shape of the date
+     * @param raw   the unparsed date string stored in the record
+     * @return the unparsed date string
+     */
+    private static String toUnparsedString(byte shape, String raw) {
+        return shape == SHAPE_DATE || shape == SHAPE_DATE_TIME ? "" : raw;
+    }
+}
@@ -1,8 +1,17 @@
 package yapper.io;
 
+import java.text.ParsePosition;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalField;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import yapper.exceptions.YapperException;
 
 /**
  * A utility class for handling date and time formatting and parsing in Yapper.
@@ -11,6 +20,12 @@ import java.time.format.DateTimeFormatter;
  * This class provides predefined format patterns for displaying and storing dates and times,
  * as well as a method to format dates based on user input or internal representation.
  * </p>
+ *
+ * <p>
+ * Formatters are built once per pattern and shared, since {@code DateTimeFormatter} is immutable and thread-safe.
+ * Dates are parsed without throwing, so that loading and listing many tasks
+ * does not build a formatter and an exception for every task.
+ * </p>
  */
 public class DateAndTimeHandler {
     /**
@@ -20,14 +35,160 @@ public class DateAndTimeHandler {
     public static final String DATE_WITH_TIME_TO_DISPLAY = "MM/dd/yyyy, EEE, hh:mm a";
     /**
      * Date and time format patterns for converting to string, for storage purposes.
+     * They are the same as the input patterns, so that a stored date is parsed back as the same date.
+     */
+    public static final String DATE_WITHOUT_TIME_TO_STRING = "yyyy-MM-dd";
+    public static final String DATE_WITH_TIME_TO_STRING = "yyyy-MM-dd HHmm";
+    /**
+     * Date and time format patterns that save files were written in before the storage patterns above,
+     * with the day before the month, and the hour on a 12-hour clock without whether it was AM or PM.
      */
-    public static final String DATE_WITHOUT_TIME_TO_STRING = "yyyy-dd-MM";
-    public static final String DATE_WITH_TIME_TO_STRING = "yyyy-dd-MM hhmm";
+    public static final String DATE_WITHOUT_TIME_LEGACY = "yyyy-dd-MM";
+    public static final String DATE_WITH_TIME_LEGACY = "yyyy-dd-MM HHmm";
     /**
      * Date and time format patterns for parsing input from the user.
      */
     public static final String DATE_WITHOUT_TIME_INPUT = "yyyy-MM-dd";
     public static final String DATE_WITH_TIME_INPUT = "yyyy-MM-dd HHmm";
+    public static final long MINUTES_PER_DAY = 24 * 60;
+    private static final int HOURS_PER_DAY = 24;
+
+    /**
+     * The formatter for each pattern used so far.
+     */
+    private static final Map<String, DateTimeFormatter> FORMATTERS = new ConcurrentHashMap<>();
+    private static final DateTimeFormatter DATE_WITHOUT_TIME_INPUT_FORMATTER = getFormatter(DATE_WITHOUT_TIME_INPUT);
+    private static final DateTimeFormatter DATE_WITH_TIME_INPUT_FORMATTER = getFormatter(DATE_WITH_TIME_INPUT);
+    private static final DateTimeFormatter DATE_WITHOUT_TIME_LEGACY_FORMATTER = getFormatter(DATE_WITHOUT_TIME_LEGACY);
+    private static final DateTimeFormatter DATE_WITH_TIME_LEGACY_FORMATTER = getFormatter(DATE_WITH_TIME_LEGACY);
+
+    /**
+     * The shapes a date string given by the user can take.
+     */
+    public enum DateShape {
+        DATE_WITH_TIME, DATE_WITHOUT_TIME, UNPARSED,
+    }
+
+    /**
+     * The result of parsing a date string, which is in exactly one of the three shapes.
+     */
+    public static class ParsedDate {
+        private final DateShape shape;
+        private final LocalDate date;
+        private final LocalDateTime dateTime;
+        private final String unparsedString;
+
+        private ParsedDate(DateShape shape, LocalDate date, LocalDateTime dateTime, String unparsedString) {
+            this.shape = shape;
+            this.date = date;
+            this.dateTime = dateTime;
+            this.unparsedString = unparsedString;
+        }
+
+        /**
+         * Returns which of the three shapes the date string matched.
+         *
+         * @return the shape of the date string
+         */
+        public DateShape getShape() {
+            return shape;
+        }
+        /**
+         * Returns the date, if the string was a date without a time.
+         *
+         * @return the date, or null
+         */
+        public LocalDate getDate() {
+            return date;
+        }
+        /**
+         * Returns the date and time, if the string was a date with a time.
+         *
+         * @return the date and time, or null
+         */
+        public LocalDateTime getDateTime() {
+            return dateTime;
+        }
+        /**
+         * Returns the string as given, if it was not a date.
+         *
+         * @return the unparsed string, or an empty string if it was parsed
+         */
+        public String getUnparsedString() {
+            return unparsedString;
+        }
+    }
+
+
+    /**
+     * Returns the shared formatter for a pattern, building it the first time the pattern is used.
+     *
+     * @param pattern the format pattern, e.g. {@code DATE_WITH_TIME_TO_DISPLAY}
+     * @return the formatter for the pattern
+     */
+    public static DateTimeFormatter getFormatter(String pattern) {
+        return FORMATTERS.computeIfAbsent(pattern, DateTimeFormatter::ofPattern);
+    }
+    /**
+     * Parses a date string given by the user, first as a date with a time, then as a date without a time.
+     *
+     * <p>
+     * No exception is thrown if the string is in neither format; it is returned as UNPARSED instead.
+     * Out of range days are resolved the same way as {@code LocalDate.parse},
+     * e.g. 2023-02-30 becomes 2023-02-28.
+     * </p>
+     *
+     * @param dateString the date string to parse
+     * @return the parsed date, in one of the three shapes
+     */
+    public static ParsedDate parseDate(String dateString) {
+        TemporalAccessor fields = parseFields(dateString, DATE_WITH_TIME_INPUT_FORMATTER);
+        if (fields != null) {
+            LocalDateTime dateTime = resolveDateTime(fields);
+            if (dateTime != null) {
+                return new ParsedDate(DateShape.DATE_WITH_TIME, null, dateTime, "");
+            }
+        }
+        fields = parseFields(dateString, DATE_WITHOUT_TIME_INPUT_FORMATTER);
+        if (fields != null) {
+            LocalDate date = resolveDate(fields);
+            if (date != null) {
+                return new ParsedDate(DateShape.DATE_WITHOUT_TIME, date, null, "");
+            }
+        }
+        return new ParsedDate(DateShape.UNPARSED, null, null, dateString);
+    }
+    /**
+     * Converts a date stored by a save file written before the current storage patterns
+     * into the current storage pattern, e.g. "2024-15-03" into "2024-03-15".
+     *
+     * <p>
+     * Since the half of the day was never stored, a stored time is read as it was written,
+     * e.g. "0130" stays 1:30 AM, even if it was 1:30 PM.
+     * A string in neither legacy pattern was never a date, and is returned as is.
+     * </p>
+     *
+     * @param legacyDateString the date string as stored in the legacy save file
+     * @return the date in {@code DATE_WITH_TIME_TO_STRING} or {@code DATE_WITHOUT_TIME_TO_STRING} format,
+     *         or the string as is
+     */
+    public static String convertLegacyDate(String legacyDateString) {
+        TemporalAccessor fields = parseFields(legacyDateString, DATE_WITH_TIME_LEGACY_FORMATTER);
+        if (fields != null) {
+            LocalDateTime dateTime = resolveDateTime(fields);
+            if (dateTime != null) {
+                return dateTime.format(getFormatter(DATE_WITH_TIME_TO_STRING));
+            }
+        }
+        fields = parseFields(legacyDateString, DATE_WITHOUT_TIME_LEGACY_FORMATTER);
+        if (fields != null) {
+            LocalDate date = resolveDate(fields);
+            if (date != null) {
+                return date.format(getFormatter(DATE_WITHOUT_TIME_TO_STRING));
+            }
+        }
+        return legacyDateString;
+    }
 
     /**
      * Returns the formatted date or datetime string based on the input parameters.
@@ -52,11 +213,9 @@ public class DateAndTimeHandler {
         String endDateAsString;
         if (dateString.isEmpty()) {
             if (dateWithTime == null) {
-                endDateAsString = dateWithoutTime.format(
-                        DateTimeFormatter.ofPattern(dateOnly));
+                endDateAsString = dateWithoutTime.format(getFormatter(dateOnly));
             } else {
-                endDateAsString = dateWithTime.format(
-                        DateTimeFormatter.ofPattern(dateAndTime));
+                endDateAsString = dateWithTime.format(getFormatter(dateAndTime));
             }
         } else {
             endDateAsString = dateString;
@@ -64,4 +223,99 @@ public class DateAndTimeHandler {
         return endDateAsString;
     }
 
+    /**
+     * Returns the number of minutes since the epoch, treating the date and time as UTC.
+     *
+     * <p>
+     * Only used to order and compare dates, so the time zone does not matter as long as it is always the same.
+     * </p>
+     *
+     * @param dateTime the date and time to convert
+     * @return the epoch minute
+     */
+    public static long toEpochMinute(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+    /**
+     * Parses a date given in a date query, e.g. "due" or "between", into an epoch minute.
+     *
+     * <p>
+     * A date without a time stands for the first minute of that day,
+     * or the last minute of that day if it ends the period.
+     * </p>
+     *
+     * @param dateString    the date in {@code DATE_WITH_TIME_INPUT} or {@code DATE_WITHOUT_TIME_INPUT} format
+     * @param isEndOfPeriod whether the date ends the period being queried
+     * @return the epoch minute the date stands for
+     * @throws YapperException if the date is in neither format
+     */
+    public static long parseQueryDate(String dateString, boolean isEndOfPeriod) throws YapperException {
+        ParsedDate parsedDate = parseDate(dateString);
+        switch (parsedDate.getShape()) {
+        case DATE_WITH_TIME:
+            return toEpochMinute(parsedDate.getDateTime());
+        case DATE_WITHOUT_TIME:
+            long dayStart = toEpochMinute(parsedDate.getDate().atStartOfDay());
+            return isEndOfPeriod ? dayStart + MINUTES_PER_DAY - 1 : dayStart;
+        default:
+            throw new YapperException(dateString + " " + StringStorage.INVALID_QUERY_DATE_MESSAGE);
+        }
+    }
+
+
+    /**
+     * Parses the fields of a date string without resolving them into a date.
+     *
+     * @param dateString the date string to parse
+     * @param formatter  the formatter of the expected shape
+     * @return the parsed fields, or null if the whole string does not match the formatter
+     */
+    private static TemporalAccessor parseFields(String dateString, DateTimeFormatter formatter) {
+        ParsePosition position = new ParsePosition(0);
+        TemporalAccessor fields = formatter.parseUnresolved(dateString, position);
+        if (fields == null || position.getErrorIndex() >= 0 || position.getIndex() != dateString.length()) {
+            return null;
+        }
+        return fields;
+    }
+    /**
+     * Resolves parsed fields into a date, clamping the day to the end of the month.
+     *
+     * @return the date, or null if a field is out of range
+     */
+    private static LocalDate resolveDate(TemporalAccessor fields) {
+        if (!isValidField(fields, ChronoField.YEAR_OF_ERA)
+                || !isValidField(fields, ChronoField.MONTH_OF_YEAR)
+                || !isValidField(fields, ChronoField.DAY_OF_MONTH)) {
+            return null;
+        }
+        LocalDate firstOfMonth = LocalDate.of(fields.get(ChronoField.YEAR_OF_ERA),
+                fields.get(ChronoField.MONTH_OF_YEAR), 1);
+        int dayOfMonth = Math.min(fields.get(ChronoField.DAY_OF_MONTH), firstOfMonth.lengthOfMonth());
+        return firstOfMonth.withDayOfMonth(dayOfMonth);
+    }
+    /**
+     * Resolves parsed fields into a date and time, where 2400 is taken as midnight of the next day.
+     *
+     * @return the date and time, or null if a field is out of range
+     */
+    private static LocalDateTime resolveDateTime(TemporalAccessor fields) {
+        LocalDate date = resolveDate(fields);
+        if (date == null || !fields.isSupported(ChronoField.HOUR_OF_DAY)
+                || !isValidField(fields, ChronoField.MINUTE_OF_HOUR)) {
+            return null;
+        }
+        long hour = fields.getLong(ChronoField.HOUR_OF_DAY);
+        int minute = fields.get(ChronoField.MINUTE_OF_HOUR);
+        if (hour == HOURS_PER_DAY && minute == 0) {
+            return date.plusDays(1).atStartOfDay();
+        }
+        if (!ChronoField.HOUR_OF_DAY.range().isValidValue(hour)) {
+            return null;
+        }
+        return date.atTime((int) hour, minute);
+    }
+    private static boolean isValidField(TemporalAccessor fields, TemporalField field) {
+        return fields.isSupported(field) && field.range().isValidIntValue(fields.getLong(field));
+    }
 }
@@ -10,16 +10,36 @@ import yapper.tasks.TaskHandler;
  */
 public class FileHandler {
     /**
-     * The {@code TaskHandler} that manages the task list in Yapper.
+     * The {@code TaskHandler} that manages the task list in use in Yapper, see {@code WorkspaceHandler}.
      * This task list can be accessed from any FileHandler class.
      */
     private static TaskHandler taskHandler;
+    /**
+     * Whether mutations are appended to the journal instead of rewriting the save file.
+     */
+    private static boolean isJournalMode = false;
+    /**
+     * Whether the text save file is parsed in parallel chunks instead of one line at a time.
+     */
+    private static boolean isParallelLoading = false;
+    /**
+     * Whether tasks are kept in the primitive columns of a {@code ColumnarTaskHandler} instead of as objects.
+     */
+    private static boolean isCompactTasks = false;
+    /**
+     * The number of days after which done tasks are archived when a task list is loaded, or 0 to never archive them.
+     */
+    private static int archiveAfterDays = 0;
+    /**
+     * The save file format that {@code InputFileHandler} and {@code OutputFileHandler} delegate to.
+     */
+    private static TaskStorage taskStorage = new TextTaskStorage();
 
     /**
      * Constructs a FileHandler, initialising save file and its folders.
      */
     public FileHandler() {
-        taskHandler = new TaskHandler();
+        taskHandler = taskStorage.createTaskHandler();
         initSaveFileAndFolder(true);
     }
 
@@ -36,7 +56,7 @@ public class FileHandler {
      */
     public static void initSaveFileAndFolder(boolean hasJustStarted) {
         try {
-            File file = new File(StringStorage.SAVE_FILE_PATH);
+            File file = new File(taskStorage.getSaveFilePath());
             initSaveFolder(file, hasJustStarted);
             initSaveFile(file, hasJustStarted);
             System.out.println(StringStorage.LINE_DIVIDER);
@@ -95,25 +115,116 @@ public class FileHandler {
     public static TaskHandler getTaskHandler() {
         return taskHandler;
     }
+    /**
+     * Sets the task list in use, when switching back to a list that is already loaded.
+     *
+     * @param taskHandler the handler of the list
+     */
+    static void setTaskHandler(TaskHandler taskHandler) {
+        FileHandler.taskHandler = taskHandler;
+    }
+
+    /**
+     * Sets the save file format used by {@code InputFileHandler} and {@code OutputFileHandler}.
+     *
+     * @param taskStorage the save file format to use
+     */
+    public static void setTaskStorage(TaskStorage taskStorage) {
+        FileHandler.taskStorage = taskStorage;
+    }
+    /**
+     * Returns the save file format used by {@code InputFileHandler} and {@code OutputFileHandler}.
+     *
+     * @return the save file format in use
+     */
+    public static TaskStorage getTaskStorage() {
+        return taskStorage;
+    }
+
+    /**
+     * Sets whether mutations are appended to the journal instead of rewriting the save file.
+     *
+     * @param isJournalMode {@code true} to use the journal, {@code false} to rewrite the save file
+     */
+    public static void setJournalMode(boolean isJournalMode) {
+        FileHandler.isJournalMode = isJournalMode;
+    }
+    /**
+     * Sets whether the text save file is parsed in parallel chunks instead of one line at a time.
+     *
+     * @param isParallelLoading {@code true} to parse in parallel, {@code false} to parse serially
+     */
+    public static void setParallelLoading(boolean isParallelLoading) {
+        FileHandler.isParallelLoading = isParallelLoading;
+    }
+    /**
+     * Returns whether the text save file is parsed in parallel chunks instead of one line at a time.
+     *
+     * @return {@code true} if parsed in parallel, {@code false} otherwise
+     */
+    public static boolean isParallelLoading() {
+        return isParallelLoading;
+    }
+    /**
+     * Sets whether tasks are kept in the primitive columns of a {@code ColumnarTaskHandler} instead of as objects.
+     *
+     * @param isCompactTasks {@code true} to keep tasks in columns, {@code false} to keep them as objects
+     */
+    public static void setCompactTasks(boolean isCompactTasks) {
+        FileHandler.isCompactTasks = isCompactTasks;
+    }
+    /**
+     * Returns whether tasks are kept in the primitive columns of a {@code ColumnarTaskHandler} instead of as objects.
+     *
+     * @return {@code true} if tasks are kept in columns, {@code false} otherwise
+     */
+    public static boolean isCompactTasks() {
+        return isCompactTasks;
+    }
+    /**
+     * Returns whether mutations are appended to the journal instead of rewriting the save file.
+     *
+     * @return {@code true} if the journal is used, {@code false} otherwise
+     */
+    public static boolean isJournalMode() {
+        return isJournalMode;
+    }
+    /**
+     * Sets the number of days after which done tasks are archived when a task list is loaded,
+     * counted from when their last date ended.
+     *
+     * @param archiveAfterDays the number of days, or 0 to never archive tasks when loading
+     */
+    public static void setArchiveAfterDays(int archiveAfterDays) {
+        FileHandler.archiveAfterDays = archiveAfterDays;
+    }
+    /**
+     * Returns the number of days after which done tasks are archived when a task list is loaded.
+     *
+     * @return the number of days, or 0 if tasks are never archived when loading
+     */
+    public static int getArchiveAfterDays() {
+        return archiveAfterDays;
+    }
 
 
     /**
-     * Checks if the save file exists at the path defined by {@code StringStorage.SAVE_FILE_PATH}.
+     * Checks if the save file of the current {@code TaskStorage} exists.
      *
      * @return {@code true} if the save file exists, {@code false} otherwise.
      */
     public static boolean saveFileExists() {
-        File file = new File(StringStorage.SAVE_FILE_PATH);
+        File file = new File(taskStorage.getSaveFilePath());
         return file.exists();
     }
     /**
      * Checks if the save file's folder exists. The folder is determined by the parent directory
-     * of the file located at {@code StringStorage.SAVE_FILE_PATH}.
+     * of the save file of the current {@code TaskStorage}.
      *
      * @return {@code true} if the folder exists, {@code false} otherwise.
      */
     public static boolean saveFolderExists() {
-        File file = new File(StringStorage.SAVE_FILE_PATH);
+        File file = new File(taskStorage.getSaveFilePath());
         return file.getParentFile().exists();
     }
 }
@@ -1,16 +1,18 @@
 package yapper.io;
 
-import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.Scanner;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
-import yapper.exceptions.ExceptionHandler;
 import yapper.exceptions.YapperException;
-import yapper.tasks.Deadline;
-import yapper.tasks.Event;
+import yapper.instructions.TaskSelection;
+import yapper.metrics.MetricsRegistry;
 import yapper.tasks.Task;
 import yapper.tasks.TaskHandler;
-import yapper.tasks.Todo;
 
 /**
  * File Data Retrieval Manager for Yapper.
@@ -40,130 +42,154 @@ public class InputFileHandler {
         new FileHandler();
         TaskHandler taskHandler = FileHandler.getTaskHandler();
         try {
-            loadTasksAndRecordInvalidTasks();
+            loadTasksAndRecordInvalidTasks(taskHandler);
         } catch (FileNotFoundException e) {
             System.out.println("There is a FileNotFoundException: " + e.getMessage());
+        } catch (IOException e) {
+            System.out.println("There is an IOException: " + e.getMessage());
         }
         return taskHandler;
     }
     /**
      * Prints a different message depending on the number of invalid tasks encountered when loading tasks.
      *
-     * @throws FileNotFoundException if the save file is not found
+     * <p>
+     * The tasks are loaded by the {@code TaskStorage} chosen in {@code FileHandler},
+     * and the time taken, the bytes read and the invalid tasks are recorded in the {@code MetricsRegistry}.
+     * </p>
+     *
+     * @param taskHandler the handler to add the loaded tasks to
+     * @throws IOException if the save file is not found or cannot be read
      */
-    private static void loadTasksAndRecordInvalidTasks() throws FileNotFoundException {
-        int invalidTaskCount = loadTasks();
+    private static void loadTasksAndRecordInvalidTasks(TaskHandler taskHandler) throws IOException {
+        MetricsRegistry.recordBytesRead(getSaveFilesSize());
+        long startTime = System.nanoTime();
+        int invalidTaskCount = FileHandler.getTaskStorage().loadTasks(taskHandler);
+        MetricsRegistry.recordFileOperation(MetricsRegistry.FileOperation.LOAD, System.nanoTime() - startTime);
+        MetricsRegistry.recordInvalidTasksOnLoad(invalidTaskCount);
         if (invalidTaskCount > 0) {
             System.out.println("There were " + invalidTaskCount + " invalid tasks detected in the save file. ");
         } else {
             System.out.println("No invalid tasks were detected in the save file. ");
         }
+        storeNewTaskIds(taskHandler);
+        storeCurrentDates(taskHandler);
+        archiveOldDoneTasks(taskHandler);
+        WordTrieFileHandler.loadWordTrie(taskHandler, FileHandler.getTaskStorage().getSaveFilePath());
         System.out.println(StringStorage.LINE_DIVIDER);
     }
     /**
-     * Loads tasks from the file to the TaskHandler, noting the number of invalid tasks encountered along the way.
-     *
-     * <p>
-     * This method scans each line of the file, attempting to parse it as a task.
-     * If a task is invalid, it is skipped and the count of invalid tasks is incremented.
-     * </p>
+     * Returns the size of the files read when loading, i.e. the save file and, in journal mode, the journals.
      *
-     * @return the updated count of invalid tasks encountered during the file scan
-     * @throws FileNotFoundException if the save file is not found
+     * @return the total size of the files, in bytes
+     * @throws IOException if the size of a file cannot be read
      */
-    private static int loadTasks() throws FileNotFoundException {
-        int invalidTaskCount = 0;
-        TaskHandler taskHandler = FileHandler.getTaskHandler();
-        File file = new File(StringStorage.SAVE_FILE_PATH);
-
-        Scanner scanner = new Scanner(file);
-        while (scanner.hasNextLine()) {
-            String taskData = scanner.nextLine();
-            try {
-                Task task = loadTask(taskData);
-                taskHandler.addTask(task);
-            } catch (YapperException e) {
-                System.out.println("skipping invalid task: " + e.getMessage());
-                invalidTaskCount++;
+    private static long getSaveFilesSize() throws IOException {
+        List<String> filePaths = new ArrayList<>(List.of(FileHandler.getTaskStorage().getSaveFilePath()));
+        if (FileHandler.getTaskStorage().isJournaled()) {
+            filePaths.add(StringStorage.JOURNAL_FILE_PATH);
+            filePaths.add(StringStorage.JOURNAL_COMPACTING_FILE_PATH);
+        }
+        long totalSize = 0;
+        for (String filePath : filePaths) {
+            Path path = Paths.get(filePath);
+            if (Files.exists(path)) {
+                totalSize += Files.size(path);
             }
         }
-        scanner.close();
-
-        return invalidTaskCount;
+        return totalSize;
     }
-
     /**
-     * Loads a task from the provided task data string.
+     * Stores every task again if any loaded task had to be given a new ID,
+     * e.g. because the save file was written before task IDs were stored,
+     * so that the IDs stay the same the next time the save file is loaded.
      *
-     * @param taskData the string representing the task data
-     * @return a Task object created from the task data
-     * @throws YapperException if the task data is invalid
+     * @param taskHandler the handler holding the loaded tasks
      */
-    private static Task loadTask(String taskData) throws YapperException {
+    private static void storeNewTaskIds(TaskHandler taskHandler) {
+        if (taskHandler.getNewTaskIdTotal() == 0) {
+            return;
+        }
         try {
-            String[] taskParts = StringStorage.splitByDelimiter(taskData);
-            if (taskParts.length < 3) {
-                throw new YapperException("invalid task format, missing fields");
+            OutputFileHandler.storeAllTasks(taskHandler);
+            System.out.println("Gave " + taskHandler.getNewTaskIdTotal() + " task(s) a new ID in the save file. ");
+        } catch (YapperException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+    /**
+     * Stores every task again if the save file was written before dates were stored in the current patterns,
+     * so that its lines and any appended after them are all in the same patterns.
+     * This is also how a new save file is given its snapshot header.
+     *
+     * @param taskHandler the handler holding the loaded tasks
+     */
+    private static void storeCurrentDates(TaskHandler taskHandler) {
+        if (!FileHandler.getTaskStorage().isWithLegacyDates()) {
+            return;
+        }
+        try {
+            OutputFileHandler.storeAllTasks(taskHandler);
+            if (!taskHandler.isEmpty()) {
+                System.out.println("Stored " + taskHandler.getCurrTaskTotal()
+                        + " task(s) again with their dates as yyyy-MM-dd HHmm in the save file. ");
             }
-
-            String taskType = taskParts[0].trim();
-            ExceptionHandler.checkIfTaskTypeValid(taskType);
-
-            String taskStatus = taskParts[1].trim();
-            ExceptionHandler.checkIfTaskStatusValid(taskStatus);
-            boolean isDone = taskStatus.equals(StringStorage.SYMBOL_IS_DONE);
-
-            String remainingParts = taskParts[2].trim();
-            switch (taskType) {
-            case StringStorage.SYMBOL_TODO:
-                ExceptionHandler.checkIfTodoArgsMissing(
-                        remainingParts.trim());
-                return new Todo(remainingParts, isDone);
-            case StringStorage.SYMBOL_DEADLINE:
-                String[] deadlineArgs = splitStringByDeadlineKeyword(remainingParts);
-                ExceptionHandler.checkIfDeadlineArgsMissing(
-                        deadlineArgs[0], deadlineArgs[1]);
-                return new Deadline(deadlineArgs[0], isDone, deadlineArgs[1]);
-            case StringStorage.SYMBOL_EVENT:
-                String[] eventArgs = splitStringByEventKeywords(remainingParts);
-                ExceptionHandler.checkIfEventArgsMissing(
-                        eventArgs[0], eventArgs[1], eventArgs[2]);
-                return new Event(eventArgs[0], isDone, eventArgs[1], eventArgs[2]);
-            default:
-                throw new YapperException("Yapper does not know how to load this task. ");
+        } catch (YapperException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+    /**
+     * Moves the done tasks whose dates ended more than {@code FileHandler.getArchiveAfterDays} days ago
+     * into the archive, if set, so they are never loaded again.
+     *
+     * @param taskHandler the handler holding the loaded tasks
+     */
+    private static void archiveOldDoneTasks(TaskHandler taskHandler) {
+        int archiveAfterDays = FileHandler.getArchiveAfterDays();
+        if (archiveAfterDays == 0 || taskHandler.isEmpty()) {
+            return;
+        }
+        try {
+            int[] taskOrdinals = new TaskSelection(archiveAfterDays).getTaskOrdinals(taskHandler);
+            if (taskOrdinals.length == 0) {
+                return;
             }
+            int archivedTotal = ArchiveFileHandler.archiveTasks(taskHandler, taskOrdinals);
+            System.out.println("Archived " + archivedTotal + " task(s) done more than "
+                    + archiveAfterDays + " day(s) ago. ");
         } catch (YapperException e) {
-            throw new YapperException(taskData + ", because " + e.getMessage());
+            System.out.println(e.getMessage());
         }
     }
 
-
     /**
-     * Splits the given instruction arguments by the deadline keyword delimiter.
+     * Loads a task from the provided task data string, in the text save format.
+     *
+     * <p>
+     * The task ID comes first, e.g. "12 | D | X | desc | date".
+     * Lines written before task IDs were stored start with the task type instead,
+     * and the task is loaded without an ID.
+     * The line is decoded by {@code TaskRecordDecoder}.
+     * </p>
      *
-     * @param instructionArgs the instruction arguments to split
-     * @return an array containing the description and deadline date
+     * @param taskData the string representing the task data
+     * @return a Task object created from the task data
+     * @throws YapperException if the task data is invalid
      */
-    private static String[] splitStringByDeadlineKeyword(String instructionArgs) {
-        String[] deadlineArgs = instructionArgs.split(
-                StringStorage.SPLIT_USING_DELIMITER, -2);
-        String deadlineDesc = deadlineArgs[0].trim();
-        String deadlineDate = deadlineArgs[1].trim();
-        return new String[] {deadlineDesc, deadlineDate};
+    static Task loadTask(String taskData) throws YapperException {
+        return loadTask(taskData, false);
     }
     /**
-     * Splits the given instruction arguments by the event keywords delimiter.
+     * Loads a task from the provided task data string, in the text save format,
+     * whose dates may be in the legacy storage patterns.
      *
-     * @param instructionArgs the instruction arguments to split
-     * @return an array containing the event description, start date, and end date
+     * @param taskData          the string representing the task data
+     * @param isWithLegacyDates whether the dates are in the legacy storage patterns
+     * @return a Task object created from the task data
+     * @throws YapperException if the task data is invalid
      */
-    private static String[] splitStringByEventKeywords(String instructionArgs) {
-        String[] eventArgs = instructionArgs.split(
-                StringStorage.SPLIT_USING_DELIMITER, -3);
-        String eventDesc = eventArgs[0].trim();
-        String startDate = eventArgs[1].trim();
-        String endDate = eventArgs[2].trim();
-        return new String[] {eventDesc, startDate, endDate};
+    static Task loadTask(String taskData, boolean isWithLegacyDates) throws YapperException {
+        return TaskRecordDecoder.decodeTask(taskData, 0, taskData.length(), isWithLegacyDates);
     }
 
 }
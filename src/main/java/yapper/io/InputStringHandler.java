@@ -1,20 +1,72 @@
 package yapper.io;
 
+import java.util.Arrays;
+
 import yapper.exceptions.ExceptionHandler;
 import yapper.exceptions.YapperException;
 import yapper.instructions.Instruction;
+import yapper.instructions.TaskSelection;
 
 /**
  * Input String Parser for Yapper.
  *
  * <p>
  * This class handles the parsing of user input strings into structured instructions for task management.
- * It validates input, checks for required parameters, and splits arguments as needed.
+ * It validates input, checks for required parameters, and splits arguments as needed,
+ * scanning each input once by index, as batch files and server clients send it millions of lines.
  * </p>
  *
  */
 public class InputStringHandler {
 
+    /**
+     * The instruction prefixes, and the instruction type of each, in the same order.
+     */
+    private static final String[] INSTRUCTION_PREFIXES = {
+        StringStorage.PREFIX_HELP_INSTRUCTION, StringStorage.PREFIX_STATS_INSTRUCTION,
+        StringStorage.PREFIX_LISTS_INSTRUCTION, StringStorage.PREFIX_USE_INSTRUCTION,
+        StringStorage.PREFIX_LIST_INSTRUCTION, StringStorage.PREFIX_FIND_INSTRUCTION,
+        StringStorage.PREFIX_DUE_INSTRUCTION, StringStorage.PREFIX_BETWEEN_INSTRUCTION,
+        StringStorage.PREFIX_SOURCE_INSTRUCTION, StringStorage.PREFIX_TODO_INSTRUCTION,
+        StringStorage.PREFIX_DEADLINE_INSTRUCTION, StringStorage.PREFIX_EVENT_INSTRUCTION,
+        StringStorage.PREFIX_DELETE_INSTRUCTION, StringStorage.PREFIX_MARK_INSTRUCTION,
+        StringStorage.PREFIX_UNMARK_INSTRUCTION, StringStorage.PREFIX_COMPLETE_INSTRUCTION,
+        StringStorage.PREFIX_UNDO_INSTRUCTION, StringStorage.PREFIX_REDO_INSTRUCTION,
+        StringStorage.PREFIX_ARCHIVE_INSTRUCTION,
+    };
+    private static final Instruction.InstructionType[] INSTRUCTION_TYPES = {
+        Instruction.InstructionType.HELP, Instruction.InstructionType.STATS,
+        Instruction.InstructionType.LISTS, Instruction.InstructionType.USE,
+        Instruction.InstructionType.LIST, Instruction.InstructionType.FIND,
+        Instruction.InstructionType.DUE, Instruction.InstructionType.BETWEEN,
+        Instruction.InstructionType.SOURCE, Instruction.InstructionType.TODO,
+        Instruction.InstructionType.DEADLINE, Instruction.InstructionType.EVENT,
+        Instruction.InstructionType.DELETE, Instruction.InstructionType.MARK,
+        Instruction.InstructionType.UNMARK, Instruction.InstructionType.COMPLETE,
+        Instruction.InstructionType.UNDO, Instruction.InstructionType.REDO,
+        Instruction.InstructionType.ARCHIVE,
+    };
+    /**
+     * The dispatch table: for each lowercase first letter, the indices of the prefixes that start with it,
+     * so the instruction word is only compared against one or two prefixes.
+     */
+    private static final int[][] PREFIXES_BY_FIRST_LETTER = new int[26][0];
+    /**
+     * The most words a due or between instruction may have, as they are 1 or 2 dates, each with an optional time.
+     */
+    private static final int MAX_QUERY_DATE_WORDS = 4;
+
+    static {
+        for (int index = 0; index < INSTRUCTION_PREFIXES.length; index++) {
+            int letter = INSTRUCTION_PREFIXES[index].charAt(0) - 'a';
+            int[] prefixIndices = Arrays.copyOf(PREFIXES_BY_FIRST_LETTER[letter],
+                    PREFIXES_BY_FIRST_LETTER[letter].length + 1);
+            prefixIndices[prefixIndices.length - 1] = index;
+            PREFIXES_BY_FIRST_LETTER[letter] = prefixIndices;
+        }
+    }
+
+
     /**
      * Parses and validates a user input string, and if exceptions are encountered,
      * rethrows them to consolidate the exception messages.
@@ -25,7 +77,7 @@ public class InputStringHandler {
      */
     public static Instruction parseUserInput(String userInputString) throws YapperException {
         try {
-            return parseAndValidateUserInput(userInputString.trim());
+            return parseAndValidateUserInput(userInputString);
         } catch (YapperException e) {
             throw new YapperException("when parsing user input. \n" + e.getMessage());
         }
@@ -33,109 +85,468 @@ public class InputStringHandler {
     /**
      * Parses and validates a user input string, returning an Instruction object.
      *
+     * <p>
+     * The input is scanned once, by index: the instruction word is looked up in the dispatch table,
+     * and the arguments are cut out of the input where they lie, without trimming, splitting or regular expressions.
+     * Only the strings kept by the instruction are allocated.
+     * </p>
+     *
      * @param userInputString the input string provided by the user
      * @return an Instruction object representing the parsed command
      * @throws YapperException if the input is invalid or any required parameters are missing
      */
     private static Instruction parseAndValidateUserInput(String userInputString) throws YapperException {
-        try {
-            ExceptionHandler.checkIfUserInputEmpty(userInputString, false);
-            ExceptionHandler.checkIfStartWithInstructionPrefix(userInputString);
-
-            if (userInputString.startsWith(StringStorage.PREFIX_LIST_INSTRUCTION)) {
-                ExceptionHandler.checkIfTooManyArguments(userInputString, StringStorage.PREFIX_LIST_INSTRUCTION);
-                return new Instruction(Instruction.InstructionType.LIST);
-            } else if (userInputString.startsWith(StringStorage.PREFIX_HELP_INSTRUCTION)) {
-                ExceptionHandler.checkIfTooManyArguments(userInputString, StringStorage.PREFIX_HELP_INSTRUCTION);
-                return new Instruction(Instruction.InstructionType.HELP);
+        int inputStart = skipWhitespace(userInputString, 0, userInputString.length());
+        int inputEnd = skipWhitespaceBackwards(userInputString, inputStart, userInputString.length());
+        ExceptionHandler.checkIfUserInputEmpty(inputEnd - inputStart, false);
+
+        int wordEnd = findWordEnd(userInputString, inputStart, inputEnd);
+        Instruction.InstructionType instructionType = lookUpInstructionType(userInputString, inputStart, wordEnd);
+        if (instructionType == null) {
+            ExceptionHandler.checkIfStartWithInstructionPrefix(userInputString.substring(inputStart, inputEnd));
+            throw new YapperException(StringStorage.UNRECOGNISED_INSTRUCTION_MESSAGE);
+        }
+        int argsStart = skipWhitespace(userInputString, wordEnd, inputEnd);
+
+        switch (instructionType) {
+        case LIST:
+            if (userInputString.startsWith(StringStorage.OPTION_LIST_PAGE, argsStart)
+                    || userInputString.startsWith(StringStorage.OPTION_LIST_SIZE, argsStart)) {
+                return parseListPageOptions(userInputString, argsStart, inputEnd);
             }
+            ExceptionHandler.checkIfTooManyArguments(inputEnd - argsStart, StringStorage.PREFIX_LIST_INSTRUCTION);
+            return new Instruction(instructionType);
+        case HELP:
+            ExceptionHandler.checkIfTooManyArguments(inputEnd - argsStart, StringStorage.PREFIX_HELP_INSTRUCTION);
+            return new Instruction(instructionType);
+        case STATS:
+            ExceptionHandler.checkIfTooManyArguments(inputEnd - argsStart, StringStorage.PREFIX_STATS_INSTRUCTION);
+            return new Instruction(instructionType);
+        case LISTS:
+            ExceptionHandler.checkIfTooManyArguments(inputEnd - argsStart, StringStorage.PREFIX_LISTS_INSTRUCTION);
+            return new Instruction(instructionType);
+        case UNDO:
+        case REDO:
+            return parseHistoryStepTotal(instructionType, userInputString, argsStart, inputEnd);
+        case ARCHIVE:
+            return parseArchiveOptions(userInputString, argsStart, inputEnd);
+        default:
+            break;
+        }
 
-            String[] instructionParts = userInputString.split(" ", 2);
-            String instructionType = instructionParts[0];
-            String instructionArgs = instructionParts.length > 1
-                    ? instructionParts[1].trim() : "";
-            ExceptionHandler.checkIfUserInputEmpty(instructionArgs, true);
-
-            switch (instructionType) {
-            case StringStorage.PREFIX_FIND_INSTRUCTION:
-                ExceptionHandler.checkIfFindArgsMissing(
-                        instructionArgs.trim());
-                return new Instruction(Instruction.InstructionType.FIND,
-                        instructionArgs.trim());
-            case StringStorage.PREFIX_TODO_INSTRUCTION:
-                ExceptionHandler.checkIfTodoArgsMissing(
-                    instructionArgs.trim());
-                return new Instruction(Instruction.InstructionType.TODO,
-                        instructionArgs.trim());
-            case StringStorage.PREFIX_DEADLINE_INSTRUCTION:
-                ExceptionHandler.checkIfDeadlineKeywordsPresent(
-                    instructionArgs.indexOf(StringStorage.DELIMITER_DEADLINE_END_DATE));
-                String[] deadlineArgs = splitStringByDeadlineKeyword(instructionArgs);
-                ExceptionHandler.checkIfDeadlineArgsMissing(
-                        deadlineArgs[0], deadlineArgs[1]);
-                return new Instruction(Instruction.InstructionType.DEADLINE,
-                        deadlineArgs[0], deadlineArgs[1]);
-            case StringStorage.PREFIX_EVENT_INSTRUCTION:
-                ExceptionHandler.checkIfEventKeywordsPresent(
-                    instructionArgs.indexOf(StringStorage.DELIMITER_EVENT_START_DATE),
-                    instructionArgs.indexOf(StringStorage.DELIMITER_EVENT_END_DATE));
-                String[] eventArgs = splitStringByEventKeywords(instructionArgs);
-                ExceptionHandler.checkIfEventArgsMissing(
-                        eventArgs[0], eventArgs[1], eventArgs[2]);
-                return new Instruction(Instruction.InstructionType.EVENT,
-                        eventArgs[0], eventArgs[1], eventArgs[2]);
-            case StringStorage.PREFIX_DELETE_INSTRUCTION:
-                int taskOrdinalToDelete = Integer.parseInt(instructionArgs.trim());
-                return new Instruction(Instruction.InstructionType.DELETE,
-                        taskOrdinalToDelete);
-            case StringStorage.PREFIX_MARK_INSTRUCTION:
-            case StringStorage.PREFIX_UNMARK_INSTRUCTION:
-                int taskOrdinal = Integer.parseInt(instructionArgs.trim());
-                Instruction.InstructionType type = instructionType.equals(
-                        StringStorage.PREFIX_MARK_INSTRUCTION)
-                        ? Instruction.InstructionType.MARK
-                        : Instruction.InstructionType.UNMARK;
-                return new Instruction(type, taskOrdinal);
-            default:
-                throw new YapperException(
-                        StringStorage.UNRECOGNISED_INSTRUCTION_MESSAGE);
+        ExceptionHandler.checkIfUserInputEmpty(inputEnd - argsStart, true);
+        switch (instructionType) {
+        case FIND:
+            if (userInputString.startsWith(StringStorage.OPTION_FIND_PREFIX, argsStart)) {
+                int prefixStart = skipWhitespace(userInputString,
+                        argsStart + StringStorage.OPTION_FIND_PREFIX.length(), inputEnd);
+                ExceptionHandler.checkIfUserInputEmpty(inputEnd - prefixStart, true);
+                return new Instruction(instructionType, userInputString.substring(prefixStart, inputEnd), true);
             }
-        } catch (YapperException e) {
-            throw new YapperException(e.getMessage());
-        } catch (NumberFormatException e) {
-            throw new YapperException("Invalid task ordinal detected. Try again. ");
+            if (userInputString.startsWith(StringStorage.OPTION_FIND_ARCHIVE, argsStart)) {
+                int queryStart = skipWhitespace(userInputString,
+                        argsStart + StringStorage.OPTION_FIND_ARCHIVE.length(), inputEnd);
+                ExceptionHandler.checkIfUserInputEmpty(inputEnd - queryStart, true);
+                return new Instruction(instructionType, userInputString.substring(queryStart, inputEnd), false, true);
+            }
+            return new Instruction(instructionType, userInputString.substring(argsStart, inputEnd));
+        case COMPLETE:
+        case SOURCE:
+        case TODO:
+            return new Instruction(instructionType, userInputString.substring(argsStart, inputEnd));
+        case USE:
+            String listName = userInputString.substring(argsStart, inputEnd);
+            ExceptionHandler.checkIfListNameValid(listName);
+            return new Instruction(instructionType, listName);
+        case DUE:
+            return parseDueQuery(userInputString, argsStart, inputEnd);
+        case BETWEEN:
+            return parseBetweenQuery(userInputString, argsStart, inputEnd);
+        case DEADLINE:
+            int byIndex = userInputString.indexOf(StringStorage.DELIMITER_DEADLINE_END_DATE, argsStart);
+            ExceptionHandler.checkIfDeadlineKeywordsPresent(byIndex);
+            String deadlineDesc = substringTrimmed(userInputString, argsStart, byIndex);
+            String deadlineDate = substringTrimmed(userInputString,
+                    byIndex + StringStorage.DELIMITER_DEADLINE_END_DATE.length(), inputEnd);
+            ExceptionHandler.checkIfDeadlineArgsMissing(deadlineDesc, deadlineDate);
+            return new Instruction(instructionType, deadlineDesc, deadlineDate);
+        case EVENT:
+            int fromIndex = userInputString.indexOf(StringStorage.DELIMITER_EVENT_START_DATE, argsStart);
+            int toIndex = fromIndex == -1 ? -1 : userInputString.indexOf(StringStorage.DELIMITER_EVENT_END_DATE,
+                    fromIndex + StringStorage.DELIMITER_EVENT_START_DATE.length());
+            ExceptionHandler.checkIfEventKeywordsPresent(fromIndex, toIndex);
+            String eventDesc = substringTrimmed(userInputString, argsStart, fromIndex);
+            String startDate = substringTrimmed(userInputString,
+                    fromIndex + StringStorage.DELIMITER_EVENT_START_DATE.length(), toIndex);
+            String endDate = substringTrimmed(userInputString,
+                    toIndex + StringStorage.DELIMITER_EVENT_END_DATE.length(), inputEnd);
+            ExceptionHandler.checkIfEventArgsMissing(eventDesc, startDate, endDate);
+            return new Instruction(instructionType, eventDesc, startDate, endDate);
+        case DELETE:
+        case MARK:
+        case UNMARK:
+            if (isOrdinal(userInputString, argsStart, inputEnd)) {
+                return new Instruction(instructionType, parseSelectedOrdinal(userInputString, argsStart, inputEnd));
+            }
+            return new Instruction(instructionType, parseTaskSelection(userInputString, argsStart, inputEnd));
+        default:
+            throw new YapperException(StringStorage.UNRECOGNISED_INSTRUCTION_MESSAGE);
+        }
+    }
+    /**
+     * Looks up the instruction type of the instruction word in the dispatch table.
+     *
+     * @param userInputString the input string provided by the user
+     * @param wordStart the index of the first character of the instruction word
+     * @param wordEnd the index after the last character of the instruction word
+     * @return the instruction type, or null if the word is not an instruction prefix
+     */
+    private static Instruction.InstructionType lookUpInstructionType(String userInputString,
+            int wordStart, int wordEnd) {
+        int letter = userInputString.charAt(wordStart) - 'a';
+        if (letter < 0 || letter >= PREFIXES_BY_FIRST_LETTER.length) {
+            return null;
+        }
+        int wordLength = wordEnd - wordStart;
+        for (int prefixIndex : PREFIXES_BY_FIRST_LETTER[letter]) {
+            String prefix = INSTRUCTION_PREFIXES[prefixIndex];
+            if (prefix.length() == wordLength && userInputString.startsWith(prefix, wordStart)) {
+                return INSTRUCTION_TYPES[prefixIndex];
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Parses the page options of the list instruction, e.g. "--page 2 --size 50", in any order.
+     * A missing page is the first page, and a missing size is {@code DEFAULT_PAGE_SIZE}.
+     *
+     * @param userInputString the input string provided by the user
+     * @param argsStart the index of the first option
+     * @param argsEnd the index after the last option
+     * @return a LIST instruction for one page of the task list
+     * @throws YapperException if an option is unknown or its value is not a number
+     */
+    private static Instruction parseListPageOptions(String userInputString, int argsStart, int argsEnd)
+            throws YapperException {
+        int pageNumber = 1;
+        int pageSize = StringStorage.DEFAULT_PAGE_SIZE;
+        int optionStart = argsStart;
+        while (optionStart < argsEnd) {
+            int optionEnd = findWordEnd(userInputString, optionStart, argsEnd);
+            int valueStart = skipWhitespace(userInputString, optionEnd, argsEnd);
+            int valueEnd = findWordEnd(userInputString, valueStart, argsEnd);
+            if (valueStart == valueEnd) {
+                throw new YapperException(StringStorage.INVALID_PAGE_MESSAGE);
+            }
+            int optionValue;
+            try {
+                optionValue = Integer.parseInt(userInputString, valueStart, valueEnd, 10);
+            } catch (NumberFormatException e) {
+                throw new YapperException(StringStorage.INVALID_PAGE_MESSAGE);
+            }
+            if (isWord(userInputString, optionStart, optionEnd, StringStorage.OPTION_LIST_PAGE)) {
+                pageNumber = optionValue;
+            } else if (isWord(userInputString, optionStart, optionEnd, StringStorage.OPTION_LIST_SIZE)) {
+                pageSize = optionValue;
+            } else {
+                throw new YapperException(StringStorage.INVALID_PAGE_MESSAGE);
+            }
+            optionStart = skipWhitespace(userInputString, valueEnd, argsEnd);
         }
+        return new Instruction(Instruction.InstructionType.LIST, pageNumber, pageSize);
+    }
+    /**
+     * Parses the arguments of the due instruction: a date, with an optional time.
+     *
+     * @param userInputString the input string provided by the user
+     * @param argsStart the index of the first word of the date
+     * @param argsEnd the index after the last word of the date
+     * @return a DUE instruction, with the words of the date joined by single spaces
+     * @throws YapperException if there are not 1 or 2 words
+     */
+    private static Instruction parseDueQuery(String userInputString, int argsStart, int argsEnd)
+            throws YapperException {
+        int firstWordEnd = findWordEnd(userInputString, argsStart, argsEnd);
+        int secondWordStart = skipWhitespace(userInputString, firstWordEnd, argsEnd);
+        int secondWordEnd = findWordEnd(userInputString, secondWordStart, argsEnd);
+        int wordCount = secondWordStart == argsEnd ? 1 : secondWordEnd == argsEnd ? 2 : 3;
+        ExceptionHandler.checkIfQueryDateArgsMissing(wordCount, 1, 2);
+        String dueDate = wordCount == 1
+                ? userInputString.substring(argsStart, firstWordEnd)
+                : joinWords(userInputString, argsStart, firstWordEnd, secondWordStart, secondWordEnd);
+        return new Instruction(Instruction.InstructionType.DUE,
+                userInputString.substring(argsStart, argsEnd), dueDate);
     }
+    /**
+     * Parses the arguments of the between instruction into 2 dates, each with an optional time.
+     *
+     * <p>
+     * With 3 words, the second word is taken as the time of the first date if it is 4 digits,
+     * and as the second date otherwise.
+     * </p>
+     *
+     * @param userInputString the input string provided by the user
+     * @param argsStart the index of the first word of the period
+     * @param argsEnd the index after the last word of the period
+     * @return a BETWEEN instruction, with the start and end of the period
+     * @throws YapperException if there are not 2 to 4 words
+     */
+    private static Instruction parseBetweenQuery(String userInputString, int argsStart, int argsEnd)
+            throws YapperException {
+        // Start and end index of each word, with room for one word too many
+        int[] wordBounds = new int[2 * (MAX_QUERY_DATE_WORDS + 1)];
+        int wordCount = 0;
+        int wordStart = argsStart;
+        while (wordStart < argsEnd && wordCount <= MAX_QUERY_DATE_WORDS) {
+            int wordEnd = findWordEnd(userInputString, wordStart, argsEnd);
+            wordBounds[2 * wordCount] = wordStart;
+            wordBounds[2 * wordCount + 1] = wordEnd;
+            wordCount++;
+            wordStart = skipWhitespace(userInputString, wordEnd, argsEnd);
+        }
+        ExceptionHandler.checkIfQueryDateArgsMissing(wordCount, 2, MAX_QUERY_DATE_WORDS);
+
+        boolean isStartDateWithTime = wordCount == MAX_QUERY_DATE_WORDS
+                || wordCount == 3 && isFourDigits(userInputString, wordBounds[2], wordBounds[3]);
+        int endDateWord = isStartDateWithTime ? 2 : 1;
+        String startDate = isStartDateWithTime
+                ? joinWords(userInputString, wordBounds[0], wordBounds[1], wordBounds[2], wordBounds[3])
+                : userInputString.substring(wordBounds[0], wordBounds[1]);
+        String endDate = wordCount - endDateWord == 2
+                ? joinWords(userInputString, wordBounds[2 * endDateWord], wordBounds[2 * endDateWord + 1],
+                        wordBounds[2 * endDateWord + 2], wordBounds[2 * endDateWord + 3])
+                : userInputString.substring(wordBounds[2 * endDateWord], wordBounds[2 * endDateWord + 1]);
+        return new Instruction(Instruction.InstructionType.BETWEEN,
+                userInputString.substring(argsStart, argsEnd), startDate, endDate);
+    }
+
+
+    /**
+     * Parses the tasks chosen by a delete, mark or unmark instruction, if it is not a single ordinal.
+     *
+     * <p>
+     * The tasks are chosen by a filter word, e.g. "all", or by ordinals and ranges separated by commas,
+     * e.g. "3,7,9" or "10-500", with any spaces around the separators.
+     * </p>
+     *
+     * @param userInputString the input string provided by the user
+     * @param argsStart the index of the first character of the selection
+     * @param argsEnd the index after the last character of the selection
+     * @return the chosen tasks
+     * @throws YapperException if the selection is not a filter word or a list of ordinals and ranges
+     */
+    private static TaskSelection parseTaskSelection(String userInputString, int argsStart, int argsEnd)
+            throws YapperException {
+        if (isWord(userInputString, argsStart, argsEnd, StringStorage.SELECT_ALL_TASKS)) {
+            return new TaskSelection(TaskSelection.SelectionFilter.ALL);
+        } else if (isWord(userInputString, argsStart, argsEnd, StringStorage.SELECT_DONE_TASKS)) {
+            return new TaskSelection(TaskSelection.SelectionFilter.DONE);
+        } else if (isWord(userInputString, argsStart, argsEnd, StringStorage.SELECT_NOT_DONE_TASKS)) {
+            return new TaskSelection(TaskSelection.SelectionFilter.NOT_DONE);
+        }
 
+        int[] ordinalRanges = new int[8];
+        int rangeTotal = 0;
+        int itemStart = argsStart;
+        while (itemStart <= argsEnd) {
+            int itemEnd = userInputString.indexOf(StringStorage.SELECTION_SEPARATOR, itemStart);
+            itemEnd = itemEnd < 0 || itemEnd > argsEnd ? argsEnd : itemEnd;
+            int rangeSeparator = userInputString.indexOf(StringStorage.SELECTION_RANGE_SEPARATOR, itemStart);
+            rangeSeparator = rangeSeparator < 0 || rangeSeparator > itemEnd ? itemEnd : rangeSeparator;
 
+            int first = parseSelectedOrdinal(userInputString, itemStart, rangeSeparator);
+            int last = rangeSeparator == itemEnd
+                    ? first
+                    : parseSelectedOrdinal(userInputString, rangeSeparator + 1, itemEnd);
+            if (last < first) {
+                throw new YapperException(StringStorage.INVALID_TASK_SELECTION_MESSAGE);
+            }
+            if (2 * rangeTotal == ordinalRanges.length) {
+                ordinalRanges = Arrays.copyOf(ordinalRanges, ordinalRanges.length * 2);
+            }
+            ordinalRanges[2 * rangeTotal] = first;
+            ordinalRanges[2 * rangeTotal + 1] = last;
+            rangeTotal++;
+            itemStart = itemEnd + 1;
+        }
+        return new TaskSelection(Arrays.copyOf(ordinalRanges, 2 * rangeTotal));
+    }
     /**
-     * Splits the instruction argument string into 2 parts, by the deadline keyword delimiter.
+     * Parses a single ordinal of a selection, made of an optional sign and digits, with any whitespace around it.
+     * Ordinals that are numbers but not in the task list are left for the task list to reject.
      *
-     * @param instructionArgs the instruction arguments to split
-     * @return an array containing the deadline description and date
+     * @param userInputString the input string provided by the user
+     * @param start the index of the first character of the ordinal
+     * @param end the index after the last character of the ordinal
+     * @return the ordinal, as shown to the user
+     * @throws YapperException if the ordinal is not a number, or does not fit in an int
      */
-    private static String[] splitStringByDeadlineKeyword(String instructionArgs) {
-        String[] deadlineArgs = instructionArgs.split(
-                StringStorage.DELIMITER_DEADLINE_END_DATE, -2);
-        String deadlineDesc = deadlineArgs[0].trim();
-        String deadlineDate = deadlineArgs[1].trim();
-        return new String[] {deadlineDesc, deadlineDate};
+    private static int parseSelectedOrdinal(String userInputString, int start, int end) throws YapperException {
+        int digitsStart = skipWhitespace(userInputString, start, end);
+        int digitsEnd = skipWhitespaceBackwards(userInputString, digitsStart, end);
+        if (!isOrdinal(userInputString, digitsStart, digitsEnd)) {
+            throw new YapperException(StringStorage.INVALID_TASK_SELECTION_MESSAGE);
+        }
+        boolean isNegative = userInputString.charAt(digitsStart) == '-';
+        if (isNegative || userInputString.charAt(digitsStart) == '+') {
+            digitsStart++;
+        }
+        long ordinal = 0;
+        for (int index = digitsStart; index < digitsEnd; index++) {
+            ordinal = ordinal * 10 + userInputString.charAt(index) - '0';
+            if (ordinal > (long) Integer.MAX_VALUE + 1) {
+                throw new YapperException(StringStorage.INVALID_TASK_SELECTION_MESSAGE);
+            }
+        }
+        ordinal = isNegative ? -ordinal : ordinal;
+        if (ordinal > Integer.MAX_VALUE) {
+            throw new YapperException(StringStorage.INVALID_TASK_SELECTION_MESSAGE);
+        }
+        return (int) ordinal;
     }
     /**
-     * Splits the instruction argument string into 3 parts, by the event keyword delimiters.
+     * Parses the number of changes an undo or redo instruction makes, which is 1 if it is not given.
      *
-     * @param instructionArgs the instruction arguments to split
-     * @return an array containing the event description, start date, and end date
-     */
-    private static String[] splitStringByEventKeywords(String instructionArgs) {
-        String[] eventArgs = instructionArgs.split(
-                StringStorage.DELIMITER_EVENT_START_DATE, -2);
-        String eventDesc = eventArgs[0].trim();
-        String[] dates = eventArgs[1].split(
-                StringStorage.DELIMITER_EVENT_END_DATE, -2);
-        String startDate = dates[0].trim();
-        String endDate = dates[1].trim();
-        return new String[] {eventDesc, startDate, endDate};
+     * @param instructionType UNDO or REDO
+     * @param userInputString the input string provided by the user
+     * @param argsStart the index of the first character of the number, or the end if there is none
+     * @param argsEnd the index after the last character of the number
+     * @return an UNDO or REDO instruction
+     * @throws YapperException if the number is not a positive whole number
+     */
+    private static Instruction parseHistoryStepTotal(Instruction.InstructionType instructionType,
+            String userInputString, int argsStart, int argsEnd) throws YapperException {
+        if (argsStart == argsEnd) {
+            return new Instruction(instructionType, 1);
+        }
+        int stepTotal;
+        try {
+            stepTotal = Integer.parseInt(userInputString, argsStart, argsEnd, 10);
+        } catch (NumberFormatException e) {
+            throw new YapperException(StringStorage.INVALID_HISTORY_STEPS_MESSAGE);
+        }
+        if (stepTotal < 1) {
+            throw new YapperException(StringStorage.INVALID_HISTORY_STEPS_MESSAGE);
+        }
+        return new Instruction(instructionType, stepTotal);
+    }
+
+    /**
+     * Parses the options of the archive instruction, which archives every done task,
+     * or with "--days [days]", only the done tasks whose dates ended more than that many days ago.
+     *
+     * @param userInputString the input string provided by the user
+     * @param argsStart the index of the first option, or the end if there is none
+     * @param argsEnd the index after the last option
+     * @return an ARCHIVE instruction
+     * @throws YapperException if an option is unknown or the number of days is not a positive whole number
+     */
+    private static Instruction parseArchiveOptions(String userInputString, int argsStart, int argsEnd)
+            throws YapperException {
+        if (argsStart == argsEnd) {
+            return new Instruction(Instruction.InstructionType.ARCHIVE,
+                    new TaskSelection(TaskSelection.SelectionFilter.DONE));
+        }
+        int optionEnd = findWordEnd(userInputString, argsStart, argsEnd);
+        int valueStart = skipWhitespace(userInputString, optionEnd, argsEnd);
+        if (!isWord(userInputString, argsStart, optionEnd, StringStorage.OPTION_ARCHIVE_DAYS)
+                || findWordEnd(userInputString, valueStart, argsEnd) != argsEnd) {
+            throw new YapperException(StringStorage.INVALID_ARCHIVE_OPTIONS_MESSAGE);
+        }
+        int dayTotal;
+        try {
+            dayTotal = Integer.parseInt(userInputString, valueStart, argsEnd, 10);
+        } catch (NumberFormatException e) {
+            throw new YapperException(StringStorage.INVALID_ARCHIVE_OPTIONS_MESSAGE);
+        }
+        if (dayTotal < 1) {
+            throw new YapperException(StringStorage.INVALID_ARCHIVE_OPTIONS_MESSAGE);
+        }
+        return new Instruction(Instruction.InstructionType.ARCHIVE, new TaskSelection(dayTotal));
+    }
+
+
+    /**
+     * Returns the index of the first non-whitespace character from the start, or the end if there is none.
+     */
+    private static int skipWhitespace(String userInputString, int start, int end) {
+        while (start < end && userInputString.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+    /**
+     * Returns the index after the last non-whitespace character before the end, or the start if there is none.
+     */
+    private static int skipWhitespaceBackwards(String userInputString, int start, int end) {
+        while (end > start && userInputString.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+    /**
+     * Returns the index of the first whitespace character from the start, or the end if there is none.
+     */
+    private static int findWordEnd(String userInputString, int start, int end) {
+        while (start < end && userInputString.charAt(start) > ' ') {
+            start++;
+        }
+        return start;
+    }
+    /**
+     * Returns the part of the input between the indices, without the whitespace around it.
+     */
+    private static String substringTrimmed(String userInputString, int start, int end) {
+        int trimmedStart = skipWhitespace(userInputString, start, end);
+        return userInputString.substring(trimmedStart, skipWhitespaceBackwards(userInputString, trimmedStart, end));
+    }
+    /**
+     * Returns the first word, followed by a single space and the second word.
+     * Reuses the input as it is when the words are already one space apart.
+     */
+    private static String joinWords(String userInputString, int firstWordStart, int firstWordEnd,
+            int secondWordStart, int secondWordEnd) {
+        if (secondWordStart == firstWordEnd + 1 && userInputString.charAt(firstWordEnd) == ' ') {
+            return userInputString.substring(firstWordStart, secondWordEnd);
+        }
+        return userInputString.substring(firstWordStart, firstWordEnd)
+                + " " + userInputString.substring(secondWordStart, secondWordEnd);
+    }
+    private static boolean isWord(String userInputString, int start, int end, String word) {
+        return end - start == word.length() && userInputString.startsWith(word, start);
+    }
+    /**
+     * Returns whether the part of the input between the indices is an optional sign followed by digits only,
+     * so a selection of ranges or lists, which has separators between its digits, is not one.
+     */
+    private static boolean isOrdinal(String userInputString, int start, int end) {
+        if (start < end && (userInputString.charAt(start) == '-' || userInputString.charAt(start) == '+')) {
+            start++;
+        }
+        if (start == end) {
+            return false;
+        }
+        for (int index = start; index < end; index++) {
+            char digit = userInputString.charAt(index);
+            if (digit < '0' || digit > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+    private static boolean isFourDigits(String userInputString, int start, int end) {
+        if (end - start != 4) {
+            return false;
+        }
+        for (int index = start; index < end; index++) {
+            char digit = userInputString.charAt(index);
+            if (digit < '0' || digit > '9') {
+                return false;
+            }
+        }
+        return true;
     }
 
 }
@@ -0,0 +1,433 @@
+package yapper.io;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import yapper.exceptions.ExceptionHandler;
+import yapper.exceptions.YapperException;
+import yapper.metrics.MetricsRegistry;
+import yapper.tasks.Task;
+import yapper.tasks.TaskHandler;
+
+/**
+ * Append-only Journal Manager for Yapper.
+ *
+ * <p>
+ * In journal mode, every ADD, DELETE, MARK, UNMARK and RESTORE is appended to the journal
+ * as one small record, instead of rewriting the whole save file.
+ * A DELETE is preceded by a NEXT_ID record, so that the ID of the deleted task is not given out again
+ * even if the task it belonged to cannot be replayed.
+ * On startup, the save file (the snapshot) is loaded first, then the journal is replayed on top of it.
+ * </p>
+ *
+ * <p>
+ * Once the journal grows past {@code StringStorage.JOURNAL_COMPACTION_THRESHOLD_BYTES},
+ * it is rotated aside and folded into a new snapshot on a background thread: <ol>
+ *   <li> the current journal is renamed to the compacting journal, and new records go to a fresh journal, </li>
+ *   <li> the snapshot is written to a temporary file and moved to a sibling "next" file, </li>
+ *   <li> the compacting journal is deleted, </li>
+ *   <li> the "next" file is moved over the save file. </li>
+ * </ol>
+ * A crash at any point can be recovered from on startup, without applying any record twice.
+ * The snapshot is written without holding the lock that appending a record takes,
+ * so no command waits for it; only the last three moves and deletes are made under a lock of their own.
+ * </p>
+ *
+ * <p>
+ * If the write-behind queue is on, records are queued with {@code WriteBehindPersister} instead,
+ * and so is the rotation, so that every record queued before it still goes to the journal being compacted.
+ * </p>
+ *
+ */
+public class JournalFileHandler {
+    /**
+     * The size of the current journal in bytes, used to decide when to compact.
+     */
+    private static long journalSizeInBytes = 0;
+    /**
+     * Whether a compaction has been started and not yet finished.
+     * Only one compaction may run at a time.
+     */
+    private static volatile boolean isCompacting = false;
+    /**
+     * Incremented whenever the save file is rewritten outside of compaction,
+     * so that an older compaction does not overwrite it when it finishes.
+     * Only read or changed while holding {@code SNAPSHOT_LOCK}.
+     */
+    private static int snapshotGeneration = 0;
+    /**
+     * Guards the snapshot generation and the moves and deletes that finish a compaction,
+     * apart from the lock that appending a record takes.
+     */
+    private static final Object SNAPSHOT_LOCK = new Object();
+    /**
+     * Runs compactions in the background, so that no command waits for a snapshot to be written.
+     */
+    private static final ExecutorService compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "yapper-journal-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+
+    /**
+     * Appends a record for an added task to the journal.
+     *
+     * @param taskHandler the handler managing the task list, used if compaction is needed
+     * @param task        the task that was added
+     * @throws IOException if an error occurs during file operations
+     */
+    public static void appendAddedTask(TaskHandler taskHandler, Task task) throws IOException {
+        appendRecord(taskHandler, StringStorage.JOURNAL_ADD + " "
+                + StringStorage.COMBINE_USING_DELIMITER + " "
+                + task.taskToSaveString());
+    }
+    /**
+     * Appends a record for a deleted task to the journal.
+     *
+     * @param taskHandler the handler managing the task list, used if compaction is needed
+     * @param taskOrdinal the ordinal of the task that was deleted
+     * @throws IOException if an error occurs during file operations
+     */
+    public static void appendDeletedTask(TaskHandler taskHandler, int taskOrdinal) throws IOException {
+        // both records are appended in one write, so a DELETE is never in the journal without its NEXT_ID
+        appendRecord(taskHandler, StringStorage.JOURNAL_NEXT_TASK_ID + " "
+                + StringStorage.COMBINE_USING_DELIMITER + " "
+                + taskHandler.getNextTaskId() + "\n"
+                + StringStorage.JOURNAL_DELETE + " "
+                + StringStorage.COMBINE_USING_DELIMITER + " "
+                + taskOrdinal);
+    }
+    /**
+     * Appends a record for a deleted task that was put back at an ordinal, e.g. when the delete is undone.
+     *
+     * @param taskHandler the handler managing the task list, used if compaction is needed
+     * @param taskOrdinal the ordinal the task was put back at
+     * @param task        the task that was put back
+     * @throws IOException if an error occurs during file operations
+     */
+    public static void appendRestoredTask(TaskHandler taskHandler, int taskOrdinal, Task task) throws IOException {
+        appendRecord(taskHandler, StringStorage.JOURNAL_RESTORE + " "
+                + StringStorage.COMBINE_USING_DELIMITER + " "
+                + taskOrdinal + " "
+                + StringStorage.COMBINE_USING_DELIMITER + " "
+                + task.taskToSaveString());
+    }
+    /**
+     * Appends a record for a marked or unmarked task to the journal.
+     *
+     * @param taskHandler the handler managing the task list, used if compaction is needed
+     * @param taskOrdinal the ordinal of the task that was amended
+     * @param isDone      the new completion status of the task
+     * @throws IOException if an error occurs during file operations
+     */
+    public static void appendTaskStatus(TaskHandler taskHandler, int taskOrdinal, boolean isDone)
+            throws IOException {
+        appendRecord(taskHandler, (isDone ? StringStorage.JOURNAL_MARK : StringStorage.JOURNAL_UNMARK) + " "
+                + StringStorage.COMBINE_USING_DELIMITER + " "
+                + taskOrdinal);
+    }
+
+    /**
+     * Appends a single record to the journal, then starts a compaction if the journal is too large.
+     *
+     * @param taskHandler the handler managing the task list
+     * @param record      the journal record, or records separated by newlines, without the trailing newline
+     * @throws IOException if an error occurs during file operations
+     */
+    private static synchronized void appendRecord(TaskHandler taskHandler, String record) throws IOException {
+        // counted as encoded, since a record holding non-ASCII characters takes more bytes than it has chars
+        byte[] recordBytes = (record + "\n").getBytes(Charset.defaultCharset());
+        if (WriteBehindPersister.isStarted()) {
+            WriteBehindPersister.append(Paths.get(StringStorage.JOURNAL_FILE_PATH), recordBytes, true);
+        } else {
+            Files.write(Paths.get(StringStorage.JOURNAL_FILE_PATH), recordBytes,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            MetricsRegistry.recordBytesWritten(recordBytes.length);
+        }
+        journalSizeInBytes += recordBytes.length;
+        if (journalSizeInBytes >= StringStorage.JOURNAL_COMPACTION_THRESHOLD_BYTES && !isCompacting) {
+            startCompaction(taskHandler);
+        }
+    }
+
+    /**
+     * Rotates the journal aside and folds it into a new snapshot in the background.
+     *
+     * <p>
+     * The snapshot lines are taken on the calling thread, so that the background thread
+     * never reads the task list while it is being changed.
+     * </p>
+     *
+     * @param taskHandler the handler managing the task list
+     * @throws IOException if the journal cannot be rotated
+     */
+    private static void startCompaction(TaskHandler taskHandler) throws IOException {
+        ArrayList<String> taskLines = taskHandler.tasksToString();
+        long nextTaskId = taskHandler.getNextTaskId();
+        journalSizeInBytes = 0;
+        if (WriteBehindPersister.isStarted()) {
+            isCompacting = true;
+            WriteBehindPersister.run(() -> rotateJournal(taskLines, nextTaskId));
+        } else {
+            rotateJournal(taskLines, nextTaskId);
+        }
+    }
+    private static void rotateJournal(ArrayList<String> taskLines, long nextTaskId) throws IOException {
+        try {
+            Files.move(Paths.get(StringStorage.JOURNAL_FILE_PATH),
+                    Paths.get(StringStorage.JOURNAL_COMPACTING_FILE_PATH),
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            isCompacting = false;
+            throw e;
+        }
+        submitCompaction(taskLines, nextTaskId);
+    }
+    /**
+     * Submits the snapshot lines to be written in the background.
+     *
+     * @param taskLines  the string representations of all tasks, at the time the journal was rotated
+     * @param nextTaskId the next task ID, at the same time
+     */
+    private static void submitCompaction(ArrayList<String> taskLines, long nextTaskId) {
+        isCompacting = true;
+        int generation;
+        synchronized (SNAPSHOT_LOCK) {
+            generation = snapshotGeneration;
+        }
+        compactionExecutor.submit(() -> finishCompaction(taskLines, nextTaskId, generation));
+    }
+    /**
+     * Writes the new snapshot and replaces the save file with it, unless the save file was rewritten since.
+     *
+     * <p>
+     * The snapshot is written to a temporary file first, which recovery ignores,
+     * and only becomes the "next" file once it is complete and the generation is checked.
+     * </p>
+     *
+     * @param taskLines  the string representations of all tasks to be written
+     * @param nextTaskId the next task ID to be written with them
+     * @param generation the snapshot generation at the time the compaction was started
+     */
+    private static void finishCompaction(ArrayList<String> taskLines, long nextTaskId, int generation) {
+        Path writtenSnapshot = Paths.get(StringStorage.SNAPSHOT_NEXT_FILE_PATH + StringStorage.TEMP_FILE_SUFFIX);
+        try {
+            SnapshotFileHandler.writeSnapshot(writtenSnapshot, taskLines, nextTaskId);
+            synchronized (SNAPSHOT_LOCK) {
+                if (generation != snapshotGeneration) {
+                    Files.deleteIfExists(writtenSnapshot);
+                    return;
+                }
+                Files.move(writtenSnapshot, Paths.get(StringStorage.SNAPSHOT_NEXT_FILE_PATH),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Files.deleteIfExists(Paths.get(StringStorage.JOURNAL_COMPACTING_FILE_PATH));
+                SnapshotFileHandler.moveIntoPlace(Paths.get(StringStorage.SNAPSHOT_NEXT_FILE_PATH),
+                        Paths.get(StringStorage.SAVE_FILE_PATH));
+            }
+        } catch (IOException e) {
+            System.out.println(StringStorage.COMPACTION_ERROR_MESSAGE + ": " + e.getMessage());
+        } finally {
+            isCompacting = false;
+        }
+    }
+
+    /**
+     * Discards the journal after the whole task list has been written to the save file.
+     *
+     * <p>
+     * Used when the save file is rewritten in full, e.g. after it has gone missing,
+     * so that the journal is not replayed on top of a snapshot that already contains it.
+     * </p>
+     *
+     * @throws IOException if the journal cannot be deleted
+     */
+    public static synchronized void discardJournal() throws IOException {
+        synchronized (SNAPSHOT_LOCK) {
+            snapshotGeneration++;
+            Files.deleteIfExists(Paths.get(StringStorage.JOURNAL_FILE_PATH));
+            Files.deleteIfExists(Paths.get(StringStorage.JOURNAL_COMPACTING_FILE_PATH));
+            Files.deleteIfExists(Paths.get(StringStorage.SNAPSHOT_NEXT_FILE_PATH));
+        }
+        journalSizeInBytes = 0;
+    }
+
+    /**
+     * Waits for a running compaction to finish, so the save file is up-to-date before exiting.
+     */
+    public static void awaitCompaction() {
+        compactionExecutor.shutdown();
+        try {
+            compactionExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Completes or rolls back a compaction that was interrupted, before the save file is loaded.
+     *
+     * <p>
+     * If the "next" snapshot exists without a compacting journal, it is complete and replaces the save file.
+     * If both exist, the snapshot may be incomplete, so it is discarded and the compacting journal is kept.
+     * </p>
+     *
+     * @throws IOException if the interrupted compaction cannot be resolved
+     */
+    public static void recoverInterruptedCompaction() throws IOException {
+        Path nextSnapshot = Paths.get(StringStorage.SNAPSHOT_NEXT_FILE_PATH);
+        Path compactingJournal = Paths.get(StringStorage.JOURNAL_COMPACTING_FILE_PATH);
+        if (!Files.exists(nextSnapshot)) {
+            return;
+        }
+        if (Files.exists(compactingJournal)) {
+            Files.delete(nextSnapshot);
+        } else {
+            SnapshotFileHandler.moveIntoPlace(nextSnapshot, Paths.get(StringStorage.SAVE_FILE_PATH));
+        }
+    }
+    /**
+     * Replays the compacting journal (if left over) and then the journal, on top of the loaded snapshot.
+     *
+     * <p>
+     * A left over compacting journal means the previous compaction was interrupted,
+     * so it is restarted from the state right after the compacting journal is replayed.
+     * </p>
+     *
+     * @param taskHandler       the handler holding the tasks loaded from the snapshot
+     * @param isWithLegacyDates whether the snapshot, and so the journals written after it,
+     *                          store dates in the legacy storage patterns
+     * @return the number of invalid journal records encountered
+     * @throws FileNotFoundException if a journal file disappears while being read
+     */
+    public static int replayJournals(TaskHandler taskHandler, boolean isWithLegacyDates)
+            throws FileNotFoundException {
+        int invalidRecordCount = 0;
+        File compactingJournal = new File(StringStorage.JOURNAL_COMPACTING_FILE_PATH);
+        if (compactingJournal.exists()) {
+            invalidRecordCount += replayJournal(taskHandler, compactingJournal, isWithLegacyDates);
+            submitCompaction(taskHandler.tasksToString(), taskHandler.getNextTaskId());
+        }
+        File journal = new File(StringStorage.JOURNAL_FILE_PATH);
+        if (journal.exists()) {
+            invalidRecordCount += replayJournal(taskHandler, journal, isWithLegacyDates);
+            journalSizeInBytes = journal.length();
+        }
+        return invalidRecordCount;
+    }
+    /**
+     * Applies every record in a journal file to the task list, in order.
+     *
+     * @param taskHandler the handler managing the task list
+     * @param journal           the journal file to replay
+     * @param isWithLegacyDates whether the dates are in the legacy storage patterns
+     * @return the number of invalid journal records encountered
+     * @throws FileNotFoundException if the journal file is not found
+     */
+    private static int replayJournal(TaskHandler taskHandler, File journal, boolean isWithLegacyDates)
+            throws FileNotFoundException {
+        int invalidRecordCount = 0;
+        Scanner scanner = new Scanner(journal);
+        while (scanner.hasNextLine()) {
+            String record = scanner.nextLine();
+            try {
+                replayRecord(taskHandler, record, isWithLegacyDates);
+            } catch (YapperException e) {
+                System.out.println("skipping invalid journal record: " + record + ", because " + e.getMessage());
+                invalidRecordCount++;
+            }
+        }
+        scanner.close();
+        return invalidRecordCount;
+    }
+    /**
+     * Applies a single journal record to the task list.
+     *
+     * @param taskHandler the handler managing the task list
+     * @param record            the journal record
+     * @param isWithLegacyDates whether the dates are in the legacy storage patterns
+     * @throws YapperException if the record is invalid
+     */
+    private static void replayRecord(TaskHandler taskHandler, String record, boolean isWithLegacyDates)
+            throws YapperException {
+        String[] recordParts = record.split(StringStorage.SPLIT_USING_DELIMITER, 2);
+        if (recordParts.length < 2) {
+            throw new YapperException("invalid journal record format, missing fields");
+        }
+        String recordType = recordParts[0].trim();
+        String recordArgs = recordParts[1].trim();
+
+        if (recordType.equals(StringStorage.JOURNAL_ADD)) {
+            taskHandler.addTask(InputFileHandler.loadTask(recordArgs, isWithLegacyDates));
+            return;
+        }
+        if (recordType.equals(StringStorage.JOURNAL_RESTORE)) {
+            replayRestoreRecord(taskHandler, recordArgs, isWithLegacyDates);
+            return;
+        }
+        if (recordType.equals(StringStorage.JOURNAL_NEXT_TASK_ID)) {
+            try {
+                taskHandler.reserveTaskIds(Long.parseLong(recordArgs));
+            } catch (NumberFormatException e) {
+                throw new YapperException("invalid next task ID in journal record");
+            }
+            return;
+        }
+
+        int taskOrdinal;
+        try {
+            taskOrdinal = Integer.parseInt(recordArgs);
+        } catch (NumberFormatException e) {
+            throw new YapperException("invalid task ordinal in journal record");
+        }
+        ExceptionHandler.checkIfTaskOrdinalIsOutOfRange(taskHandler.getCurrTaskTotal(), taskOrdinal);
+        switch (recordType) {
+        case StringStorage.JOURNAL_DELETE:
+            taskHandler.deleteTask(taskOrdinal);
+            break;
+        case StringStorage.JOURNAL_MARK:
+        case StringStorage.JOURNAL_UNMARK:
+            Task task = taskHandler.getTaskAtOrdinal(taskOrdinal);
+            taskHandler.updateTaskStatus(task, recordType.equals(StringStorage.JOURNAL_MARK));
+            break;
+        default:
+            throw new YapperException("Yapper does not know how to replay this journal record. ");
+        }
+    }
+    /**
+     * Puts a task back at the ordinal in a RESTORE record, e.g. "3 | 12 | T | X | desc".
+     */
+    private static void replayRestoreRecord(TaskHandler taskHandler, String recordArgs, boolean isWithLegacyDates)
+            throws YapperException {
+        String[] restoreParts = recordArgs.split(StringStorage.SPLIT_USING_DELIMITER, 2);
+        if (restoreParts.length < 2) {
+            throw new YapperException("invalid journal record format, missing fields");
+        }
+        int taskOrdinal;
+        try {
+            taskOrdinal = Integer.parseInt(restoreParts[0].trim());
+        } catch (NumberFormatException e) {
+            throw new YapperException("invalid task ordinal in journal record");
+        }
+        ExceptionHandler.checkIfTaskOrdinalIsOutOfRange(taskHandler.getCurrTaskTotal() + 1, taskOrdinal);
+        Task task = InputFileHandler.loadTask(restoreParts[1].trim(), isWithLegacyDates);
+        if (taskHandler.getTaskById(task.getTaskId()) != null) {
+            throw new YapperException("task ID in journal record is already in use");
+        }
+        taskHandler.insertTasks(new int[] {taskOrdinal}, List.of(task));
+    }
+}
@@ -0,0 +1,685 @@
+package yapper.io;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import yapper.exceptions.YapperException;
+import yapper.tasks.Task;
+import yapper.tasks.TaskDateIndex;
+import yapper.tasks.TaskHandler;
+import yapper.tasks.TaskWordTrie;
+
+/**
+ * A task list that is loaded lazily from a memory-mapped text save file.
+ *
+ * <p>
+ * On startup, only the offsets of the lines in the save file are indexed.
+ * A line is turned into a {@code Task} only when it is accessed, e.g. by
+ * {@code getTaskAtOrdinal} or a listing, and the result is kept in a bounded cache.
+ * </p>
+ *
+ * <p>
+ * The ID of each line is read while indexing, and lines written before task IDs were stored
+ * are given one after every line has been indexed, so the IDs never clash.
+ * Finding a task by ID or ordinal takes a linear scan in this task list.
+ * </p>
+ *
+ * <p>
+ * The lines of a save file written before the snapshot header are parsed with legacy dates,
+ * and stored again as parsed rather than copied, see {@code tasksToString}.
+ * </p>
+ *
+ * <p>
+ * Tasks that are added or have their status changed are pinned in memory,
+ * since their save file line no longer describes them.
+ * The mapped file must not be rewritten in place while it is mapped,
+ * which is why lazy loading is only used together with journal mode.
+ * </p>
+ *
+ */
+public class MappedTaskHandler extends TaskHandler {
+    /**
+     * The maximum number of parsed tasks kept in the cache.
+     */
+    private static final int CACHE_CAPACITY = 4096;
+    private static final int NO_RECORD = -1;
+    /**
+     * The most digits a task ID can have without overflowing a long.
+     */
+    private static final int MAX_TASK_ID_DIGITS = 18;
+
+    private MappedByteBuffer mappedFile;
+    /**
+     * The start and end (exclusive) byte offsets of each valid line in the save file, after its task ID.
+     */
+    private int[] recordStarts = new int[0];
+    private int[] recordEnds = new int[0];
+    /**
+     * The task ID of each valid line in the save file.
+     */
+    private long[] recordIds = new long[0];
+    private long nextTaskId = 1;
+    private int newTaskIdTotal = 0;
+    /**
+     * Whether the lines of the mapped save file store their dates in the legacy storage patterns.
+     */
+    private boolean isWithLegacyDates = false;
+    /**
+     * For each task ordinal, the index of its save file line, or {@code NO_RECORD} if it is pinned.
+     */
+    private int[] ordinalToRecord = new int[16];
+    /**
+     * For each task ordinal, the task pinned in memory, or null if it is loaded from its save file line.
+     */
+    private Task[] pinnedTasks = new Task[16];
+    private int taskTotal = 0;
+    /**
+     * Parsed tasks, keyed by the index of their save file line, evicting the least recently used.
+     */
+    private final Map<Integer, Task> parsedTaskCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Task> eldest) {
+            return size() > CACHE_CAPACITY;
+        }
+    };
+
+
+    /**
+     * Maps the save file and indexes the offsets of its lines, without parsing any task.
+     *
+     * <p>
+     * Each line is checked for the right shape while indexing; lines that are not
+     * are parsed in full once, only to report why they are skipped.
+     * </p>
+     *
+     * @param saveFilePath      the path of the text save file
+     * @param isWithLegacyDates whether the dates are in the legacy storage patterns
+     * @return the number of invalid tasks encountered
+     * @throws IOException if the save file cannot be mapped
+     */
+    public int mapSaveFile(String saveFilePath, boolean isWithLegacyDates) throws IOException {
+        this.isWithLegacyDates = isWithLegacyDates;
+        try (FileChannel channel = FileChannel.open(Paths.get(saveFilePath), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Save file is too large to be mapped: " + channel.size() + " bytes");
+            }
+            mappedFile = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        int invalidTaskCount = 0;
+        int recordTotal = 0;
+        int fileSize = mappedFile.limit();
+        int lineStart = 0;
+        while (lineStart < fileSize) {
+            int lineEnd = lineStart;
+            while (lineEnd < fileSize && mappedFile.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int contentEnd = lineEnd > lineStart && mappedFile.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+
+            if (isFooter(lineStart, contentEnd) || isHeader(lineStart, contentEnd)) {
+                lineStart = lineEnd + 1;
+                continue;
+            }
+            int bodyStart = skipTaskId(lineStart, contentEnd);
+            if (bodyStart >= 0 && (isWellFormedRecord(bodyStart, contentEnd)
+                    || isValidAfterFullParse(lineStart, contentEnd))) {
+                if (recordTotal == recordStarts.length) {
+                    recordStarts = Arrays.copyOf(recordStarts, Math.max(16, recordTotal * 2));
+                    recordEnds = Arrays.copyOf(recordEnds, recordStarts.length);
+                    recordIds = Arrays.copyOf(recordIds, recordStarts.length);
+                }
+                recordStarts[recordTotal] = bodyStart;
+                recordEnds[recordTotal] = contentEnd;
+                recordIds[recordTotal] = bodyStart == lineStart ? Task.NO_TASK_ID : parseTaskId(lineStart);
+                nextTaskId = Math.max(nextTaskId, recordIds[recordTotal] + 1);
+                appendOrdinal(recordTotal, null);
+                recordTotal++;
+            } else {
+                invalidTaskCount++;
+            }
+            lineStart = lineEnd + 1;
+        }
+        giveNewTaskIds(recordTotal);
+        return invalidTaskCount;
+    }
+    private boolean isFooter(int lineStart, int contentEnd) {
+        return startsWith(lineStart, contentEnd, StringStorage.SNAPSHOT_FOOTER_MARKER);
+    }
+    private boolean isHeader(int lineStart, int contentEnd) {
+        return (contentEnd - lineStart == StringStorage.SNAPSHOT_HEADER.length()
+                && startsWith(lineStart, contentEnd, StringStorage.SNAPSHOT_HEADER))
+                || startsWith(lineStart, contentEnd, StringStorage.SNAPSHOT_NEXT_TASK_ID_MARKER);
+    }
+    private boolean startsWith(int lineStart, int contentEnd, String prefix) {
+        if (contentEnd - lineStart < prefix.length()) {
+            return false;
+        }
+        for (int index = 0; index < prefix.length(); index++) {
+            if (mappedFile.get(lineStart + index) != prefix.charAt(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    /**
+     * Gives each line without a task ID, or with one already used by an earlier line, the next unused ID.
+     *
+     * @param recordTotal the number of valid lines
+     */
+    private void giveNewTaskIds(int recordTotal) {
+        Set<Long> usedTaskIds = new HashSet<>();
+        for (int recordIndex = 0; recordIndex < recordTotal; recordIndex++) {
+            if (recordIds[recordIndex] == Task.NO_TASK_ID || !usedTaskIds.add(recordIds[recordIndex])) {
+                recordIds[recordIndex] = nextTaskId++;
+                usedTaskIds.add(recordIds[recordIndex]);
+                newTaskIdTotal++;
+            }
+        }
+    }
+
+
+    @Override
+    public List<Task> getAllTasks() {
+        return new AbstractList<>() {
+            @Override
+            public Task get(int taskOrdinal) {
+                return getTaskAtOrdinal(taskOrdinal);
+            }
+            @Override
+            public int size() {
+                return taskTotal;
+            }
+        };
+    }
+    @Override
+    public int getCurrTaskTotal() {
+        return taskTotal;
+    }
+    @Override
+    public boolean isEmpty() {
+        return taskTotal == 0;
+    }
+    @Override
+    public Task getTaskAtOrdinal(int taskOrdinal) {
+        if (taskOrdinal < 0 || taskOrdinal >= taskTotal) {
+            throw new IndexOutOfBoundsException("Task ordinal " + taskOrdinal + " out of range " + taskTotal);
+        }
+        if (pinnedTasks[taskOrdinal] != null) {
+            return pinnedTasks[taskOrdinal];
+        }
+        int recordIndex = ordinalToRecord[taskOrdinal];
+        Task task = parsedTaskCache.get(recordIndex);
+        if (task == null) {
+            task = parseRecord(recordIndex);
+            parsedTaskCache.put(recordIndex, task);
+        }
+        return task;
+    }
+    @Override
+    public Task getTaskById(long taskId) {
+        for (int ordinal = 0; ordinal < taskTotal; ordinal++) {
+            long ordinalTaskId = pinnedTasks[ordinal] != null
+                    ? pinnedTasks[ordinal].getTaskId()
+                    : recordIds[ordinalToRecord[ordinal]];
+            if (ordinalTaskId == taskId) {
+                return getTaskAtOrdinal(ordinal);
+            }
+        }
+        return null;
+    }
+    @Override
+    public int getNewTaskIdTotal() {
+        return newTaskIdTotal;
+    }
+    @Override
+    public long getNextTaskId() {
+        return nextTaskId;
+    }
+    @Override
+    public void reserveTaskIds(long storedNextTaskId) {
+        nextTaskId = Math.max(nextTaskId, storedNextTaskId);
+    }
+    @Override
+    public int getOrdinalOf(Task task) {
+        for (int ordinal = 0; ordinal < taskTotal; ordinal++) {
+            if (pinnedTasks[ordinal] == task
+                    || pinnedTasks[ordinal] == null && parsedTaskCache.get(ordinalToRecord[ordinal]) == task) {
+                return ordinal;
+            }
+        }
+        return -1;
+    }
+    /**
+     * Returns the ordinals of the tasks whose description contains the query, in ascending order.
+     *
+     * <p>
+     * Lazily loaded tasks are not in the search index, since indexing them would mean parsing them all,
+     * so every task is checked instead.
+     * </p>
+     *
+     * @param query the string to search for in task descriptions
+     * @return the ordinals of the matching tasks
+     */
+    @Override
+    public List<Integer> findOrdinalsContaining(String query) {
+        List<Integer> taskOrdinals = new ArrayList<>();
+        for (int ordinal = 0; ordinal < taskTotal; ordinal++) {
+            if (getTaskAtOrdinal(ordinal).getDesc().contains(query)) {
+                taskOrdinals.add(ordinal);
+            }
+        }
+        return taskOrdinals;
+    }
+    @Override
+    public List<Integer> findOrdinalsDueBetween(long from, long to) {
+        List<Integer> taskOrdinals = new ArrayList<>();
+        for (int ordinal = 0; ordinal < taskTotal; ordinal++) {
+            long[] interval = TaskDateIndex.getInterval(getTaskAtOrdinal(ordinal));
+            if (interval != null && interval[1] >= from && interval[1] <= to) {
+                taskOrdinals.add(ordinal);
+            }
+        }
+        return taskOrdinals;
+    }
+    @Override
+    public List<Integer> findOrdinalsOverlapping(long from, long to) {
+        List<Integer> taskOrdinals = new ArrayList<>();
+        for (int ordinal = 0; ordinal < taskTotal; ordinal++) {
+            long[] interval = TaskDateIndex.getInterval(getTaskAtOrdinal(ordinal));
+            if (interval != null && interval[0] <= to && interval[1] >= from) {
+                taskOrdinals.add(ordinal);
+            }
+        }
+        return taskOrdinals;
+    }
+    /**
+     * Returns the ordinals of the tasks with a word starting with the prefix, in ascending order.
+     * Every task is checked, for the same reason as in {@code findOrdinalsContaining}.
+     *
+     * @param prefix the start of a word
+     * @return the ordinals of the matching tasks
+     */
+    @Override
+    public List<Integer> findOrdinalsWithWordPrefix(String prefix) {
+        String normalizedPrefix = TaskWordTrie.normalize(prefix);
+        List<Integer> taskOrdinals = new ArrayList<>();
+        for (int ordinal = 0; ordinal < taskTotal; ordinal++) {
+            if (TaskWordTrie.hasWordWithPrefix(getTaskAtOrdinal(ordinal).getDesc(), normalizedPrefix)) {
+                taskOrdinals.add(ordinal);
+            }
+        }
+        return taskOrdinals;
+    }
+    @Override
+    public List<String> completeWord(String prefix, int limit) {
+        String normalizedPrefix = TaskWordTrie.normalize(prefix);
+        Map<String, Integer> taskTotalsByWord = new HashMap<>();
+        for (int ordinal = 0; ordinal < taskTotal; ordinal++) {
+            TaskWordTrie.countWordsWithPrefix(getTaskAtOrdinal(ordinal).getDesc(), normalizedPrefix, 1,
+                    taskTotalsByWord);
+        }
+        return TaskWordTrie.rankWords(taskTotalsByWord, limit);
+    }
+    /**
+     * Returns {@code false}, since the word trie would have to parse every task to be built.
+     */
+    @Override
+    public boolean keepsWordTrie() {
+        return false;
+    }
+    /**
+     * Returns {@code false}, since reading a task parses it and stores it in the parsed task cache,
+     * so the task list cannot be read from many threads at once.
+     */
+    @Override
+    public boolean prepareForConcurrentReads() {
+        return false;
+    }
+
+    /**
+     * Adds a new task to the list, giving it the next unused ID if it has none.
+     *
+     * @param task the Task to be added
+     */
+    @Override
+    public void addTask(Task task) {
+        if (task.getTaskId() <= Task.NO_TASK_ID) {
+            task.setTaskId(nextTaskId);
+            newTaskIdTotal++;
+        }
+        nextTaskId = Math.max(nextTaskId, task.getTaskId() + 1);
+        appendOrdinal(NO_RECORD, task);
+    }
+    @Override
+    public void deleteTask(int taskOrdinal) {
+        int tailLength = taskTotal - taskOrdinal - 1;
+        System.arraycopy(ordinalToRecord, taskOrdinal + 1, ordinalToRecord, taskOrdinal, tailLength);
+        System.arraycopy(pinnedTasks, taskOrdinal + 1, pinnedTasks, taskOrdinal, tailLength);
+        taskTotal--;
+        pinnedTasks[taskTotal] = null;
+    }
+    /**
+     * Puts tasks back into the list at the given ordinals, e.g. to undo their deletion, pinning them,
+     * in one pass that moves every other task along to make room.
+     *
+     * @param taskOrdinals the ordinals the tasks end up at, in ascending order without repeats
+     * @param tasks the tasks to put back, in the same order
+     */
+    @Override
+    public void insertTasks(int[] taskOrdinals, List<Task> tasks) {
+        int newTaskTotal = taskTotal + tasks.size();
+        int capacity = Math.max(ordinalToRecord.length, newTaskTotal);
+        int[] oldOrdinalToRecord = ordinalToRecord;
+        Task[] oldPinnedTasks = pinnedTasks;
+        ordinalToRecord = new int[capacity];
+        pinnedTasks = new Task[capacity];
+        int oldOrdinal = 0;
+        int nextInserted = 0;
+        for (int ordinal = 0; ordinal < newTaskTotal; ordinal++) {
+            if (nextInserted < taskOrdinals.length && taskOrdinals[nextInserted] == ordinal) {
+                Task task = tasks.get(nextInserted++);
+                nextTaskId = Math.max(nextTaskId, task.getTaskId() + 1);
+                ordinalToRecord[ordinal] = NO_RECORD;
+                pinnedTasks[ordinal] = task;
+            } else {
+                ordinalToRecord[ordinal] = oldOrdinalToRecord[oldOrdinal];
+                pinnedTasks[ordinal] = oldPinnedTasks[oldOrdinal];
+                oldOrdinal++;
+            }
+        }
+        taskTotal = newTaskTotal;
+    }
+    /**
+     * Deletes the tasks at the given ordinals in one pass, moving each remaining task down only once.
+     *
+     * @param taskOrdinals the ordinals of the tasks to delete, in ascending order without repeats
+     * @return the deleted tasks, in ordinal order
+     */
+    @Override
+    public List<Task> deleteTasks(int[] taskOrdinals) {
+        List<Task> deletedTasks = new ArrayList<>(taskOrdinals.length);
+        int nextDeleted = 0;
+        int liveOrdinal = 0;
+        for (int ordinal = 0; ordinal < taskTotal; ordinal++) {
+            if (nextDeleted < taskOrdinals.length && ordinal == taskOrdinals[nextDeleted]) {
+                deletedTasks.add(getTaskAtOrdinal(ordinal));
+                nextDeleted++;
+                continue;
+            }
+            ordinalToRecord[liveOrdinal] = ordinalToRecord[ordinal];
+            pinnedTasks[liveOrdinal] = pinnedTasks[ordinal];
+            liveOrdinal++;
+        }
+        Arrays.fill(pinnedTasks, liveOrdinal, taskTotal, null);
+        taskTotal = liveOrdinal;
+        return deletedTasks;
+    }
+    /**
+     * Updates the completion status of a specified task, pinning it so the change is not evicted.
+     *
+     * @param task the Task to update
+     * @param isDone the new completion status
+     */
+    @Override
+    public void updateTaskStatus(Task task, boolean isDone) {
+        task.setDoneStatus(isDone);
+        int taskOrdinal = getOrdinalOf(task);
+        if (taskOrdinal != -1 && pinnedTasks[taskOrdinal] == null) {
+            parsedTaskCache.remove(ordinalToRecord[taskOrdinal]);
+            pinnedTasks[taskOrdinal] = task;
+            ordinalToRecord[taskOrdinal] = NO_RECORD;
+        }
+    }
+    /**
+     * Updates the completion status of the tasks at the given ordinals, pinning each changed task
+     * without searching for its ordinal.
+     *
+     * @param taskOrdinals the ordinals of the tasks to update, in ascending order without repeats
+     * @param isDone the new completion status
+     * @return the ordinals of the tasks whose status changed, in ascending order
+     */
+    @Override
+    public int[] updateTasksStatus(int[] taskOrdinals, boolean isDone) {
+        int[] changedOrdinals = new int[taskOrdinals.length];
+        int changedTotal = 0;
+        for (int taskOrdinal : taskOrdinals) {
+            Task task = getTaskAtOrdinal(taskOrdinal);
+            if (task.isDone() == isDone) {
+                continue;
+            }
+            task.setDoneStatus(isDone);
+            if (pinnedTasks[taskOrdinal] == null) {
+                parsedTaskCache.remove(ordinalToRecord[taskOrdinal]);
+                pinnedTasks[taskOrdinal] = task;
+                ordinalToRecord[taskOrdinal] = NO_RECORD;
+            }
+            changedOrdinals[changedTotal++] = taskOrdinal;
+        }
+        return Arrays.copyOf(changedOrdinals, changedTotal);
+    }
+
+    /**
+     * Converts the list of tasks into string representations, copying unchanged lines
+     * straight from the save file instead of parsing them,
+     * unless their dates are in the legacy storage patterns.
+     *
+     * @return an {@code ArrayList<String>} containing the string representations of all tasks.
+     */
+    @Override
+    public ArrayList<String> tasksToString() {
+        ArrayList<String> taskAsStrings = new ArrayList<>(taskTotal);
+        for (int ordinal = 0; ordinal < taskTotal; ordinal++) {
+            if (pinnedTasks[ordinal] != null) {
+                taskAsStrings.add(pinnedTasks[ordinal].taskToSaveString());
+            } else if (isWithLegacyDates) {
+                taskAsStrings.add(parseRecord(ordinalToRecord[ordinal]).taskToSaveString());
+            } else {
+                taskAsStrings.add(recordIds[ordinalToRecord[ordinal]] + " "
+                        + StringStorage.COMBINE_USING_DELIMITER + " "
+                        + getRecordString(ordinalToRecord[ordinal]));
+            }
+        }
+        return taskAsStrings;
+    }
+
+
+    private void appendOrdinal(int recordIndex, Task pinnedTask) {
+        if (taskTotal == ordinalToRecord.length) {
+            ordinalToRecord = Arrays.copyOf(ordinalToRecord, taskTotal * 2);
+            pinnedTasks = Arrays.copyOf(pinnedTasks, taskTotal * 2);
+        }
+        ordinalToRecord[taskTotal] = recordIndex;
+        pinnedTasks[taskTotal] = pinnedTask;
+        taskTotal++;
+    }
+    private String getRecordString(int recordIndex) {
+        return getString(recordStarts[recordIndex], recordEnds[recordIndex]);
+    }
+    private String getString(int start, int end) {
+        byte[] lineBytes = new byte[end - start];
+        mappedFile.get(start, lineBytes);
+        return new String(lineBytes, StandardCharsets.UTF_8);
+    }
+    /**
+     * Parses a save file line that was already found to be well-formed while indexing.
+     *
+     * @param recordIndex the index of the save file line
+     * @return the parsed task
+     */
+    private Task parseRecord(int recordIndex) {
+        try {
+            Task task = InputFileHandler.loadTask(getRecordString(recordIndex), isWithLegacyDates);
+            task.setTaskId(recordIds[recordIndex]);
+            return task;
+        } catch (YapperException e) {
+            throw new IllegalStateException("Indexed save file line became invalid: " + e.getMessage());
+        }
+    }
+
+
+    /**
+     * Parses a line that failed the quick shape check, reporting why it is skipped if it is invalid.
+     *
+     * @param start the start offset of the line
+     * @param end   the end offset of the line, exclusive
+     * @return true if the line turned out to be a valid task after all
+     */
+    private boolean isValidAfterFullParse(int start, int end) {
+        String taskData = getString(start, end);
+        try {
+            InputFileHandler.loadTask(taskData, isWithLegacyDates);
+            return true;
+        } catch (YapperException e) {
+            System.out.println("skipping invalid task: " + e.getMessage());
+        } catch (IndexOutOfBoundsException e) {
+            System.out.println("skipping invalid task: " + taskData + ", because invalid task format, missing fields");
+        }
+        return false;
+    }
+    /**
+     * Returns where a line's fields start after its task ID, without creating any objects.
+     *
+     * @param start the start offset of the line
+     * @param end   the end offset of the line, exclusive
+     * @return the offset of the first field after the delimiter following the task ID,
+     *         the start of the line if it has no task ID, or -1 if the task ID is malformed
+     */
+    private int skipTaskId(int start, int end) {
+        int index = start;
+        while (index < end && mappedFile.get(index) == ' ') {
+            index++;
+        }
+        int digitsStart = index;
+        while (index < end && index - digitsStart <= MAX_TASK_ID_DIGITS && isDigitByte(mappedFile.get(index))) {
+            index++;
+        }
+        if (index == digitsStart) {
+            return start;
+        }
+        if (index - digitsStart > MAX_TASK_ID_DIGITS) {
+            return -1;
+        }
+        int delimiterIndex = indexOfDelimiter(index, end);
+        if (delimiterIndex == end || !isBlank(index, delimiterIndex)) {
+            return -1;
+        }
+        index = delimiterIndex + 1;
+        while (index < end && mappedFile.get(index) == ' ') {
+            index++;
+        }
+        return index;
+    }
+    /**
+     * Reads the task ID at the start of a line that {@code skipTaskId} found to have one.
+     */
+    private long parseTaskId(int start) {
+        int index = start;
+        while (mappedFile.get(index) == ' ') {
+            index++;
+        }
+        long taskId = 0;
+        while (index < mappedFile.limit() && isDigitByte(mappedFile.get(index))) {
+            taskId = taskId * 10 + (mappedFile.get(index) - '0');
+            index++;
+        }
+        return taskId;
+    }
+    private static boolean isDigitByte(byte value) {
+        return value >= '0' && value <= '9';
+    }
+    /**
+     * Checks, without creating any objects, that a line has the fields {@code InputFileHandler.loadTask} requires:
+     * a valid type symbol, a valid status symbol, and non-blank description and dates.
+     *
+     * @param start the start offset of the line
+     * @param end   the end offset of the line, exclusive
+     * @return true if the line is well-formed
+     */
+    private boolean isWellFormedRecord(int start, int end) {
+        int typeEnd = indexOfDelimiter(start, end);
+        int statusEnd = indexOfDelimiter(typeEnd + 1, end);
+        if (statusEnd == end) {
+            return false;
+        }
+        byte type = getSingleSymbol(start, typeEnd);
+        byte status = getSingleSymbol(typeEnd + 1, statusEnd);
+        if (status != StringStorage.SYMBOL_IS_DONE.charAt(0) && status != StringStorage.SYMBOL_NOT_DONE.charAt(0)) {
+            return false;
+        }
+
+        int fieldsStart = statusEnd + 1;
+        int fieldsRequired;
+        if (type == StringStorage.SYMBOL_TODO.charAt(0)) {
+            return !isBlank(fieldsStart, end);
+        } else if (type == StringStorage.SYMBOL_DEADLINE.charAt(0)) {
+            fieldsRequired = 2;
+        } else if (type == StringStorage.SYMBOL_EVENT.charAt(0)) {
+            fieldsRequired = 3;
+        } else {
+            return false;
+        }
+        int fieldStart = fieldsStart;
+        for (int field = 0; field < fieldsRequired; field++) {
+            if (fieldStart > end) {
+                return false;
+            }
+            int fieldEnd = indexOfDelimiter(fieldStart, end);
+            if (isBlank(fieldStart, fieldEnd)) {
+                return false;
+            }
+            fieldStart = fieldEnd + 1;
+        }
+        return true;
+    }
+    private int indexOfDelimiter(int from, int end) {
+        int index = from;
+        while (index < end && mappedFile.get(index) != StringStorage.COMBINE_USING_DELIMITER.charAt(0)) {
+            index++;
+        }
+        return index;
+    }
+    /**
+     * Returns the only non-blank byte between the offsets, or 0 if there is not exactly one.
+     */
+    private byte getSingleSymbol(int start, int end) {
+        byte symbol = 0;
+        for (int index = start; index < end; index++) {
+            byte current = mappedFile.get(index);
+            if (!isBlankByte(current)) {
+                if (symbol != 0) {
+                    return 0;
+                }
+                symbol = current;
+            }
+        }
+        return symbol;
+    }
+    private boolean isBlank(int start, int end) {
+        for (int index = start; index < end; index++) {
+            if (!isBlankByte(mappedFile.get(index))) {
+                return false;
+            }
+        }
+        return true;
+    }
+    /**
+     * Matches what {@code String.trim} removes; bytes of multi-byte UTF-8 characters are never blank.
+     */
+    private static boolean isBlankByte(byte value) {
+        return (value & 0xFF) <= ' ';
+    }
+}
@@ -0,0 +1,32 @@
+package yapper.io;
+
+import java.io.IOException;
+
+import yapper.tasks.TaskHandler;
+
+/**
+ * The text save format for Yapper, memory-mapped and parsed lazily.
+ *
+ * <p>
+ * Tasks are loaded into a {@code MappedTaskHandler}, which only indexes the lines of the save file
+ * on startup and parses each one when it is first used.
+ * Since the mapped save file must not be rewritten in place, this format is used with journal mode,
+ * where the save file is only ever replaced by moving a new file over it.
+ * </p>
+ *
+ */
+public class MappedTextTaskStorage extends TextTaskStorage {
+
+    @Override
+    public TaskHandler createTaskHandler() {
+        return new MappedTaskHandler();
+    }
+
+    @Override
+    protected int loadSaveFile(TaskHandler taskHandler) throws IOException {
+        if (!(taskHandler instanceof MappedTaskHandler)) {
+            return super.loadSaveFile(taskHandler);
+        }
+        return ((MappedTaskHandler) taskHandler).mapSaveFile(getSaveFilePath(), isWithLegacyDates());
+    }
+}
@@ -1,13 +1,12 @@
 package yapper.io;
 
-import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.List;
 
 import yapper.exceptions.YapperException;
+import yapper.metrics.MetricsRegistry;
+import yapper.metrics.MetricsRegistry.FileOperation;
 import yapper.tasks.Task;
 import yapper.tasks.TaskHandler;
 
@@ -20,8 +19,40 @@ import yapper.tasks.TaskHandler;
  * and updating task statuses.
  * </p>
  *
+ * <p>
+ * The file layout itself is decided by the {@code TaskStorage} chosen in {@code FileHandler},
+ * e.g. the text format (optionally with a journal) or the binary format.
+ * </p>
+ *
+ * <p>
+ * If a single task change cannot be written because the save file or folder has been deleted,
+ * they are restored with every task instead, see {@code SaveFileWatcher}.
+ * </p>
+ *
+ * <p>
+ * Each operation is timed in the {@code MetricsRegistry}.
+ * </p>
+ *
+ * <p>
+ * While writes are deferred, e.g. during a batch, single task changes are not written at all,
+ * and the whole task list is expected to be stored with {@code storeAllTasks} afterwards.
+ * </p>
+ *
  */
 public class OutputFileHandler {
+    private static boolean isDeferringWrites = false;
+
+    /**
+     * Sets whether single task changes are left unwritten, until the whole task list is stored.
+     *
+     * @param isDeferringWrites {@code true} to defer writes, {@code false} to write every change
+     */
+    public static void setDeferringWrites(boolean isDeferringWrites) {
+        OutputFileHandler.isDeferringWrites = isDeferringWrites;
+    }
+    public static boolean isDeferringWrites() {
+        return isDeferringWrites;
+    }
 
     /**
      * Converts a list of tasks to strings and writes them to the file.
@@ -29,49 +60,67 @@ public class OutputFileHandler {
      * @throws YapperException if an error occurs during file operations
      */
     public static void storeAllTasks(TaskHandler taskHandler) throws YapperException {
+        long startTime = System.nanoTime();
         try {
-            convertArrayListToFile(taskHandler.tasksToString());
+            FileHandler.getTaskStorage().storeAllTasks(taskHandler);
         } catch (IOException e) {
             throw new YapperException(
                     StringStorage.SAVING_ERROR_MESSAGE
                             + "error occurred when saving tasks to file: \n"
                             + e.getMessage());
+        } finally {
+            MetricsRegistry.recordFileOperation(FileOperation.STORE_ALL, System.nanoTime() - startTime);
         }
     }
 
+
     /**
-     * Reads the content of a file line by line and
-     * stores each line in an {@code ArrayList<String>}.
+     * Writes the whole task list to the file once, after many tasks were changed at once,
+     * unless writes are being deferred, e.g. in a batch, which stores the list once it is done anyway.
      *
-     * @param file the {@code File} object representing the file to be read
-     * @return an {@code ArrayList<String>} containing the lines of the file
-     * @throws FileNotFoundException if the specified file does not exist or cannot be opened
+     * @param taskHandler      the task list
+     * @throws YapperException if an error occurs during file operations
      */
-    private static ArrayList<String> convertFileToArrayList(File file) throws FileNotFoundException {
-        Scanner scanner = new Scanner(file);
-        ArrayList<String> taskLines = new ArrayList<>();
-        while (scanner.hasNextLine()) {
-            taskLines.add(scanner.nextLine());
+    public static void storeChangedTasks(TaskHandler taskHandler) throws YapperException {
+        if (isDeferringWrites) {
+            return;
         }
-        scanner.close();
-        return taskLines;
+        storeAllTasks(taskHandler);
     }
     /**
-     * Writes the contents of an {@code ArrayList<String>} to a file,
-     * with each element written as a new line in the file.
+     * Stores tasks that were put back into the task list, e.g. when a delete is undone.
+     * A single task put back at the end is appended like an added task,
+     * and otherwise the save format decides how to store them.
      *
-     * @param taskLines the {@code ArrayList<String>} containing the lines to be written to the file
-     * @throws IOException if an I/O error occurs while writing to the file
+     * @param taskHandler      the task list
+     * @param taskOrdinals     the ordinals the tasks were put back at, in ascending order
+     * @param tasks            the tasks that were put back, in the same order
+     * @throws YapperException if an error occurs during file operations
      */
-    private static void convertArrayListToFile(ArrayList<String> taskLines) throws IOException {
-        FileWriter fileWriter = new FileWriter(StringStorage.SAVE_FILE_PATH);
-        for (String taskLine : taskLines) {
-            fileWriter.write(taskLine + "\n");
+    public static void storeRestoredTasks(TaskHandler taskHandler, int[] taskOrdinals, List<Task> tasks)
+            throws YapperException {
+        if (isDeferringWrites) {
+            return;
+        }
+        if (tasks.size() == 1 && taskOrdinals[0] == taskHandler.getCurrTaskTotal() - 1) {
+            storeAddedTask(tasks.get(0));
+            return;
+        }
+        long startTime = System.nanoTime();
+        try {
+            FileHandler.getTaskStorage().storeRestoredTasks(taskHandler, taskOrdinals, tasks);
+        } catch (IOException e) {
+            if (SaveFileWatcher.restoreAfterFailedWrite(taskHandler)) {
+                return;
+            }
+            throw new YapperException(
+                    StringStorage.SAVING_ERROR_MESSAGE
+                    + ", when putting tasks back in file: \n"
+                    + e.getMessage());
+        } finally {
+            MetricsRegistry.recordFileOperation(FileOperation.STORE_RESTORED, System.nanoTime() - startTime);
         }
-        fileWriter.close();
     }
-
-
     /**
      * Stores an added task to the file.
      *
@@ -79,20 +128,30 @@ public class OutputFileHandler {
      * @throws YapperException if an error occurs during file operations
      */
     public static void storeAddedTask(Task task) throws YapperException {
+        if (isDeferringWrites) {
+            return;
+        }
+        long startTime = System.nanoTime();
         try {
-            FileWriter fileWriter = new FileWriter(StringStorage.SAVE_FILE_PATH, true);
-            fileWriter.write(task.taskToString() + "\n");
-            fileWriter.close();
+            FileHandler.getTaskStorage().storeAddedTask(FileHandler.getTaskHandler(), task);
         } catch (FileNotFoundException e) {
+            if (SaveFileWatcher.restoreAfterFailedWrite(FileHandler.getTaskHandler())) {
+                return;
+            }
             throw new YapperException(
                     StringStorage.FILE_NOT_FOUND_ERROR_MESSAGE
                     + ", when adding task to file: \n"
                     + e.getMessage());
         } catch (IOException e) {
+            if (SaveFileWatcher.restoreAfterFailedWrite(FileHandler.getTaskHandler())) {
+                return;
+            }
             throw new YapperException(
                     StringStorage.SAVING_ERROR_MESSAGE
                     + ", when adding task to file: \n"
                     + e.getMessage());
+        } finally {
+            MetricsRegistry.recordFileOperation(FileOperation.STORE_ADDED, System.nanoTime() - startTime);
         }
     }
     /**
@@ -102,21 +161,30 @@ public class OutputFileHandler {
      * @throws YapperException if an error occurs during file operations
      */
     public static void unstoreDeletedTask(int taskOrdinal) throws YapperException {
+        if (isDeferringWrites) {
+            return;
+        }
+        long startTime = System.nanoTime();
         try {
-            File file = new File(StringStorage.SAVE_FILE_PATH);
-            ArrayList<String> taskLines = convertFileToArrayList(file);
-            taskLines.remove(taskOrdinal);
-            convertArrayListToFile(taskLines);
+            FileHandler.getTaskStorage().unstoreDeletedTask(FileHandler.getTaskHandler(), taskOrdinal);
         } catch (FileNotFoundException e) {
+            if (SaveFileWatcher.restoreAfterFailedWrite(FileHandler.getTaskHandler())) {
+                return;
+            }
             throw new YapperException(
                     StringStorage.FILE_NOT_FOUND_ERROR_MESSAGE
                     + ", when deleting task from file: \n"
                     + e.getMessage());
         } catch (IOException e) {
+            if (SaveFileWatcher.restoreAfterFailedWrite(FileHandler.getTaskHandler())) {
+                return;
+            }
             throw new YapperException(
                     StringStorage.SAVING_ERROR_MESSAGE
                     + ", when deleting task from file: \n"
                     + e.getMessage());
+        } finally {
+            MetricsRegistry.recordFileOperation(FileOperation.UNSTORE_DELETED, System.nanoTime() - startTime);
         }
     }
     /**
@@ -127,21 +195,37 @@ public class OutputFileHandler {
      * @throws YapperException if an error occurs during file operations
      */
     public static void amendTaskStatus(Task task, int taskOrdinal) throws YapperException {
+        if (isDeferringWrites) {
+            return;
+        }
+        long startTime = System.nanoTime();
         try {
-            File file = new File(StringStorage.SAVE_FILE_PATH);
-            ArrayList<String> taskLines = convertFileToArrayList(file);
-            taskLines.set(taskOrdinal, task.taskToString());
-            convertArrayListToFile(taskLines);
+            FileHandler.getTaskStorage().amendTaskStatus(FileHandler.getTaskHandler(), task, taskOrdinal);
         } catch (FileNotFoundException e) {
+            if (SaveFileWatcher.restoreAfterFailedWrite(FileHandler.getTaskHandler())) {
+                return;
+            }
             throw new YapperException(
                     StringStorage.FILE_NOT_FOUND_ERROR_MESSAGE
                     + ", when amending task status in file: \n"
                     + e.getMessage());
         } catch (IOException e) {
+            if (SaveFileWatcher.restoreAfterFailedWrite(FileHandler.getTaskHandler())) {
+                return;
+            }
             throw new YapperException(
                     StringStorage.SAVING_ERROR_MESSAGE
                     + ", when amending task status in file: \n"
                     + e.getMessage());
+        } finally {
+            MetricsRegistry.recordFileOperation(FileOperation.AMEND_STATUS, System.nanoTime() - startTime);
         }
     }
+    /**
+     * Saves the word trie of the task list in use next to its save file, if it was built,
+     * so it can be read back instead of built again the next time the list is loaded.
+     */
+    public static void storeWordTrie() {
+        WordTrieFileHandler.storeWordTrie(FileHandler.getTaskHandler(), FileHandler.getTaskStorage().getSaveFilePath());
+    }
 }
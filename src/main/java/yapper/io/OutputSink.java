@@ -0,0 +1,119 @@
+package yapper.io;
+
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Output Buffer for Yapper.
+ *
+ * <p>
+ * Collects the lines of one response in a reusable {@code StringBuilder},
+ * then writes them to standard output in a single write and flush.
+ * Printing each line separately makes the synchronized, line-flushed {@code System.out}
+ * write to the terminal once per line, which dominates the time taken to list a long task list.
+ * </p>
+ *
+ * <p>
+ * A thread can send its responses somewhere other than standard output, e.g. a server thread
+ * sending them to its client, by setting its own output with {@code setThreadOutput}.
+ * </p>
+ *
+ */
+public class OutputSink {
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    /**
+     * The largest buffer kept between responses, so one huge listing does not hold on to its memory.
+     */
+    private static final int MAX_RETAINED_CAPACITY = 1 << 20;
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    private static final ThreadLocal<PrintStream> THREAD_OUTPUT = new ThreadLocal<>();
+
+    private StringBuilder buffer = new StringBuilder(INITIAL_CAPACITY);
+    private boolean isHolding = false;
+
+
+    /**
+     * Adds a line to the response.
+     *
+     * @param line the line to add, without a line separator
+     * @return this sink, so lines can be chained
+     */
+    public OutputSink appendLine(String line) {
+        buffer.append(line).append(LINE_SEPARATOR);
+        return this;
+    }
+    /**
+     * Adds a task line to the response, with its ordinal as displayed to the user.
+     *
+     * @param displayedOrdinal the ordinal shown to the user, starting from 1
+     * @param taskDisplay      the task as returned by {@code taskToDisplay}
+     * @return this sink, so lines can be chained
+     */
+    public OutputSink appendOrdinalLine(int displayedOrdinal, String taskDisplay) {
+        buffer.append(displayedOrdinal).append('.').append(taskDisplay).append(LINE_SEPARATOR);
+        return this;
+    }
+
+    /**
+     * Sets whether flushing is held back, so that the response keeps growing until it is released,
+     * e.g. to print it only after a lock has been let go of.
+     *
+     * @param isHolding {@code true} to hold back flushing, {@code false} to flush normally again
+     */
+    public void setHolding(boolean isHolding) {
+        this.isHolding = isHolding;
+    }
+    /**
+     * Sets where the responses of the current thread are written, instead of standard output.
+     *
+     * @param output the stream to write to, or null to write to standard output again
+     * @return the stream the responses were written to before, or null if it was standard output
+     */
+    public static PrintStream setThreadOutput(PrintStream output) {
+        PrintStream previousOutput = THREAD_OUTPUT.get();
+        if (output == null) {
+            THREAD_OUTPUT.remove();
+        } else {
+            THREAD_OUTPUT.set(output);
+        }
+        return previousOutput;
+    }
+    /**
+     * Returns where the responses of the current thread are written.
+     *
+     * @return the stream set for the current thread, or standard output if there is none
+     */
+    public static PrintStream getOutput() {
+        PrintStream output = THREAD_OUTPUT.get();
+        return output != null ? output : System.out;
+    }
+
+    /**
+     * Writes the response to the current thread's output in one go, then empties the buffer for the next response.
+     *
+     * <p>
+     * The output is looked up on every flush, so redirecting standard output with {@code System.setOut} still works.
+     * If the write-behind queue is on, the response waits until this thread's changes are as durable
+     * as the durability level promises, and says so if saving them failed.
+     * </p>
+     */
+    public void flush() {
+        if (isHolding) {
+            return;
+        }
+        String saveFailure = WriteBehindPersister.awaitWritesOfThread();
+        if (saveFailure != null) {
+            appendLine(saveFailure);
+        }
+        PrintStream output = getOutput();
+        byte[] responseBytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        output.write(responseBytes, 0, responseBytes.length);
+        output.flush();
+
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            buffer = new StringBuilder(INITIAL_CAPACITY);
+        } else {
+            buffer.setLength(0);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package yapper.io;
 
+import java.util.List;
+
+import yapper.exceptions.YapperException;
 import yapper.tasks.Task;
 import yapper.tasks.TaskHandler;
 
@@ -12,8 +15,16 @@ import yapper.tasks.TaskHandler;
  * deleting tasks, and updating task statuses.
  * </p>
  *
+ * <p>
+ * Each response is built up in the current thread's {@code OutputSink} and printed in one go.
+ * </p>
+ *
  */
 public class OutputStringHandler {
+    /**
+     * One sink per thread, so responses to different clients of the server are not mixed up.
+     */
+    private static final ThreadLocal<OutputSink> SINKS = ThreadLocal.withInitial(OutputSink::new);
 
 
     /**
@@ -28,15 +39,15 @@ public class OutputStringHandler {
         return "  " + task.taskToDisplay(); // spacing is to be consistent with ordinal
     }
     /**
-     * Formats a task for display with an ordinal number.
+     * Adds a task to the response with an ordinal number.
      * Used for listing tasks with their ordinal positions, like in Find or List.
      *
+     * @param sink the sink holding the response
      * @param task the task to display
      * @param taskOrdinal the ordinal number of the task
-     * @return the formatted string representation of the task with its ordinal number
      */
-    private static String displayTaskWithOrdinal(Task task, int taskOrdinal) {
-        return (taskOrdinal + StringStorage.INDEX_OFFSET) + "." + task.taskToDisplay();
+    private static void appendTaskWithOrdinal(OutputSink sink, Task task, int taskOrdinal) {
+        sink.appendOrdinalLine(taskOrdinal + StringStorage.INDEX_OFFSET, task.taskToDisplay());
     }
 
 
@@ -48,23 +59,74 @@ public class OutputStringHandler {
      * @param query the string to search for in task descriptions
      */
     public static void printSelectedTasks(TaskHandler taskHandler, String query) {
-        System.out.println(StringStorage.LIST_RELEVANT_TASKS_STRING);
-
-        int totalTasksThatContainsQuery = 0;
-        for (Task task : taskHandler.getAllTasks()) {
-            if (task.getDesc().contains(query)) {
-                int ordinal = taskHandler.getOrdinalOf(task);
-                System.out.println(displayTaskWithOrdinal(task, ordinal));
-                totalTasksThatContainsQuery++;
-            }
+        printSelectedTasks(taskHandler, taskHandler.findOrdinalsContaining(query));
+    }
+    /**
+     * Prints the tasks at the given ordinals as the result of a search.
+     * Used in the "find" instruction, once the matching tasks are found.
+     *
+     * @param taskHandler the handler managing the task list
+     * @param ordinalsThatContainsQuery the ordinals of the matching tasks, in ascending order
+     */
+    public static void printSelectedTasks(TaskHandler taskHandler, List<Integer> ordinalsThatContainsQuery) {
+        OutputSink sink = SINKS.get();
+        sink.appendLine(StringStorage.LIST_RELEVANT_TASKS_STRING);
+
+        for (int ordinal : ordinalsThatContainsQuery) {
+            Task task = taskHandler.getTaskAtOrdinal(ordinal);
+            appendTaskWithOrdinal(sink, task, ordinal);
         }
+        int totalTasksThatContainsQuery = ordinalsThatContainsQuery.size();
 
         if (totalTasksThatContainsQuery > 0) {
-            System.out.println(
+            sink.appendLine(
                     totalTasksThatContainsQuery + StringStorage.RELEVANT_TASKS_FOUND_STRING);
         } else {
-            System.out.println(StringStorage.RELEVANT_TASKS_NOT_FOUND_STRING);
+            sink.appendLine(StringStorage.RELEVANT_TASKS_NOT_FOUND_STRING);
+        }
+        sink.flush();
+    }
+    /**
+     * Prints the words suggested to complete a prefix, most used first.
+     * Used in the "complete" instruction.
+     *
+     * @param completions the words that start with the prefix
+     */
+    public static void printCompletions(List<String> completions) {
+        OutputSink sink = SINKS.get();
+        if (completions.isEmpty()) {
+            sink.appendLine(StringStorage.COMPLETIONS_NOT_FOUND_STRING);
+        } else {
+            sink.appendLine(StringStorage.COMPLETIONS_BEFORE_STRING);
+            for (String completion : completions) {
+                sink.appendLine(completion);
+            }
+        }
+        sink.flush();
+    }
+    /**
+     * Prints the tasks at the given ordinals.
+     * Used in the "due" and "between" instructions to display tasks by date.
+     *
+     * @param ordinals the ordinals of the tasks to print, in ascending order
+     * @param taskHandler the handler managing the task list
+     */
+    public static void printDatedTasks(List<Integer> ordinals, TaskHandler taskHandler) {
+        OutputSink sink = SINKS.get();
+        sink.appendLine(StringStorage.LIST_DATED_TASKS_STRING);
+
+        for (int ordinal : ordinals) {
+            Task task = taskHandler.getTaskAtOrdinal(ordinal);
+            appendTaskWithOrdinal(sink, task, ordinal);
+        }
+
+        if (!ordinals.isEmpty()) {
+            sink.appendLine(
+                    ordinals.size() + StringStorage.DATED_TASKS_FOUND_STRING);
+        } else {
+            sink.appendLine(StringStorage.DATED_TASKS_NOT_FOUND_STRING);
         }
+        sink.flush();
     }
     /**
      * Prints a message listing all tasks in the list.
@@ -73,15 +135,116 @@ public class OutputStringHandler {
      * @param taskHandler the handler managing the task list
      */
     public static void printAllTasks(TaskHandler taskHandler) {
-        System.out.println(StringStorage.LIST_BEFORE_STRING);
+        OutputSink sink = SINKS.get();
+        sink.appendLine(StringStorage.LIST_BEFORE_STRING);
 
         int taskTotal = taskHandler.getCurrTaskTotal();
         for (int ordinal = 0; ordinal < taskTotal; ordinal++) {
             Task task = taskHandler.getTaskAtOrdinal(ordinal);
-            System.out.println(displayTaskWithOrdinal(task, ordinal));
+            appendTaskWithOrdinal(sink, task, ordinal);
         }
 
-        System.out.println(StringStorage.LIST_AFTER_STRING);
+        sink.appendLine(StringStorage.LIST_AFTER_STRING);
+        sink.flush();
+    }
+
+    /**
+     * Prints one page of the task list, so that a long list does not flood the terminal.
+     *
+     * @param taskHandler the handler managing the task list
+     * @param pageNumber  the page to print, starting from 1
+     * @param pageSize    the number of tasks on each page
+     */
+    public static void printTaskPage(TaskHandler taskHandler, int pageNumber, int pageSize) {
+        OutputSink sink = SINKS.get();
+        sink.appendLine(StringStorage.LIST_BEFORE_STRING);
+
+        int taskTotal = taskHandler.getCurrTaskTotal();
+        int pageStart = (pageNumber - 1) * pageSize;
+        int pageEnd = Math.min(pageStart + pageSize, taskTotal);
+        for (int ordinal = pageStart; ordinal < pageEnd; ordinal++) {
+            Task task = taskHandler.getTaskAtOrdinal(ordinal);
+            appendTaskWithOrdinal(sink, task, ordinal);
+        }
+
+        sink.appendLine(StringStorage.PAGE_NUMBER_STRING + pageNumber
+                + " of " + getPageTotal(taskTotal, pageSize) + ". ");
+        sink.flush();
+    }
+    /**
+     * Returns the number of pages needed to show every task.
+     *
+     * @param taskTotal the number of tasks
+     * @param pageSize  the number of tasks on each page
+     * @return the number of pages
+     */
+    public static int getPageTotal(int taskTotal, int pageSize) {
+        return (taskTotal + pageSize - 1) / pageSize;
+    }
+
+    /**
+     * Holds back the responses of the current thread, until {@code releaseResponses} is called.
+     */
+    public static void holdResponses() {
+        SINKS.get().setHolding(true);
+    }
+    /**
+     * Prints the responses held back since {@code holdResponses} was called.
+     */
+    public static void releaseResponses() {
+        OutputSink sink = SINKS.get();
+        sink.setHolding(false);
+        sink.flush();
+    }
+
+    /**
+     * Prints the help message, listing every instruction.
+     */
+    public static void printHelp() {
+        OutputSink sink = SINKS.get();
+        sink.appendLine(StringStorage.HELP_MESSAGE);
+        sink.flush();
+    }
+    /**
+     * Prints the metrics recorded so far.
+     *
+     * @param statsLines the lines describing the metrics
+     */
+    public static void printStats(List<String> statsLines) {
+        OutputSink sink = SINKS.get();
+        sink.appendLine(StringStorage.STATS_BEFORE_STRING);
+        for (String statsLine : statsLines) {
+            sink.appendLine(statsLine);
+        }
+        sink.flush();
+    }
+
+    /**
+     * Prints every task list, with the one in use marked.
+     *
+     * @param listLines the lines describing the lists
+     */
+    public static void printLists(List<String> listLines) {
+        OutputSink sink = SINKS.get();
+        sink.appendLine(StringStorage.LISTS_BEFORE_STRING);
+        for (String listLine : listLines) {
+            sink.appendLine(listLine);
+        }
+        sink.flush();
+    }
+    /**
+     * Prints a message indicating which task list is now in use.
+     *
+     * @param listName    the name of the list
+     * @param taskTotal   the count of tasks in the list
+     * @param isSwitching whether the list was switched to, rather than already in use
+     */
+    public static void printListInUse(String listName, int taskTotal, boolean isSwitching) {
+        OutputSink sink = SINKS.get();
+        sink.appendLine((isSwitching ? StringStorage.USE_LIST_STRING : StringStorage.ALREADY_USING_LIST_STRING)
+                + listName + ". ");
+        sink.appendLine(StringStorage.LIST_SIZE_STRING + taskTotal);
+        sink.flush();
     }
 
     /**
@@ -92,12 +255,14 @@ public class OutputStringHandler {
      * @param taskTotal the current count of tasks in the list
      */
     public static void printAddedTask(Task task, int taskTotal) {
-        System.out.println(StringStorage.ADD_BEFORE_STRING);
+        OutputSink sink = SINKS.get();
+        sink.appendLine(StringStorage.ADD_BEFORE_STRING);
 
-        System.out.println(displayTaskWithoutOrdinal(task));
-        System.out.println(StringStorage.LIST_SIZE_STRING + taskTotal);
+        sink.appendLine(displayTaskWithoutOrdinal(task));
+        sink.appendLine(StringStorage.LIST_SIZE_STRING + taskTotal);
 
-        System.out.println(StringStorage.ADD_AFTER_STRING);
+        sink.appendLine(StringStorage.ADD_AFTER_STRING);
+        sink.flush();
     }
 
     /**
@@ -108,14 +273,100 @@ public class OutputStringHandler {
      * @param taskTotal the current count of tasks in the list
      */
     public static void printDeletedTask(Task task, int taskTotal) {
-        System.out.println(StringStorage.DELETE_BEFORE_STRING);
+        OutputSink sink = SINKS.get();
+        sink.appendLine(StringStorage.DELETE_BEFORE_STRING);
 
-        System.out.println(displayTaskWithoutOrdinal(task));
-        System.out.println(StringStorage.LIST_SIZE_STRING + taskTotal);
+        sink.appendLine(displayTaskWithoutOrdinal(task));
+        sink.appendLine(StringStorage.LIST_SIZE_STRING + taskTotal);
 
-        System.out.println(StringStorage.DELETE_AFTER_STRING);
+        sink.appendLine(StringStorage.DELETE_AFTER_STRING);
+        sink.flush();
     }
 
+    /**
+     * Prints how many tasks were deleted at once, instead of every task.
+     *
+     * @param deletedTotal the count of tasks deleted
+     * @param taskTotal    the current count of tasks in the list
+     */
+    public static void printDeletedTasks(int deletedTotal, int taskTotal) {
+        OutputSink sink = SINKS.get();
+        sink.appendLine(StringStorage.BULK_DELETE_STRING + deletedTotal);
+        sink.appendLine(StringStorage.LIST_SIZE_STRING + taskTotal);
+        sink.appendLine(StringStorage.DELETE_AFTER_STRING);
+        sink.flush();
+    }
+    /**
+     * Prints how many tasks were archived at once.
+     *
+     * @param archivedTotal the count of tasks archived
+     * @param taskTotal     the current count of tasks in the list
+     */
+    public static void printArchivedTasks(int archivedTotal, int taskTotal) {
+        OutputSink sink = SINKS.get();
+        sink.appendLine(StringStorage.ARCHIVE_STRING + archivedTotal);
+        sink.appendLine(StringStorage.LIST_SIZE_STRING + taskTotal);
+        sink.flush();
+    }
+    /**
+     * Prints the archived tasks whose description contains the query, as the archive is searched.
+     * Used in the "find --archive" instruction.
+     *
+     * <p>
+     * The matches are printed after each block of the archive is searched,
+     * so they start showing before the whole archive is read, and are never all held at once.
+     * </p>
+     *
+     * @param query the string to find in archived task descriptions
+     * @throws YapperException if the archive cannot be read, after printing the matches found so far
+     */
+    public static void printSelectedArchivedTasks(String query) throws YapperException {
+        OutputSink sink = SINKS.get();
+        sink.appendLine(StringStorage.LIST_ARCHIVED_TASKS_STRING);
+        int matchTotal;
+        try {
+            matchTotal = ArchiveFileHandler.findTasks(query,
+                    task -> sink.appendLine(displayTaskWithoutOrdinal(task)), sink::flush);
+        } catch (YapperException e) {
+            sink.flush();
+            throw e;
+        }
+        if (matchTotal > 0) {
+            sink.appendLine(matchTotal + StringStorage.ARCHIVED_TASKS_FOUND_STRING);
+        } else {
+            sink.appendLine(StringStorage.ARCHIVED_TASKS_NOT_FOUND_STRING);
+        }
+        sink.flush();
+    }
+    /**
+     * Prints how many changes were undone or redone.
+     *
+     * @param stepCount the count of changes undone or redone
+     * @param taskTotal the current count of tasks in the list
+     * @param isUndo    true if the changes were undone, false if redone
+     */
+    public static void printHistoryChange(int stepCount, int taskTotal, boolean isUndo) {
+        OutputSink sink = SINKS.get();
+        sink.appendLine((isUndo ? StringStorage.UNDO_STRING : StringStorage.REDO_STRING) + stepCount);
+        sink.appendLine(StringStorage.LIST_SIZE_STRING + taskTotal);
+        sink.flush();
+    }
+    /**
+     * Prints how many tasks were marked or unmarked at once, instead of every task.
+     *
+     * @param changedTotal   the count of tasks whose status changed
+     * @param unchangedTotal the count of chosen tasks that already had that status
+     * @param isDone         true if the tasks are marked as done, false if undone
+     */
+    public static void printTasksStatus(int changedTotal, int unchangedTotal, boolean isDone) {
+        OutputSink sink = SINKS.get();
+        sink.appendLine(StringStorage.BULK_MARK_STRING + (isDone ? "done" : "not done"));
+        sink.appendLine(StringStorage.BULK_MARK_COUNT_STRING + changedTotal
+                + (unchangedTotal > 0 ? StringStorage.BULK_MARK_UNCHANGED_STRING + unchangedTotal : ""));
+        sink.appendLine(isDone
+                ? StringStorage.TASK_IS_DONE_STRING : StringStorage.TASK_IS_NOT_DONE_STRING);
+        sink.flush();
+    }
     /**
      * Prints the status of a task after it has been marked or unmarked.
      * Displays whether the task is marked as "done" or "not done"
@@ -124,10 +375,12 @@ public class OutputStringHandler {
      * @param isDone true if the task is marked as done, false if undone
      */
     public static void printTaskStatus(Task task, boolean isDone) {
-        System.out.println(StringStorage.TASK_COMPLETION_STATUS_CHANGED_STRING
+        OutputSink sink = SINKS.get();
+        sink.appendLine(StringStorage.TASK_COMPLETION_STATUS_CHANGED_STRING
                 + (isDone ? "done" : "not done"));
-        System.out.println(displayTaskWithoutOrdinal(task));
-        System.out.println(isDone
+        sink.appendLine(displayTaskWithoutOrdinal(task));
+        sink.appendLine(isDone
                 ? StringStorage.TASK_IS_DONE_STRING : StringStorage.TASK_IS_NOT_DONE_STRING);
+        sink.flush();
     }
 }
@@ -0,0 +1,121 @@
+package yapper.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import yapper.tasks.Task;
+import yapper.tasks.TaskHandler;
+
+/**
+ * Parallel Save File Loader for Yapper.
+ *
+ * <p>
+ * Splits the text save file into chunks that each end on a newline, and parses
+ * the chunks on the common fork-join pool. The parsed chunks are then merged back
+ * into the task list in file order, and the invalid tasks are reported in file order,
+ * so the result is the same as loading the file one line at a time.
+ * </p>
+ *
+ */
+public class ParallelTaskLoader {
+    /**
+     * The smallest chunk worth handing to another thread.
+     */
+    private static final int MIN_CHUNK_BYTES = 64 * 1024;
+    /**
+     * The number of chunks per available processor, so that uneven chunks still balance out.
+     */
+    private static final int CHUNKS_PER_PROCESSOR = 4;
+
+    /**
+     * The tasks parsed from one chunk, and the reasons its invalid lines were skipped.
+     */
+    private static class ParsedChunk {
+        private final List<Task> tasks = new ArrayList<>();
+        private final List<String> invalidTaskMessages = new ArrayList<>();
+    }
+
+
+    /**
+     * Loads tasks from the save file to the TaskHandler, parsing chunks of the file in parallel.
+     *
+     * @param taskHandler  the handler to add the loaded tasks to
+     * @param saveFilePath      the path of the text save file
+     * @param isWithLegacyDates whether the dates are in the legacy storage patterns
+     * @return the count of invalid tasks encountered during the file scan
+     * @throws IOException if the save file cannot be read
+     */
+    public static int loadTasks(TaskHandler taskHandler, String saveFilePath, boolean isWithLegacyDates)
+            throws IOException {
+        byte[] fileBytes = Files.readAllBytes(Paths.get(saveFilePath));
+
+        List<ForkJoinTask<ParsedChunk>> parsingChunks = new ArrayList<>();
+        int chunkTarget = Math.max(MIN_CHUNK_BYTES,
+                fileBytes.length / (Runtime.getRuntime().availableProcessors() * CHUNKS_PER_PROCESSOR));
+        int chunkStart = 0;
+        while (chunkStart < fileBytes.length) {
+            int chunkEnd = findChunkEnd(fileBytes, chunkStart + chunkTarget);
+            final int start = chunkStart;
+            parsingChunks.add(ForkJoinPool.commonPool().submit(
+                    () -> parseChunk(fileBytes, start, chunkEnd, isWithLegacyDates)));
+            chunkStart = chunkEnd;
+        }
+
+        int invalidTaskCount = 0;
+        for (ForkJoinTask<ParsedChunk> parsingChunk : parsingChunks) {
+            ParsedChunk parsedChunk = parsingChunk.join();
+            for (Task task : parsedChunk.tasks) {
+                taskHandler.addTask(task);
+            }
+            for (String invalidTaskMessage : parsedChunk.invalidTaskMessages) {
+                System.out.println("skipping invalid task: " + invalidTaskMessage);
+            }
+            invalidTaskCount += parsedChunk.invalidTaskMessages.size();
+        }
+        return invalidTaskCount;
+    }
+
+    /**
+     * Returns the offset just after the first newline at or after the target, or the end of the file.
+     *
+     * @param fileBytes the contents of the save file
+     * @param target    the offset the chunk should end near
+     * @return the exclusive end offset of the chunk
+     */
+    private static int findChunkEnd(byte[] fileBytes, int target) {
+        if (target >= fileBytes.length) {
+            return fileBytes.length;
+        }
+        int chunkEnd = target;
+        while (chunkEnd < fileBytes.length && fileBytes[chunkEnd] != '\n') {
+            chunkEnd++;
+        }
+        return Math.min(chunkEnd + 1, fileBytes.length);
+    }
+
+    /**
+     * Parses every line in a chunk, keeping the tasks and invalid lines in file order.
+     * The chunk is decoded to characters once, and its lines decoded in place by {@code TaskRecordDecoder}.
+     *
+     * @param fileBytes the contents of the save file
+     * @param start     the offset of the first byte of the chunk
+     * @param end       the exclusive end offset of the chunk
+     * @param isWithLegacyDates whether the dates are in the legacy storage patterns
+     * @return the tasks and invalid task messages of the chunk
+     */
+    private static ParsedChunk parseChunk(byte[] fileBytes, int start, int end, boolean isWithLegacyDates) {
+        ParsedChunk parsedChunk = new ParsedChunk();
+        CharBuffer chunkChars = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(fileBytes, start, end - start));
+        TaskRecordDecoder.decodeLines(chunkChars, 0, chunkChars.length(), isWithLegacyDates,
+                parsedChunk.tasks::add, parsedChunk.invalidTaskMessages::add);
+        return parsedChunk;
+    }
+}
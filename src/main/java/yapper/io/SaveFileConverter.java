@@ -0,0 +1,39 @@
+package yapper.io;
+
+import java.io.IOException;
+
+import yapper.exceptions.YapperException;
+import yapper.tasks.SlottedTaskHandler;
+import yapper.tasks.TaskHandler;
+
+/**
+ * Converts the save file between save formats, e.g. from text to binary.
+ */
+public class SaveFileConverter {
+
+    /**
+     * Loads all tasks with one save format, then writes them all with another.
+     *
+     * <p>
+     * The source save file is left untouched, so converting back and forth is safe.
+     * </p>
+     *
+     * @param source the save format to read from
+     * @param target the save format to write to
+     * @return the number of tasks converted
+     * @throws YapperException if the source cannot be read or the target cannot be written
+     */
+    public static int convert(TaskStorage source, TaskStorage target) throws YapperException {
+        TaskHandler taskHandler = new SlottedTaskHandler();
+        try {
+            source.loadTasks(taskHandler);
+            target.storeAllTasks(taskHandler);
+        } catch (IOException e) {
+            throw new YapperException(
+                    "IOException occurred when converting "
+                    + source.getSaveFilePath() + " to " + target.getSaveFilePath() + ": \n"
+                    + e.getMessage());
+        }
+        return taskHandler.getCurrTaskTotal();
+    }
+}
@@ -0,0 +1,153 @@
+package yapper.io;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+import yapper.exceptions.YapperException;
+import yapper.tasks.TaskHandler;
+
+/**
+ * Save File Health Monitor for Yapper.
+ *
+ * <p>
+ * Watches the save folder with a {@code WatchService}, so that a deleted save file or folder
+ * is noticed without checking the file system before every instruction.
+ * Checking for a deletion only drains the events the watch service has already queued,
+ * so instructions that find nothing wrong make no file system calls at all.
+ * </p>
+ *
+ * <p>
+ * If the watch service is unavailable, or a deletion happens between two instructions,
+ * the write that fails because of it restores the save file instead, see {@code restoreAfterFailedWrite}.
+ * Either way, the save file and folder are recreated and every task is stored again.
+ * </p>
+ *
+ */
+public class SaveFileWatcher {
+    private static WatchService watchService;
+    private static WatchKey watchKey;
+    private static Path saveFilePath;
+    /**
+     * Set when a write made in the background fails, so the next instruction restores the save file.
+     */
+    private static volatile boolean isRestoreRequested = false;
+
+
+    /**
+     * Starts watching the folder of the current save file for deletions.
+     *
+     * <p>
+     * If the watch service cannot be started, deletions are only noticed when a write fails.
+     * </p>
+     */
+    public static synchronized void startWatching() {
+        saveFilePath = Paths.get(FileHandler.getTaskStorage().getSaveFilePath()).toAbsolutePath().normalize();
+        try {
+            if (watchService == null) {
+                watchService = FileSystems.getDefault().newWatchService();
+            }
+            if (watchKey != null) {
+                watchKey.cancel();
+            }
+            watchKey = saveFilePath.getParent().register(watchService,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.OVERFLOW);
+        } catch (IOException | UnsupportedOperationException e) {
+            watchKey = null;
+            System.out.println("Save file will only be checked when saving fails: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Restores the save file and folder if the watch service has seen either of them deleted.
+     *
+     * @param taskHandler the handler whose tasks are stored in the restored save file
+     */
+    public static synchronized void restoreIfDeleted(TaskHandler taskHandler) {
+        if (isRestoreRequested) {
+            isRestoreRequested = false;
+            restoreSaveFile(taskHandler);
+        }
+        if (watchKey == null || !hasSeenDeletion()) {
+            return;
+        }
+        if (!Files.exists(saveFilePath)) {
+            restoreSaveFile(taskHandler);
+        }
+        if (!watchKey.isValid()) {
+            startWatching();
+        }
+    }
+    /**
+     * Asks for the save file to be restored before the next instruction, e.g. after a background write failed.
+     *
+     * <p>
+     * The task list cannot be read from the thread that noticed the failure,
+     * so restoring is left to the thread that handles instructions.
+     * </p>
+     */
+    public static void requestRestore() {
+        isRestoreRequested = true;
+    }
+    /**
+     * Restores the save file and folder after a write failed, if the failure was because they are missing.
+     *
+     * <p>
+     * The failed change has already been made to the task list,
+     * so storing every task again also saves that change.
+     * </p>
+     *
+     * @param taskHandler the handler whose tasks are stored in the restored save file
+     * @return {@code true} if the save file was missing and has been restored, {@code false} otherwise
+     */
+    public static synchronized boolean restoreAfterFailedWrite(TaskHandler taskHandler) {
+        if (FileHandler.saveFolderExists() && FileHandler.saveFileExists()) {
+            return false;
+        }
+        restoreSaveFile(taskHandler);
+        if (watchKey != null && !watchKey.isValid()) {
+            startWatching();
+        }
+        return true;
+    }
+
+
+    /**
+     * Drains the queued watch events, returning whether the save file may have been deleted.
+     *
+     * <p>
+     * A cancelled key means the folder itself is gone, and an overflow means events were lost,
+     * so both are treated as a possible deletion.
+     * </p>
+     */
+    private static boolean hasSeenDeletion() {
+        boolean hasSeenDeletion = !watchKey.isValid();
+        WatchKey signalledKey;
+        while ((signalledKey = watchService.poll()) != null) {
+            for (WatchEvent<?> event : signalledKey.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                        || saveFilePath.getFileName().equals(event.context())) {
+                    hasSeenDeletion = true;
+                }
+            }
+            if (!signalledKey.reset()) {
+                hasSeenDeletion = true;
+            }
+        }
+        return hasSeenDeletion;
+    }
+    private static void restoreSaveFile(TaskHandler taskHandler) {
+        try {
+            FileHandler.initSaveFileAndFolder(false);
+            OutputFileHandler.storeAllTasks(taskHandler);
+        } catch (YapperException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
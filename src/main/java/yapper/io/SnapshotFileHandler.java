@@ -0,0 +1,462 @@
+package yapper.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import yapper.metrics.MetricsRegistry;
+import yapper.tasks.Task;
+
+/**
+ * Crash-safe Snapshot Writer for the text save file.
+ *
+ * <p>
+ * A snapshot is every task line followed by a footer, e.g. "# CRC32 | 1a2b3c4d | 120",
+ * holding the checksum of the bytes before it and the number of lines.
+ * It is written to a temporary file through a buffered {@code FileChannel}, forced to disk,
+ * and only then moved over the save file, so a crash leaves either the old save file or the new one.
+ * The save file being replaced is kept as the previous generation, e.g. "savedata.txt.prev".
+ * </p>
+ *
+ * <p>
+ * Tasks added later are appended after the footer, so the footer only covers the lines before it.
+ * If they do not match it when loading, the save file was torn, e.g. by a disk that lost writes,
+ * and the previous generation is loaded instead, see {@code restorePreviousGenerationIfTorn}.
+ * A save file without a footer, e.g. one written by an older Yapper, is loaded line by line as before.
+ * </p>
+ *
+ * <p>
+ * A snapshot also starts with a header, {@code StringStorage.SNAPSHOT_HEADER}, naming the patterns its dates
+ * are stored in. A save file that does not start with it was written before dates were stored that way,
+ * see {@code hasHeader}, and is stored again in full once it is loaded.
+ * The header is followed by the next task ID, e.g. "# NEXT ID | 42", so that the IDs of deleted tasks
+ * are not given out again after a restart, see {@code readNextTaskId}.
+ * </p>
+ *
+ */
+public class SnapshotFileHandler {
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+    /**
+     * The number of lines in the header of a snapshot: the date patterns, then the next task ID.
+     */
+    private static final int HEADER_LINES = 2;
+    /**
+     * The most bytes read from the start of a file to find the next task ID.
+     */
+    private static final int HEADER_READ_BYTES = 128;
+
+    /**
+     * What the footer of a snapshot says about the lines before it.
+     */
+    public enum Integrity {
+        CHECKED,
+        UNCHECKED,
+        TORN
+    }
+
+
+    /**
+     * Writes a snapshot of the given lines to a temporary file, forces it to disk,
+     * and moves it over the file, keeping the file being replaced as the previous generation.
+     *
+     * @param path       the file to replace
+     * @param taskLines  the lines to write, without line endings
+     * @param nextTaskId the next task ID of the task list
+     * @throws IOException if an I/O error occurs while writing or moving the file
+     */
+    public static void replaceWithSnapshot(Path path, List<String> taskLines, long nextTaskId) throws IOException {
+        Path tempFilePath = Paths.get(path + StringStorage.TEMP_FILE_SUFFIX);
+        writeSnapshot(tempFilePath, taskLines, nextTaskId);
+        moveIntoPlace(tempFilePath, path);
+    }
+    /**
+     * Writes a snapshot of the given lines, after its header and followed by its footer, and forces it to disk.
+     *
+     * @param path       the file to write
+     * @param taskLines  the lines to write, without line endings
+     * @param nextTaskId the next task ID of the task list
+     * @throws IOException if an I/O error occurs while writing the file
+     */
+    public static void writeSnapshot(Path path, List<String> taskLines, long nextTaskId) throws IOException {
+        CRC32 checksum = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            byte[] headerBytes = getHeaderBytes(nextTaskId);
+            checksum.update(headerBytes);
+            writeBuffered(channel, buffer, headerBytes);
+            for (String taskLine : taskLines) {
+                byte[] lineBytes = (taskLine + "\n").getBytes(Charset.defaultCharset());
+                checksum.update(lineBytes);
+                writeBuffered(channel, buffer, lineBytes);
+            }
+            writeBuffered(channel, buffer, getFooterBytes(checksum.getValue(), taskLines.size() + HEADER_LINES));
+            buffer.flip();
+            writeFully(channel, buffer);
+            channel.force(false);
+        }
+    }
+    /**
+     * Returns the bytes of a snapshot of the given lines, after its header and followed by its footer,
+     * e.g. to be written later by {@code WriteBehindPersister.replace}.
+     *
+     * @param taskLines  the lines of the snapshot, without line endings
+     * @param nextTaskId the next task ID of the task list
+     * @return the contents of the snapshot
+     */
+    public static byte[] toSnapshotBytes(List<String> taskLines, long nextTaskId) {
+        CRC32 checksum = new CRC32();
+        ByteArrayOutputStream snapshotBytes = new ByteArrayOutputStream();
+        byte[] headerBytes = getHeaderBytes(nextTaskId);
+        checksum.update(headerBytes);
+        snapshotBytes.writeBytes(headerBytes);
+        for (String taskLine : taskLines) {
+            byte[] lineBytes = (taskLine + "\n").getBytes(Charset.defaultCharset());
+            checksum.update(lineBytes);
+            snapshotBytes.writeBytes(lineBytes);
+        }
+        snapshotBytes.writeBytes(getFooterBytes(checksum.getValue(), taskLines.size() + HEADER_LINES));
+        return snapshotBytes.toByteArray();
+    }
+    /**
+     * Moves a complete file over another, after keeping the file being replaced as the previous generation.
+     *
+     * <p>
+     * The previous generation is a hard link to the file being replaced where the file system allows it,
+     * so keeping it does not copy the file, and the save file never goes missing, even for a moment.
+     * </p>
+     *
+     * @param source the complete file, already forced to disk
+     * @param target the file to replace
+     * @throws IOException if an I/O error occurs while moving the file
+     */
+    public static void moveIntoPlace(Path source, Path target) throws IOException {
+        keepPreviousGeneration(target);
+        Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    private static void keepPreviousGeneration(Path path) throws IOException {
+        Path previousPath = getPreviousGenerationPath(path);
+        try {
+            Files.deleteIfExists(previousPath);
+            Files.createLink(previousPath, path);
+        } catch (NoSuchFileException e) {
+            // there is no file to keep yet
+        } catch (UnsupportedOperationException | IOException e) {
+            try {
+                Files.copy(path, previousPath, StandardCopyOption.REPLACE_EXISTING);
+            } catch (NoSuchFileException noFileException) {
+                // the file went missing in between, and is rewritten in full anyway
+            }
+        }
+    }
+
+    /**
+     * Returns true if the line is the footer of a snapshot, rather than a task.
+     *
+     * @param line a line of the save file
+     * @return true if the line is a footer
+     */
+    public static boolean isFooter(String line) {
+        return line.startsWith(StringStorage.SNAPSHOT_FOOTER_MARKER);
+    }
+    /**
+     * Returns true if the line between the offsets is the footer of a snapshot, rather than a task.
+     *
+     * @param text  the text holding the line
+     * @param start the offset of the first character of the line
+     * @param end   the offset after the last character of the line
+     * @return true if the line is a footer
+     */
+    public static boolean isFooter(CharSequence text, int start, int end) {
+        String marker = StringStorage.SNAPSHOT_FOOTER_MARKER;
+        if (end - start < marker.length()) {
+            return false;
+        }
+        for (int index = 0; index < marker.length(); index++) {
+            if (text.charAt(start + index) != marker.charAt(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    /**
+     * Returns true if the line between the offsets is a line of the header of a snapshot, rather than a task.
+     *
+     * @param text  the text holding the line
+     * @param start the offset of the first character of the line
+     * @param end   the offset after the last character of the line
+     * @return true if the line is a header line
+     */
+    public static boolean isHeader(CharSequence text, int start, int end) {
+        if (isNextTaskIdLine(text, start, end)) {
+            return true;
+        }
+        String header = StringStorage.SNAPSHOT_HEADER;
+        if (end - start != header.length()) {
+            return false;
+        }
+        for (int index = 0; index < header.length(); index++) {
+            if (text.charAt(start + index) != header.charAt(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    /**
+     * Returns true if the file starts with a snapshot header, i.e. its dates are stored in the current patterns.
+     * A file that is missing, empty, or starts with anything else was last written before they were.
+     *
+     * @param path the file to check
+     * @return true if the file starts with a header
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean hasHeader(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return false;
+        }
+        byte[] headerLineBytes = (StringStorage.SNAPSHOT_HEADER + "\n").getBytes(Charset.defaultCharset());
+        byte[] startBytes = new byte[headerLineBytes.length];
+        try (InputStream fileStream = Files.newInputStream(path)) {
+            if (fileStream.readNBytes(startBytes, 0, startBytes.length) < startBytes.length) {
+                return false;
+            }
+        }
+        String start = new String(startBytes, Charset.defaultCharset());
+        // the header is its own line, ending with "\n" or "\r\n"
+        return start.equals(StringStorage.SNAPSHOT_HEADER + "\n")
+                || start.equals(StringStorage.SNAPSHOT_HEADER + "\r");
+    }
+    /**
+     * Returns the next task ID stored in the header of a file.
+     * A file that is missing, or was written before the next task ID was stored, has none.
+     *
+     * @param path the file to read
+     * @return the next task ID, or {@code Task.NO_TASK_ID} if there is none
+     * @throws IOException if the file cannot be read
+     */
+    public static long readNextTaskId(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return Task.NO_TASK_ID;
+        }
+        byte[] startBytes;
+        try (InputStream fileStream = Files.newInputStream(path)) {
+            startBytes = fileStream.readNBytes(HEADER_READ_BYTES);
+        }
+        String start = new String(startBytes, Charset.defaultCharset());
+        int lineStart = start.indexOf('\n') + 1;
+        int lineEnd = start.indexOf('\n', lineStart);
+        if (lineStart == 0 || lineEnd < 0) {
+            return Task.NO_TASK_ID;
+        }
+        int contentEnd = lineEnd > lineStart && start.charAt(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+        if (!isNextTaskIdLine(start, lineStart, contentEnd)) {
+            return Task.NO_TASK_ID;
+        }
+        String nextTaskIdString = start.substring(lineStart + getNextTaskIdPrefix().length(), contentEnd);
+        try {
+            return Long.parseLong(nextTaskIdString);
+        } catch (NumberFormatException e) {
+            return Task.NO_TASK_ID;
+        }
+    }
+    /**
+     * Checks the lines before the last footer of a file against it.
+     *
+     * <p>
+     * A file without a footer is unchecked, unless it is empty while a previous generation exists,
+     * since every snapshot has a footer, even one of no tasks, and an empty file is then what is left
+     * when a crash loses a write that was never forced.
+     * </p>
+     *
+     * <p>
+     * The footer is found by reading the file backwards from its end, and the lines before it are then
+     * streamed through a fixed buffer, so the file is never held in memory as a whole.
+     * </p>
+     *
+     * @param path the file to check
+     * @return whether the file matches its footer, has none, or is torn
+     * @throws IOException if the file cannot be read
+     */
+    public static Integrity checkSnapshot(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                return Files.exists(getPreviousGenerationPath(path)) ? Integrity.TORN : Integrity.UNCHECKED;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+            long footerStart = findLastFooter(channel, buffer);
+            if (footerStart < 0) {
+                return Integrity.UNCHECKED;
+            }
+            CRC32 checksum = new CRC32();
+            int lineTotal = 0;
+            long position = 0;
+            while (position < footerStart) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), footerStart - position));
+                readFully(channel, buffer, position);
+                buffer.flip();
+                checksum.update(buffer.array(), 0, buffer.limit());
+                for (int index = 0; index < buffer.limit(); index++) {
+                    if (buffer.get(index) == '\n') {
+                        lineTotal++;
+                    }
+                }
+                position += buffer.limit();
+            }
+            String footer = readLine(channel, buffer, footerStart);
+            return footer.trim().equals(getFooter(checksum.getValue(), lineTotal))
+                    ? Integrity.CHECKED
+                    : Integrity.TORN;
+        }
+    }
+    /**
+     * Replaces a torn save file with its previous generation before it is loaded,
+     * keeping the torn file aside, e.g. as "savedata.txt.torn", rather than skipping its bad lines one by one.
+     *
+     * @param path the save file
+     * @return true if the previous generation was restored
+     * @throws IOException if the save file cannot be read or the previous generation cannot be restored
+     */
+    public static boolean restorePreviousGenerationIfTorn(Path path) throws IOException {
+        if (!Files.exists(path) || checkSnapshot(path) != Integrity.TORN) {
+            return false;
+        }
+        Path previousPath = getPreviousGenerationPath(path);
+        // an empty previous generation is the file first created, which would lose every task instead
+        if (!Files.exists(previousPath) || Files.size(previousPath) == 0
+                || checkSnapshot(previousPath) == Integrity.TORN) {
+            System.out.println(StringStorage.TORN_SAVE_FILE_WITHOUT_PREVIOUS_MESSAGE);
+            return false;
+        }
+        Path tornPath = Paths.get(path + StringStorage.TORN_FILE_SUFFIX);
+        Path tempFilePath = Paths.get(path + StringStorage.TEMP_FILE_SUFFIX);
+        Files.copy(path, tornPath, StandardCopyOption.REPLACE_EXISTING);
+        Files.copy(previousPath, tempFilePath, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(tempFilePath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.println(StringStorage.TORN_SAVE_FILE_MESSAGE + " " + tornPath);
+        return true;
+    }
+
+
+    private static Path getPreviousGenerationPath(Path path) {
+        return Paths.get(path + StringStorage.PREVIOUS_GENERATION_SUFFIX);
+    }
+    private static String getFooter(long checksum, int lineTotal) {
+        return StringStorage.SNAPSHOT_FOOTER_MARKER + " " + StringStorage.COMBINE_USING_DELIMITER
+                + " " + String.format("%08x", checksum)
+                + " " + StringStorage.COMBINE_USING_DELIMITER + " " + lineTotal;
+    }
+    private static byte[] getHeaderBytes(long nextTaskId) {
+        return (StringStorage.SNAPSHOT_HEADER + "\n" + getNextTaskIdPrefix() + nextTaskId + "\n")
+                .getBytes(Charset.defaultCharset());
+    }
+    private static String getNextTaskIdPrefix() {
+        return StringStorage.SNAPSHOT_NEXT_TASK_ID_MARKER + " " + StringStorage.COMBINE_USING_DELIMITER + " ";
+    }
+    private static boolean isNextTaskIdLine(CharSequence text, int start, int end) {
+        String prefix = getNextTaskIdPrefix();
+        if (end - start <= prefix.length()) {
+            return false;
+        }
+        for (int index = 0; index < prefix.length(); index++) {
+            if (text.charAt(start + index) != prefix.charAt(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    private static byte[] getFooterBytes(long checksum, int lineTotal) {
+        return (getFooter(checksum, lineTotal) + "\n").getBytes(Charset.defaultCharset());
+    }
+    /**
+     * Returns the offset of the start of the last line that is a footer, or -1 if there is none,
+     * reading the file backwards a buffer at a time, and only reading ahead for lines that start with the marker.
+     */
+    private static long findLastFooter(FileChannel channel, ByteBuffer buffer) throws IOException {
+        byte[] marker = StringStorage.SNAPSHOT_FOOTER_MARKER.getBytes(Charset.defaultCharset());
+        // the first byte of the line after the byte being looked at, if there is one
+        int nextLineFirstByte = -1;
+        long blockEnd = channel.size();
+        while (blockEnd > 0) {
+            long blockStart = Math.max(0, blockEnd - buffer.capacity());
+            buffer.clear().limit((int) (blockEnd - blockStart));
+            readFully(channel, buffer, blockStart);
+            for (int index = buffer.limit() - 1; index >= 0; index--) {
+                byte currentByte = buffer.get(index);
+                if (currentByte == '\n' && nextLineFirstByte == marker[0]
+                        && startsWith(channel, blockStart + index + 1, marker)) {
+                    return blockStart + index + 1;
+                }
+                nextLineFirstByte = currentByte;
+            }
+            blockEnd = blockStart;
+        }
+        return nextLineFirstByte == marker[0] && startsWith(channel, 0, marker) ? 0 : -1;
+    }
+    private static boolean startsWith(FileChannel channel, long position, byte[] prefix) throws IOException {
+        if (position + prefix.length > channel.size()) {
+            return false;
+        }
+        ByteBuffer start = ByteBuffer.allocate(prefix.length);
+        readFully(channel, start, position);
+        for (int index = 0; index < prefix.length; index++) {
+            if (start.get(index) != prefix[index]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    /**
+     * Returns the line starting at the position, without its line ending, reading at most a buffer of it.
+     */
+    private static String readLine(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.clear().limit((int) Math.min(buffer.capacity(), channel.size() - position));
+        readFully(channel, buffer, position);
+        int lineEnd = 0;
+        while (lineEnd < buffer.limit() && buffer.get(lineEnd) != '\n') {
+            lineEnd++;
+        }
+        return new String(buffer.array(), 0, lineEnd, Charset.defaultCharset());
+    }
+    /**
+     * Reads from the position until the buffer is full, or the file ends.
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int readTotal = channel.read(buffer, position);
+            if (readTotal < 0) {
+                break;
+            }
+            position += readTotal;
+        }
+    }
+    private static void writeBuffered(FileChannel channel, ByteBuffer buffer, byte[] bytes) throws IOException {
+        if (bytes.length > buffer.remaining()) {
+            buffer.flip();
+            writeFully(channel, buffer);
+            buffer.clear();
+        }
+        if (bytes.length > buffer.capacity()) {
+            writeFully(channel, ByteBuffer.wrap(bytes));
+        } else {
+            buffer.put(bytes);
+        }
+    }
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        MetricsRegistry.recordBytesWritten(buffer.remaining());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
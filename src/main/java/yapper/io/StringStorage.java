@@ -36,6 +36,9 @@ public class StringStorage {
      */
     public static final String PREFIX_HELP_INSTRUCTION = "help";
     public static final String PREFIX_FIND_INSTRUCTION = "find";
+    public static final String PREFIX_DUE_INSTRUCTION = "due";
+    public static final String PREFIX_BETWEEN_INSTRUCTION = "between";
+    public static final String PREFIX_SOURCE_INSTRUCTION = "source";
     public static final String PREFIX_LIST_INSTRUCTION = "list";
     public static final String PREFIX_TODO_INSTRUCTION = "todo";
     public static final String PREFIX_DEADLINE_INSTRUCTION = "deadline";
@@ -44,6 +47,50 @@ public class StringStorage {
     public static final String PREFIX_MARK_INSTRUCTION = "mark";
     public static final String PREFIX_UNMARK_INSTRUCTION = "unmark";
     public static final String PREFIX_BYE_INSTRUCTION = "bye";
+    public static final String PREFIX_STATS_INSTRUCTION = "stats";
+    public static final String PREFIX_USE_INSTRUCTION = "use";
+    public static final String PREFIX_LISTS_INSTRUCTION = "lists";
+    public static final String PREFIX_COMPLETE_INSTRUCTION = "complete";
+    public static final String PREFIX_UNDO_INSTRUCTION = "undo";
+    public static final String PREFIX_REDO_INSTRUCTION = "redo";
+    public static final String PREFIX_ARCHIVE_INSTRUCTION = "archive";
+    /**
+     * The number of changes to each task list that can be undone.
+     */
+    public static final int HISTORY_LIMIT = 50;
+    /**
+     * The number of tasks the changes to each task list can hold on to, so that undoing a bulk delete
+     * of a very large list does not keep every deleted task in memory.
+     */
+    public static final int HISTORY_TASK_LIMIT = 10_000;
+    /**
+     * Options of the list instruction, e.g. "list --page 2 --size 50".
+     */
+    public static final String OPTION_LIST_PAGE = "--page";
+    public static final String OPTION_LIST_SIZE = "--size";
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    /**
+     * Option of the find instruction to match the start of words instead of any part of the description,
+     * e.g. "find --prefix rea", and the number of words the complete instruction suggests.
+     */
+    public static final String OPTION_FIND_PREFIX = "--prefix";
+    /**
+     * Option of the find instruction to search the archive instead of the task list, e.g. "find --archive report",
+     * and option of the archive instruction to only archive done tasks whose dates ended long enough ago,
+     * e.g. "archive --days 30".
+     */
+    public static final String OPTION_FIND_ARCHIVE = "--archive";
+    public static final String OPTION_ARCHIVE_DAYS = "--days";
+    public static final int COMPLETION_LIMIT = 10;
+    /**
+     * Words and separators that choose many tasks at once for delete, mark and unmark,
+     * e.g. "delete 10-500", "mark 3,7,9", "unmark all" or "delete done".
+     */
+    public static final String SELECT_ALL_TASKS = "all";
+    public static final String SELECT_DONE_TASKS = "done";
+    public static final String SELECT_NOT_DONE_TASKS = "undone";
+    public static final char SELECTION_SEPARATOR = ',';
+    public static final char SELECTION_RANGE_SEPARATOR = '-';
     public static final String DELIMITER_DEADLINE_END_DATE = "/by";
     public static final String DELIMITER_EVENT_START_DATE = "/from";
     public static final String DELIMITER_EVENT_END_DATE = "/to";
@@ -57,10 +104,104 @@ public class StringStorage {
     public static final String SYMBOL_EVENT = "E";
     /**
      * Constants related to file management.
+     *
+     * <p>
+     * The save folder can be moved with the "yapper.saveFolder" system property,
+     * e.g. so that the benchmarks never touch the real save file.
+     * </p>
+     *
      */
-    public static final String SAVE_FILE_PATH = "./data/savedata.txt";
+    public static final String SAVE_FOLDER_PATH = System.getProperty("yapper.saveFolder", "./data");
+    public static final String SAVE_FILE_PATH = SAVE_FOLDER_PATH + "/savedata.txt";
     public static final String COMBINE_USING_DELIMITER = "|";
     public static final String SPLIT_USING_DELIMITER = "\\|";
+    public static final String BINARY_SAVE_FILE_PATH = SAVE_FOLDER_PATH + "/savedata.bin";
+    public static final String TEMP_FILE_SUFFIX = ".tmp";
+    public static final String PREVIOUS_GENERATION_SUFFIX = ".prev";
+    public static final String TORN_FILE_SUFFIX = ".torn";
+    public static final String SNAPSHOT_FOOTER_MARKER = "# CRC32";
+    public static final String SNAPSHOT_HEADER = "# DATES | yyyy-MM-dd HHmm";
+    public static final String SNAPSHOT_NEXT_TASK_ID_MARKER = "# NEXT ID";
+    public static final String WORD_TRIE_FILE_SUFFIX = ".trie";
+    /**
+     * Constants related to the archive of done tasks kept next to each save file, e.g. "savedata.txt.archive".
+     *
+     * <p>
+     * Tasks are archived in compressed blocks of up to {@code ARCHIVE_BLOCK_TASKS} tasks,
+     * so searching the archive only ever inflates one block at a time.
+     * </p>
+     *
+     */
+    public static final String ARCHIVE_FILE_SUFFIX = ".archive";
+    public static final int ARCHIVE_BLOCK_TASKS = 1024;
+    /**
+     * Constants related to named task lists, switched between with the use instruction.
+     *
+     * <p>
+     * The default list keeps the save file above, and is the only one kept in the journal in journal mode.
+     * Every other list has its own save file in the lists folder, named after the list,
+     * and is only loaded when first used.
+     * A list not in use is dropped from memory once it has been idle for a while,
+     * or when too many lists are loaded, starting with the one used longest ago.
+     * </p>
+     *
+     */
+    public static final String DEFAULT_LIST_NAME = "main";
+    public static final String LISTS_FOLDER_PATH = SAVE_FOLDER_PATH + "/lists";
+    public static final String TEXT_LIST_FILE_SUFFIX = ".txt";
+    public static final String BINARY_LIST_FILE_SUFFIX = ".bin";
+    public static final int MAX_LIST_NAME_LENGTH = 32;
+    public static final int MAX_LOADED_LISTS = 8;
+    public static final long LIST_IDLE_EVICTION_SECONDS = 10 * 60;
+    /**
+     * Constants related to the append-only journal, used when Yapper runs in journal mode.
+     *
+     * <p>
+     * Each mutation is appended to the journal as a single record,
+     * e.g. "ADD | 12 | T | X | desc", "DELETE | 3", "MARK | 3" or "UNMARK | 3",
+     * or "RESTORE | 3 | 12 | T | X | desc" to put a deleted task back at an ordinal when it is undone.
+     * Once the journal grows past the threshold, it is folded back into the save file.
+     * </p>
+     *
+     */
+    public static final String JOURNAL_FILE_PATH = SAVE_FOLDER_PATH + "/savedata.journal";
+    public static final String JOURNAL_COMPACTING_FILE_PATH = SAVE_FOLDER_PATH + "/savedata.journal.compacting";
+    public static final String SNAPSHOT_NEXT_FILE_PATH = SAVE_FOLDER_PATH + "/savedata.txt.next";
+    public static final String JOURNAL_ADD = "ADD";
+    public static final String JOURNAL_DELETE = "DELETE";
+    public static final String JOURNAL_MARK = "MARK";
+    public static final String JOURNAL_UNMARK = "UNMARK";
+    public static final String JOURNAL_RESTORE = "RESTORE";
+    public static final String JOURNAL_NEXT_TASK_ID = "NEXT_ID";
+    public static final long JOURNAL_COMPACTION_THRESHOLD_BYTES = 64 * 1024;
+    /**
+     * Command line flags that change how Yapper runs.
+     */
+    public static final String FLAG_JOURNAL_MODE = "--journal";
+    public static final String FLAG_BINARY_FORMAT = "--binary";
+    public static final String FLAG_LAZY_LOADING = "--lazy";
+    public static final String FLAG_PARALLEL_LOADING = "--parallel";
+    public static final String FLAG_COMPACT_TASKS = "--compact";
+    public static final String FLAG_CONVERT_TO_BINARY = "--convert-to-binary";
+    public static final String FLAG_CONVERT_TO_TEXT = "--convert-to-text";
+    public static final String FLAG_BATCH = "--batch";
+    public static final String FLAG_SERVE = "--serve";
+    public static final String FLAG_DURABILITY = "--durability";
+    public static final String FLAG_COMMIT_WINDOW = "--commit-window";
+    public static final String FLAG_COMMIT_SIZE = "--commit-size";
+    public static final String FLAG_STATS_FILE = "--stats-file";
+    public static final String FLAG_STATS_INTERVAL = "--stats-interval";
+    public static final String FLAG_ARCHIVE_AFTER = "--archive-after";
+    /**
+     * The durability levels accepted by --durability, and the defaults of the write-behind queue.
+     */
+    public static final String DURABILITY_NONE = "none";
+    public static final String DURABILITY_BATCHED = "batched";
+    public static final String DURABILITY_PER_OP = "per-op";
+    public static final long DEFAULT_COMMIT_WINDOW_MILLIS = 5;
+    public static final int DEFAULT_COMMIT_SIZE = 256;
+    public static final int WRITE_BEHIND_QUEUE_CAPACITY = 4096;
+    public static final long DEFAULT_STATS_INTERVAL_SECONDS = 60;
 
     /**
      * Divides text printed to output, to distinguish between different sets of messages
@@ -87,12 +228,26 @@ public class StringStorage {
     public static final String HELP_MESSAGE =
             "To jog your memory, here's what we can discuss: \n"
             + "list" + ", if you forgot what you said. \n"
+            + "list --page [page] --size [size]" + ", if you only want to be reminded a bit at a time. \n"
             + "help" + ", if you forgot what kinda stuff we can yap about. \n"
+            + "stats" + ", if you wanna know how hard I've been working. \n"
+            + "lists" + ", if you forgot which lists you've got. \n"
+            + "use [list]" + ", if you wanna talk about another list, which is started if it's new. \n"
             + "bye" + ", if you want me to stop yappin. \n"
             + "delete [index]" + ", if you don't want something. \n"
             + "mark [index]" + ", if you're done with something. \n"
             + "unmark [index]" + ", if you're not done with something. \n"
+            + "undo [count]" + ", if you take back what you just said. \n"
+            + "redo [count]" + ", if you take back taking it back. \n"
             + "find [keyword]" + ", if you're looking for something. \n"
+            + "find --prefix [start]" + ", if you only remember how a word starts. \n"
+            + "find --archive [keyword]" + ", if you're looking for something you did long ago. \n"
+            + "archive" + ", if you want me to put away everything you're done with. \n"
+            + "archive --days [days]" + ", if you only want me to put away what's been over for a while. \n"
+            + "complete [start]" + ", if you want me to finish a word for you. \n"
+            + "due [date]" + ", if you're wondering what's due on a day. \n"
+            + "between [from] [to]" + ", if you're wondering what's happening in a period. \n"
+            + "source [file]" + ", if you've written down a whole lot of things for me to do. \n"
             + "todo [todoDesc]" + ", to for a task with no dates. \n"
             + "deadline [deadlineDesc] /by [end]" + ", for a task with an end date. \n"
             + "event [eventDesc] /from [start] /to [end]" + ", for a task with a start date and an end date. ";
@@ -161,10 +316,34 @@ public class StringStorage {
             "No tasks found that contains your query string. \n"
             + LINE_DIVIDER_YAPPER + "\n"
             + "Sorry, I don't recall anything that is related to that. ";
+    public static final String COMPLETIONS_BEFORE_STRING =
+            "Hmmm, you might be thinking of: ";
+    public static final String COMPLETIONS_NOT_FOUND_STRING =
+            "Nope, none of your tasks have a word starting with that. ";
+    public static final String LIST_DATED_TASKS_STRING =
+            "Hmmm, let me check my calendar. What tasks fall on those dates? ";
+    public static final String DATED_TASKS_FOUND_STRING =
+            " task(s) found on those dates. \n"
+            + LINE_DIVIDER_YAPPER + "\n"
+            + "Better get to them! ";
+    public static final String DATED_TASKS_NOT_FOUND_STRING =
+            "No tasks found on those dates. \n"
+            + LINE_DIVIDER_YAPPER + "\n"
+            + "Looks like you're free then. ";
     public static final String LIST_BEFORE_STRING =
             "You're forgetting already? Lemme refresh your memory: ";
     public static final String LIST_AFTER_STRING =
             "That should be all of them. Did I forget any? ";
+    public static final String STATS_BEFORE_STRING =
+            "Here's how much yappin' I've done so far: ";
+    public static final String LISTS_BEFORE_STRING =
+            "Here are all the lists I know of, with the one we're on marked with a *: ";
+    public static final String USE_LIST_STRING =
+            "Alright, let's talk about list ";
+    public static final String ALREADY_USING_LIST_STRING =
+            "We're already talking about list ";
+    public static final String PAGE_NUMBER_STRING =
+            "That was page ";
     public static final String ADD_BEFORE_STRING =
             "Now, I gotta remember this too: ";
     public static final String ADD_AFTER_STRING =
@@ -173,6 +352,30 @@ public class StringStorage {
             "Now I don't need to remember this one anymore: ";
     public static final String DELETE_AFTER_STRING =
             "Don't worry, I've already forgotten about it! ";
+    public static final String BULK_DELETE_STRING =
+            "Now I don't need to remember these anymore. Tasks forgotten: ";
+    public static final String BULK_MARK_STRING =
+            "I know, you told me that these tasks are ";
+    public static final String BULK_MARK_COUNT_STRING =
+            "Tasks changed: ";
+    public static final String BULK_MARK_UNCHANGED_STRING =
+            ", already that way: ";
+    public static final String UNDO_STRING =
+            "Alright, pretend you never said that. Changes taken back: ";
+    public static final String REDO_STRING =
+            "Alright, so you did mean it. Changes made again: ";
+    public static final String ARCHIVE_STRING =
+            "Alright, I've put those away for safekeeping. Tasks archived: ";
+    public static final String LIST_ARCHIVED_TASKS_STRING =
+            "Hmmm, let me dig through the archive. What tasks could you be referring to? ";
+    public static final String ARCHIVED_TASKS_FOUND_STRING =
+            " archived task(s) found contains your query string. \n"
+            + LINE_DIVIDER_YAPPER + "\n"
+            + "Those were the days. ";
+    public static final String ARCHIVED_TASKS_NOT_FOUND_STRING =
+            "No archived tasks found that contains your query string. \n"
+            + LINE_DIVIDER_YAPPER + "\n"
+            + "Sorry, I don't recall putting anything like that away. ";
     public static final String LIST_SIZE_STRING =
             "If I counted correctly, you have a task total of ";
     public static final String TASK_COMPLETION_STATUS_CHANGED_STRING =
@@ -207,19 +410,57 @@ public class StringStorage {
             + PREFIX_HELP_INSTRUCTION + ", "
             + PREFIX_BYE_INSTRUCTION + ", "
             + PREFIX_FIND_INSTRUCTION + ", "
+            + PREFIX_DUE_INSTRUCTION + ", "
+            + PREFIX_BETWEEN_INSTRUCTION + ", "
+            + PREFIX_SOURCE_INSTRUCTION + ", "
             + PREFIX_LIST_INSTRUCTION + ", "
             + PREFIX_TODO_INSTRUCTION + ", "
             + PREFIX_DEADLINE_INSTRUCTION + ", "
             + PREFIX_EVENT_INSTRUCTION + ", "
             + PREFIX_DELETE_INSTRUCTION + ", "
             + PREFIX_MARK_INSTRUCTION + ", "
-            + PREFIX_UNMARK_INSTRUCTION + ", \n"
+            + PREFIX_UNMARK_INSTRUCTION + ", "
+            + PREFIX_STATS_INSTRUCTION + ", "
+            + PREFIX_LISTS_INSTRUCTION + ", "
+            + PREFIX_USE_INSTRUCTION + ", "
+            + PREFIX_COMPLETE_INSTRUCTION + ", "
+            + PREFIX_UNDO_INSTRUCTION + ", "
+            + PREFIX_REDO_INSTRUCTION + ", "
+            + PREFIX_ARCHIVE_INSTRUCTION + ", \n"
             + LINE_DIVIDER_YAPPER + "\n"
             + "Explain in a way I can understand. ";
     public static final String MISSING_QUERY_STRING_MESSAGE =
             "Query string not given. \n"
             + LINE_DIVIDER_YAPPER + "\n"
             + "What should I be finding? ";
+    public static final String MISSING_QUERY_DATE_MESSAGE =
+            "Query date(s) not given properly. \n"
+            + LINE_DIVIDER_YAPPER + "\n"
+            + "Which day? Try something like 2024-12-31, or 2024-12-31 2359. ";
+    public static final String INVALID_QUERY_DATE_MESSAGE =
+            "is not a date I understand. \n"
+            + LINE_DIVIDER_YAPPER + "\n"
+            + "Try something like 2024-12-31, or 2024-12-31 2359. ";
+    public static final String REVERSED_QUERY_PERIOD_MESSAGE =
+            "The start of the period is after its end. \n"
+            + LINE_DIVIDER_YAPPER + "\n"
+            + "Try the earlier date first, like between 2024-12-01 2024-12-31. ";
+    public static final String MISSING_SCRIPT_PATH_MESSAGE =
+            "Script file not given. \n"
+            + LINE_DIVIDER_YAPPER + "\n"
+            + "Which file should I be reading from? ";
+    public static final String INVALID_LIST_NAME_MESSAGE =
+            "List name is invalid. \n"
+            + LINE_DIVIDER_YAPPER + "\n"
+            + "Keep it to letters, digits, - and _, and no longer than " + MAX_LIST_NAME_LENGTH + " characters. ";
+    public static final String INVALID_HISTORY_STEPS_MESSAGE =
+            "Given count of changes is invalid. \n"
+            + LINE_DIVIDER_YAPPER + "\n"
+            + "Try something like undo, or undo 3. ";
+    public static final String INVALID_ARCHIVE_OPTIONS_MESSAGE =
+            "Given archive options are invalid. \n"
+            + LINE_DIVIDER_YAPPER + "\n"
+            + "Try something like archive, or archive --days 30. ";
     public static final String UNRECOGNISED_INSTRUCTION_MESSAGE =
             "Instruction is not recognised. \n"
             + LINE_DIVIDER_YAPPER + "\n"
@@ -239,10 +480,35 @@ public class StringStorage {
             "List is empty. \n"
             + LINE_DIVIDER_YAPPER + "\n"
             + "You have nothing to remember at the moment. ";
+    public static final String INVALID_PAGE_MESSAGE =
+            "Given page or page size is invalid. \n"
+            + LINE_DIVIDER_YAPPER + "\n"
+            + "Try something like list --page 2 --size 50. ";
     public static final String LIST_OOB_MESSAGE =
             "Given list ordinal is invalid. \n"
             + LINE_DIVIDER_YAPPER + "\n"
             + "I don't what you're referring to. Come again? ";
+    public static final String INVALID_TASK_SELECTION_MESSAGE =
+            "Given task ordinals are invalid. \n"
+            + LINE_DIVIDER_YAPPER + "\n"
+            + "Try something like 3, 3,7,9, 10-500, "
+            + SELECT_ALL_TASKS + ", " + SELECT_DONE_TASKS + " or " + SELECT_NOT_DONE_TASKS + ". ";
+    public static final String NO_TASKS_SELECTED_MESSAGE =
+            "No tasks match. \n"
+            + LINE_DIVIDER_YAPPER + "\n"
+            + "There's nothing there for me to change. ";
+    public static final String NOTHING_TO_UNDO_MESSAGE =
+            "Nothing to undo. \n"
+            + LINE_DIVIDER_YAPPER + "\n"
+            + "You haven't changed anything I can take back. ";
+    public static final String NOTHING_TO_REDO_MESSAGE =
+            "Nothing to redo. \n"
+            + LINE_DIVIDER_YAPPER + "\n"
+            + "You haven't taken anything back since your last change. ";
+    public static final String HISTORY_OUT_OF_DATE_MESSAGE =
+            "The task list no longer matches its history, so the history has been forgotten. \n"
+            + LINE_DIVIDER_YAPPER + "\n"
+            + "Something changed behind my back. I can't take back what I don't remember. ";
     public static final String TASK_ALREADY_DONE_MESSAGE =
             "Task is already marked as done. \n"
             + LINE_DIVIDER_YAPPER + "\n"
@@ -283,14 +549,34 @@ public class StringStorage {
             "FileNotFoundException occurred when finding file";
     public static final String SAVING_ERROR_MESSAGE =
             "IOException occurred when saving data";
-
-    /**
-     * Splits a task string by a specified delimiter.
-     *
-     * @param taskAsString The string representation of the task to be split.
-     * @return An array of strings obtained by splitting the input string.
-     */
-    public static String[] splitByDelimiter(String taskAsString) {
-        return taskAsString.split(SPLIT_USING_DELIMITER, 3);
-    }
+    public static final String ARCHIVING_ERROR_MESSAGE =
+            "IOException occurred when archiving tasks, so they were left in the task list: \n";
+    public static final String ARCHIVE_READING_ERROR_MESSAGE =
+            "IOException occurred when reading the archive: \n";
+    public static final String ARCHIVE_DAMAGED_BLOCK_MESSAGE =
+            "Skipping a damaged block of the archive. ";
+    public static final String INVALID_BINARY_FILE_MESSAGE =
+            "Save file is not a Yapper binary save file of a supported version";
+    public static final String BINARY_FILE_TOO_LARGE_MESSAGE =
+            "Save file is too large to load as a Yapper binary save file";
+    public static final String TORN_SAVE_FILE_MESSAGE =
+            "The save file was not completely written, so the previous version was loaded. The torn file is kept as";
+    public static final String TORN_SAVE_FILE_WITHOUT_PREVIOUS_MESSAGE =
+            "The save file was not completely written, and there is no previous version to load instead. ";
+    public static final String COMPACTION_ERROR_MESSAGE =
+            "IOException occurred when compacting the journal";
+    public static final String SCRIPT_READING_ERROR_MESSAGE =
+            "IOException occurred when reading script file";
+    public static final String NESTED_BATCH_MESSAGE =
+            "is not allowed inside a script file";
+    public static final String STATS_DUMPING_ERROR_MESSAGE =
+            "IOException occurred when dumping stats to file";
+    public static final String SERVER_STARTING_ERROR_MESSAGE =
+            "IOException occurred when starting the server on port";
+    public static final String SERVER_START_UP_MESSAGE =
+            "Yapper is listening for clients on port";
+    public static final String CLIENT_START_UP_MESSAGE =
+            "Wassup! You're sharing this task list with everyone else connected. ";
+    public static final String INSTRUCTION_NOT_FOR_CLIENTS_MESSAGE =
+            "is not available to clients, since the task list and the server's files are shared with everyone. ";
 }
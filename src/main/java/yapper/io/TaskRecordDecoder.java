@@ -0,0 +1,282 @@
+package yapper.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import yapper.exceptions.ExceptionHandler;
+import yapper.exceptions.YapperException;
+import yapper.tasks.Deadline;
+import yapper.tasks.Event;
+import yapper.tasks.Task;
+import yapper.tasks.Todo;
+
+/**
+ * Save File Line Decoder for Yapper.
+ *
+ * <p>
+ * Decodes the lines of the text save file, e.g. "12 | D | X | desc | date", into tasks.
+ * Each line is walked once, finding where its delimiters are, and the task is built from those offsets,
+ * so the only strings made are the description and dates the task keeps.
+ * No regular expressions, splitting or trimming are used.
+ * </p>
+ *
+ * <p>
+ * Save files written before the snapshot header, see {@code SnapshotFileHandler.hasHeader},
+ * stored their dates with the day before the month, and are decoded with legacy dates,
+ * which converts each date with {@code DateAndTimeHandler.convertLegacyDate}.
+ * </p>
+ *
+ * <p>
+ * The lines can be decoded straight from a {@code CharBuffer} or any other {@code CharSequence},
+ * or read from a file through a reusable buffer, instead of a {@code Scanner}.
+ * </p>
+ *
+ */
+public class TaskRecordDecoder {
+    private static final char DELIMITER = StringStorage.COMBINE_USING_DELIMITER.charAt(0);
+    /**
+     * The number of characters read from the save file at a time; grown if a single line is any longer.
+     */
+    private static final int READ_BUFFER_CHARS = 64 * 1024;
+
+
+    /**
+     * Decodes every line read from the save file, skipping any snapshot header and footer.
+     *
+     * @param reader                 the reader of the save file
+     * @param isWithLegacyDates      whether the dates are in the legacy storage patterns
+     * @param taskConsumer           takes each task decoded, in file order
+     * @param invalidMessageConsumer takes the reason each invalid line is skipped, in file order
+     * @return the count of invalid lines
+     * @throws IOException if the save file cannot be read
+     */
+    public static int decodeLines(Reader reader, boolean isWithLegacyDates, Consumer<Task> taskConsumer,
+            Consumer<String> invalidMessageConsumer) throws IOException {
+        char[] buffer = new char[READ_BUFFER_CHARS];
+        CharBuffer bufferView = CharBuffer.wrap(buffer);
+        int filledEnd = 0;
+        int scannedEnd = 0;
+        int invalidTaskCount = 0;
+        int charsRead;
+        while ((charsRead = reader.read(buffer, filledEnd, buffer.length - filledEnd)) != -1) {
+            filledEnd += charsRead;
+            int lastNewline = lastIndexOf(bufferView, '\n', scannedEnd, filledEnd);
+            scannedEnd = filledEnd;
+            if (lastNewline < 0) {
+                if (filledEnd == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    bufferView = CharBuffer.wrap(buffer);
+                }
+                continue;
+            }
+            invalidTaskCount += decodeLines(bufferView, 0, lastNewline + 1, isWithLegacyDates,
+                    taskConsumer, invalidMessageConsumer);
+            System.arraycopy(buffer, lastNewline + 1, buffer, 0, filledEnd - lastNewline - 1);
+            filledEnd -= lastNewline + 1;
+            scannedEnd = filledEnd;
+        }
+        return invalidTaskCount + decodeLines(bufferView, 0, filledEnd, isWithLegacyDates,
+                taskConsumer, invalidMessageConsumer);
+    }
+    /**
+     * Decodes every line between the offsets, skipping any snapshot header and footer.
+     * The last line need not end with a newline.
+     *
+     * @param text                   the text holding the lines
+     * @param start                  the offset of the first line
+     * @param end                    the offset after the last line
+     * @param isWithLegacyDates      whether the dates are in the legacy storage patterns
+     * @param taskConsumer           takes each task decoded, in file order
+     * @param invalidMessageConsumer takes the reason each invalid line is skipped, in file order
+     * @return the count of invalid lines
+     */
+    public static int decodeLines(CharSequence text, int start, int end, boolean isWithLegacyDates,
+            Consumer<Task> taskConsumer, Consumer<String> invalidMessageConsumer) {
+        int invalidTaskCount = 0;
+        int lineStart = start;
+        while (lineStart < end) {
+            int lineEnd = indexOf(text, '\n', lineStart, end);
+            lineEnd = lineEnd < 0 ? end : lineEnd;
+            int contentEnd = lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            if (!SnapshotFileHandler.isFooter(text, lineStart, contentEnd)
+                    && !SnapshotFileHandler.isHeader(text, lineStart, contentEnd)) {
+                try {
+                    taskConsumer.accept(decodeTask(text, lineStart, contentEnd, isWithLegacyDates));
+                } catch (YapperException e) {
+                    invalidMessageConsumer.accept(e.getMessage());
+                    invalidTaskCount++;
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        return invalidTaskCount;
+    }
+
+    /**
+     * Decodes a task from one save file line.
+     *
+     * <p>
+     * The task ID comes first, e.g. "12 | D | X | desc | date".
+     * Lines written before task IDs were stored start with the task type instead,
+     * and the task is decoded without an ID.
+     * </p>
+     *
+     * @param text  the text holding the line
+     * @param start the offset of the first character of the line
+     * @param end   the offset after the last character of the line, without its newline
+     * @return the task decoded
+     * @throws YapperException if the line is not a valid task
+     */
+    public static Task decodeTask(CharSequence text, int start, int end) throws YapperException {
+        return decodeTask(text, start, end, false);
+    }
+    /**
+     * Decodes a task from one save file line, whose dates may be in the legacy storage patterns.
+     *
+     * @param text              the text holding the line
+     * @param start             the offset of the first character of the line
+     * @param end               the offset after the last character of the line, without its newline
+     * @param isWithLegacyDates whether the dates are in the legacy storage patterns
+     * @return the task decoded
+     * @throws YapperException if the line is not a valid task
+     */
+    public static Task decodeTask(CharSequence text, int start, int end, boolean isWithLegacyDates)
+            throws YapperException {
+        try {
+            return decodeFields(text, start, end, isWithLegacyDates);
+        } catch (YapperException e) {
+            throw new YapperException(text.subSequence(start, end) + ", because " + e.getMessage());
+        }
+    }
+    private static Task decodeFields(CharSequence text, int start, int end, boolean isWithLegacyDates)
+            throws YapperException {
+        int fieldStart = start;
+        int digitsStart = start;
+        while (digitsStart < end && text.charAt(digitsStart) == ' ') {
+            digitsStart++;
+        }
+        int digitsEnd = digitsStart;
+        while (digitsEnd < end && isDigit(text.charAt(digitsEnd))) {
+            digitsEnd++;
+        }
+        boolean hasTaskId = digitsEnd > digitsStart;
+        long taskId = 0;
+        if (hasTaskId) {
+            try {
+                taskId = Long.parseLong(text, digitsStart, digitsEnd, 10);
+            } catch (NumberFormatException e) {
+                throw new YapperException("task ID is not a number");
+            }
+            int idDelimiter = skipWhitespace(text, digitsEnd, end);
+            if (idDelimiter == end || text.charAt(idDelimiter) != DELIMITER) {
+                throw new YapperException("invalid task format, missing fields");
+            }
+            fieldStart = idDelimiter + 1;
+        }
+
+        int typeEnd = indexOf(text, DELIMITER, fieldStart, end);
+        int statusEnd = typeEnd < 0 ? -1 : indexOf(text, DELIMITER, typeEnd + 1, end);
+        if (statusEnd < 0) {
+            throw new YapperException("invalid task format, missing fields");
+        }
+        char taskType = getSymbol(text, fieldStart, typeEnd);
+        ExceptionHandler.checkIfTaskTypeValid(taskType);
+        char taskStatus = getSymbol(text, typeEnd + 1, statusEnd);
+        ExceptionHandler.checkIfTaskStatusValid(taskStatus);
+        boolean isDone = taskStatus == StringStorage.SYMBOL_IS_DONE.charAt(0);
+
+        Task task = decodeTaskArgs(text, taskType, isDone, statusEnd + 1, end, isWithLegacyDates);
+        if (hasTaskId) {
+            task.setTaskId(taskId);
+        }
+        return task;
+    }
+    /**
+     * Decodes the fields after the task status, e.g. "desc | date", into a task of the given type.
+     * Any fields after the ones the task type needs are ignored, except for todos,
+     * whose description is the rest of the line.
+     */
+    private static Task decodeTaskArgs(CharSequence text, char taskType, boolean isDone, int argsStart, int end,
+            boolean isWithLegacyDates) throws YapperException {
+        if (taskType == StringStorage.SYMBOL_TODO.charAt(0)) {
+            String todoDesc = substringTrimmed(text, argsStart, end);
+            ExceptionHandler.checkIfTodoArgsMissing(todoDesc);
+            return new Todo(todoDesc, isDone);
+        }
+        int descEnd = indexOf(text, DELIMITER, argsStart, end);
+        if (descEnd < 0) {
+            throw new YapperException("invalid task format, missing fields");
+        }
+        String taskDesc = substringTrimmed(text, argsStart, descEnd);
+        int firstDateEnd = indexOf(text, DELIMITER, descEnd + 1, end);
+        if (taskType == StringStorage.SYMBOL_DEADLINE.charAt(0)) {
+            String endDate = substringTrimmed(text, descEnd + 1, firstDateEnd < 0 ? end : firstDateEnd);
+            ExceptionHandler.checkIfDeadlineArgsMissing(taskDesc, endDate);
+            if (isWithLegacyDates) {
+                endDate = DateAndTimeHandler.convertLegacyDate(endDate);
+            }
+            return new Deadline(taskDesc, isDone, endDate);
+        }
+        if (firstDateEnd < 0) {
+            throw new YapperException("invalid task format, missing fields");
+        }
+        int secondDateEnd = indexOf(text, DELIMITER, firstDateEnd + 1, end);
+        String startDate = substringTrimmed(text, descEnd + 1, firstDateEnd);
+        String endDate = substringTrimmed(text, firstDateEnd + 1, secondDateEnd < 0 ? end : secondDateEnd);
+        ExceptionHandler.checkIfEventArgsMissing(taskDesc, startDate, endDate);
+        if (isWithLegacyDates) {
+            startDate = DateAndTimeHandler.convertLegacyDate(startDate);
+            endDate = DateAndTimeHandler.convertLegacyDate(endDate);
+        }
+        return new Event(taskDesc, isDone, startDate, endDate);
+    }
+
+
+    /**
+     * Returns the one-character symbol of a field, such as the task type or status,
+     * or a space if the field is not exactly one character without the whitespace around it.
+     */
+    private static char getSymbol(CharSequence text, int start, int end) {
+        int symbolStart = skipWhitespace(text, start, end);
+        int symbolEnd = skipWhitespaceBackwards(text, symbolStart, end);
+        return symbolEnd - symbolStart == 1 ? text.charAt(symbolStart) : ' ';
+    }
+    private static String substringTrimmed(CharSequence text, int start, int end) {
+        int trimmedStart = skipWhitespace(text, start, end);
+        return text.subSequence(trimmedStart, skipWhitespaceBackwards(text, trimmedStart, end)).toString();
+    }
+    private static int skipWhitespace(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+    private static int skipWhitespaceBackwards(CharSequence text, int start, int end) {
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+    private static int indexOf(CharSequence text, char target, int start, int end) {
+        for (int index = start; index < end; index++) {
+            if (text.charAt(index) == target) {
+                return index;
+            }
+        }
+        return -1;
+    }
+    private static int lastIndexOf(CharSequence text, char target, int start, int end) {
+        for (int index = end - 1; index >= start; index--) {
+            if (text.charAt(index) == target) {
+                return index;
+            }
+        }
+        return -1;
+    }
+    private static boolean isDigit(char character) {
+        return character >= '0' && character <= '9';
+    }
+}
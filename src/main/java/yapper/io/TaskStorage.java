@@ -0,0 +1,119 @@
+package yapper.io;
+
+import java.io.IOException;
+import java.util.List;
+
+import yapper.tasks.ColumnarTaskHandler;
+import yapper.tasks.SlottedTaskHandler;
+import yapper.tasks.Task;
+import yapper.tasks.TaskHandler;
+
+/**
+ * A save file format for Yapper.
+ *
+ * <p>
+ * {@code InputFileHandler} and {@code OutputFileHandler} delegate to the {@code TaskStorage}
+ * chosen in {@code FileHandler}, so the rest of Yapper does not depend on how tasks are laid out on disk.
+ * </p>
+ *
+ * <p>
+ * Currently consists of 3 formats:
+ * <li> {@code TextTaskStorage}: the pipe-delimited text format, optionally with a journal. <li/>
+ * {@code MappedTextTaskStorage}: the text format, memory-mapped and parsed lazily. <li/>
+ * {@code BinaryTaskStorage}: a versioned binary format with fixed-size record headers.
+ * <p/>
+ *
+ */
+public interface TaskStorage {
+
+    /**
+     * Returns the path of the save file used by this format.
+     *
+     * @return the path of the save file
+     */
+    String getSaveFilePath();
+
+    /**
+     * Returns whether changes to the task list are appended to the journal, instead of written to the save file.
+     *
+     * @return {@code true} if the journal is used
+     */
+    default boolean isJournaled() {
+        return false;
+    }
+
+    /**
+     * Returns whether the save file last loaded stores its dates in the legacy storage patterns,
+     * or has no tasks yet, and should be stored again in full so that it is in the current ones.
+     *
+     * @return {@code true} if the save file should be stored again
+     */
+    default boolean isWithLegacyDates() {
+        return false;
+    }
+
+    /**
+     * Creates the task list that tasks from this format are loaded into,
+     * keeping the tasks in columns if {@code FileHandler.isCompactTasks}.
+     *
+     * @return an empty task list
+     */
+    default TaskHandler createTaskHandler() {
+        return FileHandler.isCompactTasks() ? new ColumnarTaskHandler() : new SlottedTaskHandler();
+    }
+
+    /**
+     * Loads all tasks from the save file into the task list.
+     *
+     * @param taskHandler the handler to add the loaded tasks to
+     * @return the number of invalid tasks encountered
+     * @throws IOException if the save file cannot be read
+     */
+    int loadTasks(TaskHandler taskHandler) throws IOException;
+
+    /**
+     * Writes the whole task list to the save file, replacing its contents.
+     *
+     * @param taskHandler the handler managing the task list
+     * @throws IOException if the save file cannot be written
+     */
+    void storeAllTasks(TaskHandler taskHandler) throws IOException;
+    /**
+     * Stores a task that was just added to the end of the task list.
+     *
+     * @param taskHandler the handler managing the task list
+     * @param task        the task that was added
+     * @throws IOException if the save file cannot be written
+     */
+    void storeAddedTask(TaskHandler taskHandler, Task task) throws IOException;
+    /**
+     * Removes a task that was just deleted from the task list.
+     *
+     * @param taskHandler the handler managing the task list
+     * @param taskOrdinal the ordinal the task had before it was deleted
+     * @throws IOException if the save file cannot be written
+     */
+    void unstoreDeletedTask(TaskHandler taskHandler, int taskOrdinal) throws IOException;
+    /**
+     * Stores tasks that were just put back into the task list at the given ordinals, e.g. when a delete is undone.
+     * Formats that cannot insert a task in the middle of the save file write the whole task list again.
+     *
+     * @param taskHandler  the handler managing the task list
+     * @param taskOrdinals the ordinals the tasks were put back at, in ascending order
+     * @param tasks        the tasks that were put back, in the same order
+     * @throws IOException if the save file cannot be written
+     */
+    default void storeRestoredTasks(TaskHandler taskHandler, int[] taskOrdinals, List<Task> tasks)
+            throws IOException {
+        storeAllTasks(taskHandler);
+    }
+    /**
+     * Stores the new completion status of a task.
+     *
+     * @param taskHandler the handler managing the task list
+     * @param task        the task with the updated status
+     * @param taskOrdinal the ordinal of the task
+     * @throws IOException if the save file cannot be written
+     */
+    void amendTaskStatus(TaskHandler taskHandler, Task task, int taskOrdinal) throws IOException;
+}
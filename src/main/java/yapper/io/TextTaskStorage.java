@@ -0,0 +1,223 @@
+package yapper.io;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import yapper.metrics.MetricsRegistry;
+import yapper.tasks.Task;
+import yapper.tasks.TaskHandler;
+
+/**
+ * The pipe-delimited text save format for Yapper.
+ *
+ * <p>
+ * Each task is one line, as built by {@code Task.taskToSaveString}, e.g. "12 | D | X | desc | date".
+ * In journal mode, changes are appended to the journal via {@code JournalFileHandler}
+ * instead of rewriting the save file.
+ * </p>
+ *
+ * <p>
+ * The save file is only ever rewritten as a whole, through {@code SnapshotFileHandler},
+ * which ends it with a checksum footer, so that a torn save file is found when loading
+ * and the previous generation is loaded instead.
+ * </p>
+ *
+ * <p>
+ * If the write-behind queue is on, changes are queued with {@code WriteBehindPersister} instead of written here:
+ * an added task is queued as an append, and any other change as a replacement of the whole save file.
+ * </p>
+ *
+ * <p>
+ * A save file without the snapshot header was written while dates were stored with the day before the month,
+ * so it and its journal are loaded with legacy dates, until it is stored again in full.
+ * </p>
+ *
+ */
+public class TextTaskStorage implements TaskStorage {
+    private final String saveFilePath;
+    private boolean isWithLegacyDates = false;
+
+
+    /**
+     * Constructs the text save format for the default task list.
+     */
+    public TextTaskStorage() {
+        this(StringStorage.SAVE_FILE_PATH);
+    }
+    /**
+     * Constructs the text save format for the task list with the given save file.
+     *
+     * @param saveFilePath the path of the save file
+     */
+    public TextTaskStorage(String saveFilePath) {
+        this.saveFilePath = saveFilePath;
+    }
+
+    @Override
+    public String getSaveFilePath() {
+        return saveFilePath;
+    }
+    /**
+     * Returns whether changes are appended to the journal, which is only kept for the default task list.
+     *
+     * @return {@code true} if in journal mode and this is the default task list's save file
+     */
+    @Override
+    public boolean isJournaled() {
+        return FileHandler.isJournalMode() && saveFilePath.equals(StringStorage.SAVE_FILE_PATH);
+    }
+    @Override
+    public boolean isWithLegacyDates() {
+        return isWithLegacyDates;
+    }
+
+    /**
+     * Loads tasks from the file to the TaskHandler, noting the number of invalid tasks encountered along the way.
+     *
+     * <p>
+     * In journal mode, for the default task list, an interrupted compaction is resolved first,
+     * and the journal is replayed on top of the loaded tasks afterwards.
+     * A torn save file is replaced with its previous generation before it is loaded.
+     * The next task ID stored in its header is kept first, so that loaded tasks without an ID do not take it.
+     * </p>
+     *
+     * @param taskHandler the handler to add the loaded tasks to
+     * @return the updated count of invalid tasks encountered during the file scan
+     * @throws IOException if the save file is not found or an interrupted compaction cannot be resolved
+     */
+    @Override
+    public int loadTasks(TaskHandler taskHandler) throws IOException {
+        if (isJournaled()) {
+            JournalFileHandler.recoverInterruptedCompaction();
+        }
+        SnapshotFileHandler.restorePreviousGenerationIfTorn(Paths.get(getSaveFilePath()));
+        isWithLegacyDates = !SnapshotFileHandler.hasHeader(Paths.get(getSaveFilePath()));
+        taskHandler.reserveTaskIds(SnapshotFileHandler.readNextTaskId(Paths.get(getSaveFilePath())));
+        int invalidTaskCount = loadSaveFile(taskHandler);
+        if (isJournaled()) {
+            invalidTaskCount += JournalFileHandler.replayJournals(taskHandler, isWithLegacyDates);
+        }
+        return invalidTaskCount;
+    }
+    /**
+     * Loads the tasks in the save file itself, without the journal.
+     *
+     * <p>
+     * This method decodes each line of the file with {@code TaskRecordDecoder}, attempting to parse it as a task.
+     * If a task is invalid, it is skipped and the count of invalid tasks is incremented.
+     * If parallel loading is on, the lines are parsed by {@code ParallelTaskLoader} instead.
+     * </p>
+     *
+     * @param taskHandler the handler to add the loaded tasks to
+     * @return the count of invalid tasks encountered during the file scan
+     * @throws IOException if the save file is not found
+     */
+    protected int loadSaveFile(TaskHandler taskHandler) throws IOException {
+        if (FileHandler.isParallelLoading()) {
+            return ParallelTaskLoader.loadTasks(taskHandler, getSaveFilePath(), isWithLegacyDates);
+        }
+        // malformed characters are replaced rather than failing the load, as the lines they are in are skipped anyway
+        try (Reader fileReader = new InputStreamReader(Files.newInputStream(Paths.get(saveFilePath)),
+                Charset.defaultCharset())) {
+            return TaskRecordDecoder.decodeLines(fileReader, isWithLegacyDates, taskHandler::addTask,
+                    invalidTaskMessage -> System.out.println("skipping invalid task: " + invalidTaskMessage));
+        }
+    }
+
+    /**
+     * Stores every task, by writing them to a temporary file that is forced to disk and then moved over the save file,
+     * so the save file is never left half written.
+     *
+     * @param taskHandler the handler whose tasks are stored
+     * @throws IOException if an I/O error occurs while writing or moving the file
+     */
+    @Override
+    public void storeAllTasks(TaskHandler taskHandler) throws IOException {
+        WriteBehindPersister.awaitAll();
+        SnapshotFileHandler.replaceWithSnapshot(Paths.get(saveFilePath), taskHandler.tasksToString(),
+                taskHandler.getNextTaskId());
+        isWithLegacyDates = false;
+        if (isJournaled()) {
+            JournalFileHandler.discardJournal();
+        }
+    }
+    @Override
+    public void storeAddedTask(TaskHandler taskHandler, Task task) throws IOException {
+        if (isJournaled()) {
+            JournalFileHandler.appendAddedTask(taskHandler, task);
+            return;
+        }
+        byte[] taskLineBytes = (task.taskToSaveString() + "\n").getBytes(Charset.defaultCharset());
+        if (WriteBehindPersister.isStarted()) {
+            WriteBehindPersister.append(Paths.get(saveFilePath), taskLineBytes, false);
+            return;
+        }
+        // not created if missing, so that a deleted save file is restored rather than left with one task
+        try (OutputStream fileOutput = Files.newOutputStream(Paths.get(saveFilePath),
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            fileOutput.write(taskLineBytes);
+        }
+        MetricsRegistry.recordBytesWritten(taskLineBytes.length);
+    }
+    @Override
+    public void unstoreDeletedTask(TaskHandler taskHandler, int taskOrdinal) throws IOException {
+        if (isJournaled()) {
+            JournalFileHandler.appendDeletedTask(taskHandler, taskOrdinal);
+            return;
+        }
+        if (WriteBehindPersister.isStarted()) {
+            queueSaveFileReplacement(taskHandler);
+            return;
+        }
+        SnapshotFileHandler.replaceWithSnapshot(Paths.get(saveFilePath), taskHandler.tasksToString(),
+                taskHandler.getNextTaskId());
+    }
+    @Override
+    public void storeRestoredTasks(TaskHandler taskHandler, int[] taskOrdinals, List<Task> tasks)
+            throws IOException {
+        if (isJournaled()) {
+            for (int index = 0; index < taskOrdinals.length; index++) {
+                JournalFileHandler.appendRestoredTask(taskHandler, taskOrdinals[index], tasks.get(index));
+            }
+            return;
+        }
+        if (WriteBehindPersister.isStarted()) {
+            queueSaveFileReplacement(taskHandler);
+            return;
+        }
+        SnapshotFileHandler.replaceWithSnapshot(Paths.get(saveFilePath), taskHandler.tasksToString(),
+                taskHandler.getNextTaskId());
+    }
+    @Override
+    public void amendTaskStatus(TaskHandler taskHandler, Task task, int taskOrdinal) throws IOException {
+        if (isJournaled()) {
+            JournalFileHandler.appendTaskStatus(taskHandler, taskOrdinal, task.isDone());
+            return;
+        }
+        if (WriteBehindPersister.isStarted()) {
+            queueSaveFileReplacement(taskHandler);
+            return;
+        }
+        SnapshotFileHandler.replaceWithSnapshot(Paths.get(saveFilePath), taskHandler.tasksToString(),
+                taskHandler.getNextTaskId());
+    }
+
+
+    /**
+     * Queues the save file to be replaced with every task, taken now, since the task list may change
+     * before the write-behind queue gets to it.
+     *
+     * @param taskHandler the handler whose tasks are stored
+     */
+    private void queueSaveFileReplacement(TaskHandler taskHandler) {
+        WriteBehindPersister.replace(Paths.get(saveFilePath),
+                SnapshotFileHandler.toSnapshotBytes(taskHandler.tasksToString(), taskHandler.getNextTaskId()));
+    }
+}
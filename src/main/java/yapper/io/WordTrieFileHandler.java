@@ -0,0 +1,107 @@
+package yapper.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import yapper.tasks.Task;
+import yapper.tasks.TaskHandler;
+import yapper.tasks.TaskWordTrie;
+
+/**
+ * Word Trie File Handler for Yapper.
+ *
+ * <p>
+ * Saves the word trie of a task list next to its save file, e.g. "savedata.txt.trie", when Yapper stops,
+ * and reads it back after the tasks are loaded on the next start, so the first prefix search or completion
+ * does not have to build it again.
+ * </p>
+ *
+ * <p>
+ * The file starts with a fingerprint of the ID and description of every task it was built over.
+ * The trie is only read back if the loaded tasks have the same fingerprint, so a save file changed in between,
+ * e.g. by hand or by a crash before the trie was saved, never leaves a stale trie.
+ * Otherwise, or if the file cannot be read, the trie is built on first use as before.
+ * </p>
+ *
+ */
+public class WordTrieFileHandler {
+    private static final int MAGIC_NUMBER = 0x59545249;
+    private static final int FORMAT_VERSION = 1;
+
+
+    /**
+     * Reads back the word trie saved with the task list, if it was built over exactly the loaded tasks.
+     *
+     * @param taskHandler  the task list, with its tasks already loaded
+     * @param saveFilePath the path of the save file the tasks were loaded from
+     */
+    public static void loadWordTrie(TaskHandler taskHandler, String saveFilePath) {
+        if (!taskHandler.keepsWordTrie()) {
+            return;
+        }
+        Path wordTriePath = getWordTriePath(saveFilePath);
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(wordTriePath)))) {
+            if (input.readInt() != MAGIC_NUMBER || input.readInt() != FORMAT_VERSION
+                    || input.readLong() != getFingerprint(taskHandler)) {
+                return;
+            }
+            taskHandler.setWordTrie(TaskWordTrie.readFrom(input));
+        } catch (NoSuchFileException e) {
+            // no trie was saved, so it is built on first use
+        } catch (IOException e) {
+            System.out.println("Ignoring unreadable word trie " + wordTriePath + ": " + e.getMessage());
+        }
+    }
+    /**
+     * Saves the word trie of the task list next to its save file, if it was built.
+     * It is written to a temporary file first, so a crash never leaves it half written.
+     *
+     * @param taskHandler  the task list
+     * @param saveFilePath the path of the save file the tasks are saved to
+     */
+    public static void storeWordTrie(TaskHandler taskHandler, String saveFilePath) {
+        if (!taskHandler.keepsWordTrie() || !taskHandler.isWordTrieBuilt()) {
+            return;
+        }
+        Path wordTriePath = getWordTriePath(saveFilePath);
+        Path tempFilePath = Paths.get(wordTriePath + StringStorage.TEMP_FILE_SUFFIX);
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(tempFilePath)))) {
+                output.writeInt(MAGIC_NUMBER);
+                output.writeInt(FORMAT_VERSION);
+                output.writeLong(getFingerprint(taskHandler));
+                taskHandler.getWordTrie().writeTo(output);
+            }
+            Files.move(tempFilePath, wordTriePath,
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("Could not save the word trie to " + wordTriePath + ": " + e.getMessage());
+        }
+    }
+
+
+    private static Path getWordTriePath(String saveFilePath) {
+        return Paths.get(saveFilePath + StringStorage.WORD_TRIE_FILE_SUFFIX);
+    }
+    /**
+     * Returns a hash of the ID and description of every task, in order.
+     */
+    private static long getFingerprint(TaskHandler taskHandler) {
+        long fingerprint = taskHandler.getCurrTaskTotal();
+        for (Task task : taskHandler.getAllTasks()) {
+            fingerprint = fingerprint * 31 + task.getTaskId();
+            fingerprint = fingerprint * 31 + task.getDesc().hashCode();
+        }
+        return fingerprint;
+    }
+}
@@ -0,0 +1,200 @@
+package yapper.io;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import yapper.tasks.TaskHandler;
+
+/**
+ * Named Task List Manager for Yapper.
+ *
+ * <p>
+ * Besides the default list, any number of named lists can be used, each with its own {@code TaskHandler}
+ * and its own {@code TaskStorage}, saving to its own file in the lists folder.
+ * A list is only loaded the first time it is used, so a change to one list never reads or writes another,
+ * and only the lists in use take up memory.
+ * </p>
+ *
+ * <p>
+ * One list is in use at a time, for the user or for every client of the server,
+ * and {@code FileHandler} always holds the list in use, so the rest of Yapper works on it unchanged.
+ * The other loaded lists are dropped from memory once idle for {@code LIST_IDLE_EVICTION_SECONDS},
+ * or when more than {@code MAX_LOADED_LISTS} are loaded, starting with the one used longest ago.
+ * Every change is already saved when it is made, so dropping a list loses nothing.
+ * </p>
+ *
+ * <p>
+ * The default list is never dropped, since in journal mode it may still be compacting its journal.
+ * </p>
+ *
+ */
+public class WorkspaceHandler {
+    /**
+     * A loaded task list, with the save format it is stored in.
+     */
+    private static class Workspace {
+        private final TaskStorage taskStorage;
+        private final TaskHandler taskHandler;
+        private long lastUsedNanos = System.nanoTime();
+
+        private Workspace(TaskStorage taskStorage, TaskHandler taskHandler) {
+            this.taskStorage = taskStorage;
+            this.taskHandler = taskHandler;
+        }
+    }
+
+    private static final Map<String, Workspace> LOADED_LISTS = new HashMap<>();
+    private static String currentListName = StringStorage.DEFAULT_LIST_NAME;
+    private static ScheduledExecutorService evictionExecutor;
+
+
+    /**
+     * Returns the name of the list in use.
+     *
+     * @return the name of the list
+     */
+    public static synchronized String getCurrentListName() {
+        return currentListName;
+    }
+
+    /**
+     * Switches to the named list, loading it from its save file if it is not loaded, or starting it if it is new.
+     *
+     * @param listName the name of the list, already checked to be valid
+     * @return the handler of the list, which {@code FileHandler} now holds
+     */
+    public static synchronized TaskHandler useList(String listName) {
+        Workspace currentWorkspace = getCurrentWorkspace();
+        currentWorkspace.lastUsedNanos = System.nanoTime();
+        OutputFileHandler.storeWordTrie();
+
+        Workspace workspace = LOADED_LISTS.get(listName);
+        if (workspace == null) {
+            workspace = loadList(listName);
+            LOADED_LISTS.put(listName, workspace);
+        } else {
+            FileHandler.setTaskStorage(workspace.taskStorage);
+            FileHandler.setTaskHandler(workspace.taskHandler);
+        }
+        workspace.lastUsedNanos = System.nanoTime();
+        currentListName = listName;
+        SaveFileWatcher.startWatching();
+
+        evictIdleLists();
+        startEvictionTimer();
+        return workspace.taskHandler;
+    }
+
+    /**
+     * Describes every list, whether loaded or only saved, one per line, in order of name.
+     * The list in use is marked with a *, and each loaded list shows its task total.
+     *
+     * @return the lines describing the lists
+     */
+    public static synchronized List<String> describeLists() {
+        getCurrentWorkspace();
+        TreeSet<String> listNames = new TreeSet<>(LOADED_LISTS.keySet());
+        String listFileSuffix = getListFileSuffix();
+        File[] listFiles = new File(StringStorage.LISTS_FOLDER_PATH).listFiles();
+        if (listFiles != null) {
+            for (File listFile : listFiles) {
+                String fileName = listFile.getName();
+                if (fileName.endsWith(listFileSuffix)) {
+                    listNames.add(fileName.substring(0, fileName.length() - listFileSuffix.length()));
+                }
+            }
+        }
+
+        List<String> lines = new ArrayList<>();
+        for (String listName : listNames) {
+            Workspace workspace = LOADED_LISTS.get(listName);
+            String listDesc = workspace == null
+                    ? " (not loaded)"
+                    : " (" + workspace.taskHandler.getCurrTaskTotal() + " tasks)";
+            lines.add((listName.equals(currentListName) ? "* " : "  ") + listName + listDesc);
+        }
+        return lines;
+    }
+
+
+    /**
+     * Returns the list in use, first registering the default list that Yapper started with.
+     */
+    private static Workspace getCurrentWorkspace() {
+        Workspace currentWorkspace = LOADED_LISTS.get(currentListName);
+        if (currentWorkspace == null) {
+            currentWorkspace = new Workspace(FileHandler.getTaskStorage(), FileHandler.getTaskHandler());
+            LOADED_LISTS.put(currentListName, currentWorkspace);
+        }
+        return currentWorkspace;
+    }
+    /**
+     * Loads a named list from its save file, in the same format as the default list.
+     * Lazy loading and the journal are only used by the default list, so named lists use the plain text format.
+     */
+    private static Workspace loadList(String listName) {
+        // a dropped list may still have changes queued to be written
+        WriteBehindPersister.awaitAll();
+        String listFilePath = StringStorage.LISTS_FOLDER_PATH + "/" + listName + getListFileSuffix();
+        TaskStorage taskStorage = FileHandler.getTaskStorage() instanceof BinaryTaskStorage
+                ? new BinaryTaskStorage(listFilePath)
+                : new TextTaskStorage(listFilePath);
+        FileHandler.setTaskStorage(taskStorage);
+        return new Workspace(taskStorage, InputFileHandler.loadTasksFromFile());
+    }
+    private static String getListFileSuffix() {
+        return FileHandler.getTaskStorage() instanceof BinaryTaskStorage
+                ? StringStorage.BINARY_LIST_FILE_SUFFIX
+                : StringStorage.TEXT_LIST_FILE_SUFFIX;
+    }
+
+    /**
+     * Drops the lists not in use that have been idle for too long,
+     * then the ones used longest ago while too many are loaded.
+     */
+    private static synchronized void evictIdleLists() {
+        long now = System.nanoTime();
+        long idleNanos = TimeUnit.SECONDS.toNanos(StringStorage.LIST_IDLE_EVICTION_SECONDS);
+        LOADED_LISTS.entrySet().removeIf(entry -> isEvictable(entry.getKey())
+                && now - entry.getValue().lastUsedNanos > idleNanos);
+        while (LOADED_LISTS.size() > StringStorage.MAX_LOADED_LISTS) {
+            String leastRecentlyUsed = null;
+            for (Map.Entry<String, Workspace> entry : LOADED_LISTS.entrySet()) {
+                if (isEvictable(entry.getKey()) && (leastRecentlyUsed == null
+                        || entry.getValue().lastUsedNanos < LOADED_LISTS.get(leastRecentlyUsed).lastUsedNanos)) {
+                    leastRecentlyUsed = entry.getKey();
+                }
+            }
+            if (leastRecentlyUsed == null) {
+                return;
+            }
+            LOADED_LISTS.remove(leastRecentlyUsed);
+        }
+    }
+    private static boolean isEvictable(String listName) {
+        return !listName.equals(currentListName) && !listName.equals(StringStorage.DEFAULT_LIST_NAME);
+    }
+    /**
+     * Checks for idle lists every so often, so they are dropped even if no other list is used for a while.
+     */
+    private static void startEvictionTimer() {
+        if (evictionExecutor != null) {
+            return;
+        }
+        evictionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "yapper-list-eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long checkIntervalSeconds = Math.max(1, StringStorage.LIST_IDLE_EVICTION_SECONDS / 10);
+        evictionExecutor.scheduleAtFixedRate(WorkspaceHandler::evictIdleLists,
+                checkIntervalSeconds, checkIntervalSeconds, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,420 @@
+package yapper.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import yapper.metrics.MetricsRegistry;
+
+/**
+ * Write-behind Persistence Queue for Yapper.
+ *
+ * <p>
+ * When started, the save formats hand their file writes to this queue instead of writing them directly.
+ * A single background thread takes the queued writes in order, and groups those made within the commit window
+ * (or until a batch is full) into one commit: appends to the same file are joined into one write,
+ * each file is opened once, and, depending on the durability level, forced to disk once.
+ * A reply waiting for its writes ends the window early, since nothing else may be coming, e.g. with a single user,
+ * so a commit then groups the writes queued while the one before it was being forced.
+ * </p>
+ *
+ * <p>
+ * The durability level also decides when a reply is printed, see {@code OutputSink.flush}: <ul>
+ *   <li> NONE: replies are printed right away, and writes are not forced to disk,
+ *        except a replaced file, before it is moved into place, </li>
+ *   <li> BATCHED: replies wait until the commit holding their writes has been forced to disk, </li>
+ *   <li> PER_OP: every write is committed and forced to disk on its own, and replies wait for it. </li>
+ * </ul>
+ * </p>
+ *
+ * <p>
+ * If a commit fails, e.g. because the save file was deleted, the next instruction restores the save file
+ * from the task list, see {@code SaveFileWatcher.requestRestore}.
+ * </p>
+ *
+ */
+public class WriteBehindPersister {
+    /**
+     * How durable a change is by the time its reply is printed.
+     */
+    public enum Durability {
+        NONE, BATCHED, PER_OP
+    }
+    /**
+     * A file operation that has to happen in order with the queued writes, e.g. rotating the journal.
+     */
+    public interface FileAction {
+        void run() throws IOException;
+    }
+
+    private enum WriteKind {
+        APPEND, WRITE_AT, REPLACE, ACTION, COMMIT_REQUEST
+    }
+    /**
+     * A single queued write, numbered in the order it was queued.
+     */
+    private static class PendingWrite {
+        private final WriteKind kind;
+        private final Path path;
+        private final long position;
+        private final byte[] bytes;
+        private final boolean isCreatingFile;
+        private final FileAction action;
+        private long sequence;
+
+        private PendingWrite(WriteKind kind, Path path, long position, byte[] bytes,
+                boolean isCreatingFile, FileAction action) {
+            this.kind = kind;
+            this.path = path;
+            this.position = position;
+            this.bytes = bytes;
+            this.isCreatingFile = isCreatingFile;
+            this.action = action;
+        }
+    }
+
+    private static final Object ENQUEUE_LOCK = new Object();
+    private static final Object COMMIT_LOCK = new Object();
+    private static final ThreadLocal<long[]> LAST_SEQUENCE_OF_THREAD = ThreadLocal.withInitial(() -> new long[1]);
+
+    private static volatile boolean isStarted = false;
+    private static Thread persisterThread = null;
+    private static Durability durability = Durability.NONE;
+    private static long commitWindowNanos = 0;
+    private static int maxWritesPerCommit = 1;
+    private static BlockingQueue<PendingWrite> pendingWrites;
+    /**
+     * The sequence number of the last queued write, guarded by {@code ENQUEUE_LOCK}.
+     */
+    private static long lastQueuedSequence = 0;
+    /**
+     * The sequence number of the last committed write, and the range of the last failed commit,
+     * guarded by {@code COMMIT_LOCK}.
+     */
+    private static long lastCommittedSequence = 0;
+    private static long failedFromSequence = 0;
+    private static long failedToSequence = -1;
+    private static String failureMessage = null;
+
+
+    /**
+     * Starts the background thread, after which file writes are queued instead of made directly.
+     *
+     * @param durabilityLevel    how durable a change is by the time its reply is printed
+     * @param commitWindowMillis how long to wait for more writes to join a commit
+     * @param maxWrites          the most writes in one commit
+     */
+    public static synchronized void start(Durability durabilityLevel, long commitWindowMillis, int maxWrites) {
+        if (isStarted) {
+            return;
+        }
+        durability = durabilityLevel;
+        commitWindowNanos = durabilityLevel == Durability.PER_OP
+                ? 0 : TimeUnit.MILLISECONDS.toNanos(commitWindowMillis);
+        maxWritesPerCommit = durabilityLevel == Durability.PER_OP ? 1 : Math.max(1, maxWrites);
+        pendingWrites = new ArrayBlockingQueue<>(StringStorage.WRITE_BEHIND_QUEUE_CAPACITY);
+        persisterThread = new Thread(WriteBehindPersister::runCommits, "yapper-write-behind");
+        persisterThread.setDaemon(true);
+        persisterThread.start();
+        isStarted = true;
+    }
+    /**
+     * Waits for every queued write to be committed, then stops the background thread,
+     * after which file writes are made directly again.
+     * Nothing else may queue writes while it stops.
+     */
+    public static synchronized void stop() {
+        if (!isStarted) {
+            return;
+        }
+        awaitAll();
+        isStarted = false;
+        persisterThread.interrupt();
+        try {
+            persisterThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        persisterThread = null;
+    }
+    public static boolean isStarted() {
+        return isStarted;
+    }
+    public static Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Queues bytes to be appended to a file.
+     *
+     * @param path           the file to append to
+     * @param bytes          the bytes to append
+     * @param isCreatingFile whether to create the file if it is missing, instead of failing the commit
+     */
+    public static void append(Path path, byte[] bytes, boolean isCreatingFile) {
+        enqueue(new PendingWrite(WriteKind.APPEND, path, 0, bytes, isCreatingFile, null));
+    }
+    /**
+     * Queues bytes to be written at a position in an existing file.
+     *
+     * @param path     the file to write to
+     * @param position the position of the first byte
+     * @param bytes    the bytes to write
+     */
+    public static void writeAt(Path path, long position, byte[] bytes) {
+        enqueue(new PendingWrite(WriteKind.WRITE_AT, path, position, bytes, false, null));
+    }
+    /**
+     * Queues a file to be replaced with new contents, by moving a temporary file over it,
+     * see {@code SnapshotFileHandler.moveIntoPlace}.
+     *
+     * @param path  the file to replace
+     * @param bytes the new contents of the file
+     */
+    public static void replace(Path path, byte[] bytes) {
+        enqueue(new PendingWrite(WriteKind.REPLACE, path, 0, bytes, true, null));
+    }
+    /**
+     * Queues a file operation to run after every write queued before it.
+     *
+     * @param action the file operation
+     */
+    public static void run(FileAction action) {
+        enqueue(new PendingWrite(WriteKind.ACTION, null, 0, null, false, action));
+    }
+
+    /**
+     * Waits until every write queued so far has been committed, e.g. before the whole save file is rewritten.
+     */
+    public static void awaitAll() {
+        if (!isStarted) {
+            return;
+        }
+        long sequence;
+        synchronized (ENQUEUE_LOCK) {
+            sequence = lastQueuedSequence;
+        }
+        awaitCommit(sequence);
+    }
+    /**
+     * Waits until the writes queued by the current thread are as durable as the durability level promises,
+     * so that the reply to them can be printed.
+     *
+     * @return a message describing why the writes failed, or null if they did not
+     */
+    public static String awaitWritesOfThread() {
+        if (!isStarted || durability == Durability.NONE) {
+            return null;
+        }
+        long[] lastSequence = LAST_SEQUENCE_OF_THREAD.get();
+        if (lastSequence[0] == 0) {
+            return null;
+        }
+        if (!isCommitted(lastSequence[0])) {
+            enqueue(new PendingWrite(WriteKind.COMMIT_REQUEST, null, 0, null, false, null));
+        }
+        String failure = awaitCommit(lastSequence[0]);
+        lastSequence[0] = 0;
+        return failure;
+    }
+
+
+    private static void enqueue(PendingWrite pendingWrite) {
+        try {
+            synchronized (ENQUEUE_LOCK) {
+                pendingWrite.sequence = ++lastQueuedSequence;
+                // blocks while the queue is full, which holds back whoever is making changes faster than they are saved
+                pendingWrites.put(pendingWrite);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        LAST_SEQUENCE_OF_THREAD.get()[0] = pendingWrite.sequence;
+    }
+    private static boolean isCommitted(long sequence) {
+        synchronized (COMMIT_LOCK) {
+            return lastCommittedSequence >= sequence;
+        }
+    }
+    private static String awaitCommit(long sequence) {
+        synchronized (COMMIT_LOCK) {
+            while (lastCommittedSequence < sequence) {
+                try {
+                    COMMIT_LOCK.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+            return sequence >= failedFromSequence && sequence <= failedToSequence ? failureMessage : null;
+        }
+    }
+
+    /**
+     * Takes queued writes in batches, forever, and commits each batch.
+     */
+    private static void runCommits() {
+        List<PendingWrite> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(pendingWrites.take());
+                long commitDeadline = System.nanoTime() + commitWindowNanos;
+                while (batch.size() < maxWritesPerCommit
+                        && batch.get(batch.size() - 1).kind != WriteKind.COMMIT_REQUEST) {
+                    long remainingNanos = commitDeadline - System.nanoTime();
+                    PendingWrite pendingWrite = remainingNanos > 0
+                            ? pendingWrites.poll(remainingNanos, TimeUnit.NANOSECONDS)
+                            : pendingWrites.poll();
+                    if (pendingWrite == null) {
+                        break;
+                    }
+                    batch.add(pendingWrite);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            String failure = null;
+            try {
+                commit(batch);
+            } catch (IOException | RuntimeException e) {
+                failure = StringStorage.SAVING_ERROR_MESSAGE + ", when saving changes in the background: \n"
+                        + e.getMessage();
+                if (durability == Durability.NONE) {
+                    System.out.println(failure);
+                }
+                SaveFileWatcher.requestRestore();
+            }
+            finishCommit(batch.get(0).sequence, batch.get(batch.size() - 1).sequence, failure);
+            batch.clear();
+        }
+    }
+    private static void finishCommit(long fromSequence, long toSequence, String failure) {
+        synchronized (COMMIT_LOCK) {
+            lastCommittedSequence = toSequence;
+            if (failure != null) {
+                failedFromSequence = fromSequence;
+                failedToSequence = toSequence;
+                failureMessage = failure;
+            }
+            COMMIT_LOCK.notifyAll();
+        }
+    }
+
+    /**
+     * Makes every write in the batch, in order, then forces each written file to disk once if needed.
+     *
+     * @param batch the writes to commit
+     * @throws IOException if any write fails
+     */
+    private static void commit(List<PendingWrite> batch) throws IOException {
+        Map<Path, FileChannel> openChannels = new LinkedHashMap<>();
+        ByteArrayOutputStream joinedAppends = new ByteArrayOutputStream();
+        PendingWrite firstAppend = null;
+        try {
+            for (PendingWrite pendingWrite : batch) {
+                if (pendingWrite.kind == WriteKind.APPEND && firstAppend != null
+                        && pendingWrite.path.equals(firstAppend.path)) {
+                    joinedAppends.write(pendingWrite.bytes);
+                    continue;
+                }
+                writeAppends(openChannels, firstAppend, joinedAppends);
+                firstAppend = null;
+
+                switch (pendingWrite.kind) {
+                case APPEND:
+                    firstAppend = pendingWrite;
+                    joinedAppends.write(pendingWrite.bytes);
+                    break;
+                case WRITE_AT:
+                    writeFully(getChannel(openChannels, pendingWrite),
+                            ByteBuffer.wrap(pendingWrite.bytes), pendingWrite.position);
+                    break;
+                case REPLACE:
+                    closeChannels(openChannels);
+                    writeReplacement(pendingWrite.path, pendingWrite.bytes);
+                    break;
+                case ACTION:
+                    closeChannels(openChannels);
+                    pendingWrite.action.run();
+                    break;
+                case COMMIT_REQUEST:
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown write kind " + pendingWrite.kind);
+                }
+            }
+            writeAppends(openChannels, firstAppend, joinedAppends);
+            closeChannels(openChannels);
+        } finally {
+            for (FileChannel channel : openChannels.values()) {
+                channel.close();
+            }
+        }
+    }
+    private static void writeAppends(Map<Path, FileChannel> openChannels, PendingWrite firstAppend,
+            ByteArrayOutputStream joinedAppends) throws IOException {
+        if (firstAppend == null) {
+            return;
+        }
+        FileChannel channel = getChannel(openChannels, firstAppend);
+        writeFully(channel, ByteBuffer.wrap(joinedAppends.toByteArray()), channel.size());
+        joinedAppends.reset();
+    }
+    private static FileChannel getChannel(Map<Path, FileChannel> openChannels, PendingWrite pendingWrite)
+            throws IOException {
+        FileChannel channel = openChannels.get(pendingWrite.path);
+        if (channel == null) {
+            channel = pendingWrite.isCreatingFile
+                    ? FileChannel.open(pendingWrite.path, StandardOpenOption.WRITE, StandardOpenOption.CREATE)
+                    : FileChannel.open(pendingWrite.path, StandardOpenOption.WRITE);
+            openChannels.put(pendingWrite.path, channel);
+        }
+        return channel;
+    }
+    /**
+     * Forces every open file to disk if the durability level needs it, then closes them.
+     */
+    private static void closeChannels(Map<Path, FileChannel> openChannels) throws IOException {
+        try {
+            if (durability != Durability.NONE) {
+                for (FileChannel channel : openChannels.values()) {
+                    channel.force(false);
+                }
+            }
+        } finally {
+            for (FileChannel channel : openChannels.values()) {
+                channel.close();
+            }
+            openChannels.clear();
+        }
+    }
+    private static void writeReplacement(Path path, byte[] bytes) throws IOException {
+        Path tempFilePath = Paths.get(path + StringStorage.TEMP_FILE_SUFFIX);
+        try (FileChannel channel = FileChannel.open(tempFilePath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, ByteBuffer.wrap(bytes), 0);
+            // forced whatever the durability level, or a crash could leave the file moved but empty
+            channel.force(false);
+        }
+        SnapshotFileHandler.moveIntoPlace(tempFilePath, path);
+    }
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        MetricsRegistry.recordBytesWritten(buffer.remaining());
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
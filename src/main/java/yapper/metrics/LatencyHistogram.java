@@ -0,0 +1,105 @@
+package yapper.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of latencies, in the style of HdrHistogram.
+ *
+ * <p>
+ * Latencies are counted in log-linear buckets: each power of two is split into 16 buckets,
+ * so any percentile is reported to within 1/16th (6.25%) of the true value, from 1 ns up to over a minute.
+ * Every bucket is allocated up front, so recording a latency never allocates,
+ * and may be done from many threads at once.
+ * </p>
+ *
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    /**
+     * The largest latency told apart from the ones above it, about 69 seconds; longer ones are counted as this.
+     */
+    private static final long MAX_TRACKED_NANOS = (1L << 36) - 1;
+    private static final int BUCKET_TOTAL = getBucketIndex(MAX_TRACKED_NANOS) + 1;
+
+    private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_TOTAL);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos the latency, in nanoseconds
+     */
+    public void record(long nanos) {
+        long trackedNanos = Math.max(0, Math.min(nanos, MAX_TRACKED_NANOS));
+        bucketCounts.incrementAndGet(getBucketIndex(trackedNanos));
+        count.increment();
+        totalNanos.add(trackedNanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+    /**
+     * Returns the mean latency.
+     *
+     * @return the mean, in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getMeanNanos() {
+        long recordedTotal = count.sum();
+        return recordedTotal == 0 ? 0 : totalNanos.sum() / recordedTotal;
+    }
+    /**
+     * Returns the latency that the given percentage of recorded latencies are at or below,
+     * rounded up to the top of its bucket.
+     *
+     * @param percentile the percentage, from 0 to 100
+     * @return the latency, in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long recordedTotal = 0;
+        long[] counts = new long[BUCKET_TOTAL];
+        for (int index = 0; index < BUCKET_TOTAL; index++) {
+            counts[index] = bucketCounts.get(index);
+            recordedTotal += counts[index];
+        }
+        long rank = Math.max(1, (long) Math.ceil(recordedTotal * percentile / 100));
+        long countSoFar = 0;
+        for (int index = 0; index < BUCKET_TOTAL; index++) {
+            countSoFar += counts[index];
+            if (countSoFar >= rank) {
+                return Math.min(getBucketUpperBound(index), getMaxNanos());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the bucket of a latency: the latencies below 16 each have their own,
+     * and above that, the bucket is picked by the highest set bit and the 4 bits below it.
+     */
+    private static int getBucketIndex(long nanos) {
+        if (nanos < SUB_BUCKET_COUNT) {
+            return (int) nanos;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKET_COUNT + (int) ((nanos >>> shift) - SUB_BUCKET_COUNT);
+    }
+    private static long getBucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long lowerBound = (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,165 @@
+package yapper.metrics;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import yapper.instructions.Instruction;
+import yapper.io.StringStorage;
+
+/**
+ * Metrics Registry for Yapper.
+ *
+ * <p>
+ * Counts every instruction handled and how long it took, by instruction type,
+ * how long each kind of save file operation took, the bytes read from and written to the save files,
+ * and the invalid tasks skipped when the save file was last loaded.
+ * The metrics are shown by the stats instruction, and can be dumped to a file every so often.
+ * </p>
+ *
+ * <p>
+ * Every counter and histogram is allocated up front, one per instruction type or file operation,
+ * and counts with {@code LongAdder}, so recording never allocates or blocks, even from many clients at once.
+ * </p>
+ *
+ */
+public class MetricsRegistry {
+    /**
+     * The kinds of save file operations that are timed.
+     */
+    public enum FileOperation {
+        LOAD, STORE_ALL, STORE_ADDED, STORE_RESTORED, UNSTORE_DELETED, AMEND_STATUS, ARCHIVE
+    }
+
+    private static final Instruction.InstructionType[] INSTRUCTION_TYPES = Instruction.InstructionType.values();
+    private static final FileOperation[] FILE_OPERATIONS = FileOperation.values();
+    private static final LatencyHistogram[] INSTRUCTION_LATENCIES = new LatencyHistogram[INSTRUCTION_TYPES.length];
+    private static final LongAdder[] INSTRUCTION_FAILURES = new LongAdder[INSTRUCTION_TYPES.length];
+    private static final LatencyHistogram[] FILE_OPERATION_LATENCIES = new LatencyHistogram[FILE_OPERATIONS.length];
+    private static final LongAdder BYTES_READ = new LongAdder();
+    private static final LongAdder BYTES_WRITTEN = new LongAdder();
+    private static final long START_TIME_NANOS = System.nanoTime();
+
+    private static volatile int invalidTasksOnLoad = 0;
+
+    static {
+        for (int index = 0; index < INSTRUCTION_TYPES.length; index++) {
+            INSTRUCTION_LATENCIES[index] = new LatencyHistogram();
+            INSTRUCTION_FAILURES[index] = new LongAdder();
+        }
+        for (int index = 0; index < FILE_OPERATIONS.length; index++) {
+            FILE_OPERATION_LATENCIES[index] = new LatencyHistogram();
+        }
+    }
+
+
+    /**
+     * Records an instruction that was handled.
+     *
+     * @param instructionType the type of the instruction
+     * @param nanos           how long it took, in nanoseconds
+     * @param isFailed        whether it failed
+     */
+    public static void recordInstruction(Instruction.InstructionType instructionType, long nanos, boolean isFailed) {
+        INSTRUCTION_LATENCIES[instructionType.ordinal()].record(nanos);
+        if (isFailed) {
+            INSTRUCTION_FAILURES[instructionType.ordinal()].increment();
+        }
+    }
+    /**
+     * Records a save file operation.
+     *
+     * @param fileOperation the kind of operation
+     * @param nanos         how long it took, in nanoseconds
+     */
+    public static void recordFileOperation(FileOperation fileOperation, long nanos) {
+        FILE_OPERATION_LATENCIES[fileOperation.ordinal()].record(nanos);
+    }
+    public static void recordBytesRead(long bytes) {
+        BYTES_READ.add(bytes);
+    }
+    public static void recordBytesWritten(long bytes) {
+        BYTES_WRITTEN.add(bytes);
+    }
+    public static void recordInvalidTasksOnLoad(int invalidTaskCount) {
+        invalidTasksOnLoad = invalidTaskCount;
+    }
+
+    /**
+     * Describes every metric recorded so far, one per line, leaving out instructions and operations never used.
+     *
+     * @return the lines describing the metrics
+     */
+    public static List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        lines.add("Up for " + TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - START_TIME_NANOS) + " s");
+        lines.add("Instructions (count, failed, mean / p50 / p99 / max latency):");
+        for (int index = 0; index < INSTRUCTION_TYPES.length; index++) {
+            LatencyHistogram latencies = INSTRUCTION_LATENCIES[index];
+            if (latencies.getCount() > 0) {
+                lines.add("  " + INSTRUCTION_TYPES[index].name().toLowerCase() + ": " + latencies.getCount()
+                        + ", " + INSTRUCTION_FAILURES[index].sum() + " failed, " + describeLatencies(latencies));
+            }
+        }
+        lines.add("Save file operations (count, mean / p50 / p99 / max latency):");
+        for (int index = 0; index < FILE_OPERATIONS.length; index++) {
+            LatencyHistogram latencies = FILE_OPERATION_LATENCIES[index];
+            if (latencies.getCount() > 0) {
+                lines.add("  " + FILE_OPERATIONS[index].name().toLowerCase().replace('_', ' ') + ": "
+                        + latencies.getCount() + ", " + describeLatencies(latencies));
+            }
+        }
+        lines.add("Bytes read: " + BYTES_READ.sum() + ", bytes written: " + BYTES_WRITTEN.sum());
+        lines.add("Invalid tasks skipped on load: " + invalidTasksOnLoad);
+        return lines;
+    }
+    private static String describeLatencies(LatencyHistogram latencies) {
+        return formatMicros(latencies.getMeanNanos())
+                + " / " + formatMicros(latencies.getValueAtPercentile(50))
+                + " / " + formatMicros(latencies.getValueAtPercentile(99))
+                + " / " + formatMicros(latencies.getMaxNanos()) + " us";
+    }
+    private static String formatMicros(long nanos) {
+        return String.format("%.1f", nanos / 1000.0);
+    }
+
+    /**
+     * Writes the metrics to a file every so often, and once more when Yapper stops.
+     *
+     * <p>
+     * Each dump replaces the file as a whole, by moving a temporary file over it,
+     * so the file can be read at any time without seeing half a dump.
+     * </p>
+     *
+     * @param filePath        the file to write the metrics to
+     * @param intervalSeconds how often to write them, in seconds
+     */
+    public static void startPeriodicDump(String filePath, long intervalSeconds) {
+        Path path = Paths.get(filePath);
+        ScheduledExecutorService dumpExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "yapper-stats-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumpExecutor.scheduleAtFixedRate(() -> dump(path), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> dump(path), "yapper-stats-final-dump"));
+    }
+    private static void dump(Path path) {
+        Path tempFilePath = Paths.get(path + StringStorage.TEMP_FILE_SUFFIX);
+        try {
+            Files.write(tempFilePath, describe(), Charset.defaultCharset());
+            Files.move(tempFilePath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println(StringStorage.STATS_DUMPING_ERROR_MESSAGE + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package yapper.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import yapper.io.StringStorage;
+
+/**
+ * Load Generator for the Yapper server.
+ *
+ * <p>
+ * Connects many clients to a running server at once, each sending a mix of reads (list a page, find)
+ * and writes (todo, mark), and waiting for each reply before sending the next instruction.
+ * Prints the throughput and the reply latency percentiles once every client is done.
+ * </p>
+ *
+ * <p>
+ * Usage: {@code java -cp yapper.jar yapper.server.LoadGenerator [host] [port] [clients] [instructions] [read %]},
+ * where instructions is the number sent by each client.
+ * </p>
+ *
+ */
+public class LoadGenerator {
+    private static final String DEFAULT_HOST = "localhost";
+    private static final int DEFAULT_CLIENT_TOTAL = 8;
+    private static final int DEFAULT_INSTRUCTION_TOTAL = 1000;
+    private static final int DEFAULT_READ_PERCENT = 90;
+
+
+    /**
+     * Runs the load generator against a server.
+     *
+     * @param args host, port, clients, instructions per client and read percentage, of which only the port is needed
+     * @throws Exception if a client cannot connect or is disconnected
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Usage: LoadGenerator [host] [port] [clients] [instructions] [read %]");
+            return;
+        }
+        String host = args[0].isEmpty() ? DEFAULT_HOST : args[0];
+        int port = Integer.parseInt(args[1]);
+        int clientTotal = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_CLIENT_TOTAL;
+        int instructionTotal = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_INSTRUCTION_TOTAL;
+        int readPercent = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_READ_PERCENT;
+
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(clientTotal);
+        List<Future<long[]>> clientLatencies = new ArrayList<>();
+        long startTime = System.nanoTime();
+        for (int client = 0; client < clientTotal; client++) {
+            int clientNumber = client;
+            clientLatencies.add(clientExecutor.submit(() ->
+                    runClient(host, port, clientNumber, instructionTotal, readPercent)));
+        }
+        long[] latencies = new long[clientTotal * instructionTotal];
+        int latencyTotal = 0;
+        for (Future<long[]> clientLatency : clientLatencies) {
+            long[] latenciesOfClient = clientLatency.get();
+            System.arraycopy(latenciesOfClient, 0, latencies, latencyTotal, latenciesOfClient.length);
+            latencyTotal += latenciesOfClient.length;
+        }
+        long runTime = System.nanoTime() - startTime;
+        clientExecutor.shutdown();
+
+        printSummary(clientTotal, readPercent, latencies, runTime);
+    }
+
+    /**
+     * Sends instructions from one client, one at a time, recording how long each reply took.
+     *
+     * @return the latency of each reply, in nanoseconds
+     */
+    private static long[] runClient(String host, int port, int clientNumber, int instructionTotal,
+            int readPercent) throws IOException {
+        long[] latencies = new long[instructionTotal];
+        Random random = new Random(clientNumber);
+        try (Socket socket = new Socket(host, port);
+                BufferedReader serverInput = new BufferedReader(new InputStreamReader(
+                        socket.getInputStream(), StandardCharsets.UTF_8));
+                Writer serverOutput = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            socket.setTcpNoDelay(true);
+            awaitReply(serverInput);
+            for (int index = 0; index < instructionTotal; index++) {
+                String instruction = random.nextInt(100) < readPercent
+                        ? getReadInstruction(random)
+                        : getWriteInstruction(random, clientNumber, index);
+                long sendTime = System.nanoTime();
+                serverOutput.write(instruction + "\n");
+                serverOutput.flush();
+                awaitReply(serverInput);
+                latencies[index] = System.nanoTime() - sendTime;
+            }
+            serverOutput.write(StringStorage.PREFIX_BYE_INSTRUCTION + "\n");
+            serverOutput.flush();
+        }
+        return latencies;
+    }
+    private static String getReadInstruction(Random random) {
+        return random.nextBoolean()
+                ? "list --page 1 --size 20"
+                : "find load " + random.nextInt(10);
+    }
+    private static String getWriteInstruction(Random random, int clientNumber, int index) {
+        return random.nextInt(4) == 0
+                ? "mark 1"
+                : "todo load " + clientNumber + "-" + index;
+    }
+    /**
+     * Reads the server's reply up to the user input divider, which ends every reply.
+     *
+     * @throws IOException if the server disconnects first
+     */
+    private static void awaitReply(BufferedReader serverInput) throws IOException {
+        String line;
+        while ((line = serverInput.readLine()) != null) {
+            if (line.equals(StringStorage.LINE_DIVIDER_INPUT)) {
+                return;
+            }
+        }
+        throw new IOException("The server disconnected before replying");
+    }
+
+    private static void printSummary(int clientTotal, int readPercent, long[] latencies, long runTime) {
+        Arrays.sort(latencies);
+        double runSeconds = runTime / 1e9;
+        System.out.println("Sent " + latencies.length + " instruction(s) from " + clientTotal + " client(s), "
+                + readPercent + "% reads, in " + (runTime / 1_000_000) + " ms ("
+                + Math.round(latencies.length / runSeconds) + " instructions/s).");
+        System.out.println("Reply latency: p50 " + getPercentileMicros(latencies, 50)
+                + " us, p99 " + getPercentileMicros(latencies, 99)
+                + " us, max " + getPercentileMicros(latencies, 100) + " us.");
+    }
+    private static long getPercentileMicros(long[] sortedLatencies, int percentile) {
+        if (sortedLatencies.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(sortedLatencies.length * percentile / 100.0) - 1;
+        return sortedLatencies[Math.max(0, index)] / 1_000;
+    }
+}
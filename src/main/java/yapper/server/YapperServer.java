@@ -0,0 +1,236 @@
+package yapper.server;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+
+import yapper.exceptions.YapperException;
+import yapper.instructions.Instruction;
+import yapper.instructions.InstructionHandler;
+import yapper.io.FileHandler;
+import yapper.io.InputStringHandler;
+import yapper.io.JournalFileHandler;
+import yapper.io.OutputFileHandler;
+import yapper.io.OutputSink;
+import yapper.io.OutputStringHandler;
+import yapper.io.SaveFileWatcher;
+import yapper.io.StringStorage;
+import yapper.io.WriteBehindPersister;
+import yapper.tasks.TaskHandler;
+
+/**
+ * Multi-Client Server for Yapper.
+ *
+ * <p>
+ * Shares one task list between many clients over TCP.
+ * Each client sends one instruction per line, and gets the same replies as a user at the terminal,
+ * each followed by the user input divider, so the client knows when a reply is complete.
+ * </p>
+ *
+ * <p>
+ * Every client is served on its own thread, and the task list is guarded by a {@code StampedLock}.
+ * Instructions that only read the task list, e.g. list and find, share the read lock and run in parallel,
+ * while instructions that change it take the write lock, so they happen one at a time
+ * and each sees every change made before it.
+ * If reading the task list changes it, e.g. with lazy loading, every instruction takes the write lock.
+ * </p>
+ *
+ * <p>
+ * Clients cannot switch lists with use, since the list in use is shared by every client,
+ * nor run scripts with source, since a script is read from the server's own files.
+ * </p>
+ *
+ */
+public class YapperServer {
+    private static final StampedLock TASK_LIST_LOCK = new StampedLock();
+    private static final AtomicInteger CLIENT_TOTAL = new AtomicInteger();
+    /**
+     * How long shutting down waits for an instruction that is changing the task list to finish.
+     */
+    private static final long SHUTDOWN_WAIT_SECONDS = 10;
+
+    private static volatile boolean isConcurrentlyReadable = false;
+
+
+    /**
+     * Accepts clients on the given port and serves them until Yapper is stopped.
+     *
+     * @param taskHandler The handler that manages the shared list of tasks, when the server starts.
+     * @param port        The port to listen on, or 0 for any free port.
+     * @throws YapperException If the port cannot be listened on.
+     */
+    public static void serve(TaskHandler taskHandler, int port) throws YapperException {
+        isConcurrentlyReadable = taskHandler.prepareForConcurrentReads();
+        Runtime.getRuntime().addShutdownHook(new Thread(YapperServer::finishWrites, "yapper-server-shutdown"));
+
+        try (ServerSocket serverSocket = new ServerSocket(port)) {
+            System.out.println(StringStorage.SERVER_START_UP_MESSAGE + " " + serverSocket.getLocalPort()
+                    + (isConcurrentlyReadable ? "" : ", one instruction at a time"));
+            acceptClients(serverSocket);
+        } catch (IOException e) {
+            throw new YapperException(StringStorage.SERVER_STARTING_ERROR_MESSAGE
+                    + " " + port + ": \n" + e.getMessage());
+        }
+    }
+    /**
+     * Accepts clients on the socket and serves each on its own thread, until the socket is closed.
+     *
+     * @param serverSocket The socket to accept clients on.
+     * @throws IOException If the socket is closed or cannot accept clients.
+     */
+    static void acceptClients(ServerSocket serverSocket) throws IOException {
+        ExecutorService clientExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "yapper-client-" + CLIENT_TOTAL.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            while (true) {
+                Socket clientSocket = serverSocket.accept();
+                clientExecutor.execute(() -> serveClient(clientSocket));
+            }
+        } finally {
+            clientExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads and handles the instructions of one client until it says bye or disconnects.
+     *
+     * @param clientSocket The connection to the client.
+     */
+    private static void serveClient(Socket clientSocket) {
+        try (clientSocket;
+                BufferedReader clientInput = new BufferedReader(new InputStreamReader(
+                        clientSocket.getInputStream(), StandardCharsets.UTF_8));
+                PrintStream clientOutput = new PrintStream(new BufferedOutputStream(
+                        clientSocket.getOutputStream()), false, StandardCharsets.UTF_8)) {
+            // replies are flushed in a few parts, which Nagle's algorithm would otherwise hold back
+            clientSocket.setTcpNoDelay(true);
+            OutputSink.setThreadOutput(clientOutput);
+            clientOutput.println(StringStorage.LINE_DIVIDER_OUTPUT);
+            clientOutput.println(StringStorage.CLIENT_START_UP_MESSAGE);
+            while (true) {
+                clientOutput.println(StringStorage.LINE_DIVIDER_INPUT);
+                clientOutput.flush();
+                String clientInputString = clientInput.readLine();
+                if (clientInputString == null) {
+                    break;
+                }
+                clientInputString = clientInputString.trim();
+
+                clientOutput.println(StringStorage.LINE_DIVIDER_OUTPUT);
+                if (clientInputString.equals(StringStorage.PREFIX_BYE_INSTRUCTION)) {
+                    clientOutput.println(StringStorage.SHUT_DOWN_MESSAGE);
+                    clientOutput.println(StringStorage.LINE_DIVIDER);
+                    break;
+                } else if (clientInputString.startsWith(StringStorage.PREFIX_BYE_INSTRUCTION)) {
+                    clientOutput.println(StringStorage.PREFIX_BYE_INSTRUCTION
+                            + " does not need other parameters. ");
+                    continue;
+                }
+
+                try {
+                    Instruction instruction = InputStringHandler.parseUserInput(clientInputString);
+                    handleInstruction(instruction);
+                } catch (YapperException e) {
+                    clientOutput.println("YapperException has occurred " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            // the client disconnected, so there is no one left to tell
+        } finally {
+            OutputSink.setThreadOutput(null);
+        }
+    }
+
+    /**
+     * Handles an instruction under the read lock if it only reads the task list, or the write lock otherwise.
+     *
+     * @param instruction The instruction to handle.
+     * @throws YapperException If the instruction fails, or cannot be given by a client.
+     */
+    private static void handleInstruction(Instruction instruction) throws YapperException {
+        checkIfAllowedForClients(instruction);
+        if (isConcurrentlyReadable && isReadOnly(instruction)) {
+            long stamp = TASK_LIST_LOCK.readLock();
+            try {
+                InstructionHandler.handleInstruction(FileHandler.getTaskHandler(), instruction);
+                return;
+            } finally {
+                TASK_LIST_LOCK.unlockRead(stamp);
+            }
+        }
+        // the reply is held back until the lock is let go of, so that waiting for the change to be saved
+        // lets other clients' changes join the same commit
+        OutputStringHandler.holdResponses();
+        long stamp = TASK_LIST_LOCK.writeLock();
+        try {
+            TaskHandler taskHandler = FileHandler.getTaskHandler();
+            SaveFileWatcher.restoreIfDeleted(taskHandler);
+            InstructionHandler.handleInstruction(taskHandler, instruction);
+        } finally {
+            TASK_LIST_LOCK.unlockWrite(stamp);
+            OutputStringHandler.releaseResponses();
+        }
+    }
+    /**
+     * Refuses the instructions a client cannot give: use, which would switch the list of every client,
+     * and source, which would read a script from any file the server can read.
+     *
+     * @param instruction The instruction to check.
+     * @throws YapperException If the instruction cannot be given by a client.
+     */
+    private static void checkIfAllowedForClients(Instruction instruction) throws YapperException {
+        switch (instruction.getInstructionType()) {
+        case USE:
+        case SOURCE:
+            throw new YapperException(instruction.getInstructionType().name().toLowerCase()
+                    + " " + StringStorage.INSTRUCTION_NOT_FOR_CLIENTS_MESSAGE);
+        default:
+            break;
+        }
+    }
+    private static boolean isReadOnly(Instruction instruction) {
+        switch (instruction.getInstructionType()) {
+        case HELP:
+        case STATS:
+        case LISTS:
+        case LIST:
+        case FIND:
+        case COMPLETE:
+        case DUE:
+        case BETWEEN:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Waits for the instruction changing the task list, if any, the queued writes and the journal to finish
+     * before Yapper stops.
+     */
+    private static void finishWrites() {
+        try {
+            TASK_LIST_LOCK.tryWriteLock(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        WriteBehindPersister.awaitAll();
+        if (FileHandler.isJournalMode()) {
+            JournalFileHandler.awaitCompaction();
+        }
+        OutputFileHandler.storeWordTrie();
+    }
+}
@@ -0,0 +1,816 @@
+package yapper.tasks;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import yapper.io.DateAndTimeHandler;
+import yapper.io.DateAndTimeHandler.DateShape;
+
+/**
+ * A task list that keeps its tasks in primitive columns instead of one object per task,
+ * for task lists too long to keep every task as an object.
+ *
+ * <p>
+ * Each task takes one slot across the columns: its type, status and the shapes of its dates are packed
+ * into a byte, its ID and dates are longs, with parsed dates kept as epoch minutes,
+ * and its description is an entry in a shared char arena.
+ * Each distinct string is stored in the arena only once, so tasks with the same description
+ * or the same unparsed date share it.
+ * A {@code Task} is only built when one is asked for, and a change of status is written back
+ * through {@code updateTaskStatus}, as with any other task list.
+ * </p>
+ *
+ * <p>
+ * As in {@code SlottedTaskHandler}, deleting a task only empties its slot, a Fenwick tree over the slots
+ * converts between slots and ordinals, and empty slots are dropped once they outnumber the live tasks,
+ * along with the strings that no task uses any more.
+ * Tasks are found by ID with a binary search, since IDs are given in ascending order,
+ * and through a hash map only once a task is added out of order, e.g. from a save file edited by hand.
+ * </p>
+ *
+ * <p>
+ * Finding and date queries scan the columns instead of keeping an index of task objects,
+ * checking each distinct description only once per query.
+ * </p>
+ *
+ */
+public class ColumnarTaskHandler extends TaskHandler {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int INITIAL_ARENA_CHARS = 1024;
+    /**
+     * The minimum number of empty slots before they are dropped.
+     */
+    private static final int MIN_EMPTY_SLOTS_BEFORE_COMPACTION = 64;
+
+    private static final int TYPE_MASK = 0x3;
+    private static final int TYPE_EMPTY = 0;
+    private static final int TYPE_TODO = 1;
+    private static final int TYPE_DEADLINE = 2;
+    private static final int TYPE_EVENT = 3;
+    private static final int DONE_BIT = 0x4;
+    private static final int SHAPE_MASK = 0x3;
+    private static final int END_SHAPE_SHIFT = 3;
+    private static final int START_SHAPE_SHIFT = 5;
+    private static final int SHAPE_WITH_TIME = DateShape.DATE_WITH_TIME.ordinal();
+    private static final int SHAPE_WITHOUT_TIME = DateShape.DATE_WITHOUT_TIME.ordinal();
+    private static final int SHAPE_UNPARSED = DateShape.UNPARSED.ordinal();
+
+    /**
+     * The type, status and date shapes of the task in each slot,
+     * with {@code TYPE_EMPTY} in the slots of deleted tasks.
+     */
+    private byte[] flags = new byte[INITIAL_CAPACITY];
+    /**
+     * The ID of the task in each slot, kept in the slots of deleted tasks so the IDs stay in slot order.
+     */
+    private long[] taskIds = new long[INITIAL_CAPACITY];
+    /**
+     * The arena entry of the description of the task in each slot.
+     */
+    private int[] descEntries = new int[INITIAL_CAPACITY];
+    /**
+     * The start and end date of the task in each slot, as an epoch minute if it was parsed,
+     * the first minute of the day if it has no time, or the arena entry of the date if it was not parsed.
+     */
+    private long[] startValues = new long[INITIAL_CAPACITY];
+    private long[] endValues = new long[INITIAL_CAPACITY];
+    private int slotTotal = 0;
+    private int taskTotal = 0;
+    /**
+     * Counts 1 for each slot holding a task, so the ordinal of a slot is the count before it.
+     */
+    private FenwickTree liveSlots = new FenwickTree(INITIAL_CAPACITY);
+    /**
+     * The slot of each task, keyed by task ID, only kept once a task is added out of ID order.
+     */
+    private Map<Long, Integer> slotsByTaskId = null;
+    private long nextTaskId = 1;
+    private int newTaskIdTotal = 0;
+
+    /**
+     * The characters of every distinct string, one after another.
+     */
+    private char[] arena = new char[INITIAL_ARENA_CHARS];
+    private int arenaLength = 0;
+    private int[] entryStarts = new int[INITIAL_CAPACITY];
+    private int[] entryLengths = new int[INITIAL_CAPACITY];
+    private int entryTotal = 0;
+    /**
+     * An open-addressing hash table of arena entries, each stored plus one so 0 marks an empty bucket.
+     */
+    private int[] entryTable = new int[INITIAL_CAPACITY * 2];
+
+
+    public ColumnarTaskHandler() {
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return new AbstractList<>() {
+            @Override
+            public Task get(int taskOrdinal) {
+                return getTaskAtOrdinal(taskOrdinal);
+            }
+            @Override
+            public int size() {
+                return taskTotal;
+            }
+            @Override
+            public Iterator<Task> iterator() {
+                return new LiveTaskIterator();
+            }
+        };
+    }
+    @Override
+    public int getCurrTaskTotal() {
+        return taskTotal;
+    }
+    @Override
+    public boolean isEmpty() {
+        return taskTotal == 0;
+    }
+    /**
+     * Builds the task at an ordinal from its columns.
+     * Each call builds a new task, so tasks are compared by ID rather than by reference.
+     *
+     * @param taskOrdinal the index of the task to retrieve
+     * @return the Task at the specified index
+     */
+    @Override
+    public Task getTaskAtOrdinal(int taskOrdinal) {
+        if (taskOrdinal < 0 || taskOrdinal >= taskTotal) {
+            throw new IndexOutOfBoundsException("Task ordinal " + taskOrdinal + " out of range " + taskTotal);
+        }
+        return buildTask(getSlotOfOrdinal(taskOrdinal));
+    }
+    @Override
+    public Task getTaskById(long taskId) {
+        int slot = getSlotOfTaskId(taskId);
+        return slot < 0 ? null : buildTask(slot);
+    }
+    @Override
+    public int getOrdinalOf(Task task) {
+        int slot = getSlotOfTaskId(task.getTaskId());
+        if (slot < 0) {
+            return -1;
+        }
+        return slotTotal == taskTotal ? slot : liveSlots.sumUpTo(slot) - 1;
+    }
+    @Override
+    public int getNewTaskIdTotal() {
+        return newTaskIdTotal;
+    }
+    @Override
+    public long getNextTaskId() {
+        return nextTaskId;
+    }
+    @Override
+    public void reserveTaskIds(long storedNextTaskId) {
+        nextTaskId = Math.max(nextTaskId, storedNextTaskId);
+    }
+    /**
+     * Returns the ordinals of the tasks whose description contains the query, in ascending order.
+     *
+     * <p>
+     * Each distinct description is searched in the arena once, however many tasks share it,
+     * without building any task.
+     * </p>
+     *
+     * @param query the string to search for in task descriptions
+     * @return the ordinals of the matching tasks
+     */
+    @Override
+    public List<Integer> findOrdinalsContaining(String query) {
+        // 0 for an entry not searched yet, 1 if it contains the query, and 2 if it does not
+        byte[] entryMatches = new byte[entryTotal];
+        List<Integer> taskOrdinals = new ArrayList<>();
+        int taskOrdinal = 0;
+        for (int slot = 0; slot < slotTotal; slot++) {
+            if (getType(slot) == TYPE_EMPTY) {
+                continue;
+            }
+            int entry = descEntries[slot];
+            if (entryMatches[entry] == 0) {
+                entryMatches[entry] = (byte) (entryContains(entry, query) ? 1 : 2);
+            }
+            if (entryMatches[entry] == 1) {
+                taskOrdinals.add(taskOrdinal);
+            }
+            taskOrdinal++;
+        }
+        return taskOrdinals;
+    }
+    @Override
+    public List<Integer> findOrdinalsDueBetween(long from, long to) {
+        List<Integer> taskOrdinals = new ArrayList<>();
+        int taskOrdinal = 0;
+        for (int slot = 0; slot < slotTotal; slot++) {
+            if (getType(slot) == TYPE_EMPTY) {
+                continue;
+            }
+            if (isDated(slot)) {
+                long intervalEnd = getIntervalEnd(slot);
+                if (intervalEnd >= from && intervalEnd <= to) {
+                    taskOrdinals.add(taskOrdinal);
+                }
+            }
+            taskOrdinal++;
+        }
+        return taskOrdinals;
+    }
+    @Override
+    public List<Integer> findOrdinalsOverlapping(long from, long to) {
+        List<Integer> taskOrdinals = new ArrayList<>();
+        int taskOrdinal = 0;
+        for (int slot = 0; slot < slotTotal; slot++) {
+            if (getType(slot) == TYPE_EMPTY) {
+                continue;
+            }
+            if (isDated(slot) && getIntervalStart(slot) <= to && getIntervalEnd(slot) >= from) {
+                taskOrdinals.add(taskOrdinal);
+            }
+            taskOrdinal++;
+        }
+        return taskOrdinals;
+    }
+    /**
+     * Returns the ordinals of the tasks with a word starting with the prefix, in ascending order,
+     * checking each distinct description once.
+     *
+     * @param prefix the start of a word
+     * @return the ordinals of the matching tasks
+     */
+    @Override
+    public List<Integer> findOrdinalsWithWordPrefix(String prefix) {
+        String normalizedPrefix = TaskWordTrie.normalize(prefix);
+        byte[] entryMatches = new byte[entryTotal];
+        List<Integer> taskOrdinals = new ArrayList<>();
+        int taskOrdinal = 0;
+        for (int slot = 0; slot < slotTotal; slot++) {
+            if (getType(slot) == TYPE_EMPTY) {
+                continue;
+            }
+            int entry = descEntries[slot];
+            if (entryMatches[entry] == 0) {
+                boolean isMatch = TaskWordTrie.hasWordWithPrefix(getEntryString(entry), normalizedPrefix);
+                entryMatches[entry] = (byte) (isMatch ? 1 : 2);
+            }
+            if (entryMatches[entry] == 1) {
+                taskOrdinals.add(taskOrdinal);
+            }
+            taskOrdinal++;
+        }
+        return taskOrdinals;
+    }
+    /**
+     * Returns the words starting with the prefix that the most tasks use,
+     * splitting each distinct description into words once.
+     *
+     * @param prefix the start of a word
+     * @param limit  the most words to return
+     * @return the words in lowercase, those used by more tasks first, then in alphabetical order
+     */
+    @Override
+    public List<String> completeWord(String prefix, int limit) {
+        int[] entryTaskTotals = new int[entryTotal];
+        for (int slot = 0; slot < slotTotal; slot++) {
+            if (getType(slot) != TYPE_EMPTY) {
+                entryTaskTotals[descEntries[slot]]++;
+            }
+        }
+        String normalizedPrefix = TaskWordTrie.normalize(prefix);
+        Map<String, Integer> taskTotalsByWord = new HashMap<>();
+        for (int entry = 0; entry < entryTotal; entry++) {
+            if (entryTaskTotals[entry] > 0) {
+                TaskWordTrie.countWordsWithPrefix(getEntryString(entry), normalizedPrefix,
+                        entryTaskTotals[entry], taskTotalsByWord);
+            }
+        }
+        return TaskWordTrie.rankWords(taskTotalsByWord, limit);
+    }
+    /**
+     * Returns {@code false}, since a trie of every word would take much of the memory the columns save.
+     */
+    @Override
+    public boolean keepsWordTrie() {
+        return false;
+    }
+    /**
+     * Returns {@code true}, since reading the task list only builds new tasks and never changes the columns.
+     */
+    @Override
+    public boolean prepareForConcurrentReads() {
+        return true;
+    }
+
+
+    /**
+     * Adds a new task to the list, copying it into the columns.
+     *
+     * <p>
+     * The task keeps its ID if it has one that is not in use, e.g. when loaded from the save file,
+     * and is given the next unused ID otherwise.
+     * </p>
+     *
+     * @param task the Task to be added
+     */
+    @Override
+    public void addTask(Task task) {
+        long taskId = task.getTaskId();
+        if (taskId <= Task.NO_TASK_ID || getSlotOfTaskId(taskId) >= 0) {
+            taskId = nextTaskId;
+            task.setTaskId(taskId);
+            newTaskIdTotal++;
+        }
+        nextTaskId = Math.max(nextTaskId, taskId + 1);
+
+        if (slotTotal == flags.length) {
+            growSlots();
+        }
+        int slot = slotTotal;
+        if (slotsByTaskId == null && slot > 0 && taskId <= taskIds[slot - 1]) {
+            indexSlotsByTaskId();
+        }
+        if (slotsByTaskId != null) {
+            slotsByTaskId.put(taskId, slot);
+        }
+        storeTask(slot, task);
+        liveSlots.add(slot, 1);
+        slotTotal++;
+        taskTotal++;
+    }
+    /**
+     * Puts tasks back into the list at the given ordinals, e.g. to undo their deletion,
+     * in one pass that copies every column into new arrays with room for them.
+     *
+     * @param taskOrdinals the ordinals the tasks end up at, in ascending order without repeats
+     * @param tasks the tasks to put back, in the same order
+     */
+    @Override
+    public void insertTasks(int[] taskOrdinals, List<Task> tasks) {
+        int newTaskTotal = taskTotal + tasks.size();
+        int capacity = Math.max(flags.length, newTaskTotal);
+        byte[] oldFlags = flags;
+        long[] oldTaskIds = taskIds;
+        int[] oldDescEntries = descEntries;
+        long[] oldStartValues = startValues;
+        long[] oldEndValues = endValues;
+        flags = new byte[capacity];
+        taskIds = new long[capacity];
+        descEntries = new int[capacity];
+        startValues = new long[capacity];
+        endValues = new long[capacity];
+
+        boolean isInIdOrder = true;
+        int oldSlot = 0;
+        int nextInserted = 0;
+        for (int slot = 0; slot < newTaskTotal; slot++) {
+            if (nextInserted < taskOrdinals.length && taskOrdinals[nextInserted] == slot) {
+                Task task = tasks.get(nextInserted++);
+                nextTaskId = Math.max(nextTaskId, task.getTaskId() + 1);
+                storeTask(slot, task);
+            } else {
+                while ((oldFlags[oldSlot] & TYPE_MASK) == TYPE_EMPTY) {
+                    oldSlot++;
+                }
+                flags[slot] = oldFlags[oldSlot];
+                taskIds[slot] = oldTaskIds[oldSlot];
+                descEntries[slot] = oldDescEntries[oldSlot];
+                startValues[slot] = oldStartValues[oldSlot];
+                endValues[slot] = oldEndValues[oldSlot];
+                oldSlot++;
+            }
+            isInIdOrder = isInIdOrder && (slot == 0 || taskIds[slot] > taskIds[slot - 1]);
+        }
+        slotTotal = newTaskTotal;
+        taskTotal = newTaskTotal;
+        slotsByTaskId = null;
+        if (!isInIdOrder) {
+            indexSlotsByTaskId();
+        }
+        rebuildLiveSlots();
+    }
+    /**
+     * Stores the ID, description, dates and status of a task in the columns of a slot.
+     */
+    private void storeTask(int slot, Task task) {
+        taskIds[slot] = task.getTaskId();
+        descEntries[slot] = intern(task.getDesc());
+        startValues[slot] = 0;
+        endValues[slot] = 0;
+        int taskFlags;
+        if (task instanceof Deadline) {
+            Deadline deadline = (Deadline) task;
+            taskFlags = TYPE_DEADLINE | storeDate(endValues, slot, END_SHAPE_SHIFT,
+                    deadline.getEndDateString(), deadline.getEndDate(), deadline.getEndDateTime());
+        } else if (task instanceof Event) {
+            Event event = (Event) task;
+            taskFlags = TYPE_EVENT
+                    | storeDate(startValues, slot, START_SHAPE_SHIFT,
+                            event.getStartDateString(), event.getStartDate(), event.getStartDateTime())
+                    | storeDate(endValues, slot, END_SHAPE_SHIFT,
+                            event.getEndDateString(), event.getEndDate(), event.getEndDateTime());
+        } else {
+            taskFlags = TYPE_TODO;
+        }
+        flags[slot] = (byte) (taskFlags | (task.isDone() ? DONE_BIT : 0));
+    }
+    @Override
+    public void deleteTask(int taskOrdinal) {
+        if (taskOrdinal < 0 || taskOrdinal >= taskTotal) {
+            throw new IndexOutOfBoundsException("Task ordinal " + taskOrdinal + " out of range " + taskTotal);
+        }
+        int slot = getSlotOfOrdinal(taskOrdinal);
+        if (slotsByTaskId != null) {
+            slotsByTaskId.remove(taskIds[slot]);
+        }
+        flags[slot] = TYPE_EMPTY;
+        liveSlots.add(slot, -1);
+        taskTotal--;
+    }
+    /**
+     * Deletes the tasks at the given ordinals in one pass over the columns,
+     * then drops every empty slot and unused string at once.
+     *
+     * @param taskOrdinals the ordinals of the tasks to delete, in ascending order without repeats
+     * @return the deleted tasks, in ordinal order
+     */
+    @Override
+    public List<Task> deleteTasks(int[] taskOrdinals) {
+        List<Task> deletedTasks = new ArrayList<>(taskOrdinals.length);
+        int nextDeleted = 0;
+        int ordinal = 0;
+        for (int slot = 0; slot < slotTotal && nextDeleted < taskOrdinals.length; slot++) {
+            if (getType(slot) == TYPE_EMPTY) {
+                continue;
+            }
+            if (ordinal == taskOrdinals[nextDeleted]) {
+                deletedTasks.add(buildTask(slot));
+                flags[slot] = TYPE_EMPTY;
+                nextDeleted++;
+            }
+            ordinal++;
+        }
+        taskTotal -= deletedTasks.size();
+        dropEmptySlots();
+        rebuildLiveSlots();
+        return deletedTasks;
+    }
+    /**
+     * Updates the completion status of a specified task, both in the task and in the columns.
+     *
+     * @param task the Task to update
+     * @param isDone the new completion status
+     */
+    @Override
+    public void updateTaskStatus(Task task, boolean isDone) {
+        task.setDoneStatus(isDone);
+        int slot = getSlotOfTaskId(task.getTaskId());
+        if (slot >= 0) {
+            flags[slot] = (byte) (isDone ? flags[slot] | DONE_BIT : flags[slot] & ~DONE_BIT);
+        }
+    }
+    /**
+     * Updates the completion status of the tasks at the given ordinals in their flags,
+     * without building the tasks.
+     *
+     * @param taskOrdinals the ordinals of the tasks to update, in ascending order without repeats
+     * @param isDone the new completion status
+     * @return the ordinals of the tasks whose status changed, in ascending order
+     */
+    @Override
+    public int[] updateTasksStatus(int[] taskOrdinals, boolean isDone) {
+        int[] changedOrdinals = new int[taskOrdinals.length];
+        int changedTotal = 0;
+        for (int taskOrdinal : taskOrdinals) {
+            int slot = getSlotOfOrdinal(taskOrdinal);
+            if (((flags[slot] & DONE_BIT) != 0) != isDone) {
+                flags[slot] = (byte) (flags[slot] ^ DONE_BIT);
+                changedOrdinals[changedTotal++] = taskOrdinal;
+            }
+        }
+        return Arrays.copyOf(changedOrdinals, changedTotal);
+    }
+    @Override
+    public ArrayList<String> tasksToString() {
+        ArrayList<String> taskAsStrings = new ArrayList<>(taskTotal);
+        for (int slot = 0; slot < slotTotal; slot++) {
+            if (getType(slot) != TYPE_EMPTY) {
+                taskAsStrings.add(buildTask(slot).taskToSaveString());
+            }
+        }
+        return taskAsStrings;
+    }
+
+
+    private int getType(int slot) {
+        return flags[slot] & TYPE_MASK;
+    }
+    private int getShape(int slot, int shapeShift) {
+        return (flags[slot] >> shapeShift) & SHAPE_MASK;
+    }
+    private int getSlotOfOrdinal(int taskOrdinal) {
+        return slotTotal == taskTotal ? taskOrdinal : liveSlots.findPosition(taskOrdinal);
+    }
+    /**
+     * Returns the slot of the live task with the ID, or -1 if there is none.
+     */
+    private int getSlotOfTaskId(long taskId) {
+        if (slotsByTaskId != null) {
+            Integer slot = slotsByTaskId.get(taskId);
+            return slot == null ? -1 : slot;
+        }
+        int slot = Arrays.binarySearch(taskIds, 0, slotTotal, taskId);
+        return slot >= 0 && getType(slot) != TYPE_EMPTY ? slot : -1;
+    }
+    private void indexSlotsByTaskId() {
+        slotsByTaskId = new HashMap<>();
+        for (int slot = 0; slot < slotTotal; slot++) {
+            if (getType(slot) != TYPE_EMPTY) {
+                slotsByTaskId.put(taskIds[slot], slot);
+            }
+        }
+    }
+
+    /**
+     * Builds a new task from the columns of a slot.
+     */
+    private Task buildTask(int slot) {
+        String taskDesc = getEntryString(descEntries[slot]);
+        boolean isDone = (flags[slot] & DONE_BIT) != 0;
+        Task task;
+        switch (getType(slot)) {
+        case TYPE_DEADLINE:
+            int endShape = getShape(slot, END_SHAPE_SHIFT);
+            task = new Deadline(taskDesc, isDone, getDateString(endShape, endValues[slot]),
+                    getDate(endShape, endValues[slot]), getDateTime(endShape, endValues[slot]));
+            break;
+        case TYPE_EVENT:
+            int startShape = getShape(slot, START_SHAPE_SHIFT);
+            int eventEndShape = getShape(slot, END_SHAPE_SHIFT);
+            task = new Event(taskDesc, isDone,
+                    getDateString(startShape, startValues[slot]),
+                    getDate(startShape, startValues[slot]), getDateTime(startShape, startValues[slot]),
+                    getDateString(eventEndShape, endValues[slot]),
+                    getDate(eventEndShape, endValues[slot]), getDateTime(eventEndShape, endValues[slot]));
+            break;
+        default:
+            task = new Todo(taskDesc, isDone);
+        }
+        task.setTaskId(taskIds[slot]);
+        return task;
+    }
+    /**
+     * Stores a date in its column, in exactly one of its three shapes.
+     *
+     * @return the shape of the date, shifted into its place in the flags
+     */
+    private int storeDate(long[] dateValues, int slot, int shapeShift,
+            String dateString, LocalDate date, LocalDateTime dateTime) {
+        if (dateTime != null) {
+            dateValues[slot] = DateAndTimeHandler.toEpochMinute(dateTime);
+            return SHAPE_WITH_TIME << shapeShift;
+        } else if (date != null) {
+            dateValues[slot] = DateAndTimeHandler.toEpochMinute(date.atStartOfDay());
+            return SHAPE_WITHOUT_TIME << shapeShift;
+        }
+        dateValues[slot] = intern(dateString);
+        return SHAPE_UNPARSED << shapeShift;
+    }
+    private String getDateString(int shape, long dateValue) {
+        return shape == SHAPE_UNPARSED ? getEntryString((int) dateValue) : "";
+    }
+    private static LocalDate getDate(int shape, long dateValue) {
+        return shape == SHAPE_WITHOUT_TIME ? getDateTime(SHAPE_WITH_TIME, dateValue).toLocalDate() : null;
+    }
+    private static LocalDateTime getDateTime(int shape, long dateValue) {
+        return shape == SHAPE_WITH_TIME
+                ? LocalDateTime.ofEpochSecond(dateValue * 60, 0, ZoneOffset.UTC)
+                : null;
+    }
+
+    /**
+     * Returns whether the task in a slot covers an interval of epoch minutes,
+     * i.e. it has a date that was parsed, matching {@code TaskDateIndex.getInterval}.
+     */
+    private boolean isDated(int slot) {
+        switch (getType(slot)) {
+        case TYPE_DEADLINE:
+            return getShape(slot, END_SHAPE_SHIFT) != SHAPE_UNPARSED;
+        case TYPE_EVENT:
+            return getShape(slot, START_SHAPE_SHIFT) != SHAPE_UNPARSED
+                    || getShape(slot, END_SHAPE_SHIFT) != SHAPE_UNPARSED;
+        default:
+            return false;
+        }
+    }
+    private long getIntervalStart(int slot) {
+        if (getType(slot) == TYPE_EVENT && getShape(slot, START_SHAPE_SHIFT) != SHAPE_UNPARSED) {
+            return startValues[slot];
+        }
+        return endValues[slot];
+    }
+    private long getIntervalEnd(int slot) {
+        int startShape = getShape(slot, START_SHAPE_SHIFT);
+        int endShape = getShape(slot, END_SHAPE_SHIFT);
+        if (getType(slot) == TYPE_EVENT && startShape != SHAPE_UNPARSED) {
+            long startDateEnd = getDateEnd(startShape, startValues[slot]);
+            return endShape == SHAPE_UNPARSED
+                    ? startDateEnd
+                    : Math.max(startValues[slot], getDateEnd(endShape, endValues[slot]));
+        }
+        return getDateEnd(endShape, endValues[slot]);
+    }
+    private static long getDateEnd(int shape, long dateValue) {
+        return shape == SHAPE_WITHOUT_TIME ? dateValue + DateAndTimeHandler.MINUTES_PER_DAY - 1 : dateValue;
+    }
+
+    /**
+     * Makes room for another slot, by dropping the empty slots if there are enough of them,
+     * or by doubling the number of slots otherwise.
+     */
+    private void growSlots() {
+        int emptySlotTotal = slotTotal - taskTotal;
+        if (emptySlotTotal >= MIN_EMPTY_SLOTS_BEFORE_COMPACTION && emptySlotTotal >= taskTotal) {
+            dropEmptySlots();
+        } else {
+            int capacity = flags.length * 2;
+            flags = Arrays.copyOf(flags, capacity);
+            taskIds = Arrays.copyOf(taskIds, capacity);
+            descEntries = Arrays.copyOf(descEntries, capacity);
+            startValues = Arrays.copyOf(startValues, capacity);
+            endValues = Arrays.copyOf(endValues, capacity);
+        }
+        rebuildLiveSlots();
+    }
+    /**
+     * Moves the columns of every task down over the empty slots before it, keeping their order,
+     * then rebuilds the arena with only the strings still in use.
+     */
+    private void dropEmptySlots() {
+        int liveSlot = 0;
+        for (int slot = 0; slot < slotTotal; slot++) {
+            if (getType(slot) != TYPE_EMPTY) {
+                flags[liveSlot] = flags[slot];
+                taskIds[liveSlot] = taskIds[slot];
+                descEntries[liveSlot] = descEntries[slot];
+                startValues[liveSlot] = startValues[slot];
+                endValues[liveSlot] = endValues[slot];
+                liveSlot++;
+            }
+        }
+        Arrays.fill(flags, liveSlot, slotTotal, (byte) TYPE_EMPTY);
+        slotTotal = liveSlot;
+        if (slotsByTaskId != null) {
+            indexSlotsByTaskId();
+        }
+        compactArena();
+    }
+    private void rebuildLiveSlots() {
+        int[] counts = new int[slotTotal];
+        for (int slot = 0; slot < slotTotal; slot++) {
+            counts[slot] = getType(slot) == TYPE_EMPTY ? 0 : 1;
+        }
+        liveSlots = new FenwickTree(counts, slotTotal, flags.length);
+    }
+    /**
+     * Rebuilds the arena with only the strings that the live tasks use.
+     */
+    private void compactArena() {
+        char[] oldArena = arena;
+        int[] oldEntryStarts = entryStarts;
+        int[] oldEntryLengths = entryLengths;
+        arena = new char[Math.max(INITIAL_ARENA_CHARS, arenaLength / 2)];
+        arenaLength = 0;
+        entryStarts = new int[INITIAL_CAPACITY];
+        entryLengths = new int[INITIAL_CAPACITY];
+        entryTotal = 0;
+        entryTable = new int[INITIAL_CAPACITY * 2];
+
+        for (int slot = 0; slot < slotTotal; slot++) {
+            int descEntry = descEntries[slot];
+            descEntries[slot] = intern(oldArena, oldEntryStarts[descEntry], oldEntryLengths[descEntry]);
+            if (getType(slot) == TYPE_EVENT && getShape(slot, START_SHAPE_SHIFT) == SHAPE_UNPARSED) {
+                int startEntry = (int) startValues[slot];
+                startValues[slot] = intern(oldArena, oldEntryStarts[startEntry], oldEntryLengths[startEntry]);
+            }
+            if (getType(slot) != TYPE_TODO && getShape(slot, END_SHAPE_SHIFT) == SHAPE_UNPARSED) {
+                int endEntry = (int) endValues[slot];
+                endValues[slot] = intern(oldArena, oldEntryStarts[endEntry], oldEntryLengths[endEntry]);
+            }
+        }
+    }
+
+    private int intern(String text) {
+        return intern(text.toCharArray(), 0, text.length());
+    }
+    /**
+     * Returns the arena entry holding the characters, adding them to the arena if no entry holds them yet.
+     *
+     * @param source the characters to look up
+     * @param start  the offset of the first character
+     * @param length the number of characters
+     * @return the arena entry
+     */
+    private int intern(char[] source, int start, int length) {
+        int hash = 0;
+        for (int index = start; index < start + length; index++) {
+            hash = 31 * hash + source[index];
+        }
+        int mask = entryTable.length - 1;
+        int bucket = spread(hash) & mask;
+        while (entryTable[bucket] != 0) {
+            int entry = entryTable[bucket] - 1;
+            if (entryLengths[entry] == length
+                    && Arrays.equals(arena, entryStarts[entry], entryStarts[entry] + length,
+                            source, start, start + length)) {
+                return entry;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+
+        if (arenaLength + length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaLength + length));
+        }
+        System.arraycopy(source, start, arena, arenaLength, length);
+        if (entryTotal == entryStarts.length) {
+            entryStarts = Arrays.copyOf(entryStarts, entryTotal * 2);
+            entryLengths = Arrays.copyOf(entryLengths, entryTotal * 2);
+        }
+        int entry = entryTotal++;
+        entryStarts[entry] = arenaLength;
+        entryLengths[entry] = length;
+        arenaLength += length;
+        entryTable[bucket] = entry + 1;
+        if (entryTotal * 2 > entryTable.length) {
+            growEntryTable();
+        }
+        return entry;
+    }
+    private void growEntryTable() {
+        entryTable = new int[entryTable.length * 2];
+        int mask = entryTable.length - 1;
+        for (int entry = 0; entry < entryTotal; entry++) {
+            int hash = 0;
+            for (int index = entryStarts[entry]; index < entryStarts[entry] + entryLengths[entry]; index++) {
+                hash = 31 * hash + arena[index];
+            }
+            int bucket = spread(hash) & mask;
+            while (entryTable[bucket] != 0) {
+                bucket = (bucket + 1) & mask;
+            }
+            entryTable[bucket] = entry + 1;
+        }
+    }
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+    private String getEntryString(int entry) {
+        return new String(arena, entryStarts[entry], entryLengths[entry]);
+    }
+    private boolean entryContains(int entry, String query) {
+        int entryStart = entryStarts[entry];
+        int lastStart = entryStart + entryLengths[entry] - query.length();
+        for (int start = entryStart; start <= lastStart; start++) {
+            int matched = 0;
+            while (matched < query.length() && arena[start + matched] == query.charAt(matched)) {
+                matched++;
+            }
+            if (matched == query.length()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Iterates over the tasks in ordinal order, skipping empty slots, in O(n) time overall.
+     */
+    private class LiveTaskIterator implements Iterator<Task> {
+        private int nextSlot = 0;
+
+        @Override
+        public boolean hasNext() {
+            while (nextSlot < slotTotal && getType(nextSlot) == TYPE_EMPTY) {
+                nextSlot++;
+            }
+            return nextSlot < slotTotal;
+        }
+        @Override
+        public Task next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return buildTask(nextSlot++);
+        }
+    }
+}
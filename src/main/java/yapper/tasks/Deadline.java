@@ -2,8 +2,6 @@ package yapper.tasks;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 
 import yapper.io.DateAndTimeHandler;
 import yapper.io.StringStorage;
@@ -49,48 +47,94 @@ public class Deadline extends Task {
         this.isDone = isDone;
         initializeEndDateTime(endDateString);
     }
+    /**
+     * Creates a Deadline task from an end date that is already parsed, e.g. by {@code ColumnarTaskHandler},
+     * in exactly one of its three shapes.
+     *
+     * @param taskDesc      The description of the task.
+     * @param isDone        The completion status of the task.
+     * @param endDateString The unparsed end date, or an empty string if it was parsed.
+     * @param endDate       The end date, if it was given without a time, or null.
+     * @param endDateTime   The end date and time, if it was given with a time, or null.
+     */
+    Deadline(String taskDesc, boolean isDone, String endDateString, LocalDate endDate, LocalDateTime endDateTime) {
+        super(taskDesc, isDone);
+        this.endDateString = endDateString;
+        this.endDate = endDate;
+        this.endDateTime = endDateTime;
+    }
+    /**
+     * Creates a Deadline task from an end date that is already parsed, e.g. decoded by {@code BinaryTaskStorage},
+     * without parsing any string.
+     *
+     * @param taskDesc      The description of the task.
+     * @param isDone        The completion status of the task.
+     * @param endDateString The unparsed end date, or an empty string if it was parsed.
+     * @param endDate       The end date, if it was given without a time, or null.
+     * @param endDateTime   The end date and time, if it was given with a time, or null.
+     * @return the Deadline task
+     */
+    public static Deadline withParsedDate(String taskDesc, boolean isDone,
+            String endDateString, LocalDate endDate, LocalDateTime endDateTime) {
+        return new Deadline(taskDesc, isDone, endDateString, endDate, endDateTime);
+    }
     /**
      * Initializes the end date and time of the deadline by parsing the given
      * string. If the string cannot be parsed into a {@code LocalDateTime},
-     * it will attempt to parse it as a {@code LocalDate}. If both attempts fail,
+     * it is parsed as a {@code LocalDate}. If both attempts fail,
      * the string will be stored as-is.
      *
      * @param endDateString the end date string to be parsed
      */
     private void initializeEndDateTime(String endDateString) {
-        try {
-            this.endDateTime = LocalDateTime.parse(endDateString,
-                    DateTimeFormatter.ofPattern(
-                    DateAndTimeHandler.DATE_WITH_TIME_INPUT));
-            this.endDateString = "";
-        } catch (DateTimeParseException e) {
-            try {
-                this.endDate = LocalDate.parse(endDateString,
-                        DateTimeFormatter.ofPattern(
-                        DateAndTimeHandler.DATE_WITHOUT_TIME_INPUT));
-                this.endDateString = "";
-            } catch (DateTimeParseException ex) {
-                this.endDateString = endDateString;
-            }
-        }
+        DateAndTimeHandler.ParsedDate parsedDate = DateAndTimeHandler.parseDate(endDateString);
+        this.endDateTime = parsedDate.getDateTime();
+        this.endDate = parsedDate.getDate();
+        this.endDateString = parsedDate.getUnparsedString();
+    }
+
+
+    /**
+     * Returns the end date string, which is empty if the end date was parsed.
+     *
+     * @return the unparsed end date string, or an empty string
+     */
+    public String getEndDateString() {
+        return endDateString;
+    }
+    /**
+     * Returns the end date, if it was given without a time.
+     *
+     * @return the end date, or null
+     */
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+    /**
+     * Returns the end date and time, if it was given with a time.
+     *
+     * @return the end date and time, or null
+     */
+    public LocalDateTime getEndDateTime() {
+        return endDateTime;
     }
 
 
     /**
-     * Converts the deadline task to a string format for display,
+     * Renders the deadline task to a string format for display,
      * including the Deadline symbol and the end date.
      *
      * @return a formatted string showing the Deadline task's status, description and end date.
      */
     @Override
-    public String taskToDisplay() {
+    protected String renderToDisplay() {
         String endDateAsString = DateAndTimeHandler.getDateTimeFromString(
                 endDateString, endDate, endDateTime,
                 DateAndTimeHandler.DATE_WITHOUT_TIME_TO_DISPLAY,
                 DateAndTimeHandler.DATE_WITH_TIME_TO_DISPLAY);
 
         return "[" + StringStorage.SYMBOL_DEADLINE + "]"
-                + super.taskToDisplay() + ", by " + endDateAsString;
+                + super.renderToDisplay() + ", by " + endDateAsString;
     }
     /**
      * Converts the deadline task to a string format for writing to / reading from a file,
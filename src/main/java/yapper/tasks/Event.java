@@ -2,8 +2,6 @@ package yapper.tasks;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 
 import yapper.io.DateAndTimeHandler;
 import yapper.io.StringStorage;
@@ -72,68 +70,140 @@ public class Event extends Task {
         initializeStartDateTime(startDateString);
         initializeEndDateTime(endDateString);
     }
+    /**
+     * Creates an event task from dates that are already parsed, e.g. by {@code ColumnarTaskHandler},
+     * each in exactly one of its three shapes.
+     *
+     * @param taskDesc        the description of the event
+     * @param isDone          whether the event is marked as done
+     * @param startDateString the unparsed start date, or an empty string if it was parsed
+     * @param startDate       the start date, if it was given without a time, or null
+     * @param startDateTime   the start date and time, if it was given with a time, or null
+     * @param endDateString   the unparsed end date, or an empty string if it was parsed
+     * @param endDate         the end date, if it was given without a time, or null
+     * @param endDateTime     the end date and time, if it was given with a time, or null
+     */
+    Event(String taskDesc, boolean isDone,
+            String startDateString, LocalDate startDate, LocalDateTime startDateTime,
+            String endDateString, LocalDate endDate, LocalDateTime endDateTime) {
+        super(taskDesc, isDone);
+        this.startDateString = startDateString;
+        this.startDate = startDate;
+        this.startDateTime = startDateTime;
+        this.endDateString = endDateString;
+        this.endDate = endDate;
+        this.endDateTime = endDateTime;
+    }
+    /**
+     * Creates an event task from dates that are already parsed, e.g. decoded by {@code BinaryTaskStorage},
+     * without parsing any string.
+     *
+     * @param taskDesc        the description of the event
+     * @param isDone          whether the event is marked as done
+     * @param startDateString the unparsed start date, or an empty string if it was parsed
+     * @param startDate       the start date, if it was given without a time, or null
+     * @param startDateTime   the start date and time, if it was given with a time, or null
+     * @param endDateString   the unparsed end date, or an empty string if it was parsed
+     * @param endDate         the end date, if it was given without a time, or null
+     * @param endDateTime     the end date and time, if it was given with a time, or null
+     * @return the event task
+     */
+    public static Event withParsedDates(String taskDesc, boolean isDone,
+            String startDateString, LocalDate startDate, LocalDateTime startDateTime,
+            String endDateString, LocalDate endDate, LocalDateTime endDateTime) {
+        return new Event(taskDesc, isDone, startDateString, startDate, startDateTime,
+                endDateString, endDate, endDateTime);
+    }
     /**
      * Initializes the start date and time of the event by parsing the given
      * string. If the string cannot be parsed into a {@code LocalDateTime},
-     * it will attempt to parse it as a {@code LocalDate}. If both attempts fail,
+     * it is parsed as a {@code LocalDate}. If both attempts fail,
      * the string will be stored as-is.
      *
      * @param startDateString the start date string to be parsed
      */
     private void initializeStartDateTime(String startDateString) {
-        try {
-            this.startDateTime = LocalDateTime.parse(startDateString,
-                    DateTimeFormatter.ofPattern(
-                    DateAndTimeHandler.DATE_WITH_TIME_INPUT));
-            this.startDateString = "";
-        } catch (DateTimeParseException e) {
-            try {
-                this.startDate = LocalDate.parse(startDateString,
-                        DateTimeFormatter.ofPattern(
-                            DateAndTimeHandler.DATE_WITHOUT_TIME_INPUT));
-                this.startDateString = "";
-            } catch (DateTimeParseException ex) {
-                this.startDateString = startDateString;
-            }
-        }
+        DateAndTimeHandler.ParsedDate parsedDate = DateAndTimeHandler.parseDate(startDateString);
+        this.startDateTime = parsedDate.getDateTime();
+        this.startDate = parsedDate.getDate();
+        this.startDateString = parsedDate.getUnparsedString();
     }
     /**
      * Initializes the end date and time of the event by parsing the given
      * string. If the string cannot be parsed into a {@code LocalDateTime},
-     * it will attempt to parse it as a {@code LocalDate}. If both attempts fail,
+     * it is parsed as a {@code LocalDate}. If both attempts fail,
      * the string will be stored as-is.
      *
      * @param endDateString the end date string to be parsed
      */
     private void initializeEndDateTime(String endDateString) {
-        try {
-            this.endDateTime = LocalDateTime.parse(endDateString,
-                    DateTimeFormatter.ofPattern(
-                    DateAndTimeHandler.DATE_WITH_TIME_INPUT));
-            this.endDateString = "";
-        } catch (DateTimeParseException e) {
-            this.endDateString = "";
-            try {
-                this.endDate = LocalDate.parse(endDateString,
-                        DateTimeFormatter.ofPattern(
-                        DateAndTimeHandler.DATE_WITHOUT_TIME_INPUT));
-            } catch (DateTimeParseException ex) {
-                this.endDateString = endDateString;
-            }
-        }
+        DateAndTimeHandler.ParsedDate parsedDate = DateAndTimeHandler.parseDate(endDateString);
+        this.endDateTime = parsedDate.getDateTime();
+        this.endDate = parsedDate.getDate();
+        this.endDateString = parsedDate.getUnparsedString();
+    }
+
+
+    /**
+     * Returns the start date string, which is empty if the start date was parsed.
+     *
+     * @return the unparsed start date string, or an empty string
+     */
+    public String getStartDateString() {
+        return startDateString;
+    }
+    /**
+     * Returns the start date, if it was given without a time.
+     *
+     * @return the start date, or null
+     */
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+    /**
+     * Returns the start date and time, if it was given with a time.
+     *
+     * @return the start date and time, or null
+     */
+    public LocalDateTime getStartDateTime() {
+        return startDateTime;
+    }
+    /**
+     * Returns the end date string, which is empty if the end date was parsed.
+     *
+     * @return the unparsed end date string, or an empty string
+     */
+    public String getEndDateString() {
+        return endDateString;
+    }
+    /**
+     * Returns the end date, if it was given without a time.
+     *
+     * @return the end date, or null
+     */
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+    /**
+     * Returns the end date and time, if it was given with a time.
+     *
+     * @return the end date and time, or null
+     */
+    public LocalDateTime getEndDateTime() {
+        return endDateTime;
     }
 
 
     /**
-     * Converts the event task to a string format for display,
+     * Renders the event task to a string format for display,
      * including the Event symbol, start date and an end date.
      *
      * @return a formatted string showing the Deadline task's status, description, start date and end date.
      */
     @Override
-    public String taskToDisplay() {
+    protected String renderToDisplay() {
         String startDateAsString = DateAndTimeHandler.getDateTimeFromString(
-                endDateString, endDate, endDateTime,
+                startDateString, startDate, startDateTime,
                 DateAndTimeHandler.DATE_WITHOUT_TIME_TO_DISPLAY,
                 DateAndTimeHandler.DATE_WITH_TIME_TO_DISPLAY);
         String endDateAsString = DateAndTimeHandler.getDateTimeFromString(
@@ -142,7 +212,7 @@ public class Event extends Task {
                 DateAndTimeHandler.DATE_WITH_TIME_TO_DISPLAY);
 
         return "[" + StringStorage.SYMBOL_EVENT + "]"
-                + super.taskToDisplay() + ", from " + startDateAsString + " to " + endDateAsString;
+                + super.renderToDisplay() + ", from " + startDateAsString + " to " + endDateAsString;
     }
     /**
      * Converts the event task to a string format for writing to / reading from a file,
@@ -153,7 +223,7 @@ public class Event extends Task {
     @Override
     public String taskToString() {
         String startDateAsString = DateAndTimeHandler.getDateTimeFromString(
-                endDateString, endDate, endDateTime,
+                startDateString, startDate, startDateTime,
                 DateAndTimeHandler.DATE_WITHOUT_TIME_TO_STRING,
                 DateAndTimeHandler.DATE_WITH_TIME_TO_STRING);
         String endDateAsString = DateAndTimeHandler.getDateTimeFromString(
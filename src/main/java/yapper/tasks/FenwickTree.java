@@ -0,0 +1,100 @@
+package yapper.tasks;
+
+/**
+ * A Fenwick tree (binary indexed tree) of counts, used to turn positions into ranks and back.
+ *
+ * <p>
+ * Each position holds a small count, e.g. 1 for a live task and 0 for a deleted one.
+ * Changing a count, summing the counts up to a position, and finding the position
+ * at which the running sum passes a rank all take O(log n) time.
+ * </p>
+ *
+ */
+public class FenwickTree {
+    /**
+     * The partial sums, where {@code tree[i]} holds the sum of the {@code i & -i} positions ending at {@code i - 1}.
+     */
+    private final int[] tree;
+
+
+    /**
+     * Constructs a Fenwick tree of the given capacity, with every count set to 0.
+     *
+     * @param capacity the number of positions
+     */
+    public FenwickTree(int capacity) {
+        tree = new int[capacity + 1];
+    }
+    /**
+     * Constructs a Fenwick tree from the given counts in O(n) time.
+     *
+     * @param counts     the count at each position, of which the first {@code countTotal} are used
+     * @param countTotal the number of counts given
+     * @param capacity   the number of positions, at least {@code countTotal}
+     */
+    public FenwickTree(int[] counts, int countTotal, int capacity) {
+        tree = new int[capacity + 1];
+        for (int index = 1; index <= capacity; index++) {
+            if (index <= countTotal) {
+                tree[index] += counts[index - 1];
+            }
+            // the partial sums past the given counts still take in the counts before them
+            int parent = index + (index & -index);
+            if (parent <= capacity) {
+                tree[parent] += tree[index];
+            }
+        }
+    }
+
+    /**
+     * Returns the number of positions.
+     *
+     * @return the capacity of the tree
+     */
+    public int getCapacity() {
+        return tree.length - 1;
+    }
+    /**
+     * Adds to the count at a position.
+     *
+     * @param position the position, from 0
+     * @param delta    the amount to add, which may be negative
+     */
+    public void add(int position, int delta) {
+        for (int index = position + 1; index < tree.length; index += index & -index) {
+            tree[index] += delta;
+        }
+    }
+    /**
+     * Returns the sum of the counts at every position up to and including the given one.
+     *
+     * @param position the last position to sum, from 0
+     * @return the sum of the counts
+     */
+    public int sumUpTo(int position) {
+        int sum = 0;
+        for (int index = position + 1; index > 0; index -= index & -index) {
+            sum += tree[index];
+        }
+        return sum;
+    }
+    /**
+     * Returns the first position at which the sum of the counts up to it is greater than the rank.
+     * When every count is 0 or 1, this is the position of the rank-th position with a count of 1.
+     *
+     * @param rank the rank to find, from 0
+     * @return the position, or the capacity if the sum of all counts is not greater than the rank
+     */
+    public int findPosition(int rank) {
+        int index = 0;
+        int remaining = rank;
+        for (int step = Integer.highestOneBit(getCapacity()); step > 0; step >>= 1) {
+            int next = index + step;
+            if (next < tree.length && tree[next] <= remaining) {
+                index = next;
+                remaining -= tree[next];
+            }
+        }
+        return index;
+    }
+}
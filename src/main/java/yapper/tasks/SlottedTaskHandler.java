@@ -0,0 +1,586 @@
+package yapper.tasks;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * The default task list for Yapper, which keeps every task as an object.
+ *
+ * <p>
+ * Tasks are kept in slots, in the order they were added, and each is found by its ID through a hash map.
+ * Deleting a task only empties its slot, and a Fenwick tree over the slots counts the live tasks before any slot,
+ * so converting between a task's slot and its ordinal, and deleting a task, all take O(log n) time.
+ * Empty slots are dropped in one go once they outnumber the live tasks.
+ * </p>
+ *
+ */
+public class SlottedTaskHandler extends TaskHandler {
+    private static final int INITIAL_CAPACITY = 16;
+    /**
+     * The minimum number of empty slots before they are dropped.
+     */
+    private static final int MIN_EMPTY_SLOTS_BEFORE_COMPACTION = 64;
+
+    /**
+     * The tasks, in the order they were added, with null in the slots of deleted tasks.
+     */
+    private Task[] slots = new Task[INITIAL_CAPACITY];
+    private int slotTotal = 0;
+    private int taskTotal = 0;
+    /**
+     * Counts 1 for each slot holding a task, so the ordinal of a slot is the count before it.
+     */
+    private FenwickTree liveSlots = new FenwickTree(INITIAL_CAPACITY);
+    /**
+     * The slot of each task, keyed by task ID.
+     */
+    private final Map<Long, Integer> slotsByTaskId = new HashMap<>();
+    private long nextTaskId = 1;
+    /**
+     * The number of tasks that were added without a usable ID, and so were given a new one.
+     */
+    private int newTaskIdTotal = 0;
+    /**
+     * The n-gram index over task descriptions.
+     * It is built on the first search, so loading is not slowed down,
+     * and kept up to date on every add and delete after that.
+     */
+    private final TaskSearchIndex searchIndex = new TaskSearchIndex();
+    private boolean isSearchIndexBuilt = false;
+    /**
+     * The index over the dates of Deadlines and Events, built on the first date query
+     * and kept up to date like the search index.
+     */
+    private final TaskDateIndex dateIndex = new TaskDateIndex();
+    private boolean isDateIndexBuilt = false;
+    /**
+     * The radix trie over the words of task descriptions, for prefix searches and completions.
+     * It is built on first use like the search index, unless it was read back from the file saved with the tasks.
+     */
+    private TaskWordTrie wordTrie = new TaskWordTrie();
+    private boolean isWordTrieBuilt = false;
+
+
+    public SlottedTaskHandler() {
+    }
+
+    /**
+     * Returns the list of all tasks managed by this TaskHandler.
+     *
+     * @return a read-only List of Task objects, in ordinal order
+     */
+    @Override
+    public List<Task> getAllTasks() {
+        return new AbstractList<>() {
+            @Override
+            public Task get(int taskOrdinal) {
+                return getTaskAtOrdinal(taskOrdinal);
+            }
+            @Override
+            public int size() {
+                return taskTotal;
+            }
+            @Override
+            public Iterator<Task> iterator() {
+                return new LiveTaskIterator();
+            }
+        };
+    }
+    /**
+     * Returns the total number of current tasks.
+     *
+     * @return the number of tasks
+     */
+    @Override
+    public int getCurrTaskTotal() {
+        return taskTotal;
+    }
+
+    /**
+     * Retrieves a task based on its ordinal index.
+     *
+     * @param taskOrdinal the index of the task to retrieve
+     * @return the Task at the specified index
+     */
+    @Override
+    public Task getTaskAtOrdinal(int taskOrdinal) {
+        if (taskOrdinal < 0 || taskOrdinal >= taskTotal) {
+            throw new IndexOutOfBoundsException("Task ordinal " + taskOrdinal + " out of range " + taskTotal);
+        }
+        return slots[getSlotOfOrdinal(taskOrdinal)];
+    }
+    /**
+     * Retrieves a task based on its ID.
+     *
+     * @param taskId the ID of the task to retrieve
+     * @return the Task with the specified ID, or null if there is none
+     */
+    @Override
+    public Task getTaskById(long taskId) {
+        Integer slot = slotsByTaskId.get(taskId);
+        return slot == null ? null : slots[slot];
+    }
+
+    /**
+     * Retrieves an ordinal of a Task.
+     *
+     * @param task the task at the ordinal to retrieve
+     * @return the index of the specified task
+     */
+    @Override
+    public int getOrdinalOf(Task task) {
+        Integer slot = slotsByTaskId.get(task.getTaskId());
+        if (slot == null || slots[slot] != task) {
+            return -1;
+        }
+        return slotTotal == taskTotal ? slot : liveSlots.sumUpTo(slot) - 1;
+    }
+    /**
+     * Returns the number of tasks that were added without a usable ID, and so were given a new one,
+     * e.g. tasks loaded from a save file written before task IDs were stored.
+     *
+     * @return the number of tasks given a new ID
+     */
+    @Override
+    public int getNewTaskIdTotal() {
+        return newTaskIdTotal;
+    }
+    /**
+     * Returns the ID the next task added without a usable ID is given,
+     * which is stored with the task list so that the IDs of deleted tasks are never given out again.
+     *
+     * @return the next task ID
+     */
+    @Override
+    public long getNextTaskId() {
+        return nextTaskId;
+    }
+    /**
+     * Makes sure that no ID below the given one is given out again, e.g. the IDs of tasks deleted
+     * before the task list was last stored, using the next task ID stored with it.
+     *
+     * @param storedNextTaskId the next task ID stored with the task list
+     */
+    @Override
+    public void reserveTaskIds(long storedNextTaskId) {
+        nextTaskId = Math.max(nextTaskId, storedNextTaskId);
+    }
+    /**
+     * Returns the ordinals of the tasks whose description contains the query, in ascending order.
+     *
+     * <p>
+     * Only the tasks that the search index finds as candidates are checked, instead of every task.
+     * </p>
+     *
+     * @param query the string to search for in task descriptions
+     * @return the ordinals of the matching tasks
+     */
+    @Override
+    public List<Integer> findOrdinalsContaining(String query) {
+        List<Integer> taskOrdinals = new ArrayList<>();
+        for (Task task : getSearchIndex().getCandidates(query)) {
+            if (task.getDesc().contains(query)) {
+                taskOrdinals.add(getOrdinalOf(task));
+            }
+        }
+        Collections.sort(taskOrdinals);
+        return taskOrdinals;
+    }
+    /**
+     * Returns the ordinals of the tasks whose dates end within the period, in ascending order,
+     * e.g. Deadlines due then and Events ending then.
+     *
+     * @param from the first epoch minute of the period
+     * @param to   the last epoch minute of the period
+     * @return the ordinals of the matching tasks
+     */
+    @Override
+    public List<Integer> findOrdinalsDueBetween(long from, long to) {
+        return getSortedOrdinals(getDateIndex().getTasksEndingBetween(from, to));
+    }
+    /**
+     * Returns the ordinals of the tasks whose dates overlap the period, in ascending order.
+     *
+     * @param from the first epoch minute of the period
+     * @param to   the last epoch minute of the period
+     * @return the ordinals of the matching tasks
+     */
+    @Override
+    public List<Integer> findOrdinalsOverlapping(long from, long to) {
+        return getSortedOrdinals(getDateIndex().getTasksOverlapping(from, to));
+    }
+    /**
+     * Returns the ordinals of the tasks with a word in their description starting with the prefix,
+     * ignoring case, in ascending order.
+     *
+     * @param prefix the start of a word
+     * @return the ordinals of the matching tasks
+     */
+    @Override
+    public List<Integer> findOrdinalsWithWordPrefix(String prefix) {
+        long[] taskIds = getWordTrie().getTaskIdsWithWordPrefix(prefix);
+        List<Integer> taskOrdinals = new ArrayList<>(taskIds.length);
+        for (long taskId : taskIds) {
+            taskOrdinals.add(getOrdinalOf(getTaskById(taskId)));
+        }
+        Collections.sort(taskOrdinals);
+        return taskOrdinals;
+    }
+    /**
+     * Returns the words in task descriptions starting with the prefix, ignoring case,
+     * that the most tasks use.
+     *
+     * @param prefix the start of a word
+     * @param limit  the most words to return
+     * @return the words in lowercase, those used by more tasks first, then in alphabetical order
+     */
+    @Override
+    public List<String> completeWord(String prefix, int limit) {
+        return getWordTrie().getTopWords(prefix, limit);
+    }
+    /**
+     * Returns whether this task list keeps a word trie that can be saved and read back with its tasks.
+     *
+     * @return {@code true} if the word trie is kept, {@code false} if prefix searches scan the tasks instead
+     */
+    @Override
+    public boolean keepsWordTrie() {
+        return true;
+    }
+    /**
+     * Returns whether the word trie has been built or read back, and so is worth saving.
+     *
+     * @return {@code true} if the word trie is built
+     */
+    @Override
+    public boolean isWordTrieBuilt() {
+        return isWordTrieBuilt;
+    }
+    /**
+     * Returns the word trie, building it first if needed.
+     *
+     * @return the word trie over the descriptions of every task
+     */
+    @Override
+    public TaskWordTrie getWordTrie() {
+        if (!isWordTrieBuilt) {
+            for (Task task : getAllTasks()) {
+                wordTrie.addTask(task);
+            }
+            isWordTrieBuilt = true;
+        }
+        return wordTrie;
+    }
+    /**
+     * Uses a word trie read back from a file instead of building it, which must be over exactly these tasks.
+     *
+     * @param wordTrie the word trie over the descriptions of every task
+     */
+    @Override
+    public void setWordTrie(TaskWordTrie wordTrie) {
+        this.wordTrie = wordTrie;
+        isWordTrieBuilt = true;
+    }
+    /**
+     * Builds the indexes that are otherwise built on first use,
+     * so that the task list can be read from many threads at once as long as none of them changes it.
+     *
+     * @return {@code true} if reading the task list no longer changes it, {@code false} otherwise
+     */
+    @Override
+    public boolean prepareForConcurrentReads() {
+        getSearchIndex();
+        getDateIndex();
+        getWordTrie();
+        return true;
+    }
+    private TaskSearchIndex getSearchIndex() {
+        if (!isSearchIndexBuilt) {
+            for (Task task : getAllTasks()) {
+                searchIndex.addTask(task);
+            }
+            isSearchIndexBuilt = true;
+        }
+        return searchIndex;
+    }
+    private TaskDateIndex getDateIndex() {
+        if (!isDateIndexBuilt) {
+            for (Task task : getAllTasks()) {
+                dateIndex.addTask(task);
+            }
+            isDateIndexBuilt = true;
+        }
+        return dateIndex;
+    }
+    private List<Integer> getSortedOrdinals(List<Task> matchingTasks) {
+        List<Integer> taskOrdinals = new ArrayList<>(matchingTasks.size());
+        for (Task task : matchingTasks) {
+            taskOrdinals.add(getOrdinalOf(task));
+        }
+        Collections.sort(taskOrdinals);
+        return taskOrdinals;
+    }
+
+
+    /**
+     * Adds a new task to the list.
+     *
+     * <p>
+     * The task keeps its ID if it has one that is not in use, e.g. when loaded from the save file,
+     * and is given the next unused ID otherwise.
+     * </p>
+     *
+     * @param task the Task to be added
+     */
+    @Override
+    public void addTask(Task task) {
+        long taskId = task.getTaskId();
+        if (taskId <= Task.NO_TASK_ID || slotsByTaskId.containsKey(taskId)) {
+            taskId = nextTaskId;
+            task.setTaskId(taskId);
+            newTaskIdTotal++;
+        }
+        nextTaskId = Math.max(nextTaskId, taskId + 1);
+
+        if (slotTotal == slots.length) {
+            growSlots();
+        }
+        slots[slotTotal] = task;
+        liveSlots.add(slotTotal, 1);
+        slotsByTaskId.put(taskId, slotTotal);
+        slotTotal++;
+        taskTotal++;
+        indexTask(task);
+    }
+    /**
+     * Puts tasks back into the list at the given ordinals, e.g. to undo their deletion,
+     * in one pass that moves every other task along to make room.
+     *
+     * <p>
+     * A single task is put back into an empty slot in O(log n) time instead, if there is one where it belongs,
+     * e.g. the slot it was deleted from, as long as the empty slots have not been dropped since.
+     * </p>
+     *
+     * <p>
+     * The tasks keep their IDs, which must not be in use, since IDs of deleted tasks are never given out again.
+     * </p>
+     *
+     * @param taskOrdinals the ordinals the tasks end up at, in ascending order without repeats
+     * @param tasks the tasks to put back, in the same order
+     */
+    @Override
+    public void insertTasks(int[] taskOrdinals, List<Task> tasks) {
+        if (taskOrdinals.length == 1 && insertIntoEmptySlot(taskOrdinals[0], tasks.get(0))) {
+            return;
+        }
+        int newTaskTotal = taskTotal + tasks.size();
+        Task[] oldSlots = slots;
+        slots = new Task[Math.max(oldSlots.length, newTaskTotal)];
+        int oldSlot = 0;
+        int nextInserted = 0;
+        for (int slot = 0; slot < newTaskTotal; slot++) {
+            Task task;
+            if (nextInserted < taskOrdinals.length && taskOrdinals[nextInserted] == slot) {
+                task = tasks.get(nextInserted++);
+                nextTaskId = Math.max(nextTaskId, task.getTaskId() + 1);
+                indexTask(task);
+            } else {
+                while (oldSlots[oldSlot] == null) {
+                    oldSlot++;
+                }
+                task = oldSlots[oldSlot++];
+            }
+            slots[slot] = task;
+            slotsByTaskId.put(task.getTaskId(), slot);
+        }
+        slotTotal = newTaskTotal;
+        taskTotal = newTaskTotal;
+        rebuildLiveSlots();
+    }
+    /**
+     * Puts a task back at the ordinal, into the empty slot just before the task now at that ordinal,
+     * or after the last slot if it goes at the end, without moving any other task.
+     *
+     * @param taskOrdinal the ordinal the task ends up at
+     * @param task        the task to put back
+     * @return true if the task was put back, or false if there is no empty slot where it belongs
+     */
+    private boolean insertIntoEmptySlot(int taskOrdinal, Task task) {
+        int nextSlot = taskOrdinal == taskTotal ? slotTotal : getSlotOfOrdinal(taskOrdinal);
+        int slot = nextSlot - 1;
+        if (slot < 0 || slots[slot] != null) {
+            if (taskOrdinal != taskTotal) {
+                return false;
+            }
+            if (slotTotal == slots.length) {
+                growSlots();
+            }
+            slot = slotTotal++;
+        }
+        slots[slot] = task;
+        liveSlots.add(slot, 1);
+        slotsByTaskId.put(task.getTaskId(), slot);
+        nextTaskId = Math.max(nextTaskId, task.getTaskId() + 1);
+        taskTotal++;
+        indexTask(task);
+        return true;
+    }
+    /**
+     * Deletes a task from the list based on its ordinal index.
+     *
+     * @param taskOrdinal the index of the task to be deleted
+     */
+    @Override
+    public void deleteTask(int taskOrdinal) {
+        Task task = getTaskAtOrdinal(taskOrdinal);
+        int slot = slotsByTaskId.remove(task.getTaskId());
+        slots[slot] = null;
+        liveSlots.add(slot, -1);
+        taskTotal--;
+        unindexTask(task);
+    }
+    /**
+     * Deletes the tasks at the given ordinals in one pass over the slots,
+     * then drops every empty slot at once, instead of deleting the tasks one at a time.
+     *
+     * @param taskOrdinals the ordinals of the tasks to delete, in ascending order without repeats
+     * @return the deleted tasks, in ordinal order
+     */
+    @Override
+    public List<Task> deleteTasks(int[] taskOrdinals) {
+        List<Task> deletedTasks = new ArrayList<>(taskOrdinals.length);
+        int nextDeleted = 0;
+        int ordinal = 0;
+        for (int slot = 0; slot < slotTotal && nextDeleted < taskOrdinals.length; slot++) {
+            Task task = slots[slot];
+            if (task == null) {
+                continue;
+            }
+            if (ordinal == taskOrdinals[nextDeleted]) {
+                slotsByTaskId.remove(task.getTaskId());
+                slots[slot] = null;
+                unindexTask(task);
+                deletedTasks.add(task);
+                nextDeleted++;
+            }
+            ordinal++;
+        }
+        taskTotal -= deletedTasks.size();
+        dropEmptySlots();
+        rebuildLiveSlots();
+        return deletedTasks;
+    }
+    private void indexTask(Task task) {
+        if (isSearchIndexBuilt) {
+            searchIndex.addTask(task);
+        }
+        if (isDateIndexBuilt) {
+            dateIndex.addTask(task);
+        }
+        if (isWordTrieBuilt) {
+            wordTrie.addTask(task);
+        }
+    }
+    private void unindexTask(Task task) {
+        if (isSearchIndexBuilt) {
+            searchIndex.removeTask(task);
+        }
+        if (isDateIndexBuilt) {
+            dateIndex.removeTask(task);
+        }
+        if (isWordTrieBuilt) {
+            wordTrie.removeTask(task);
+        }
+    }
+    /**
+     * Updates the completion status of the tasks at the given ordinals, leaving those that already have it.
+     *
+     * @param taskOrdinals the ordinals of the tasks to update, in ascending order without repeats
+     * @param isDone the new completion status
+     * @return the ordinals of the tasks whose status changed, in ascending order
+     */
+    @Override
+    public int[] updateTasksStatus(int[] taskOrdinals, boolean isDone) {
+        int[] changedOrdinals = new int[taskOrdinals.length];
+        int changedTotal = 0;
+        for (int taskOrdinal : taskOrdinals) {
+            Task task = getTaskAtOrdinal(taskOrdinal);
+            if (task.isDone() != isDone) {
+                task.setDoneStatus(isDone);
+                changedOrdinals[changedTotal++] = taskOrdinal;
+            }
+        }
+        return Arrays.copyOf(changedOrdinals, changedTotal);
+    }
+
+
+    private int getSlotOfOrdinal(int taskOrdinal) {
+        return slotTotal == taskTotal ? taskOrdinal : liveSlots.findPosition(taskOrdinal);
+    }
+    /**
+     * Makes room for another slot, by dropping the empty slots if there are enough of them,
+     * or by doubling the number of slots otherwise.
+     */
+    private void growSlots() {
+        int emptySlotTotal = slotTotal - taskTotal;
+        if (emptySlotTotal >= MIN_EMPTY_SLOTS_BEFORE_COMPACTION && emptySlotTotal >= taskTotal) {
+            dropEmptySlots();
+        } else {
+            slots = Arrays.copyOf(slots, slots.length * 2);
+        }
+        rebuildLiveSlots();
+    }
+    /**
+     * Moves every task down over the empty slots before it, keeping their order.
+     */
+    private void dropEmptySlots() {
+        int liveSlot = 0;
+        for (int slot = 0; slot < slotTotal; slot++) {
+            if (slots[slot] != null) {
+                if (liveSlot != slot) {
+                    slots[liveSlot] = slots[slot];
+                    slotsByTaskId.put(slots[liveSlot].getTaskId(), liveSlot);
+                }
+                liveSlot++;
+            }
+        }
+        Arrays.fill(slots, liveSlot, slotTotal, null);
+        slotTotal = liveSlot;
+    }
+    private void rebuildLiveSlots() {
+        int[] counts = new int[slotTotal];
+        for (int slot = 0; slot < slotTotal; slot++) {
+            counts[slot] = slots[slot] == null ? 0 : 1;
+        }
+        liveSlots = new FenwickTree(counts, slotTotal, slots.length);
+    }
+
+    /**
+     * Iterates over the tasks in ordinal order, skipping empty slots, in O(n) time overall.
+     */
+    private class LiveTaskIterator implements Iterator<Task> {
+        private int nextSlot = 0;
+
+        @Override
+        public boolean hasNext() {
+            while (nextSlot < slotTotal && slots[nextSlot] == null) {
+                nextSlot++;
+            }
+            return nextSlot < slotTotal;
+        }
+        @Override
+        public Task next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return slots[nextSlot++];
+        }
+    }
+}
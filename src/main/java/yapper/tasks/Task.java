@@ -11,8 +11,39 @@ import yapper.io.StringStorage;
  * and facilitate task display and conversion for saving/loading.
  * <p/>
  *
+ * <p>
+ * The display line is rendered once and kept until the task changes, so listing a long task list
+ * that has not changed does not format every date again.
+ * Every change that shows in the display line bumps the version of the task, which makes the kept line stale.
+ * <p/>
+ *
  */
 public class Task {
+    /**
+     * The ID of a task that has not been added to a task list yet.
+     */
+    public static final long NO_TASK_ID = 0;
+
+    /**
+     * A display line, with the version of the task it was rendered at.
+     * Kept as one object, so a thread reading it concurrently never sees the line of one version
+     * with the number of another.
+     */
+    private static final class RenderedLine {
+        private final int version;
+        private final String display;
+
+        private RenderedLine(int version, String display) {
+            this.version = version;
+            this.display = display;
+        }
+    }
+
+    /**
+     * The ID of the task, which stays the same when other tasks are added or deleted.
+     * It is given by the {@code TaskHandler} the task is added to, and kept in the save file.
+     */
+    protected long taskId = NO_TASK_ID;
     /**
      * The description of the task.
      */
@@ -22,6 +53,14 @@ public class Task {
      * It is either done or not done.
      */
     protected boolean isDone;
+    /**
+     * The number of changes made to the task that show in its display line.
+     */
+    private int version = 0;
+    /**
+     * The display line last rendered, or null if it has not been rendered yet.
+     */
+    private RenderedLine renderedLine;
 
     /**
      * Constructs a Task with the specified description and
@@ -48,6 +87,22 @@ public class Task {
         this.isDone = isDone;
     }
 
+    /**
+     * Returns the ID of the task.
+     *
+     * @return the task ID, or {@code NO_TASK_ID} if the task has not been given one
+     */
+    public long getTaskId() {
+        return taskId;
+    }
+    /**
+     * Sets the ID of the task.
+     *
+     * @param taskId the new task ID
+     */
+    public void setTaskId(long taskId) {
+        this.taskId = taskId;
+    }
     /**
      * Returns the task description
      *
@@ -78,16 +133,49 @@ public class Task {
      * @param isDone the new completion status
      */
     public void setDoneStatus(boolean isDone) {
-        this.isDone = isDone;
+        if (this.isDone != isDone) {
+            this.isDone = isDone;
+            bumpVersion();
+        }
+    }
+    /**
+     * Returns the version of the task, which changes whenever its display line does.
+     *
+     * @return the number of changes made to the task that show in its display line
+     */
+    public int getVersion() {
+        return version;
+    }
+    /**
+     * Records a change to the task that shows in its display line, so the kept line is rendered again.
+     * Called by every method that changes what {@code renderToDisplay} returns.
+     */
+    protected void bumpVersion() {
+        version++;
     }
 
 
     /**
-     * Converts the task to a string format for display.
+     * Converts the task to a string format for display,
+     * rendering it only if the task has changed since it was last displayed.
      *
      * @return a formatted string showing the task's status and description.
      */
-    public String taskToDisplay() {
+    public final String taskToDisplay() {
+        RenderedLine line = renderedLine;
+        if (line == null || line.version != version) {
+            line = new RenderedLine(version, renderToDisplay());
+            renderedLine = line;
+        }
+        return line.display;
+    }
+    /**
+     * Renders the task to a string format for display.
+     * Subclasses add their own symbol and dates around it.
+     *
+     * @return a formatted string showing the task's status and description.
+     */
+    protected String renderToDisplay() {
         return "[" + getDoneStatus() + "] " + taskDesc;
     }
     /**
@@ -100,4 +188,14 @@ public class Task {
                 + StringStorage.COMBINE_USING_DELIMITER + " "
                 + taskDesc;
     }
+    /**
+     * Converts the task to a line of the text save file, which is its ID followed by {@code taskToString}.
+     *
+     * @return a formatted string representing the task's ID, type, status and description.
+     */
+    public String taskToSaveString() {
+        return taskId + " "
+                + StringStorage.COMBINE_USING_DELIMITER + " "
+                + taskToString();
+    }
 }
@@ -0,0 +1,294 @@
+package yapper.tasks;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+import yapper.io.DateAndTimeHandler;
+
+/**
+ * A sorted index over the dates of Deadline and Event tasks, used to answer date queries
+ * without scanning every task.
+ *
+ * <p>
+ * Each dated task covers an interval of epoch minutes: a Deadline covers its end date,
+ * an Event covers its start date to its end date, and a date without a time covers the whole day.
+ * Tasks whose dates could not be parsed are not indexed.
+ * </p>
+ *
+ * <p>
+ * Tasks are kept sorted by the end of their interval, and in an interval tree keyed by its start:
+ * a treap where each node also holds the latest end in its subtree, kept up to date on every add and remove.
+ * An overlap query skips every subtree that ends before the period or starts after it,
+ * so it takes O(log n + k) expected time for k matching tasks, however long the longest interval is.
+ * </p>
+ *
+ */
+public class TaskDateIndex {
+    private final NavigableMap<Long, List<Task>> tasksByEnd = new TreeMap<>();
+    private IntervalNode intervalTreeRoot = null;
+    /**
+     * Gives each node of the interval tree its priority, seeded so that the tree has the same shape every run.
+     */
+    private final Random priorities = new Random(0);
+
+
+    /**
+     * Adds a task to the index, if it has a parsed date.
+     *
+     * @param task the task to add
+     */
+    public void addTask(Task task) {
+        long[] interval = getInterval(task);
+        if (interval == null) {
+            return;
+        }
+        intervalTreeRoot = insert(intervalTreeRoot, interval[0], interval[1], task);
+        tasksByEnd.computeIfAbsent(interval[1], key -> new ArrayList<>(1)).add(task);
+    }
+    /**
+     * Removes a task from the index, if it has a parsed date.
+     *
+     * @param task the task to remove
+     */
+    public void removeTask(Task task) {
+        long[] interval = getInterval(task);
+        if (interval == null) {
+            return;
+        }
+        intervalTreeRoot = remove(intervalTreeRoot, interval[0], task);
+        removeFromBucket(tasksByEnd, interval[1], task);
+    }
+
+    /**
+     * Returns the tasks whose interval ends within the period, e.g. Deadlines due and Events ending then.
+     *
+     * @param from the first epoch minute of the period
+     * @param to   the last epoch minute of the period
+     * @return the tasks ending within the period, in no particular order, or none if it starts after it ends
+     */
+    public List<Task> getTasksEndingBetween(long from, long to) {
+        List<Task> tasks = new ArrayList<>();
+        if (from > to) {
+            return tasks;
+        }
+        for (List<Task> bucket : tasksByEnd.subMap(from, true, to, true).values()) {
+            tasks.addAll(bucket);
+        }
+        return tasks;
+    }
+    /**
+     * Returns the tasks whose interval overlaps the period.
+     *
+     * @param from the first epoch minute of the period
+     * @param to   the last epoch minute of the period
+     * @return the tasks overlapping the period, in no particular order, or none if it starts after it ends
+     */
+    public List<Task> getTasksOverlapping(long from, long to) {
+        List<Task> tasks = new ArrayList<>();
+        if (from > to) {
+            return tasks;
+        }
+        collectOverlapping(intervalTreeRoot, from, to, tasks);
+        return tasks;
+    }
+
+
+    /**
+     * A node of the interval tree, holding every task whose interval starts at the same minute.
+     */
+    private static class IntervalNode {
+        private final long start;
+        private final int priority;
+        private final List<Task> tasks = new ArrayList<>(1);
+        private final List<Long> ends = new ArrayList<>(1);
+        /**
+         * The latest end of any interval in this node.
+         */
+        private long nodeMaxEnd;
+        /**
+         * The latest end of any interval in this node's subtree.
+         */
+        private long subtreeMaxEnd;
+        private IntervalNode left;
+        private IntervalNode right;
+
+        private IntervalNode(long start, int priority) {
+            this.start = start;
+            this.priority = priority;
+        }
+    }
+
+    private IntervalNode insert(IntervalNode node, long start, long end, Task task) {
+        if (node == null) {
+            node = new IntervalNode(start, priorities.nextInt());
+            node.nodeMaxEnd = end;
+            node.subtreeMaxEnd = end;
+            node.tasks.add(task);
+            node.ends.add(end);
+            return node;
+        }
+        if (start < node.start) {
+            node.left = insert(node.left, start, end, task);
+            if (node.left.priority > node.priority) {
+                return rotateRight(node);
+            }
+        } else if (start > node.start) {
+            node.right = insert(node.right, start, end, task);
+            if (node.right.priority > node.priority) {
+                return rotateLeft(node);
+            }
+        } else {
+            node.tasks.add(task);
+            node.ends.add(end);
+            node.nodeMaxEnd = Math.max(node.nodeMaxEnd, end);
+        }
+        updateSubtreeMaxEnd(node);
+        return node;
+    }
+    private static IntervalNode remove(IntervalNode node, long start, Task task) {
+        if (node == null) {
+            return null;
+        }
+        if (start < node.start) {
+            node.left = remove(node.left, start, task);
+        } else if (start > node.start) {
+            node.right = remove(node.right, start, task);
+        } else {
+            for (int index = 0; index < node.tasks.size(); index++) {
+                if (node.tasks.get(index) == task) {
+                    node.tasks.remove(index);
+                    node.ends.remove(index);
+                    break;
+                }
+            }
+            if (node.tasks.isEmpty()) {
+                return removeNode(node);
+            }
+            node.nodeMaxEnd = Long.MIN_VALUE;
+            for (long end : node.ends) {
+                node.nodeMaxEnd = Math.max(node.nodeMaxEnd, end);
+            }
+        }
+        updateSubtreeMaxEnd(node);
+        return node;
+    }
+    /**
+     * Removes a node by rotating it down until it has at most one child, and replacing it with that child.
+     */
+    private static IntervalNode removeNode(IntervalNode node) {
+        if (node.left == null) {
+            return node.right;
+        } else if (node.right == null) {
+            return node.left;
+        }
+        IntervalNode newRoot;
+        if (node.left.priority > node.right.priority) {
+            newRoot = rotateRight(node);
+            newRoot.right = removeNode(node);
+        } else {
+            newRoot = rotateLeft(node);
+            newRoot.left = removeNode(node);
+        }
+        updateSubtreeMaxEnd(newRoot);
+        return newRoot;
+    }
+    private static IntervalNode rotateRight(IntervalNode node) {
+        IntervalNode newRoot = node.left;
+        node.left = newRoot.right;
+        newRoot.right = node;
+        updateSubtreeMaxEnd(node);
+        updateSubtreeMaxEnd(newRoot);
+        return newRoot;
+    }
+    private static IntervalNode rotateLeft(IntervalNode node) {
+        IntervalNode newRoot = node.right;
+        node.right = newRoot.left;
+        newRoot.left = node;
+        updateSubtreeMaxEnd(node);
+        updateSubtreeMaxEnd(newRoot);
+        return newRoot;
+    }
+    private static void updateSubtreeMaxEnd(IntervalNode node) {
+        long subtreeMaxEnd = node.nodeMaxEnd;
+        if (node.left != null) {
+            subtreeMaxEnd = Math.max(subtreeMaxEnd, node.left.subtreeMaxEnd);
+        }
+        if (node.right != null) {
+            subtreeMaxEnd = Math.max(subtreeMaxEnd, node.right.subtreeMaxEnd);
+        }
+        node.subtreeMaxEnd = subtreeMaxEnd;
+    }
+    /**
+     * Adds the tasks in the subtree overlapping the period, skipping subtrees that end before it
+     * and, since the tree is ordered by start, the right subtrees of nodes that start after it.
+     */
+    private static void collectOverlapping(IntervalNode node, long from, long to, List<Task> tasks) {
+        if (node == null || node.subtreeMaxEnd < from) {
+            return;
+        }
+        collectOverlapping(node.left, from, to, tasks);
+        if (node.start > to) {
+            return;
+        }
+        if (node.nodeMaxEnd >= from) {
+            for (int index = 0; index < node.tasks.size(); index++) {
+                if (node.ends.get(index) >= from) {
+                    tasks.add(node.tasks.get(index));
+                }
+            }
+        }
+        collectOverlapping(node.right, from, to, tasks);
+    }
+
+
+    /**
+     * Returns the interval of epoch minutes a task covers.
+     *
+     * <p>
+     * If only one of an Event's dates could be parsed, the interval only covers that date.
+     * </p>
+     *
+     * @param task the task
+     * @return the first and last epoch minute covered, or null if the task has no parsed date
+     */
+    public static long[] getInterval(Task task) {
+        if (task instanceof Deadline) {
+            Deadline deadline = (Deadline) task;
+            return getInterval(deadline.getEndDate(), deadline.getEndDateTime());
+        } else if (task instanceof Event) {
+            Event event = (Event) task;
+            long[] start = getInterval(event.getStartDate(), event.getStartDateTime());
+            long[] end = getInterval(event.getEndDate(), event.getEndDateTime());
+            if (start == null || end == null) {
+                return start == null ? end : start;
+            }
+            return new long[] {start[0], Math.max(start[0], end[1])};
+        }
+        return null;
+    }
+    private static long[] getInterval(LocalDate date, LocalDateTime dateTime) {
+        if (dateTime != null) {
+            long minute = DateAndTimeHandler.toEpochMinute(dateTime);
+            return new long[] {minute, minute};
+        } else if (date != null) {
+            long dayStart = DateAndTimeHandler.toEpochMinute(date.atStartOfDay());
+            return new long[] {dayStart, dayStart + DateAndTimeHandler.MINUTES_PER_DAY - 1};
+        }
+        return null;
+    }
+    private static void removeFromBucket(NavigableMap<Long, List<Task>> tasksByMinute, long minute, Task task) {
+        List<Task> bucket = tasksByMinute.get(minute);
+        if (bucket == null) {
+            return;
+        }
+        bucket.removeIf(indexedTask -> indexedTask == task);
+        if (bucket.isEmpty()) {
+            tasksByMinute.remove(minute);
+        }
+    }
+}
@@ -4,49 +4,45 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Stores a collection of tasks for Yapper.
+ * A task list for Yapper.
  *
  * <p>
- * The TaskHandler class manages a list of tasks, providing methods
- * to perform operations such as adding, deleting, and updating tasks.
+ * The TaskHandler class is what every instruction, save format and the history work through,
+ * providing methods to perform operations such as adding, deleting, and updating tasks,
+ * and finding them by ordinal, ID, description or date.
+ * Ordinals start from 0 here, and are shown to the user starting from 1.
  * <p/>
  *
+ * <p>
+ * How the tasks are kept is up to each task list: {@code SlottedTaskHandler} keeps every task as an object,
+ * {@code ColumnarTaskHandler} keeps them in primitive columns,
+ * and {@code MappedTaskHandler} reads them lazily from a memory-mapped save file.
+ * Each keeps only the state it needs, and gives IDs to tasks added without one in ascending order,
+ * never giving out the ID of a deleted task again.
+ * </p>
+ *
  */
-public class TaskHandler {
-    /**
-     * The collection of tasks.
-     */
-    private List<Task> tasks;
-
-
-    public TaskHandler() {
-        tasks = new ArrayList<>();
-    }
+public abstract class TaskHandler {
 
     /**
      * Returns the list of all tasks managed by this TaskHandler.
      *
-     * @return a List of Task objects
+     * @return a read-only List of Task objects, in ordinal order
      */
-    public List<Task> getAllTasks() {
-        return tasks;
-    }
+    public abstract List<Task> getAllTasks();
     /**
      * Returns the total number of current tasks.
      *
      * @return the number of tasks
      */
-    public int getCurrTaskTotal() {
-        return tasks.size();
-    }
-
+    public abstract int getCurrTaskTotal();
     /**
      * Returns true if list contains no elements, and false otherwise
      *
      * @return true if list contains no elements, and false otherwise
      */
     public boolean isEmpty() {
-        return tasks.isEmpty();
+        return getCurrTaskTotal() == 0;
     }
     /**
      * Retrieves a task based on its ordinal index.
@@ -54,37 +50,159 @@ public class TaskHandler {
      * @param taskOrdinal the index of the task to retrieve
      * @return the Task at the specified index
      */
-    public Task getTaskAtOrdinal(int taskOrdinal) {
-        return tasks.get(taskOrdinal);
-    }
-
+    public abstract Task getTaskAtOrdinal(int taskOrdinal);
+    /**
+     * Retrieves a task based on its ID.
+     *
+     * @param taskId the ID of the task to retrieve
+     * @return the Task with the specified ID, or null if there is none
+     */
+    public abstract Task getTaskById(long taskId);
     /**
      * Retrieves an ordinal of a Task.
      *
      * @param task the task at the ordinal to retrieve
-     * @return the index of the specified task
+     * @return the index of the specified task, or -1 if it is not in the list
+     */
+    public abstract int getOrdinalOf(Task task);
+    /**
+     * Returns the number of tasks that were added without a usable ID, and so were given a new one,
+     * e.g. tasks loaded from a save file written before task IDs were stored.
+     *
+     * @return the number of tasks given a new ID
      */
-    public int getOrdinalOf(Task task) {
-        return tasks.indexOf(task);
+    public abstract int getNewTaskIdTotal();
+    /**
+     * Returns the ID the next task added without a usable ID is given,
+     * which is stored with the task list so that the IDs of deleted tasks are never given out again.
+     *
+     * @return the next task ID
+     */
+    public abstract long getNextTaskId();
+    /**
+     * Makes sure that no ID below the given one is given out again, e.g. the IDs of tasks deleted
+     * before the task list was last stored, using the next task ID stored with it.
+     *
+     * @param storedNextTaskId the next task ID stored with the task list
+     */
+    public abstract void reserveTaskIds(long storedNextTaskId);
+
+    /**
+     * Returns the ordinals of the tasks whose description contains the query, in ascending order.
+     *
+     * @param query the string to search for in task descriptions
+     * @return the ordinals of the matching tasks
+     */
+    public abstract List<Integer> findOrdinalsContaining(String query);
+    /**
+     * Returns the ordinals of the tasks whose dates end within the period, in ascending order,
+     * e.g. Deadlines due then and Events ending then.
+     *
+     * @param from the first epoch minute of the period
+     * @param to   the last epoch minute of the period
+     * @return the ordinals of the matching tasks
+     */
+    public abstract List<Integer> findOrdinalsDueBetween(long from, long to);
+    /**
+     * Returns the ordinals of the tasks whose dates overlap the period, in ascending order.
+     *
+     * @param from the first epoch minute of the period
+     * @param to   the last epoch minute of the period
+     * @return the ordinals of the matching tasks
+     */
+    public abstract List<Integer> findOrdinalsOverlapping(long from, long to);
+    /**
+     * Returns the ordinals of the tasks with a word in their description starting with the prefix,
+     * ignoring case, in ascending order.
+     *
+     * @param prefix the start of a word
+     * @return the ordinals of the matching tasks
+     */
+    public abstract List<Integer> findOrdinalsWithWordPrefix(String prefix);
+    /**
+     * Returns the words in task descriptions starting with the prefix, ignoring case,
+     * that the most tasks use.
+     *
+     * @param prefix the start of a word
+     * @param limit  the most words to return
+     * @return the words in lowercase, those used by more tasks first, then in alphabetical order
+     */
+    public abstract List<String> completeWord(String prefix, int limit);
+    /**
+     * Returns whether this task list keeps a word trie that can be saved and read back with its tasks.
+     *
+     * @return {@code true} if the word trie is kept, {@code false} if prefix searches scan the tasks instead
+     */
+    public boolean keepsWordTrie() {
+        return false;
+    }
+    /**
+     * Returns whether the word trie has been built or read back, and so is worth saving.
+     *
+     * @return {@code true} if the word trie is built
+     */
+    public boolean isWordTrieBuilt() {
+        return false;
     }
+    /**
+     * Returns the word trie, building it first if needed.
+     * Only task lists that keep a word trie, see {@code keepsWordTrie}, have one.
+     *
+     * @return the word trie over the descriptions of every task
+     */
+    public TaskWordTrie getWordTrie() {
+        throw new UnsupportedOperationException("This task list does not keep a word trie");
+    }
+    /**
+     * Uses a word trie read back from a file instead of building it, which must be over exactly these tasks.
+     * Only task lists that keep a word trie, see {@code keepsWordTrie}, have one.
+     *
+     * @param wordTrie the word trie over the descriptions of every task
+     */
+    public void setWordTrie(TaskWordTrie wordTrie) {
+        throw new UnsupportedOperationException("This task list does not keep a word trie");
+    }
+    /**
+     * Builds anything that is otherwise built on first use,
+     * so that the task list can be read from many threads at once as long as none of them changes it.
+     *
+     * @return {@code true} if reading the task list no longer changes it, {@code false} otherwise
+     */
+    public abstract boolean prepareForConcurrentReads();
 
 
     /**
      * Adds a new task to the list.
      *
+     * <p>
+     * The task keeps its ID if it has one that is not in use, e.g. when loaded from the save file,
+     * and is given the next unused ID otherwise.
+     * </p>
+     *
      * @param task the Task to be added
      */
-    public void addTask(Task task) {
-        tasks.add(task);
-    }
+    public abstract void addTask(Task task);
+    /**
+     * Puts tasks back into the list at the given ordinals, e.g. to undo their deletion.
+     * The tasks keep their IDs, which must not be in use, since IDs of deleted tasks are never given out again.
+     *
+     * @param taskOrdinals the ordinals the tasks end up at, in ascending order without repeats
+     * @param tasks the tasks to put back, in the same order
+     */
+    public abstract void insertTasks(int[] taskOrdinals, List<Task> tasks);
     /**
      * Deletes a task from the list based on its ordinal index.
      *
      * @param taskOrdinal the index of the task to be deleted
      */
-    public void deleteTask(int taskOrdinal) {
-        tasks.remove(taskOrdinal);
-    }
+    public abstract void deleteTask(int taskOrdinal);
+    /**
+     * Deletes the tasks at the given ordinals at once.
+     *
+     * @param taskOrdinals the ordinals of the tasks to delete, in ascending order without repeats
+     * @return the deleted tasks, in ordinal order
+     */
+    public abstract List<Task> deleteTasks(int[] taskOrdinals);
     /**
      * Updates the completion status of a specified task.
      *
@@ -94,17 +212,25 @@ public class TaskHandler {
     public void updateTaskStatus(Task task, boolean isDone) {
         task.setDoneStatus(isDone);
     }
+    /**
+     * Updates the completion status of the tasks at the given ordinals, leaving those that already have it.
+     *
+     * @param taskOrdinals the ordinals of the tasks to update, in ascending order without repeats
+     * @param isDone the new completion status
+     * @return the ordinals of the tasks whose status changed, in ascending order
+     */
+    public abstract int[] updateTasksStatus(int[] taskOrdinals, boolean isDone);
 
     /**
      * Converts the list of tasks into an {@code ArrayList} of string representations.
-     * Each task is represented by its string format as defined by the {@code taskToString()} method.
+     * Each task is represented by its save file format as defined by the {@code taskToSaveString()} method.
      *
      * @return an {@code ArrayList<String>} containing the string representations of all tasks.
      */
     public ArrayList<String> tasksToString() {
-        ArrayList<String> taskAsStrings = new ArrayList<>();
-        for (Task task : this.tasks) {
-            taskAsStrings.add(task.taskToString());
+        ArrayList<String> taskAsStrings = new ArrayList<>(getCurrTaskTotal());
+        for (Task task : getAllTasks()) {
+            taskAsStrings.add(task.taskToSaveString());
         }
         return taskAsStrings;
     }
@@ -0,0 +1,141 @@
+package yapper.tasks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An n-gram inverted index over task descriptions, used to answer FIND without scanning every task.
+ *
+ * <p>
+ * Every task is posted under each single character and each 3-character substring of its description.
+ * Any task whose description contains the query must then be in the posting list of every n-gram of the query,
+ * so only the tasks in the shortest such posting list need to be checked with {@code String.contains}.
+ * Queries of 1 or 2 characters use the single character posting lists.
+ * </p>
+ *
+ * <p>
+ * Removed tasks are only remembered, and dropped from the posting lists in one go
+ * once they make up half of the indexed tasks, so that removing a task never scans a posting list.
+ * </p>
+ *
+ */
+public class TaskSearchIndex {
+    private static final int GRAM_LENGTH = 3;
+    /**
+     * Set on the keys of single character posting lists, so they never clash with 3-character ones.
+     */
+    private static final long SINGLE_CHAR_MARKER = 1L << 48;
+
+    /**
+     * The posting lists, keyed by the characters of each n-gram packed into a long.
+     */
+    private final Map<Long, List<Task>> postingLists = new HashMap<>();
+    /**
+     * Tasks that were removed but may still be in some posting lists.
+     */
+    private final Set<Task> removedTasks = Collections.newSetFromMap(new IdentityHashMap<>());
+    private int indexedTaskTotal = 0;
+
+
+    /**
+     * Posts a task under every n-gram of its description.
+     *
+     * @param task the task to add to the index
+     */
+    public void addTask(Task task) {
+        if (removedTasks.remove(task)) {
+            return; // its postings were never dropped, so they are still in place
+        }
+        String desc = task.getDesc();
+        for (int index = 0; index < desc.length(); index++) {
+            addPosting(getSingleCharKey(desc, index), task);
+            if (index + GRAM_LENGTH <= desc.length()) {
+                addPosting(getGramKey(desc, index), task);
+            }
+        }
+        indexedTaskTotal++;
+    }
+    /**
+     * Removes a task from the index.
+     *
+     * @param task the task to remove from the index
+     */
+    public void removeTask(Task task) {
+        removedTasks.add(task);
+        if (removedTasks.size() * 2 > indexedTaskTotal) {
+            dropRemovedTasks();
+        }
+    }
+
+    /**
+     * Returns the tasks that may contain the query, i.e. those in the shortest posting list of the query's n-grams.
+     *
+     * <p>
+     * Every task containing the query is returned, but some returned tasks may not contain it,
+     * so each must still be checked with {@code String.contains}.
+     * </p>
+     *
+     * @param query the non-empty string to be found in task descriptions
+     * @return the candidate tasks, in no particular order
+     */
+    public List<Task> getCandidates(String query) {
+        List<Task> shortestPostingList = null;
+        boolean isShortQuery = query.length() < GRAM_LENGTH;
+        int gramTotal = isShortQuery ? query.length() : query.length() - GRAM_LENGTH + 1;
+        for (int index = 0; index < gramTotal; index++) {
+            long key = isShortQuery ? getSingleCharKey(query, index) : getGramKey(query, index);
+            List<Task> postingList = postingLists.get(key);
+            if (postingList == null) {
+                return Collections.emptyList();
+            }
+            if (shortestPostingList == null || postingList.size() < shortestPostingList.size()) {
+                shortestPostingList = postingList;
+            }
+        }
+        if (shortestPostingList == null) {
+            return Collections.emptyList();
+        }
+        if (removedTasks.isEmpty()) {
+            return shortestPostingList;
+        }
+        List<Task> candidates = new ArrayList<>(shortestPostingList.size());
+        for (Task task : shortestPostingList) {
+            if (!removedTasks.contains(task)) {
+                candidates.add(task);
+            }
+        }
+        return candidates;
+    }
+
+
+    /**
+     * Adds a task to a posting list, unless it was just added there for another n-gram of the same description.
+     */
+    private void addPosting(long key, Task task) {
+        List<Task> postingList = postingLists.computeIfAbsent(key, newKey -> new ArrayList<>(4));
+        if (postingList.isEmpty() || postingList.get(postingList.size() - 1) != task) {
+            postingList.add(task);
+        }
+    }
+    private void dropRemovedTasks() {
+        postingLists.values().removeIf(postingList -> {
+            postingList.removeIf(removedTasks::contains);
+            return postingList.isEmpty();
+        });
+        indexedTaskTotal -= removedTasks.size();
+        removedTasks.clear();
+    }
+    private static long getSingleCharKey(String string, int index) {
+        return SINGLE_CHAR_MARKER | string.charAt(index);
+    }
+    private static long getGramKey(String string, int index) {
+        return ((long) string.charAt(index) << 32)
+                | ((long) string.charAt(index + 1) << 16)
+                | string.charAt(index + 2);
+    }
+}
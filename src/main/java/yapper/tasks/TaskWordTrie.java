@@ -0,0 +1,426 @@
+package yapper.tasks;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * A compressed radix trie over the words of task descriptions, used to find tasks by the start of a word
+ * and to complete a word being typed.
+ *
+ * <p>
+ * Words are runs of letters and digits, ignoring case, and each word is kept with the IDs of the tasks using it.
+ * Chains of nodes with a single child and no tasks are merged into one edge,
+ * so the trie has at most twice as many nodes as there are distinct words.
+ * A prefix is looked up by walking at most one edge per character, and every word under the node reached
+ * starts with the prefix, so no description is scanned.
+ * </p>
+ *
+ * <p>
+ * Tasks are kept by ID rather than by reference, so the trie can be written to a file with the task list
+ * and read back on the next start, instead of being built again.
+ * </p>
+ *
+ */
+public class TaskWordTrie {
+    private static final long[] NO_TASK_IDS = new long[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    /**
+     * A node of the trie, reached from its parent through its label.
+     */
+    private static class Node {
+        private String label;
+        /**
+         * The children, in order of the first character of their labels, which are all different.
+         */
+        private Node[] children = NO_CHILDREN;
+        /**
+         * The IDs of the tasks using the word ending at this node, in ascending order.
+         */
+        private long[] taskIds = NO_TASK_IDS;
+        private int taskIdTotal = 0;
+
+        private Node(String label) {
+            this.label = label;
+        }
+    }
+
+    private final Node root = new Node("");
+
+
+    /**
+     * Adds each distinct word in the description of a task, under the task's ID.
+     *
+     * @param task the task to add
+     */
+    public void addTask(Task task) {
+        for (String word : getWords(task.getDesc())) {
+            insert(root, word, 0, task.getTaskId());
+        }
+    }
+    /**
+     * Removes the task's ID from each distinct word in its description, dropping the words no task uses.
+     *
+     * @param task the task to remove
+     */
+    public void removeTask(Task task) {
+        for (String word : getWords(task.getDesc())) {
+            remove(root, word, 0, task.getTaskId());
+        }
+    }
+
+    /**
+     * Returns the IDs of the tasks with a word starting with the prefix.
+     *
+     * @param prefix the start of a word, in any case
+     * @return the task IDs, in ascending order, without repeats
+     */
+    public long[] getTaskIdsWithWordPrefix(String prefix) {
+        Node subtreeRoot = findSubtree(normalize(prefix), new StringBuilder());
+        if (subtreeRoot == null) {
+            return NO_TASK_IDS;
+        }
+        long[][] taskIdsHolder = {new long[16]};
+        int taskIdTotal = collectTaskIds(subtreeRoot, taskIdsHolder, 0);
+        long[] taskIds = taskIdsHolder[0];
+        Arrays.sort(taskIds, 0, taskIdTotal);
+        int uniqueTotal = 0;
+        for (int index = 0; index < taskIdTotal; index++) {
+            if (uniqueTotal == 0 || taskIds[index] != taskIds[uniqueTotal - 1]) {
+                taskIds[uniqueTotal++] = taskIds[index];
+            }
+        }
+        return Arrays.copyOf(taskIds, uniqueTotal);
+    }
+    /**
+     * Returns the words starting with the prefix that the most tasks use.
+     *
+     * @param prefix the start of a word, in any case
+     * @param limit  the most words to return
+     * @return the words in lowercase, those used by more tasks first, then in alphabetical order
+     */
+    public List<String> getTopWords(String prefix, int limit) {
+        StringBuilder subtreeWord = new StringBuilder();
+        Node subtreeRoot = findSubtree(normalize(prefix), subtreeWord);
+        Map<String, Integer> taskTotalsByWord = new HashMap<>();
+        if (subtreeRoot != null) {
+            collectWords(subtreeRoot, subtreeWord, taskTotalsByWord);
+        }
+        return rankWords(taskTotalsByWord, limit);
+    }
+
+
+    /**
+     * Returns the distinct words of a description, in lowercase, in the order they first appear.
+     *
+     * @param desc the description of a task
+     * @return the distinct words
+     */
+    public static Set<String> getWords(String desc) {
+        Set<String> words = new LinkedHashSet<>();
+        int wordStart = -1;
+        for (int index = 0; index <= desc.length(); index++) {
+            boolean isWordChar = index < desc.length() && Character.isLetterOrDigit(desc.charAt(index));
+            if (isWordChar && wordStart < 0) {
+                wordStart = index;
+            } else if (!isWordChar && wordStart >= 0) {
+                words.add(normalize(desc.substring(wordStart, index)));
+                wordStart = -1;
+            }
+        }
+        return words;
+    }
+    /**
+     * Checks whether a description has a word starting with the prefix, for task lists that keep no trie.
+     *
+     * @param desc             the description of a task
+     * @param normalizedPrefix the start of a word, in lowercase
+     * @return {@code true} if a word of the description starts with the prefix
+     */
+    public static boolean hasWordWithPrefix(String desc, String normalizedPrefix) {
+        for (String word : getWords(desc)) {
+            if (word.startsWith(normalizedPrefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    /**
+     * Adds to the count of each word of a description starting with the prefix, for task lists that keep no trie.
+     *
+     * @param desc             the description of a task
+     * @param normalizedPrefix the start of a word, in lowercase
+     * @param taskTotal        the number of tasks with the description
+     * @param taskTotalsByWord the number of tasks using each word, added to
+     */
+    public static void countWordsWithPrefix(String desc, String normalizedPrefix, int taskTotal,
+            Map<String, Integer> taskTotalsByWord) {
+        for (String word : getWords(desc)) {
+            if (word.startsWith(normalizedPrefix)) {
+                taskTotalsByWord.merge(word, taskTotal, Integer::sum);
+            }
+        }
+    }
+    /**
+     * Returns the prefix in the case that words are kept in.
+     *
+     * @param prefix the start of a word, in any case
+     * @return the prefix in lowercase
+     */
+    public static String normalize(String prefix) {
+        return prefix.toLowerCase(Locale.ROOT);
+    }
+    /**
+     * Returns the words used by the most tasks, those used by more tasks first, then in alphabetical order.
+     *
+     * @param taskTotalsByWord the number of tasks using each word
+     * @param limit            the most words to return
+     * @return the top words
+     */
+    public static List<String> rankWords(Map<String, Integer> taskTotalsByWord, int limit) {
+        PriorityQueue<Map.Entry<String, Integer>> topWords = new PriorityQueue<>((first, second) ->
+                first.getValue().equals(second.getValue())
+                        ? second.getKey().compareTo(first.getKey())
+                        : Integer.compare(first.getValue(), second.getValue()));
+        for (Map.Entry<String, Integer> wordTaskTotal : taskTotalsByWord.entrySet()) {
+            topWords.add(wordTaskTotal);
+            if (topWords.size() > limit) {
+                topWords.poll();
+            }
+        }
+        String[] rankedWords = new String[topWords.size()];
+        for (int rank = rankedWords.length - 1; rank >= 0; rank--) {
+            rankedWords[rank] = topWords.poll().getKey();
+        }
+        return Arrays.asList(rankedWords);
+    }
+
+
+    /**
+     * Writes the trie, one node after another with each node before its children.
+     *
+     * @param output the stream to write to
+     * @throws IOException if the stream cannot be written to
+     */
+    public void writeTo(DataOutputStream output) throws IOException {
+        writeNode(root, output);
+    }
+    /**
+     * Reads a trie written by {@code writeTo}.
+     *
+     * @param input the stream to read from
+     * @return the trie read
+     * @throws IOException if the stream cannot be read, or does not hold a trie
+     */
+    public static TaskWordTrie readFrom(DataInputStream input) throws IOException {
+        TaskWordTrie wordTrie = new TaskWordTrie();
+        Node root = readNode(input);
+        wordTrie.root.children = root.children;
+        wordTrie.root.taskIds = root.taskIds;
+        wordTrie.root.taskIdTotal = root.taskIdTotal;
+        return wordTrie;
+    }
+    private static void writeNode(Node node, DataOutputStream output) throws IOException {
+        output.writeUTF(node.label);
+        output.writeInt(node.taskIdTotal);
+        for (int index = 0; index < node.taskIdTotal; index++) {
+            output.writeLong(node.taskIds[index]);
+        }
+        output.writeInt(node.children.length);
+        for (Node child : node.children) {
+            writeNode(child, output);
+        }
+    }
+    private static Node readNode(DataInputStream input) throws IOException {
+        Node node = new Node(input.readUTF());
+        node.taskIdTotal = input.readInt();
+        if (node.taskIdTotal < 0) {
+            throw new IOException("Negative task ID count in word trie");
+        }
+        node.taskIds = node.taskIdTotal == 0 ? NO_TASK_IDS : new long[node.taskIdTotal];
+        for (int index = 0; index < node.taskIdTotal; index++) {
+            node.taskIds[index] = input.readLong();
+        }
+        int childTotal = input.readInt();
+        if (childTotal < 0) {
+            throw new IOException("Negative child count in word trie");
+        }
+        node.children = childTotal == 0 ? NO_CHILDREN : new Node[childTotal];
+        for (int index = 0; index < childTotal; index++) {
+            node.children[index] = readNode(input);
+        }
+        return node;
+    }
+
+
+    private static void insert(Node node, String word, int offset, long taskId) {
+        if (offset == word.length()) {
+            addTaskId(node, taskId);
+            return;
+        }
+        int childIndex = findChild(node, word.charAt(offset));
+        if (childIndex < 0) {
+            Node leaf = new Node(word.substring(offset));
+            addTaskId(leaf, taskId);
+            insertChild(node, -childIndex - 1, leaf);
+            return;
+        }
+        Node child = node.children[childIndex];
+        int commonLength = getCommonLength(child.label, word, offset);
+        if (commonLength < child.label.length()) {
+            // split the edge, so the shared part of the label leads to both the old child and the new word
+            Node middle = new Node(child.label.substring(0, commonLength));
+            child.label = child.label.substring(commonLength);
+            middle.children = new Node[] {child};
+            node.children[childIndex] = middle;
+            child = middle;
+        }
+        insert(child, word, offset + commonLength, taskId);
+    }
+    /**
+     * Removes the task ID from the word under the node, then drops or merges the child it went through
+     * if it no longer holds a word of its own.
+     */
+    private static void remove(Node node, String word, int offset, long taskId) {
+        if (offset == word.length()) {
+            removeTaskId(node, taskId);
+            return;
+        }
+        int childIndex = findChild(node, word.charAt(offset));
+        if (childIndex < 0) {
+            return;
+        }
+        Node child = node.children[childIndex];
+        if (!word.startsWith(child.label, offset)) {
+            return;
+        }
+        remove(child, word, offset + child.label.length(), taskId);
+        if (child.taskIdTotal > 0) {
+            return;
+        }
+        if (child.children.length == 0) {
+            Node[] children = new Node[node.children.length - 1];
+            System.arraycopy(node.children, 0, children, 0, childIndex);
+            System.arraycopy(node.children, childIndex + 1, children, childIndex, children.length - childIndex);
+            node.children = children.length == 0 ? NO_CHILDREN : children;
+        } else if (child.children.length == 1) {
+            Node grandchild = child.children[0];
+            grandchild.label = child.label + grandchild.label;
+            node.children[childIndex] = grandchild;
+        }
+    }
+    /**
+     * Returns the node under which every word starts with the prefix, or null if no word does.
+     *
+     * @param prefix      the start of a word, in lowercase
+     * @param subtreeWord takes the labels on the way to the node, i.e. the word ending at the node
+     */
+    private Node findSubtree(String prefix, StringBuilder subtreeWord) {
+        Node node = root;
+        int offset = 0;
+        while (offset < prefix.length()) {
+            int childIndex = findChild(node, prefix.charAt(offset));
+            if (childIndex < 0) {
+                return null;
+            }
+            Node child = node.children[childIndex];
+            int commonLength = getCommonLength(child.label, prefix, offset);
+            if (offset + commonLength < prefix.length() && commonLength < child.label.length()) {
+                return null;
+            }
+            subtreeWord.append(child.label);
+            node = child;
+            offset += commonLength;
+        }
+        return node;
+    }
+    private static int collectTaskIds(Node node, long[][] taskIdsHolder, int taskIdTotal) {
+        if (taskIdTotal + node.taskIdTotal > taskIdsHolder[0].length) {
+            taskIdsHolder[0] = Arrays.copyOf(taskIdsHolder[0],
+                    Math.max(taskIdsHolder[0].length * 2, taskIdTotal + node.taskIdTotal));
+        }
+        System.arraycopy(node.taskIds, 0, taskIdsHolder[0], taskIdTotal, node.taskIdTotal);
+        taskIdTotal += node.taskIdTotal;
+        for (Node child : node.children) {
+            taskIdTotal = collectTaskIds(child, taskIdsHolder, taskIdTotal);
+        }
+        return taskIdTotal;
+    }
+    private static void collectWords(Node node, StringBuilder word, Map<String, Integer> taskTotalsByWord) {
+        if (node.taskIdTotal > 0) {
+            taskTotalsByWord.put(word.toString(), node.taskIdTotal);
+        }
+        for (Node child : node.children) {
+            int wordLength = word.length();
+            word.append(child.label);
+            collectWords(child, word, taskTotalsByWord);
+            word.setLength(wordLength);
+        }
+    }
+
+    /**
+     * Returns the index of the child whose label starts with the character,
+     * or {@code -(insertion point) - 1} if there is none, as with {@code Arrays.binarySearch}.
+     */
+    private static int findChild(Node node, char firstChar) {
+        int low = 0;
+        int high = node.children.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char middleChar = node.children[middle].label.charAt(0);
+            if (middleChar < firstChar) {
+                low = middle + 1;
+            } else if (middleChar > firstChar) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -low - 1;
+    }
+    private static void insertChild(Node node, int childIndex, Node child) {
+        Node[] children = new Node[node.children.length + 1];
+        System.arraycopy(node.children, 0, children, 0, childIndex);
+        children[childIndex] = child;
+        System.arraycopy(node.children, childIndex, children, childIndex + 1, node.children.length - childIndex);
+        node.children = children;
+    }
+    private static int getCommonLength(String label, String word, int offset) {
+        int maxLength = Math.min(label.length(), word.length() - offset);
+        int length = 0;
+        while (length < maxLength && label.charAt(length) == word.charAt(offset + length)) {
+            length++;
+        }
+        return length;
+    }
+    private static void addTaskId(Node node, long taskId) {
+        int index = Arrays.binarySearch(node.taskIds, 0, node.taskIdTotal, taskId);
+        if (index >= 0) {
+            return;
+        }
+        index = -index - 1;
+        if (node.taskIdTotal == node.taskIds.length) {
+            node.taskIds = Arrays.copyOf(node.taskIds, Math.max(2, node.taskIdTotal * 2));
+        }
+        System.arraycopy(node.taskIds, index, node.taskIds, index + 1, node.taskIdTotal - index);
+        node.taskIds[index] = taskId;
+        node.taskIdTotal++;
+    }
+    private static void removeTaskId(Node node, long taskId) {
+        int index = Arrays.binarySearch(node.taskIds, 0, node.taskIdTotal, taskId);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(node.taskIds, index + 1, node.taskIds, index, node.taskIdTotal - index - 1);
+        node.taskIdTotal--;
+    }
+}
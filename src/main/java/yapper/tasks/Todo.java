@@ -31,15 +31,15 @@ public class Todo extends Task {
 
 
     /**
-     * Converts the todo task to a string format for display,
+     * Renders the todo task to a string format for display,
      * including the Todo symbol.
      *
      * @return a formatted string showing the Todo task's status and description.
      */
     @Override
-    public String taskToDisplay() {
+    protected String renderToDisplay() {
         return "[" + StringStorage.SYMBOL_TODO + "]"
-                + super.taskToDisplay();
+                + super.renderToDisplay();
     }
     /**
      * Converts the todo task to a string format for writing to / reading from a file,
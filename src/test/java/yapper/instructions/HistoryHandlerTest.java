@@ -0,0 +1,112 @@
+package yapper.instructions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static yapper.tasks.TaskHandlerFixtures.createTaskHandler;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import yapper.exceptions.YapperException;
+import yapper.io.OutputFileHandler;
+import yapper.io.StringStorage;
+import yapper.tasks.Task;
+import yapper.tasks.TaskHandler;
+import yapper.tasks.Todo;
+
+public class HistoryHandlerTest {
+
+    @BeforeEach
+    public void deferWrites() {
+        // the undone and redone changes are left unsaved, so that no save file is touched
+        OutputFileHandler.setDeferringWrites(true);
+    }
+    @AfterEach
+    public void stopDeferringWrites() {
+        OutputFileHandler.setDeferringWrites(false);
+    }
+
+    @Test
+    public void undo_deletedTask_putBackAtItsOrdinal() throws YapperException {
+        TaskHandler taskHandler = createTaskHandler(3);
+        Task deletedTask = taskHandler.getTaskAtOrdinal(1);
+        taskHandler.deleteTask(1);
+        HistoryHandler.recordDeletedTasks(taskHandler, new int[] {1}, List.of(deletedTask));
+
+        assertEquals(1, HistoryHandler.undo(taskHandler, 1));
+        assertEquals(3, taskHandler.getCurrTaskTotal());
+        assertEquals(deletedTask.getTaskId(), taskHandler.getTaskAtOrdinal(1).getTaskId());
+
+        assertEquals(1, HistoryHandler.redo(taskHandler, 1));
+        assertEquals(2, taskHandler.getCurrTaskTotal());
+    }
+
+    @Test
+    public void undo_otherTaskNowAtTheOrdinal_forgetsHistory() {
+        TaskHandler taskHandler = createTaskHandler(3);
+        taskHandler.updateTasksStatus(new int[] {1}, true);
+        HistoryHandler.recordStatusChange(taskHandler, new int[] {1}, true);
+        // the same number of tasks, but not the same task at ordinal 1
+        taskHandler.deleteTask(1);
+        taskHandler.addTask(new Todo("task 4"));
+
+        assertThrows(YapperException.class, () -> HistoryHandler.undo(taskHandler, 1));
+        assertFalse(taskHandler.getTaskAtOrdinal(1).isDone());
+        assertThrows(YapperException.class, () -> HistoryHandler.undo(taskHandler, 1));
+    }
+
+    @Test
+    public void undo_markedTask_unmarksIt() throws YapperException {
+        TaskHandler taskHandler = createTaskHandler(3);
+        taskHandler.updateTasksStatus(new int[] {0, 2}, true);
+        HistoryHandler.recordStatusChange(taskHandler, new int[] {0, 2}, true);
+
+        assertEquals(1, HistoryHandler.undo(taskHandler, 1));
+        assertFalse(taskHandler.getTaskAtOrdinal(0).isDone());
+        assertFalse(taskHandler.getTaskAtOrdinal(2).isDone());
+
+        assertEquals(1, HistoryHandler.redo(taskHandler, 1));
+        assertTrue(taskHandler.getTaskAtOrdinal(0).isDone());
+        assertTrue(taskHandler.getTaskAtOrdinal(2).isDone());
+    }
+
+    @Test
+    public void undo_deletionOfMoreTasksThanTheLimit_notKept() {
+        TaskHandler taskHandler = createTaskHandler(StringStorage.HISTORY_TASK_LIMIT + 1);
+        taskHandler.updateTasksStatus(new int[] {0}, true);
+        HistoryHandler.recordStatusChange(taskHandler, new int[] {0}, true);
+        int[] taskOrdinals = new int[taskHandler.getCurrTaskTotal()];
+        for (int index = 0; index < taskOrdinals.length; index++) {
+            taskOrdinals[index] = index;
+        }
+        List<Task> deletedTasks = taskHandler.deleteTasks(taskOrdinals);
+        HistoryHandler.recordDeletedTasks(taskHandler, taskOrdinals, deletedTasks);
+
+        assertThrows(YapperException.class, () -> HistoryHandler.undo(taskHandler, 1));
+        assertEquals(0, taskHandler.getCurrTaskTotal());
+    }
+
+    @Test
+    public void undo_changesHoldingMoreTasksThanTheLimit_forgetsTheOldest() throws YapperException {
+        int halfLimit = StringStorage.HISTORY_TASK_LIMIT / 2;
+        TaskHandler taskHandler = createTaskHandler(halfLimit + 1);
+        int[] firstOrdinals = new int[halfLimit + 1];
+        for (int index = 0; index < firstOrdinals.length; index++) {
+            firstOrdinals[index] = index;
+        }
+        taskHandler.updateTasksStatus(firstOrdinals, true);
+        HistoryHandler.recordStatusChange(taskHandler, firstOrdinals, true);
+        int[] secondOrdinals = Arrays.copyOf(firstOrdinals, halfLimit);
+        taskHandler.updateTasksStatus(secondOrdinals, false);
+        HistoryHandler.recordStatusChange(taskHandler, secondOrdinals, false);
+
+        assertEquals(1, HistoryHandler.undo(taskHandler, 2));
+        assertTrue(taskHandler.getTaskAtOrdinal(0).isDone());
+    }
+}
@@ -0,0 +1,81 @@
+package yapper.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import yapper.exceptions.YapperException;
+import yapper.tasks.Deadline;
+import yapper.tasks.Event;
+import yapper.tasks.SlottedTaskHandler;
+import yapper.tasks.Task;
+import yapper.tasks.TaskHandler;
+import yapper.tasks.Todo;
+
+public class ArchiveFileHandlerTest {
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void useTempSaveFile() {
+        // the archive sits next to the save file in use, and the task list left behind is not saved
+        FileHandler.setTaskStorage(new TextTaskStorage(tempDir.resolve("savedata.txt").toString()));
+        OutputFileHandler.setDeferringWrites(true);
+    }
+    @AfterEach
+    public void restoreSaveFile() {
+        OutputFileHandler.setDeferringWrites(false);
+        FileHandler.setTaskStorage(new TextTaskStorage());
+    }
+
+    @Test
+    public void findTasks_archivedDatesAfterTheTwelfth_foundWithTheSameDates() throws YapperException {
+        TaskHandler taskHandler = new SlottedTaskHandler();
+        taskHandler.addTask(new Deadline("file taxes", true, "2024-03-15"));
+        taskHandler.addTask(new Todo("water plants"));
+        taskHandler.addTask(new Event("taxes retreat", true, "2024-04-20 0900", "2024-04-22 1730"));
+
+        assertEquals(2, ArchiveFileHandler.archiveTasks(taskHandler, new int[] {0, 2}));
+        assertEquals(1, taskHandler.getCurrTaskTotal());
+
+        List<Task> matches = new ArrayList<>();
+        assertEquals(2, ArchiveFileHandler.findTasks("taxes", matches::add, () -> { }));
+        Deadline deadline = (Deadline) matches.get(0);
+        assertEquals(LocalDate.of(2024, 3, 15), deadline.getEndDate());
+        Event event = (Event) matches.get(1);
+        assertEquals(LocalDateTime.of(2024, 4, 20, 9, 0), event.getStartDateTime());
+        assertEquals(LocalDateTime.of(2024, 4, 22, 17, 30), event.getEndDateTime());
+    }
+
+    @Test
+    public void findTasks_blockClaimingTooManyBytes_skipsOnlyThatBlock() throws IOException, YapperException {
+        TaskHandler taskHandler = new SlottedTaskHandler();
+        taskHandler.addTask(new Todo("first taxes"));
+        taskHandler.addTask(new Todo("second taxes"));
+        ArchiveFileHandler.archiveTasks(taskHandler, new int[] {0});
+        ArchiveFileHandler.archiveTasks(taskHandler, new int[] {0});
+
+        // the length of the lines of the first block, after the file header and the number of tasks
+        Path archivePath = tempDir.resolve("savedata.txt" + StringStorage.ARCHIVE_FILE_SUFFIX);
+        try (FileChannel channel = FileChannel.open(archivePath, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(Integer.MAX_VALUE).flip(), 3 * Integer.BYTES);
+        }
+
+        List<Task> matches = new ArrayList<>();
+        assertEquals(1, ArchiveFileHandler.findTasks("taxes", matches::add, () -> { }));
+        assertEquals("second taxes", matches.get(0).getDesc());
+    }
+}
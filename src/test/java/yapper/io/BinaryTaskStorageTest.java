@@ -0,0 +1,47 @@
+package yapper.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import yapper.tasks.Deadline;
+import yapper.tasks.Event;
+import yapper.tasks.SlottedTaskHandler;
+import yapper.tasks.TaskHandler;
+import yapper.tasks.Todo;
+
+public class BinaryTaskStorageTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void loadTasks_everyDateShape_readsBackTheSameDates() throws IOException {
+        Path saveFile = tempDir.resolve("savedata.bin");
+        TaskHandler taskHandler = new SlottedTaskHandler();
+        taskHandler.addTask(new Todo("read", true));
+        taskHandler.addTask(new Deadline("tax", false, "2024-03-15"));
+        taskHandler.addTask(new Deadline("call", true, "2024-03-15 1730"));
+        taskHandler.addTask(new Deadline("someday", false, "when it rains"));
+        taskHandler.addTask(new Event("trip", false, "2024-04-20 0900", "2024-04-22"));
+        new BinaryTaskStorage(saveFile.toString()).storeAllTasks(taskHandler);
+
+        TaskHandler reloadedTaskHandler = new SlottedTaskHandler();
+        assertEquals(0, new BinaryTaskStorage(saveFile.toString()).loadTasks(reloadedTaskHandler));
+
+        assertEquals(taskHandler.tasksToString(), reloadedTaskHandler.tasksToString());
+        Deadline call = (Deadline) reloadedTaskHandler.getTaskAtOrdinal(2);
+        assertEquals(LocalDateTime.of(2024, 3, 15, 17, 30), call.getEndDateTime());
+        assertEquals("", call.getEndDateString());
+        Deadline someday = (Deadline) reloadedTaskHandler.getTaskAtOrdinal(3);
+        assertEquals("when it rains", someday.getEndDateString());
+        Event trip = (Event) reloadedTaskHandler.getTaskAtOrdinal(4);
+        assertEquals(LocalDateTime.of(2024, 4, 20, 9, 0), trip.getStartDateTime());
+        assertEquals(LocalDate.of(2024, 4, 22), trip.getEndDate());
+    }
+}
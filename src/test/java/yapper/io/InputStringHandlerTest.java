@@ -0,0 +1,121 @@
+package yapper.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static yapper.tasks.TaskHandlerFixtures.createTaskHandler;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import yapper.exceptions.YapperException;
+import yapper.instructions.Instruction;
+import yapper.instructions.TaskSelection;
+import yapper.tasks.TaskHandler;
+
+public class InputStringHandlerTest {
+
+    @Test
+    public void parseUserInput_extraWhitespace_trimmedAroundEachArgument() throws YapperException {
+        Instruction todo = InputStringHandler.parseUserInput("  todo   read  book \t");
+        assertEquals(Instruction.InstructionType.TODO, todo.getInstructionType());
+        assertEquals("read  book", todo.getInstructionDesc());
+
+        Instruction deadline = InputStringHandler.parseUserInput("deadline   return book   /by   2024-03-15 1800  ");
+        assertEquals(Instruction.InstructionType.DEADLINE, deadline.getInstructionType());
+        assertEquals("return book", deadline.getInstructionDesc());
+        assertEquals(List.of("2024-03-15 1800"), Arrays.asList(deadline.getTaskDates()));
+
+        Instruction event = InputStringHandler.parseUserInput(" event  trip /from  2024-04-20 0900  /to 2024-04-22 ");
+        assertEquals(Instruction.InstructionType.EVENT, event.getInstructionType());
+        assertEquals("trip", event.getInstructionDesc());
+        assertEquals(List.of("2024-04-20 0900", "2024-04-22"), Arrays.asList(event.getTaskDates()));
+
+        Instruction mark = InputStringHandler.parseUserInput("mark   3  ");
+        assertEquals(Instruction.InstructionType.MARK, mark.getInstructionType());
+        assertEquals(3, mark.getTaskOrdinal());
+    }
+
+    @Test
+    public void parseUserInput_missingKeywords_namesTheKeyword() {
+        assertFailsWith("deadline return book 2024-03-15", StringStorage.DELIMITER_DEADLINE_END_DATE + " keyword");
+        assertFailsWith("event trip 2024-04-20 /to 2024-04-22", StringStorage.DELIMITER_EVENT_START_DATE + " keyword");
+        assertFailsWith("event trip /from 2024-04-20 2024-04-22", StringStorage.DELIMITER_EVENT_END_DATE + " keyword");
+        // the end keyword only counts after the start keyword
+        assertFailsWith("event trip /to 2024-04-22 /from 2024-04-20",
+                StringStorage.DELIMITER_EVENT_END_DATE + " keyword");
+    }
+
+    @Test
+    public void parseUserInput_emptyDescriptionsOrDates_failsForTheMissingPart() {
+        assertFailsWith("", StringStorage.EMPTY_INPUT_MESSAGE);
+        assertFailsWith("   ", StringStorage.EMPTY_INPUT_MESSAGE);
+        assertFailsWith("todo   ", StringStorage.MISSING_ARGUMENTS_MESSAGE);
+        assertFailsWith("deadline /by 2024-03-15", StringStorage.MISSING_DESCRIPTION_MESSAGE);
+        assertFailsWith("deadline return book /by  ", StringStorage.MISSING_END_DATE_MESSAGE);
+        assertFailsWith("event  /from 2024-04-20 /to 2024-04-22", StringStorage.MISSING_DESCRIPTION_MESSAGE);
+        assertFailsWith("event trip /from /to 2024-04-22", StringStorage.MISSING_START_DATE_MESSAGE);
+        assertFailsWith("event trip /from 2024-04-20 /to", StringStorage.MISSING_END_DATE_MESSAGE);
+    }
+
+    @Test
+    public void parseUserInput_badOrdinals_failsOrIsLeftForTheTaskListToCheck() throws YapperException {
+        assertFailsWith("delete", StringStorage.MISSING_ARGUMENTS_MESSAGE);
+        assertFailsWith("delete two", StringStorage.INVALID_TASK_SELECTION_MESSAGE);
+        assertFailsWith("mark 3x", StringStorage.INVALID_TASK_SELECTION_MESSAGE);
+        assertFailsWith("unmark 99999999999", StringStorage.INVALID_TASK_SELECTION_MESSAGE);
+
+        // ordinals that are numbers are only checked against the task list when the instruction is run
+        assertEquals(0, InputStringHandler.parseUserInput("delete 0").getTaskOrdinal());
+        assertEquals(-1, InputStringHandler.parseUserInput("mark -1").getTaskOrdinal());
+        assertEquals(2, InputStringHandler.parseUserInput("unmark +2").getTaskOrdinal());
+        assertNull(InputStringHandler.parseUserInput("delete 0").getTaskSelection());
+    }
+
+    @Test
+    public void parseUserInput_rangesAndLists_selectsEachOrdinalOnce() throws YapperException {
+        TaskHandler taskHandler = createTaskHandler(10);
+        assertSelects(taskHandler, "delete 1-3", 0, 1, 2);
+        assertSelects(taskHandler, "mark 1,3,5", 0, 2, 4);
+        assertSelects(taskHandler, "unmark 5 - 6 , 1,  2-2", 0, 1, 4, 5);
+        assertSelects(taskHandler, "delete 3-4,1-4", 0, 1, 2, 3);
+    }
+
+    @Test
+    public void parseUserInput_malformedSelections_fails() {
+        assertFailsWith("delete 1-", StringStorage.INVALID_TASK_SELECTION_MESSAGE);
+        assertFailsWith("delete -", StringStorage.INVALID_TASK_SELECTION_MESSAGE);
+        assertFailsWith("mark 1,,3", StringStorage.INVALID_TASK_SELECTION_MESSAGE);
+        assertFailsWith("mark 1,3,", StringStorage.INVALID_TASK_SELECTION_MESSAGE);
+        assertFailsWith("unmark ,1", StringStorage.INVALID_TASK_SELECTION_MESSAGE);
+        assertFailsWith("unmark 3-1", StringStorage.INVALID_TASK_SELECTION_MESSAGE);
+        assertFailsWith("delete 1-2-3", StringStorage.INVALID_TASK_SELECTION_MESSAGE);
+        assertFailsWith("delete 1 3", StringStorage.INVALID_TASK_SELECTION_MESSAGE);
+        assertFailsWith("mark 1,x", StringStorage.INVALID_TASK_SELECTION_MESSAGE);
+        assertFailsWith("mark 1-99999999999", StringStorage.INVALID_TASK_SELECTION_MESSAGE);
+        assertFailsWith("unmark +", StringStorage.INVALID_TASK_SELECTION_MESSAGE);
+    }
+
+    @Test
+    public void parseUserInput_unknownInstruction_fails() {
+        assertFailsWith("remind me later", StringStorage.MISSING_PREFIX_MESSAGE);
+        assertFailsWith("todos read book", StringStorage.UNRECOGNISED_INSTRUCTION_MESSAGE);
+    }
+
+    private static void assertSelects(TaskHandler taskHandler, String userInputString, int... expectedOrdinals)
+            throws YapperException {
+        TaskSelection taskSelection = InputStringHandler.parseUserInput(userInputString).getTaskSelection();
+        assertEquals(TaskSelection.SelectionFilter.ORDINALS, taskSelection.getSelectionFilter());
+        assertArrayEquals(expectedOrdinals, taskSelection.getTaskOrdinals(taskHandler));
+    }
+    private static void assertFailsWith(String userInputString, String expectedMessagePart) {
+        YapperException e = assertThrows(YapperException.class,
+                () -> InputStringHandler.parseUserInput(userInputString));
+        assertTrue(e.getMessage().contains(expectedMessagePart),
+                "\"" + userInputString + "\" failed with: " + e.getMessage());
+    }
+}
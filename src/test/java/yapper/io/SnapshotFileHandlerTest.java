@@ -0,0 +1,67 @@
+package yapper.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SnapshotFileHandlerTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void checkSnapshot_manyBuffersWithTasksAppended_checked() throws IOException {
+        Path saveFile = tempDir.resolve("savedata.txt");
+        SnapshotFileHandler.writeSnapshot(saveFile, createTaskLines(5000), 5001);
+        Files.write(saveFile, List.of("5001 | T | O | added later"), Charset.defaultCharset(),
+                StandardOpenOption.APPEND);
+
+        assertEquals(SnapshotFileHandler.Integrity.CHECKED, SnapshotFileHandler.checkSnapshot(saveFile));
+    }
+
+    @Test
+    public void checkSnapshot_footerAcrossReadBuffers_checked() throws IOException {
+        Path saveFile = tempDir.resolve("savedata.txt");
+        // appended lines that put the start of the footer just before the last 64 KiB of the file
+        SnapshotFileHandler.writeSnapshot(saveFile, createTaskLines(10), 11);
+        String appendedLine = "x".repeat(64 * 1024 - 3);
+        Files.write(saveFile, List.of(appendedLine), Charset.defaultCharset(), StandardOpenOption.APPEND);
+
+        assertEquals(SnapshotFileHandler.Integrity.CHECKED, SnapshotFileHandler.checkSnapshot(saveFile));
+    }
+
+    @Test
+    public void checkSnapshot_byteChangedBeforeFooter_torn() throws IOException {
+        Path saveFile = tempDir.resolve("savedata.txt");
+        SnapshotFileHandler.writeSnapshot(saveFile, createTaskLines(5000), 5001);
+        byte[] fileBytes = Files.readAllBytes(saveFile);
+        fileBytes[fileBytes.length / 2] ^= 1;
+        Files.write(saveFile, fileBytes);
+
+        assertEquals(SnapshotFileHandler.Integrity.TORN, SnapshotFileHandler.checkSnapshot(saveFile));
+    }
+
+    @Test
+    public void checkSnapshot_withoutFooter_unchecked() throws IOException {
+        Path saveFile = tempDir.resolve("savedata.txt");
+        Files.write(saveFile, createTaskLines(3), Charset.defaultCharset());
+
+        assertEquals(SnapshotFileHandler.Integrity.UNCHECKED, SnapshotFileHandler.checkSnapshot(saveFile));
+    }
+
+    private static List<String> createTaskLines(int taskTotal) {
+        List<String> taskLines = new ArrayList<>(taskTotal);
+        for (int taskId = 1; taskId <= taskTotal; taskId++) {
+            taskLines.add(taskId + " | T | O | task " + taskId);
+        }
+        return taskLines;
+    }
+}
@@ -0,0 +1,160 @@
+package yapper.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import yapper.exceptions.YapperException;
+import yapper.tasks.Task;
+
+public class TaskRecordDecoderTest {
+
+    @Test
+    public void decodeTask_withAndWithoutIds_keepsTheIdOnlyWhenStored() throws YapperException {
+        Task withId = decode("12 | D | O | return book | 2024-03-15 1800");
+        assertEquals(12, withId.getTaskId());
+        assertEquals("12 | D | O | return book | 2024-03-15 1800", withId.taskToSaveString());
+
+        Task withoutId = decode("E | X | trip | 2024-04-20 0900 | 2024-04-22");
+        assertEquals(Task.NO_TASK_ID, withoutId.getTaskId());
+        assertEquals("E | X | trip | 2024-04-20 0900 | 2024-04-22", withoutId.taskToString());
+
+        Task paddedId = decode("  7 |T|X|  read | book  ");
+        assertEquals(7, paddedId.getTaskId());
+        assertEquals("read | book", paddedId.getDesc());
+    }
+
+    @Test
+    public void decodeLines_crlfLineEndings_decodedLikeLf() throws IOException {
+        List<String> invalidMessages = new ArrayList<>();
+        List<Task> tasks = decodeAll("1 | T | X | read\r\n2 | D | X | tax | 2024-03-15\r\n\r\n"
+                + "3 | E | O | trip | 2024-04-20 | 2024-04-22\r\n", false, invalidMessages);
+
+        assertEquals(3, tasks.size());
+        assertEquals("read", tasks.get(0).getDesc());
+        assertEquals("2 | D | X | tax | 2024-03-15", tasks.get(1).taskToSaveString());
+        assertEquals("3 | E | O | trip | 2024-04-20 | 2024-04-22", tasks.get(2).taskToSaveString());
+        // the blank line between them is the only line skipped
+        assertEquals(1, invalidMessages.size());
+    }
+
+    @Test
+    public void decodeLines_headerAndFooter_skippedWithoutCountingAsInvalid() throws IOException {
+        String snapshot = StringStorage.SNAPSHOT_HEADER + "\r\n"
+                + StringStorage.SNAPSHOT_NEXT_TASK_ID_MARKER + " | 9\n"
+                + "4 | T | X | read\n"
+                + StringStorage.SNAPSHOT_FOOTER_MARKER + " | 0badf00d | 3\n";
+        List<String> invalidMessages = new ArrayList<>();
+        List<Task> tasks = decodeAll(snapshot, false, invalidMessages);
+
+        assertEquals(1, tasks.size());
+        assertEquals(4, tasks.get(0).getTaskId());
+        assertEquals(List.of(), invalidMessages);
+    }
+
+    @Test
+    public void decodeLines_legacyDates_convertedToTheCurrentPattern() throws IOException {
+        List<Task> tasks = decodeAll("D | X | tax | 2024-15-03\n"
+                + "E | X | trip | 2024-20-04 0900 | 2024-22-04\n"
+                + "D | X | someday | whenever\n", true, new ArrayList<>());
+
+        assertEquals("D | X | tax | 2024-03-15", tasks.get(0).taskToString());
+        assertEquals("E | X | trip | 2024-04-20 0900 | 2024-04-22", tasks.get(1).taskToString());
+        // a date in neither legacy pattern was never a date, so it is kept as it is
+        assertEquals("D | X | someday | whenever", tasks.get(2).taskToString());
+    }
+
+    @Test
+    public void decodeLines_linesAcrossTheReadBuffer_decodedWhole() throws IOException {
+        StringBuilder saveFile = new StringBuilder();
+        List<String> expectedLines = new ArrayList<>();
+        int taskId = 1;
+        // short lines, then one padded so the next line starts 10 characters before the read buffer ends
+        while (saveFile.length() < 60 * 1024) {
+            String line = taskId + " | T | X | task " + taskId;
+            expectedLines.add(line);
+            saveFile.append(line).append('\n');
+            taskId++;
+        }
+        String paddingPrefix = taskId++ + " | T | X | ";
+        int paddingTotal = 64 * 1024 - 10 - saveFile.length() - paddingPrefix.length() - 1;
+        String paddingLine = paddingPrefix + "p".repeat(paddingTotal);
+        expectedLines.add(paddingLine);
+        saveFile.append(paddingLine).append('\n');
+        assertEquals(64 * 1024 - 10, saveFile.length());
+        String splitLine = taskId++ + " | D | X | split | 2024-03-15 1800";
+        expectedLines.add(splitLine);
+        saveFile.append(splitLine).append("\r\n");
+        // a line longer than the read buffer, which has to grow to hold it
+        String longLine = taskId++ + " | T | O | " + "x".repeat(200 * 1024);
+        expectedLines.add(longLine);
+        saveFile.append(longLine).append('\n');
+        // the last line, without a newline
+        String lastLine = taskId + " | E | X | last | 2024-04-20 | 2024-04-22";
+        expectedLines.add(lastLine);
+        saveFile.append(lastLine);
+
+        List<String> invalidMessages = new ArrayList<>();
+        List<Task> tasks = decodeAll(saveFile.toString(), false, invalidMessages);
+
+        assertEquals(List.of(), invalidMessages);
+        List<String> decodedLines = new ArrayList<>();
+        for (Task task : tasks) {
+            decodedLines.add(task.taskToSaveString());
+        }
+        assertEquals(expectedLines, decodedLines);
+    }
+
+    @Test
+    public void decodeTask_malformedLines_failWithTheLineAndReason() {
+        assertInvalid("T | X", "invalid task format, missing fields");
+        assertInvalid("5 T | X | read", "invalid task format, missing fields");
+        assertInvalid("99999999999999999999 | T | X | read", "task ID is not a number");
+        assertInvalid("Q | X | read", StringStorage.INVALID_TASK_TYPE_MESSAGE);
+        assertInvalid("TD | X | read", StringStorage.INVALID_TASK_TYPE_MESSAGE);
+        assertInvalid("T | done | read", StringStorage.INVALID_TASK_STATUS_MESSAGE);
+        assertInvalid("T | X |   ", StringStorage.MISSING_DESCRIPTION_MESSAGE);
+        assertInvalid("D | X | tax", "invalid task format, missing fields");
+        assertInvalid("D | X | tax |  ", StringStorage.MISSING_END_DATE_MESSAGE);
+        assertInvalid("E | X | trip | 2024-04-20", "invalid task format, missing fields");
+        assertInvalid("E | X | trip |  | 2024-04-22", StringStorage.MISSING_START_DATE_MESSAGE);
+    }
+
+    @Test
+    public void decodeLines_malformedLines_skippedAndCounted() throws IOException {
+        List<String> invalidMessages = new ArrayList<>();
+        List<Task> tasks = new ArrayList<>();
+        int invalidTaskCount = TaskRecordDecoder.decodeLines(new StringReader(
+                "1 | T | X | read\nQ | X | bad\n2 | T | X | write\nD | X | tax\n"), false,
+                tasks::add, invalidMessages::add);
+
+        assertEquals(2, invalidTaskCount);
+        assertEquals(2, tasks.size());
+        assertEquals(List.of("Q | X | bad, because " + StringStorage.INVALID_TASK_TYPE_MESSAGE,
+                "D | X | tax, because invalid task format, missing fields"), invalidMessages);
+    }
+
+
+    private static Task decode(String line) throws YapperException {
+        return TaskRecordDecoder.decodeTask(line, 0, line.length());
+    }
+    private static List<Task> decodeAll(String saveFile, boolean isWithLegacyDates, List<String> invalidMessages)
+            throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        TaskRecordDecoder.decodeLines(new StringReader(saveFile), isWithLegacyDates, tasks::add,
+                invalidMessages::add);
+        return tasks;
+    }
+    private static void assertInvalid(String line, String expectedReason) {
+        YapperException e = assertThrows(YapperException.class, () -> decode(line));
+        assertTrue(e.getMessage().startsWith(line + ", because "), e.getMessage());
+        assertTrue(e.getMessage().contains(expectedReason), "\"" + line + "\" failed with: " + e.getMessage());
+    }
+}
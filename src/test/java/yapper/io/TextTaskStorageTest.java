@@ -0,0 +1,101 @@
+package yapper.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import yapper.exceptions.YapperException;
+import yapper.tasks.Deadline;
+import yapper.tasks.Event;
+import yapper.tasks.SlottedTaskHandler;
+import yapper.tasks.TaskHandler;
+import yapper.tasks.Todo;
+
+public class TextTaskStorageTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void storeAllTasks_datesAfterTheTwelfth_foundByDateAfterReload() throws IOException, YapperException {
+        Path saveFile = tempDir.resolve("savedata.txt");
+        TaskHandler taskHandler = new SlottedTaskHandler();
+        taskHandler.addTask(new Deadline("tax", false, "2024-03-15"));
+        taskHandler.addTask(new Event("trip", false, "2024-04-20 0900", "2024-04-22 1730"));
+        new TextTaskStorage(saveFile.toString()).storeAllTasks(taskHandler);
+
+        TextTaskStorage reloadedStorage = new TextTaskStorage(saveFile.toString());
+        TaskHandler reloadedTaskHandler = new SlottedTaskHandler();
+        assertEquals(0, reloadedStorage.loadTasks(reloadedTaskHandler));
+        assertFalse(reloadedStorage.isWithLegacyDates());
+
+        assertEquals(List.of(0), reloadedTaskHandler.findOrdinalsDueBetween(
+                DateAndTimeHandler.parseQueryDate("2024-03-15", false),
+                DateAndTimeHandler.parseQueryDate("2024-03-15", true)));
+        assertEquals(List.of(1), reloadedTaskHandler.findOrdinalsOverlapping(
+                DateAndTimeHandler.parseQueryDate("2024-04-20 0900", false),
+                DateAndTimeHandler.parseQueryDate("2024-04-20 0900", true)));
+        assertEquals(List.of(1), reloadedTaskHandler.findOrdinalsOverlapping(
+                DateAndTimeHandler.parseQueryDate("2024-04-22 1700", false),
+                DateAndTimeHandler.parseQueryDate("2024-04-22 1700", true)));
+        assertEquals(List.of(), reloadedTaskHandler.findOrdinalsOverlapping(
+                DateAndTimeHandler.parseQueryDate("2024-04-22 1800", false),
+                DateAndTimeHandler.parseQueryDate("2024-04-22 1800", true)));
+    }
+
+    @Test
+    public void loadTasks_saveFileWithoutHeader_readsDayBeforeMonth() throws IOException, YapperException {
+        Path saveFile = tempDir.resolve("savedata.txt");
+        Files.write(saveFile, List.of("1 | D | X | tax | 2024-15-03",
+                "2 | E | X | trip | 2024-20-04 0900 | 2024-22-04"), Charset.defaultCharset());
+
+        TextTaskStorage storage = new TextTaskStorage(saveFile.toString());
+        TaskHandler taskHandler = new SlottedTaskHandler();
+        assertEquals(0, storage.loadTasks(taskHandler));
+        assertTrue(storage.isWithLegacyDates());
+        assertEquals(List.of(0), taskHandler.findOrdinalsDueBetween(
+                DateAndTimeHandler.parseQueryDate("2024-03-15", false),
+                DateAndTimeHandler.parseQueryDate("2024-03-15", true)));
+        assertEquals(List.of(1), taskHandler.findOrdinalsOverlapping(
+                DateAndTimeHandler.parseQueryDate("2024-04-21", false),
+                DateAndTimeHandler.parseQueryDate("2024-04-21", true)));
+
+        storage.storeAllTasks(taskHandler);
+        assertFalse(storage.isWithLegacyDates());
+        List<String> lines = Files.readAllLines(saveFile, Charset.defaultCharset());
+        assertEquals(StringStorage.SNAPSHOT_HEADER, lines.get(0));
+        assertEquals(StringStorage.SNAPSHOT_NEXT_TASK_ID_MARKER + " | 3", lines.get(1));
+        assertEquals("1 | D | X | tax | 2024-03-15", lines.get(2));
+        assertEquals("2 | E | X | trip | 2024-04-20 0900 | 2024-04-22", lines.get(3));
+    }
+
+    @Test
+    public void loadTasks_lastTaskDeletedBeforeRestart_doesNotGiveOutItsId() throws IOException {
+        Path saveFile = tempDir.resolve("savedata.txt");
+        TextTaskStorage storage = new TextTaskStorage(saveFile.toString());
+        TaskHandler taskHandler = new SlottedTaskHandler();
+        taskHandler.addTask(new Todo("a"));
+        taskHandler.addTask(new Todo("b"));
+        taskHandler.addTask(new Todo("c"));
+        storage.storeAllTasks(taskHandler);
+        taskHandler.deleteTask(2);
+        storage.unstoreDeletedTask(taskHandler, 2);
+
+        TaskHandler reloadedTaskHandler = new SlottedTaskHandler();
+        assertEquals(0, new TextTaskStorage(saveFile.toString()).loadTasks(reloadedTaskHandler));
+        Todo addedTask = new Todo("d");
+        reloadedTaskHandler.addTask(addedTask);
+
+        assertEquals(4, addedTask.getTaskId());
+        assertNull(reloadedTaskHandler.getTaskById(3));
+    }
+}
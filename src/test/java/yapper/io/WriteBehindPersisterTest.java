@@ -0,0 +1,103 @@
+package yapper.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class WriteBehindPersisterTest {
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void startPersister() {
+        WriteBehindPersister.start(WriteBehindPersister.Durability.BATCHED, 20, 8);
+    }
+    @AfterEach
+    public void stopPersister() {
+        // stopped again, so that the writes of other tests are made directly
+        WriteBehindPersister.stop();
+    }
+
+    @Test
+    public void awaitAll_appendsAndReplacements_reachDiskInQueueOrder() throws IOException {
+        Path saveFile = tempDir.resolve("savedata.txt");
+        Path otherFile = tempDir.resolve("other.txt");
+        Files.writeString(saveFile, "1\n");
+        List<String> seenByActions = new ArrayList<>();
+
+        WriteBehindPersister.append(saveFile, bytes("2\n"), false);
+        WriteBehindPersister.append(otherFile, bytes("a\n"), true);
+        WriteBehindPersister.run(() -> seenByActions.add(Files.readString(saveFile)));
+        WriteBehindPersister.replace(saveFile, bytes("R\n"));
+        WriteBehindPersister.append(saveFile, bytes("3\n"), false);
+        WriteBehindPersister.append(otherFile, bytes("b\n"), true);
+        WriteBehindPersister.append(saveFile, bytes("4\n"), false);
+        WriteBehindPersister.run(() -> seenByActions.add(Files.readString(saveFile)));
+        // more writes than fit in one commit, so they are spread over several
+        for (int line = 5; line <= 30; line++) {
+            WriteBehindPersister.append(saveFile, bytes(line + "\n"), false);
+        }
+        WriteBehindPersister.awaitAll();
+
+        StringBuilder expectedSaveFile = new StringBuilder("R\n3\n4\n");
+        for (int line = 5; line <= 30; line++) {
+            expectedSaveFile.append(line).append('\n');
+        }
+        assertEquals(expectedSaveFile.toString(), Files.readString(saveFile));
+        assertEquals("a\nb\n", Files.readString(otherFile));
+        assertEquals(List.of("1\n2\n", "R\n3\n4\n"), seenByActions);
+    }
+
+    @Test
+    public void awaitAll_writesHeldUpInTheQueue_waitsForThem() throws Exception {
+        Path saveFile = tempDir.resolve("savedata.txt");
+        Files.writeString(saveFile, "1\n");
+        CountDownLatch isCommitReleased = new CountDownLatch(1);
+
+        // holds up the background thread, so the writes after it stay queued
+        WriteBehindPersister.run(() -> {
+            try {
+                isCommitReleased.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        WriteBehindPersister.append(saveFile, bytes("2\n"), false);
+        WriteBehindPersister.replace(saveFile, bytes("R\n"));
+        WriteBehindPersister.append(saveFile, bytes("3\n"), false);
+
+        CountDownLatch isAwaitDone = new CountDownLatch(1);
+        Thread awaitingThread = new Thread(() -> {
+            WriteBehindPersister.awaitAll();
+            isAwaitDone.countDown();
+        });
+        awaitingThread.start();
+
+        assertFalse(isAwaitDone.await(200, TimeUnit.MILLISECONDS));
+        assertEquals("1\n", Files.readString(saveFile));
+
+        isCommitReleased.countDown();
+        assertTrue(isAwaitDone.await(10, TimeUnit.SECONDS));
+        assertEquals("R\n3\n", Files.readString(saveFile));
+        awaitingThread.join();
+    }
+
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
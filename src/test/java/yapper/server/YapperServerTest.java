@@ -0,0 +1,75 @@
+package yapper.server;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import yapper.io.StringStorage;
+
+public class YapperServerTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void serveClient_sourceAndUse_refused() throws IOException {
+        Path scriptFile = tempDir.resolve("script.txt");
+        Files.write(scriptFile, List.of("todo from the server's files"), Charset.defaultCharset());
+
+        try (ServerSocket serverSocket = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+            Thread serverThread = new Thread(() -> {
+                try {
+                    YapperServer.acceptClients(serverSocket);
+                } catch (IOException e) {
+                    // the socket was closed at the end of the test
+                }
+            });
+            serverThread.setDaemon(true);
+            serverThread.start();
+
+            try (Socket clientSocket = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+                    BufferedReader serverOutput = new BufferedReader(new InputStreamReader(
+                            clientSocket.getInputStream(), StandardCharsets.UTF_8));
+                    PrintStream serverInput = new PrintStream(
+                            clientSocket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+                readReply(serverOutput);
+
+                serverInput.println(StringStorage.PREFIX_SOURCE_INSTRUCTION + " " + scriptFile);
+                String sourceReply = readReply(serverOutput);
+                assertTrue(sourceReply.contains(StringStorage.INSTRUCTION_NOT_FOR_CLIENTS_MESSAGE), sourceReply);
+                assertFalse(sourceReply.contains("from the server's files"), sourceReply);
+
+                serverInput.println(StringStorage.PREFIX_USE_INSTRUCTION + " other");
+                String useReply = readReply(serverOutput);
+                assertTrue(useReply.contains(StringStorage.INSTRUCTION_NOT_FOR_CLIENTS_MESSAGE), useReply);
+            }
+        }
+    }
+
+    /**
+     * Reads the lines of one reply, up to the user input divider that ends it.
+     */
+    private static String readReply(BufferedReader serverOutput) throws IOException {
+        StringBuilder reply = new StringBuilder();
+        String line = serverOutput.readLine();
+        while (line != null && !line.equals(StringStorage.LINE_DIVIDER_INPUT)) {
+            reply.append(line).append("\n");
+            line = serverOutput.readLine();
+        }
+        return reply.toString();
+    }
+}
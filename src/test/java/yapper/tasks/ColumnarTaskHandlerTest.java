@@ -0,0 +1,166 @@
+package yapper.tasks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import yapper.io.DateAndTimeHandler;
+
+public class ColumnarTaskHandlerTest {
+    private static final String[] WORDS = {"read", "Return", "book", "books", "tax", "trip", "team", "meeting"};
+    private static final LocalDateTime FIRST_DATE = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Test
+    public void randomChanges_sameAsSlottedTaskHandler() {
+        Random random = new Random(42);
+        TaskHandler expected = new SlottedTaskHandler();
+        TaskHandler actual = new ColumnarTaskHandler();
+        List<Task> expectedDeleted = new ArrayList<>();
+        List<Task> actualDeleted = new ArrayList<>();
+
+        for (int step = 0; step < 4000; step++) {
+            int taskTotal = expected.getCurrTaskTotal();
+            int change = taskTotal < 20 ? 0 : random.nextInt(12);
+            if (change <= 5) {
+                Supplier<Task> newTask = createRandomTask(random);
+                expected.addTask(newTask.get());
+                actual.addTask(newTask.get());
+            } else if (change == 6) {
+                int taskOrdinal = random.nextInt(taskTotal);
+                expectedDeleted.add(expected.getTaskAtOrdinal(taskOrdinal));
+                actualDeleted.add(actual.getTaskAtOrdinal(taskOrdinal));
+                expected.deleteTask(taskOrdinal);
+                actual.deleteTask(taskOrdinal);
+            } else if (change == 7) {
+                int[] taskOrdinals = pickOrdinals(random, taskTotal, 32);
+                expectedDeleted.addAll(expected.deleteTasks(taskOrdinals));
+                actualDeleted.addAll(actual.deleteTasks(taskOrdinals));
+            } else if (change == 8 && !expectedDeleted.isEmpty()) {
+                // puts the last few deleted tasks back at random ordinals, as undoing their deletion would
+                int insertedTotal = Math.min(expectedDeleted.size(), 1 + random.nextInt(3));
+                int[] taskOrdinals = random.ints(0, taskTotal + insertedTotal).distinct().limit(insertedTotal)
+                        .sorted().toArray();
+                List<Task> expectedInserted = expectedDeleted.subList(expectedDeleted.size() - insertedTotal,
+                        expectedDeleted.size());
+                List<Task> actualInserted = actualDeleted.subList(actualDeleted.size() - insertedTotal,
+                        actualDeleted.size());
+                expected.insertTasks(taskOrdinals, new ArrayList<>(expectedInserted));
+                actual.insertTasks(taskOrdinals, new ArrayList<>(actualInserted));
+                expectedInserted.clear();
+                actualInserted.clear();
+            } else if (change == 9) {
+                int[] taskOrdinals = pickOrdinals(random, taskTotal, 8);
+                boolean isDone = random.nextBoolean();
+                assertEquals(toList(expected.updateTasksStatus(taskOrdinals, isDone)),
+                        toList(actual.updateTasksStatus(taskOrdinals, isDone)));
+            } else {
+                int taskOrdinal = random.nextInt(taskTotal);
+                boolean isDone = random.nextBoolean();
+                expected.updateTaskStatus(expected.getTaskAtOrdinal(taskOrdinal), isDone);
+                actual.updateTaskStatus(actual.getTaskAtOrdinal(taskOrdinal), isDone);
+            }
+
+            assertSameTasks(expected, actual, step);
+            if (step % 25 == 0) {
+                assertSameQueries(expected, actual, random, step);
+            }
+        }
+    }
+
+
+    /**
+     * Returns a supplier of copies of one random task, so each task list gets its own copy.
+     * A few tasks come with an ID, some of them in use already, as when loaded from a save file edited by hand.
+     */
+    private static Supplier<Task> createRandomTask(Random random) {
+        String taskDesc = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+        boolean isDone = random.nextBoolean();
+        long taskId = random.nextInt(10) == 0 ? 1 + random.nextInt(5000) : Task.NO_TASK_ID;
+        String startDate = createRandomDate(random, 0);
+        String endDate = createRandomDate(random, random.nextInt(2) == 0 ? 0 : 1 + random.nextInt(2000));
+        int taskType = random.nextInt(3);
+        return () -> {
+            Task task = taskType == 0 ? new Todo(taskDesc, isDone)
+                    : taskType == 1 ? new Deadline(taskDesc, isDone, endDate)
+                    : new Event(taskDesc, isDone, startDate, endDate);
+            task.setTaskId(taskId);
+            return task;
+        };
+    }
+    /**
+     * Returns a date with or without a time, or rarely one that is not a date at all.
+     * Dates come from a fixed pool of days, the given number of hours after that, so dates ending later
+     * than they start can be made from the same pool.
+     */
+    private static String createRandomDate(Random random, int laterByHours) {
+        int dateShape = random.nextInt(10);
+        if (dateShape == 0) {
+            return "someday";
+        }
+        LocalDateTime dateTime = FIRST_DATE.plusDays(random.nextInt(60)).plusHours(laterByHours);
+        if (dateShape <= 4) {
+            return dateTime.toLocalDate().toString();
+        }
+        return dateTime.toLocalDate() + " " + String.format("%02d%02d", dateTime.getHour(), dateTime.getMinute());
+    }
+    /**
+     * Returns about one in every given share of the ordinals below the total, in ascending order.
+     */
+    private static int[] pickOrdinals(Random random, int ordinalTotal, int share) {
+        int[] ordinals = new int[ordinalTotal];
+        int pickedTotal = 0;
+        for (int ordinal = 0; ordinal < ordinalTotal; ordinal++) {
+            if (random.nextInt(share) == 0) {
+                ordinals[pickedTotal++] = ordinal;
+            }
+        }
+        return Arrays.copyOf(ordinals, pickedTotal);
+    }
+
+    private static void assertSameTasks(TaskHandler expected, TaskHandler actual, int step) {
+        String message = "after step " + step;
+        assertEquals(expected.getCurrTaskTotal(), actual.getCurrTaskTotal(), message);
+        assertEquals(expected.isEmpty(), actual.isEmpty(), message);
+        assertEquals(expected.getNextTaskId(), actual.getNextTaskId(), message);
+        assertEquals(expected.getNewTaskIdTotal(), actual.getNewTaskIdTotal(), message);
+        assertEquals(expected.tasksToString(), actual.tasksToString(), message);
+    }
+    private static void assertSameQueries(TaskHandler expected, TaskHandler actual, Random random, int step) {
+        String message = "after step " + step;
+        String word = WORDS[random.nextInt(WORDS.length)];
+        assertEquals(expected.findOrdinalsContaining(word), actual.findOrdinalsContaining(word), message);
+        String prefix = word.substring(0, 1 + random.nextInt(word.length()));
+        assertEquals(expected.findOrdinalsWithWordPrefix(prefix), actual.findOrdinalsWithWordPrefix(prefix), message);
+        assertEquals(expected.completeWord(prefix, 3), actual.completeWord(prefix, 3), message);
+
+        long from = DateAndTimeHandler.toEpochMinute(FIRST_DATE.plusDays(random.nextInt(70)));
+        long to = from + random.nextInt(20 * 24 * 60);
+        assertEquals(expected.findOrdinalsDueBetween(from, to), actual.findOrdinalsDueBetween(from, to), message);
+        assertEquals(expected.findOrdinalsOverlapping(from, to), actual.findOrdinalsOverlapping(from, to), message);
+
+        for (int lookUp = 0; lookUp < 10; lookUp++) {
+            long taskId = 1 + random.nextInt((int) expected.getNextTaskId());
+            Task expectedTask = expected.getTaskById(taskId);
+            Task actualTask = actual.getTaskById(taskId);
+            assertEquals(expectedTask == null ? null : expectedTask.taskToSaveString(),
+                    actualTask == null ? null : actualTask.taskToSaveString(), message);
+            if (expectedTask != null) {
+                assertEquals(expected.getOrdinalOf(expectedTask), actual.getOrdinalOf(actualTask), message);
+            }
+        }
+    }
+    private static List<Integer> toList(int[] values) {
+        List<Integer> list = new ArrayList<>(values.length);
+        for (int value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,77 @@
+package yapper.tasks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static yapper.tasks.TaskHandlerFixtures.createTaskHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import yapper.exceptions.YapperException;
+import yapper.instructions.InstructionHandler;
+import yapper.io.DateAndTimeHandler;
+
+public class SlottedTaskHandlerTest {
+
+    @Test
+    public void insertTasks_singleTaskIntoItsEmptiedSlot_keepsEveryOrdinal() {
+        TaskHandler taskHandler = createTaskHandler(5);
+        Task deletedTask = taskHandler.getTaskAtOrdinal(2);
+        taskHandler.deleteTask(2);
+
+        taskHandler.insertTasks(new int[] {2}, List.of(deletedTask));
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), getTaskIds(taskHandler));
+        assertEquals(2, taskHandler.getOrdinalOf(deletedTask));
+        assertEquals(deletedTask, taskHandler.getTaskById(3));
+    }
+
+    @Test
+    public void insertTasks_singleTaskAtTheEnd_isAppended() {
+        TaskHandler taskHandler = createTaskHandler(3);
+        Task deletedTask = taskHandler.getTaskAtOrdinal(2);
+        taskHandler.deleteTask(2);
+
+        taskHandler.insertTasks(new int[] {2}, List.of(deletedTask));
+        taskHandler.addTask(new Todo("task 4"));
+
+        assertEquals(List.of(1L, 2L, 3L, 4L), getTaskIds(taskHandler));
+    }
+
+    @Test
+    public void insertTasks_singleTaskWithoutAnEmptySlot_movesTheOthersAlong() {
+        TaskHandler taskHandler = createTaskHandler(4);
+        Task deletedTask = taskHandler.getTaskAtOrdinal(0);
+        taskHandler.deleteTask(0);
+
+        taskHandler.insertTasks(new int[] {2}, List.of(deletedTask));
+
+        assertEquals(List.of(2L, 3L, 1L, 4L), getTaskIds(taskHandler));
+        assertEquals(2, taskHandler.getOrdinalOf(deletedTask));
+    }
+
+    @Test
+    public void findOrdinalsOverlapping_periodStartingAfterItEnds_findsNothing() throws YapperException {
+        TaskHandler taskHandler = new SlottedTaskHandler();
+        taskHandler.addTask(new Deadline("d", "2024-04-22"));
+        long from = DateAndTimeHandler.parseQueryDate("2024-04-23", false);
+        long to = DateAndTimeHandler.parseQueryDate("2024-04-21", true);
+
+        assertEquals(List.of(), taskHandler.findOrdinalsOverlapping(from, to));
+        assertEquals(List.of(), taskHandler.findOrdinalsDueBetween(from, to));
+        assertThrows(YapperException.class, () ->
+                InstructionHandler.handleBetweenInstruction(taskHandler, "2024-04-23", "2024-04-21"));
+        assertThrows(YapperException.class, () ->
+                InstructionHandler.handleBetweenInstruction(taskHandler, "2024-01-01 1200", "2024-01-01 1100"));
+    }
+
+    private static List<Long> getTaskIds(TaskHandler taskHandler) {
+        List<Long> taskIds = new ArrayList<>();
+        for (Task task : taskHandler.getAllTasks()) {
+            taskIds.add(task.getTaskId());
+        }
+        return taskIds;
+    }
+}
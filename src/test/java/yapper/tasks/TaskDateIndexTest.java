@@ -0,0 +1,88 @@
+package yapper.tasks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import yapper.io.DateAndTimeHandler;
+
+public class TaskDateIndexTest {
+    private static final LocalDateTime FIRST_DATE = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Test
+    public void getTasksOverlapping_randomAddsAndRemoves_matchesCheckingEveryTask() {
+        Random random = new Random(42);
+        TaskDateIndex dateIndex = new TaskDateIndex();
+        List<Task> indexedTasks = new ArrayList<>();
+        for (int step = 0; step < 2000; step++) {
+            if (indexedTasks.isEmpty() || random.nextInt(3) > 0) {
+                Task task = createRandomTask(random);
+                dateIndex.addTask(task);
+                indexedTasks.add(task);
+            } else {
+                dateIndex.removeTask(indexedTasks.remove(random.nextInt(indexedTasks.size())));
+            }
+
+            long from = toMinute(FIRST_DATE.plusMinutes(random.nextInt(400 * 24 * 60)));
+            long to = from + random.nextInt(30 * 24 * 60);
+            assertEquals(sortById(findOverlapping(indexedTasks, from, to)),
+                    sortById(dateIndex.getTasksOverlapping(from, to)));
+        }
+    }
+
+    @Test
+    public void getTasksOverlapping_longEventRemoved_stillFindsTheOthers() {
+        TaskDateIndex dateIndex = new TaskDateIndex();
+        Task yearLongEvent = new Event("year", false, "2024-01-01", "2024-12-31");
+        Task deadline = new Deadline("tax", false, "2024-04-15");
+        dateIndex.addTask(yearLongEvent);
+        dateIndex.addTask(deadline);
+        dateIndex.removeTask(yearLongEvent);
+
+        long from = toMinute(LocalDateTime.of(2024, 4, 15, 12, 0));
+        assertEquals(List.of(deadline), dateIndex.getTasksOverlapping(from, from));
+        assertEquals(List.of(), dateIndex.getTasksOverlapping(from + 24 * 60, from + 48 * 60));
+    }
+
+    private static Task createRandomTask(Random random) {
+        LocalDateTime start = FIRST_DATE.plusMinutes(random.nextInt(365 * 24 * 60));
+        Task task;
+        if (random.nextBoolean()) {
+            task = new Deadline("deadline", false, formatInputDate(start));
+        } else {
+            // mostly short events, with the odd one lasting months
+            int length = random.nextInt(10) == 0 ? random.nextInt(200 * 24 * 60) : random.nextInt(3 * 24 * 60);
+            task = new Event("event", false, formatInputDate(start),
+                    formatInputDate(start.plusMinutes(length)));
+        }
+        task.setTaskId(random.nextLong() & Long.MAX_VALUE);
+        return task;
+    }
+    private static String formatInputDate(LocalDateTime dateTime) {
+        return dateTime.format(DateAndTimeHandler.getFormatter(DateAndTimeHandler.DATE_WITH_TIME_INPUT));
+    }
+    private static List<Task> findOverlapping(List<Task> tasks, long from, long to) {
+        List<Task> overlappingTasks = new ArrayList<>();
+        for (Task task : tasks) {
+            long[] interval = TaskDateIndex.getInterval(task);
+            if (interval[0] <= to && interval[1] >= from) {
+                overlappingTasks.add(task);
+            }
+        }
+        return overlappingTasks;
+    }
+    private static List<Task> sortById(List<Task> tasks) {
+        List<Task> sortedTasks = new ArrayList<>(tasks);
+        sortedTasks.sort(Comparator.comparingLong(Task::getTaskId));
+        return sortedTasks;
+    }
+    private static long toMinute(LocalDateTime dateTime) {
+        return DateAndTimeHandler.toEpochMinute(dateTime);
+    }
+}
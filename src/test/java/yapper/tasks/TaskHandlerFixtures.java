@@ -0,0 +1,21 @@
+package yapper.tasks;
+
+/**
+ * Builds task lists for tests.
+ */
+public class TaskHandlerFixtures {
+
+    /**
+     * Returns a task list of Todos named "task 1" to "task n", with IDs 1 to n.
+     *
+     * @param taskTotal the number of tasks
+     * @return the task list
+     */
+    public static TaskHandler createTaskHandler(int taskTotal) {
+        TaskHandler taskHandler = new SlottedTaskHandler();
+        for (int index = 1; index <= taskTotal; index++) {
+            taskHandler.addTask(new Todo("task " + index));
+        }
+        return taskHandler;
+    }
+}